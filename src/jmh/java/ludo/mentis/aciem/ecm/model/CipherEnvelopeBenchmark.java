@@ -0,0 +1,86 @@
+package ludo.mentis.aciem.ecm.model;
+
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Envelope (de)serialisation: text form, binary codec and entity mapping. */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CipherEnvelopeBenchmark {
+
+    @Param({"PBKDF2", "RAW"})
+    public String kdf;
+
+    private CipherEnvelope envelope;
+    private String text;
+    private byte[] binary;
+    private CipherEnvelopeEntity columnsEntity;
+    private CipherEnvelopeEntity binaryEntity;
+
+    @Setup
+    public void setUp() {
+        var builder = CipherEnvelope.builder()
+                .kdf(Kdf.valueOf(kdf))
+                .iv(new byte[12])
+                .ciphertext(new byte[48]);
+        if (Kdf.valueOf(kdf).isSalted()) {
+            builder.iterations(210_000).salt(new byte[16]);
+        }
+        envelope = builder.build();
+        text = envelope.toString();
+        binary = CipherEnvelopeCodec.encode(envelope);
+        columnsEntity = CipherEnvelopeMapper.toEntity(envelope);
+        binaryEntity = CipherEnvelopeMapper.toEntity(envelope, true);
+    }
+
+    @Benchmark
+    public String textToString() {
+        return envelope.toString();
+    }
+
+    @Benchmark
+    public CipherEnvelope textParse() {
+        return CipherEnvelope.parse(text);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return CipherEnvelopeCodec.encode(envelope);
+    }
+
+    @Benchmark
+    public CipherEnvelope binaryDecode() {
+        return CipherEnvelopeCodec.decode(binary);
+    }
+
+    @Benchmark
+    public CipherEnvelopeEntity mapperToEntity() {
+        return CipherEnvelopeMapper.toEntity(envelope);
+    }
+
+    @Benchmark
+    public CipherEnvelope mapperToModelColumns() {
+        return CipherEnvelopeMapper.toModel(columnsEntity);
+    }
+
+    @Benchmark
+    public CipherEnvelope mapperToModelBinary() {
+        return CipherEnvelopeMapper.toModel(binaryEntity);
+    }
+}
@@ -0,0 +1,76 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.CryptoProperties;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.model.Kdf;
+import ludo.mentis.aciem.ecm.service.crypto.aes.AesService;
+import ludo.mentis.aciem.ecm.service.crypto.aes.AesServiceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/** PasswordServiceImpl as the application uses it, wired to a real AesService. */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordServiceBenchmark {
+
+    private static final String PASSWORD = "a-typical-database-password-1234";
+
+    @Param({"PBKDF2", "HKDF"})
+    public String kdf;
+
+    private AesService aesService;
+    private PasswordServiceImpl passwordService;
+    private CipherEnvelopeEntity stored;
+    private byte[] candidate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        aesService = new AesService(AesServiceConfig.builder()
+                .passphrase("benchmark-passphrase".toCharArray())
+                .kdf(Kdf.valueOf(kdf))
+                .build());
+        var properties = new CryptoProperties();
+        properties.setAad("tenant:benchmark");
+        passwordService = new PasswordServiceImpl(aesService, properties);
+        stored = passwordService.encryptPasswordToEntity(PASSWORD);
+        candidate = PASSWORD.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        aesService.close();
+    }
+
+    @Benchmark
+    public String roundTrip() {
+        return passwordService.decryptPasswordFromEntity(passwordService.encryptPasswordToEntity(PASSWORD));
+    }
+
+    @Benchmark
+    public String decryptStored() {
+        return passwordService.decryptPasswordFromEntity(stored);
+    }
+
+    @Benchmark
+    public boolean matchesStored() {
+        return passwordService.matchesPassword(stored, candidate);
+    }
+}
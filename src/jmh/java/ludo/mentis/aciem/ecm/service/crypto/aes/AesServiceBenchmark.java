@@ -0,0 +1,80 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.model.CipherEnvelope;
+import ludo.mentis.aciem.ecm.model.Kdf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt/decrypt cost per envelope mode. {@code iterations} only applies to the passphrase
+ * modes; {@code keyCacheSize=0} disables the derived-key cache so PBKDF2 runs on every decrypt.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AesServiceBenchmark {
+
+    @Param({"RAW", "PBKDF2", "HKDF"})
+    public String kdf;
+
+    @Param({"100000", "210000", "600000"})
+    public int iterations;
+
+    @Param({"1024", "0"})
+    public int keyCacheSize;
+
+    private AesService service;
+    private byte[] plaintext;
+    private byte[] aad;
+    private CipherEnvelope envelope;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var builder = AesServiceConfig.builder()
+                .pbkdf2Iterations(iterations)
+                .keyCacheMaxEntries(keyCacheSize);
+        if ("RAW".equals(kdf)) {
+            builder.secretKey(new SecretKeySpec(new byte[32], "AES"));
+        } else {
+            builder.passphrase("benchmark-passphrase".toCharArray()).kdf(Kdf.valueOf(kdf));
+        }
+        service = new AesService(builder.build());
+        plaintext = "a-typical-database-password-1234".getBytes(StandardCharsets.UTF_8);
+        aad = "tenant:benchmark".getBytes(StandardCharsets.UTF_8);
+        envelope = service.encrypt(plaintext.clone(), aad);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public CipherEnvelope encrypt() {
+        // encrypt() wipes its input, so every call needs its own copy
+        return service.encrypt(plaintext.clone(), aad);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return service.decrypt(envelope, aad);
+    }
+}
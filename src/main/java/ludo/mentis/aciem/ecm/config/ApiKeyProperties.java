@@ -0,0 +1,133 @@
+package ludo.mentis.aciem.ecm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ecm.api-key")
+public class ApiKeyProperties {
+
+    private int verificationCacheSize = 10_000;
+    private Duration verificationCacheTtl = Duration.ofSeconds(60);
+    private int negativeCacheSize = 10_000;
+    private Duration negativeCacheTtl = Duration.ofSeconds(30);
+    private double rateLimitPerClient = 20;
+    private double rateLimitPerAddress = 50;
+    private int rateLimitBurst = 40;
+    private int rateLimitMaxKeys = 10_000;
+    private Duration hostResolveTtl = Duration.ofMinutes(5);
+    private Duration tokenTtl = Duration.ofMinutes(5);
+    private String tokenSecret;
+    private SecretStorage secretStorage = SecretStorage.ENVELOPE;
+    private String pepper;
+
+    public int getVerificationCacheSize() {
+        return verificationCacheSize;
+    }
+
+    public void setVerificationCacheSize(int verificationCacheSize) {
+        this.verificationCacheSize = verificationCacheSize;
+    }
+
+    public Duration getVerificationCacheTtl() {
+        return verificationCacheTtl;
+    }
+
+    public void setVerificationCacheTtl(Duration verificationCacheTtl) {
+        this.verificationCacheTtl = verificationCacheTtl;
+    }
+
+    public int getNegativeCacheSize() {
+        return negativeCacheSize;
+    }
+
+    public void setNegativeCacheSize(int negativeCacheSize) {
+        this.negativeCacheSize = negativeCacheSize;
+    }
+
+    public Duration getNegativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    public void setNegativeCacheTtl(Duration negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+    }
+
+    public double getRateLimitPerClient() {
+        return rateLimitPerClient;
+    }
+
+    public void setRateLimitPerClient(double rateLimitPerClient) {
+        this.rateLimitPerClient = rateLimitPerClient;
+    }
+
+    public double getRateLimitPerAddress() {
+        return rateLimitPerAddress;
+    }
+
+    public void setRateLimitPerAddress(double rateLimitPerAddress) {
+        this.rateLimitPerAddress = rateLimitPerAddress;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public void setRateLimitBurst(int rateLimitBurst) {
+        this.rateLimitBurst = rateLimitBurst;
+    }
+
+    public int getRateLimitMaxKeys() {
+        return rateLimitMaxKeys;
+    }
+
+    public void setRateLimitMaxKeys(int rateLimitMaxKeys) {
+        this.rateLimitMaxKeys = rateLimitMaxKeys;
+    }
+
+    public Duration getHostResolveTtl() {
+        return hostResolveTtl;
+    }
+
+    public void setHostResolveTtl(Duration hostResolveTtl) {
+        this.hostResolveTtl = hostResolveTtl;
+    }
+
+    public Duration getTokenTtl() {
+        return tokenTtl;
+    }
+
+    public void setTokenTtl(Duration tokenTtl) {
+        this.tokenTtl = tokenTtl;
+    }
+
+    public String getTokenSecret() {
+        return tokenSecret;
+    }
+
+    public void setTokenSecret(String tokenSecret) {
+        this.tokenSecret = tokenSecret;
+    }
+
+    public SecretStorage getSecretStorage() {
+        return secretStorage;
+    }
+
+    public void setSecretStorage(SecretStorage secretStorage) {
+        this.secretStorage = secretStorage;
+    }
+
+    public String getPepper() {
+        return pepper;
+    }
+
+    public void setPepper(String pepper) {
+        this.pepper = pepper;
+    }
+
+    /** How new API key secrets are stored: reversibly in a cipher envelope, or as a peppered HMAC. */
+    public enum SecretStorage {
+        ENVELOPE,
+        HASH
+    }
+}
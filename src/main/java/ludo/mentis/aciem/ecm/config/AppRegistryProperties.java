@@ -0,0 +1,19 @@
+package ludo.mentis.aciem.ecm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ecm.app-registry")
+public class AppRegistryProperties {
+
+    private Duration refreshInterval = Duration.ofSeconds(60);
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+}
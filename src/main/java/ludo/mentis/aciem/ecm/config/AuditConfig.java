@@ -0,0 +1,30 @@
+package ludo.mentis.aciem.ecm.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ludo.mentis.aciem.ecm.service.SecretAccessAuditServiceImpl;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AuditConfig {
+
+    @Bean
+    MeterBinder auditMetrics(SecretAccessAuditServiceImpl auditService) {
+        return registry -> {
+            Gauge.builder("ecm.audit.queued", auditService, SecretAccessAuditServiceImpl::getQueueSize)
+                    .description("Audit events waiting to be written")
+                    .register(registry);
+            FunctionCounter.builder("ecm.audit.written", auditService, SecretAccessAuditServiceImpl::getWrittenCount)
+                    .description("Audit events written to the audit table")
+                    .register(registry);
+            FunctionCounter.builder("ecm.audit.dropped", auditService, SecretAccessAuditServiceImpl::getDroppedCount)
+                    .description("Audit events dropped because the buffer was full")
+                    .register(registry);
+            FunctionCounter.builder("ecm.audit.failed", auditService, SecretAccessAuditServiceImpl::getFailedCount)
+                    .description("Audit events lost because their batch could not be written")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package ludo.mentis.aciem.ecm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ecm.audit")
+public class AuditProperties {
+
+    private boolean enabled = true;
+    private int bufferSize = 8192;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(200);
+    private Backpressure backpressure = Backpressure.DROP_NEWEST;
+    private Duration blockTimeout = Duration.ofMillis(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    public void setBackpressure(Backpressure backpressure) {
+        this.backpressure = backpressure;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
+    /** What a request does when the audit buffer is full. */
+    public enum Backpressure {
+        /** Discard the new event. */
+        DROP_NEWEST,
+        /** Discard the oldest buffered event to make room. */
+        DROP_OLDEST,
+        /** Wait up to {@code block-timeout} for room, then discard the new event. */
+        BLOCK
+    }
+}
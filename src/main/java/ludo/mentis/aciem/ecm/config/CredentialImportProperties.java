@@ -0,0 +1,35 @@
+package ludo.mentis.aciem.ecm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ecm.import")
+public class CredentialImportProperties {
+
+    private int batchSize = 500;
+    private int encryptionThreads = 0;
+    private int maxReportedFailures = 1000;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getEncryptionThreads() {
+        return encryptionThreads;
+    }
+
+    public void setEncryptionThreads(int encryptionThreads) {
+        this.encryptionThreads = encryptionThreads;
+    }
+
+    public int getMaxReportedFailures() {
+        return maxReportedFailures;
+    }
+
+    public void setMaxReportedFailures(int maxReportedFailures) {
+        this.maxReportedFailures = maxReportedFailures;
+    }
+}
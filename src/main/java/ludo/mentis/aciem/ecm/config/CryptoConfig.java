@@ -1,9 +1,18 @@
 package ludo.mentis.aciem.ecm.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ludo.mentis.aciem.ecm.service.SecretCache;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoExecutor;
+import ludo.mentis.aciem.ecm.service.crypto.aes.AesService;
 import ludo.mentis.aciem.ecm.service.crypto.aes.AesServiceConfig;
+import ludo.mentis.aciem.ecm.service.crypto.aes.NonceSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class CryptoConfig {
 
@@ -16,11 +25,95 @@ public class CryptoConfig {
     @Bean
     AesServiceConfig aesServiceConfig() {
         var pass = config.getKey().toCharArray();
-        return AesServiceConfig
+        var builder = AesServiceConfig
                 .builder()
                 .passphrase(pass)
                 .pbkdf2Iterations(config.getIterations())
-                .keyLengthBits(config.getKeySize())
-                .build();
+                .keyLengthBits(config.getKeySize());
+        if (config.getKeyId() != null) {
+            builder.keyId(config.getKeyId());
+        }
+        config.getRetiredKeys().forEach((kid, key) -> builder.retiredPassphrase(kid, key.toCharArray()));
+        if (config.getKdf() != null) {
+            builder.kdf(config.getKdf());
+        }
+        if (config.getKeyCacheSize() != null) {
+            builder.keyCacheMaxEntries(config.getKeyCacheSize());
+        }
+        if (config.getKeyCacheTtl() != null) {
+            builder.keyCacheTtl(config.getKeyCacheTtl());
+        }
+        if (config.getBatchParallelism() != null) {
+            builder.batchParallelism(config.getBatchParallelism());
+        }
+        if (config.getIvMode() == CryptoProperties.IvMode.COUNTER) {
+            if (config.getIvFixedField() == null || config.getIvCounterFile() == null) {
+                throw new IllegalStateException("ecm.crypto.iv-mode=COUNTER requires ecm.crypto.iv-fixed-field "
+                        + "(unique per node sharing the key) and ecm.crypto.iv-counter-file");
+            }
+            builder.nonceSource(NonceSource.counterIv(config.getIvFixedField(), config.getIvCounterFile()));
+        }
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "close")
+    CryptoExecutor cryptoExecutor() {
+        int threads = config.getExecutorThreads() != null
+                ? config.getExecutorThreads()
+                : Runtime.getRuntime().availableProcessors();
+        int queue = config.getExecutorQueueCapacity() != null ? config.getExecutorQueueCapacity() : threads * 4;
+        Duration retryAfter = config.getBusyRetryAfter() != null ? config.getBusyRetryAfter() : Duration.ofSeconds(1);
+        return new CryptoExecutor(threads, queue, retryAfter);
+    }
+
+    @Bean
+    MeterBinder cryptoExecutorMetrics(CryptoExecutor executor) {
+        return registry -> {
+            Gauge.builder("ecm.crypto.executor.active", executor, CryptoExecutor::getActiveCount)
+                    .description("Crypto tasks currently running")
+                    .register(registry);
+            Gauge.builder("ecm.crypto.executor.queued", executor, CryptoExecutor::getQueueSize)
+                    .description("Crypto tasks waiting for a thread")
+                    .register(registry);
+            FunctionCounter.builder("ecm.crypto.executor.rejected", executor, CryptoExecutor::getRejectedCount)
+                    .description("Crypto tasks rejected because the executor was saturated")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder aesKeyCacheMetrics(AesService aesService) {
+        return registry -> {
+            FunctionCounter.builder("ecm.crypto.key.cache.hits", aesService, s -> s.keyCacheStats().hits())
+                    .description("Derived-key cache hits")
+                    .register(registry);
+            FunctionCounter.builder("ecm.crypto.key.cache.misses", aesService, s -> s.keyCacheStats().misses())
+                    .description("Derived-key cache misses (PBKDF2 derivations)")
+                    .register(registry);
+            FunctionCounter.builder("ecm.crypto.key.cache.evictions", aesService, s -> s.keyCacheStats().evictions())
+                    .description("Derived-key cache evictions (expired or over capacity)")
+                    .register(registry);
+            Gauge.builder("ecm.crypto.key.cache.size", aesService, s -> s.keyCacheStats().size())
+                    .description("Derived keys currently cached")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder secretCacheMetrics(SecretCache secretCache) {
+        return registry -> {
+            FunctionCounter.builder("ecm.secret.cache.hits", secretCache, SecretCache::hits)
+                    .description("Password lookups answered from the secret cache")
+                    .register(registry);
+            FunctionCounter.builder("ecm.secret.cache.misses", secretCache, SecretCache::misses)
+                    .description("Password lookups that went to the database")
+                    .register(registry);
+            FunctionCounter.builder("ecm.secret.cache.evictions", secretCache, SecretCache::evictions)
+                    .description("Cached secrets wiped because they expired or the cache was full")
+                    .register(registry);
+            Gauge.builder("ecm.secret.cache.size", secretCache, SecretCache::size)
+                    .description("Secrets currently cached")
+                    .register(registry);
+        };
     }
 }
@@ -1,14 +1,33 @@
 package ludo.mentis.aciem.ecm.config;
 
+import ludo.mentis.aciem.ecm.model.Kdf;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "ecm.crypto")
 public class CryptoProperties {
 
     private String key;
+    private Integer keyId;
+    private Map<Integer, String> retiredKeys = new LinkedHashMap<>();
     private Integer iterations;
     private Integer keySize;
     private String aad;
+    private Kdf kdf;
+    private Integer keyCacheSize;
+    private Duration keyCacheTtl;
+    private IvMode ivMode;
+    private Integer ivFixedField;
+    private Path ivCounterFile;
+    private EnvelopeStorage envelopeStorage;
+    private Integer batchParallelism;
+    private Integer executorThreads;
+    private Integer executorQueueCapacity;
+    private Duration busyRetryAfter;
 
     public String getKey() {
         return key;
@@ -18,6 +37,22 @@ public class CryptoProperties {
         this.key = key;
     }
 
+    public Integer getKeyId() {
+        return keyId;
+    }
+
+    public void setKeyId(Integer keyId) {
+        this.keyId = keyId;
+    }
+
+    public Map<Integer, String> getRetiredKeys() {
+        return retiredKeys;
+    }
+
+    public void setRetiredKeys(Map<Integer, String> retiredKeys) {
+        this.retiredKeys = retiredKeys;
+    }
+
     public Integer getIterations() {
         return iterations;
     }
@@ -41,4 +76,107 @@ public class CryptoProperties {
     public void setAad(String aad) {
         this.aad = aad;
     }
+
+    public Kdf getKdf() {
+        return kdf;
+    }
+
+    public void setKdf(Kdf kdf) {
+        this.kdf = kdf;
+    }
+
+    public Integer getKeyCacheSize() {
+        return keyCacheSize;
+    }
+
+    public void setKeyCacheSize(Integer keyCacheSize) {
+        this.keyCacheSize = keyCacheSize;
+    }
+
+    public Duration getKeyCacheTtl() {
+        return keyCacheTtl;
+    }
+
+    public void setKeyCacheTtl(Duration keyCacheTtl) {
+        this.keyCacheTtl = keyCacheTtl;
+    }
+
+    public IvMode getIvMode() {
+        return ivMode;
+    }
+
+    public void setIvMode(IvMode ivMode) {
+        this.ivMode = ivMode;
+    }
+
+    public Integer getIvFixedField() {
+        return ivFixedField;
+    }
+
+    public void setIvFixedField(Integer ivFixedField) {
+        this.ivFixedField = ivFixedField;
+    }
+
+    public Path getIvCounterFile() {
+        return ivCounterFile;
+    }
+
+    public void setIvCounterFile(Path ivCounterFile) {
+        this.ivCounterFile = ivCounterFile;
+    }
+
+    public EnvelopeStorage getEnvelopeStorage() {
+        return envelopeStorage;
+    }
+
+    public void setEnvelopeStorage(EnvelopeStorage envelopeStorage) {
+        this.envelopeStorage = envelopeStorage;
+    }
+
+    public Integer getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    public void setBatchParallelism(Integer batchParallelism) {
+        this.batchParallelism = batchParallelism;
+    }
+
+    public Integer getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public void setExecutorThreads(Integer executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    public Integer getExecutorQueueCapacity() {
+        return executorQueueCapacity;
+    }
+
+    public void setExecutorQueueCapacity(Integer executorQueueCapacity) {
+        this.executorQueueCapacity = executorQueueCapacity;
+    }
+
+    public Duration getBusyRetryAfter() {
+        return busyRetryAfter;
+    }
+
+    public void setBusyRetryAfter(Duration busyRetryAfter) {
+        this.busyRetryAfter = busyRetryAfter;
+    }
+
+    /**
+     * How GCM IVs are generated: random from a per-thread DRBG, or a per-node fixed field
+     * ({@code iv-fixed-field}) plus a counter persisted in {@code iv-counter-file}.
+     */
+    public enum IvMode {
+        RANDOM,
+        COUNTER
+    }
+
+    /** How new envelopes are stored: one column per field (v1), or a single binary column (v2). */
+    public enum EnvelopeStorage {
+        COLUMNS,
+        BINARY
+    }
 }
@@ -1,5 +1,7 @@
 package ludo.mentis.aciem.ecm.config;
 
+import ludo.mentis.aciem.ecm.controller.filter.UploadSizeLimitFilter;
+import ludo.mentis.aciem.ecm.util.UserRoles;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,6 +14,7 @@ import org.springframework.security.ldap.userdetails.DefaultLdapAuthoritiesPopul
 import org.springframework.security.ldap.userdetails.LdapAuthoritiesPopulator;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint;
+import org.springframework.security.web.csrf.CsrfFilter;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
@@ -41,10 +44,13 @@ public class LdapSecurityConfig {
     SecurityFilterChain formsSecurityConfigFilterChain(final HttpSecurity http) throws Exception {
         return http
                 .cors(withDefaults())
+                .addFilterBefore(new UploadSizeLimitFilter(), CsrfFilter.class)
                 .csrf(csrf ->
                         csrf.ignoringRequestMatchers("/actuator/**", "/oauth/**", "/api/**"))
                 .authorizeHttpRequests(authorize ->
-                        authorize.requestMatchers(
+                        // Meters name the apps and endpoints being read; health and info stay public
+                        authorize.requestMatchers("/actuator/metrics/**").hasAuthority(UserRoles.ADMIN)
+                                .requestMatchers(
                                         "/swagger-ui.html",
                                         "/swagger-ui/**",
                                         "/v3/api-docs/**",
@@ -0,0 +1,37 @@
+package ludo.mentis.aciem.ecm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ecm.reencryption")
+public class ReEncryptionProperties {
+
+    private boolean enabled = false;
+    private int batchSize = 200;
+    private Duration pauseBetweenBatches = Duration.ofMillis(250);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getPauseBetweenBatches() {
+        return pauseBetweenBatches;
+    }
+
+    public void setPauseBetweenBatches(Duration pauseBetweenBatches) {
+        this.pauseBetweenBatches = pauseBetweenBatches;
+    }
+}
@@ -2,15 +2,13 @@ package ludo.mentis.aciem.ecm.controller;
 
 
 import jakarta.validation.Valid;
-import ludo.mentis.aciem.commons.web.CustomCollectors;
 import ludo.mentis.aciem.commons.web.FlashMessages;
 import ludo.mentis.aciem.commons.web.PaginationUtils;
 import ludo.mentis.aciem.commons.web.SortUtils;
-import ludo.mentis.aciem.ecm.domain.BusinessApp;
 import ludo.mentis.aciem.ecm.model.ApiKeyDTO;
 import ludo.mentis.aciem.ecm.model.Environment;
-import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
 import ludo.mentis.aciem.ecm.service.ApiKeyService;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import ludo.mentis.aciem.ecm.util.UserRoles;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -20,6 +18,7 @@ import org.springframework.data.web.SortDefault;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
@@ -34,6 +33,7 @@ import static java.util.Map.entry;
 public class ApiKeyController {
 
     private static final String ENTITY_NAME = "ApiKey";
+    public static final String MSG_API_KEY_SECRET = "MSG_API_KEY_SECRET";
     private static final String CONTROLLER_ADD = "apiKey/add";
     private static final String CONTROLLER_EDIT = "apiKey/edit";
     private static final String CONTROLLER_VIEW = "apiKey/view";
@@ -43,24 +43,22 @@ public class ApiKeyController {
     private final SortUtils sortUtils;
     private final ApiKeyService apiKeyService;
     private final PaginationUtils paginationUtils;
-    private final BusinessAppRepository applicationRepository;
+    private final BusinessAppRegistry businessAppRegistry;
 
     public ApiKeyController(final SortUtils sortUtils,
                             final ApiKeyService apiKeyService,
                             final PaginationUtils paginationUtils,
-                            final BusinessAppRepository applicationRepository) {
+                            final BusinessAppRegistry businessAppRegistry) {
         this.sortUtils = sortUtils;
         this.apiKeyService = apiKeyService;
         this.paginationUtils = paginationUtils;
-        this.applicationRepository = applicationRepository;
+        this.businessAppRegistry = businessAppRegistry;
     }
 
     @ModelAttribute
     public void prepareContext(final Model model) {
         model.addAttribute("environmentValues", Environment.values());
-        model.addAttribute("applicationValues", applicationRepository.findAll(Sort.by("name"))
-                .stream()
-                .collect(CustomCollectors.toLinkedHashMap(BusinessApp::getId, BusinessApp::getName)));
+        model.addAttribute("applicationValues", businessAppRegistry.namesById());
     }
 
     @GetMapping
@@ -111,8 +109,13 @@ public class ApiKeyController {
         if (bindingResult.hasErrors()) {
             return CONTROLLER_ADD;
         }
+        final var generated = !StringUtils.hasText(apiKeyDTO.getSecret());
         apiKeyService.create(apiKeyDTO);
         FlashMessages.createSuccess(redirectAttributes, ENTITY_NAME);
+        // One-time reveal: a generated or hashed secret cannot be looked up again later
+        if (generated || apiKeyService.isSecretStoredHashed()) {
+            redirectAttributes.addFlashAttribute(MSG_API_KEY_SECRET, apiKeyDTO.getSecret());
+        }
         return REDIRECT_TO_CONTROLLER_INDEX;
     }
 
@@ -1,13 +1,11 @@
 package ludo.mentis.aciem.ecm.controller;
 
 
-import ludo.mentis.aciem.commons.web.CustomCollectors;
 import ludo.mentis.aciem.commons.web.FlashMessages;
 import ludo.mentis.aciem.commons.web.PaginationUtils;
 import ludo.mentis.aciem.commons.web.SortUtils;
-import ludo.mentis.aciem.ecm.domain.BusinessApp;
 import ludo.mentis.aciem.ecm.model.*;
-import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import ludo.mentis.aciem.ecm.service.CredentialService;
 import ludo.mentis.aciem.ecm.util.UserRoles;
 import org.springframework.data.domain.PageRequest;
@@ -42,25 +40,23 @@ public class CredentialController {
     private final SortUtils sortUtils;
     private final PaginationUtils paginationUtils;
     private final CredentialService credentialService;
-    private final BusinessAppRepository applicationRepository;
+    private final BusinessAppRegistry businessAppRegistry;
 
     public CredentialController(final SortUtils sortUtils,
                                 final PaginationUtils paginationUtils,
                                 final CredentialService credentialService,
-                                final BusinessAppRepository applicationRepository) {
+                                final BusinessAppRegistry businessAppRegistry) {
         this.sortUtils = sortUtils;
         this.paginationUtils = paginationUtils;
         this.credentialService = credentialService;
-        this.applicationRepository = applicationRepository;
+        this.businessAppRegistry = businessAppRegistry;
     }
 
     @ModelAttribute
     public void prepareContext(final Model model) {
         model.addAttribute("environmentValues", Environment.values());
         model.addAttribute("credentialTypeValues", CredentialType.values());
-        model.addAttribute("applicationValues", applicationRepository.findAll(Sort.by("name"))
-                .stream()
-                .collect(CustomCollectors.toLinkedHashMap(BusinessApp::getId, BusinessApp::getName)));
+        model.addAttribute("applicationValues", businessAppRegistry.namesById());
     }
 
     @PreAuthorize("hasAnyAuthority('" + UserRoles.ADMIN + "', '" + UserRoles.DEVELOPER + "')")
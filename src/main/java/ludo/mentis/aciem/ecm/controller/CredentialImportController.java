@@ -0,0 +1,61 @@
+package ludo.mentis.aciem.ecm.controller;
+
+import ludo.mentis.aciem.commons.web.FlashMessages;
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.service.CredentialImportListener;
+import ludo.mentis.aciem.ecm.service.CredentialImportService;
+import ludo.mentis.aciem.ecm.util.UserRoles;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
+import java.security.Principal;
+
+@Controller
+@RequestMapping("/credentials/import")
+public class CredentialImportController {
+
+    private static final String CONTROLLER_IMPORT = "credential/import";
+    private static final String REDIRECT_TO_CONTROLLER_IMPORT = "redirect:/credentials/import";
+
+    private final CredentialImportService credentialImportService;
+
+    public CredentialImportController(final CredentialImportService credentialImportService) {
+        this.credentialImportService = credentialImportService;
+    }
+
+    @PreAuthorize("hasAuthority('" + UserRoles.ADMIN + "')")
+    @GetMapping
+    public String form(final Model model) {
+        model.addAttribute("formatValues", CredentialImportFormat.values());
+        return CONTROLLER_IMPORT;
+    }
+
+    @PreAuthorize("hasAuthority('" + UserRoles.ADMIN + "')")
+    @PostMapping
+    public String upload(@RequestParam("file") final MultipartFile file,
+                         @RequestParam(required = false) final CredentialImportFormat format,
+                         final Principal principal,
+                         final Model model,
+                         final RedirectAttributes redirectAttributes) throws IOException {
+        if (file == null || file.isEmpty()) {
+            FlashMessages.error(redirectAttributes, "Choose a non-empty file to import.");
+            return REDIRECT_TO_CONTROLLER_IMPORT;
+        }
+        var fileFormat = format != null ? format : CredentialImportFormat.fromFilename(file.getOriginalFilename());
+        try (var input = file.getInputStream()) {
+            var report = credentialImportService.importCredentials(input, fileFormat, principal.getName(),
+                    CredentialImportListener.NONE);
+            model.addAttribute("report", report);
+        }
+        model.addAttribute("formatValues", CredentialImportFormat.values());
+        return CONTROLLER_IMPORT;
+    }
+}
@@ -0,0 +1,58 @@
+package ludo.mentis.aciem.ecm.controller.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ludo.mentis.aciem.ecm.util.UserRoles;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Keeps the upload size of {@code spring.servlet.multipart.max-request-size} to admins importing credentials.
+ * The servlet's multipart limit is sized for import files; every other multipart request is held to Spring
+ * Boot's default of 10MB. Runs in the security chain once the session's login is known and before
+ * {@code CsrfFilter}, whose {@code _csrf} parameter lookup makes the container parse the whole body.
+ */
+public class UploadSizeLimitFilter extends OncePerRequestFilter {
+
+    static final long MAX_REQUEST_SIZE = DataSize.ofMegabytes(10).toBytes();
+    private static final String IMPORT_PATH = "/credentials/import";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null
+                || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")
+                || (IMPORT_PATH.equals(request.getServletPath()) && isAdmin());
+    }
+
+    private static boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.isAuthenticated()
+                && authentication.getAuthorities().stream()
+                .anyMatch(authority -> UserRoles.ADMIN.equals(authority.getAuthority()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            // A chunked body could only be measured while the container parses it, under the import limit
+            response.sendError(HttpServletResponse.SC_LENGTH_REQUIRED);
+            return;
+        }
+        if (length > MAX_REQUEST_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
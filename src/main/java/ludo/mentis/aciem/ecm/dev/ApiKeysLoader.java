@@ -10,6 +10,7 @@ import ludo.mentis.aciem.ecm.util.ApiKeyUtils;
 import ludo.mentis.aciem.ecm.util.RandomUtils;
 import net.datafaker.Faker;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Component
@@ -83,6 +84,7 @@ public class ApiKeysLoader implements DataLoaderCommand {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int run() {
         var apps = this.applicationRepository.findAll();
         if (apps.isEmpty()) {
@@ -9,10 +9,15 @@ import ludo.mentis.aciem.ecm.service.PasswordService;
 import ludo.mentis.aciem.ecm.util.RandomUtils;
 import net.datafaker.Faker;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
 
 @Component
 public class CredentialsLoader implements DataLoaderCommand {
 
+    private static final int TOTAL = 30;
+
     private final CredentialRepository credentialRepository;
     private final BusinessAppRepository applicationRepository;
     private final RandomUtils randomUtils;
@@ -42,22 +47,28 @@ public class CredentialsLoader implements DataLoaderCommand {
         return credentialRepository.count() == 0;
     }
 
+    // One transaction, so the inserts go out in JDBC batches
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int run() {
         var count = 0;
         var faker = new Faker();
 
         var apps = this.applicationRepository.findAll();
 
-        for (;count < 30; count++) {
+        var passwords = new ArrayList<String>(TOTAL);
+        for (int i = 0; i < TOTAL; i++) {
+            passwords.add(faker.internet().password());
+        }
+        var envelopes = passwordService.encryptPasswordsToEntities(passwords);
+
+        for (;count < TOTAL; count++) {
             var credential = new Credential();
 
             var appPosition = faker.random().nextInt(0, apps.size() - 1);
             credential.setApplication(apps.get(appPosition));
 
-            var password = faker.internet().password();
-            var envelop = passwordService.encryptPasswordToEntity(password);
-            credential.setCipherEnvelope(envelop);
+            credential.setCipherEnvelope(envelopes.get(count).getOrThrow());
 
             credential.setEnvironment(randomUtils.pickRandomEnumValue(Environment.class));
             credential.setCredentialType(randomUtils.pickRandomEnumValue(CredentialType.class));
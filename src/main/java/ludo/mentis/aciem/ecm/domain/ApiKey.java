@@ -16,13 +16,19 @@ public class ApiKey {
 
     @Id
     @Column(name = "id_api_key", nullable = false, updatable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "api_key_id")
+    @TableGenerator(name = "api_key_id", table = "tb_id_sequence", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "tb_api_key", allocationSize = 50)
     private Long id;
 
     @ManyToOne(cascade = CascadeType.ALL)
-    @JoinColumn(name = "id_cipher_envelope", nullable = false)
+    @JoinColumn(name = "id_cipher_envelope")
     private CipherEnvelopeEntity cipherEnvelopeEntity;
 
+    /** Peppered HMAC of the secret; set instead of the envelope when secrets are stored one-way. */
+    @Column(name = "secret_hash", length = 32)
+    private byte[] secretHash;
+
     // Persist the numeric environment ID; expose the enum via transient getter/setter
     @Column(name = "id_environment", nullable = false)
     private Long environmentId;
@@ -34,7 +40,7 @@ public class ApiKey {
     @Column(nullable = false, length = 45, unique = true)
     private String clientId;
 
-    @Column(nullable = false, length = 45)
+    @Column(nullable = false, length = 1000)
     private String server;
 
     @LastModifiedBy
@@ -57,6 +63,14 @@ public class ApiKey {
         this.id = id;
     }
 
+    public byte[] getSecretHash() {
+        return secretHash;
+    }
+
+    public void setSecretHash(byte[] secretHash) {
+        this.secretHash = secretHash;
+    }
+
     public CipherEnvelopeEntity getCipherEnvelope() {
         return cipherEnvelopeEntity;
     }
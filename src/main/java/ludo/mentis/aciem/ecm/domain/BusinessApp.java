@@ -23,7 +23,9 @@ public class BusinessApp {
 
     @Id
     @Column(name = "id_application", nullable = false, updatable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "application_id")
+    @TableGenerator(name = "application_id", table = "tb_id_sequence", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "tb_application", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 45)
@@ -14,9 +14,13 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public class CipherEnvelopeEntity {
 
+    public static final int ENVELOPE_MAX_BYTES = 2048;
+
     @Id
     @Column(name = "id_cipher_envelope", nullable = false, updatable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cipher_envelope_id")
+    @TableGenerator(name = "cipher_envelope_id", table = "tb_id_sequence", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "tb_cipher_envelope", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 8, columnDefinition = "CHAR(8)")
@@ -29,16 +33,23 @@ public class CipherEnvelopeEntity {
     @Column
     private Integer iterations;
 
+    @Column(name = "key_id")
+    private Integer keyId;
+
     @Column(length = 64)
     private byte[] salt;
 
-    @Column(nullable = false, length = 32)
+    @Column(length = 32)
     private byte[] iv;
 
     @JdbcTypeCode(SqlTypes.LONGVARBINARY)
-    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    @Column(columnDefinition = "LONGBLOB")
     private byte[] ciphertext;
 
+    /** Whole v2 binary envelope; when set, iterations, salt, iv and ciphertext are null. */
+    @Column(length = CipherEnvelopeEntity.ENVELOPE_MAX_BYTES)
+    private byte[] envelope;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -75,6 +86,14 @@ public class CipherEnvelopeEntity {
         this.iterations = iterations;
     }
 
+    public Integer getKeyId() {
+        return keyId;
+    }
+
+    public void setKeyId(Integer keyId) {
+        this.keyId = keyId;
+    }
+
     public byte[] getSalt() {
         return salt;
     }
@@ -99,6 +118,14 @@ public class CipherEnvelopeEntity {
         this.ciphertext = ciphertext;
     }
 
+    public byte[] getEnvelope() {
+        return envelope;
+    }
+
+    public void setEnvelope(byte[] envelope) {
+        this.envelope = envelope;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
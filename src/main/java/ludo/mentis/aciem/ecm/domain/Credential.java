@@ -16,9 +16,12 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public class Credential {
 
+    // Ids are reserved in blocks from tb_id_sequence, so inserts need no round trip and can be batched
     @Id
     @Column(name = "id_credential", nullable = false, updatable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "credential_id")
+    @TableGenerator(name = "credential_id", table = "tb_id_sequence", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "tb_credential", allocationSize = 50)
     private Long id;
 
     // Self-reference to the next version (null if this is the latest)
@@ -26,6 +29,11 @@ public class Credential {
     @JoinColumn(name = "id_credential_next")
     private Credential nextCredential;
 
+    // Id of the first version of this credential, shared by every later version of it. A new credential
+    // leaves it null and is its own lineage, so it is written with a single INSERT
+    @Column(name = "id_credential_lineage")
+    private Long lineageId;
+
     @ManyToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "id_cipher_envelope", nullable = false)
     private CipherEnvelopeEntity cipherEnvelopeEntity;
@@ -82,6 +90,23 @@ public class Credential {
         this.nextCredential = nextCredential;
     }
 
+    public Long getLineageId() {
+        return lineageId;
+    }
+
+    public void setLineageId(Long lineageId) {
+        this.lineageId = lineageId;
+    }
+
+    /**
+     * Id of the first version of this credential: the stored lineage, or this id for a first version. A first
+     * version stores either NULL (created by the application) or its own id (backfilled by V009); lineage
+     * queries such as {@code CredentialRepository#findHistory} match both.
+     */
+    public Long getLineageRootId() {
+        return lineageId != null ? lineageId : id;
+    }
+
     public CipherEnvelopeEntity getCipherEnvelope() {
         return cipherEnvelopeEntity;
     }
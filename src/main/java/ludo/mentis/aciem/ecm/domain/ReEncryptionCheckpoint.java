@@ -0,0 +1,89 @@
+package ludo.mentis.aciem.ecm.domain;
+
+import jakarta.persistence.*;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "tb_reencryption_checkpoint")
+@EntityListeners(AuditingEntityListener.class)
+public class ReEncryptionCheckpoint {
+
+    public ReEncryptionCheckpoint() {
+    }
+
+    public ReEncryptionCheckpoint(String jobName) {
+        this.jobName = jobName;
+    }
+
+    @Id
+    @Column(name = "job_name", nullable = false, updatable = false, length = 64)
+    private String jobName;
+
+    // Highest tb_cipher_envelope id already handled; the next batch starts after it
+    @Column(name = "last_id", nullable = false)
+    private Long lastId = 0L;
+
+    @Column(nullable = false)
+    private Long processed = 0L;
+
+    @Column(nullable = false)
+    private Long failed = 0L;
+
+    @Column(nullable = false)
+    private Boolean completed = Boolean.FALSE;
+
+    @LastModifiedDate
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public Long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Long processed) {
+        this.processed = processed;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,90 @@
+package ludo.mentis.aciem.ecm.domain;
+
+import jakarta.persistence.*;
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/** Read side of the append-only audit table; rows are inserted in batches by {@code SecretAccessAuditWriter}. */
+@Entity
+@Immutable
+@Table(name = "tb_secret_access_audit")
+public class SecretAccessAudit {
+
+    @Id
+    @Column(name = "id_secret_access_audit", nullable = false, updatable = false)
+    private Long id;
+
+    @Column(name = "accessed_at", nullable = false)
+    private LocalDateTime accessedAt;
+
+    @Column(name = "app_code", nullable = false, length = 45)
+    private String appCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Environment environment;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "credential_type", nullable = false, length = 16)
+    private CredentialType credentialType;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "client_id", length = 45)
+    private String clientId;
+
+    @Column(name = "id_api_key")
+    private Long apiKeyId;
+
+    @Column(name = "remote_addr", length = 45)
+    private String remoteAddr;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private AuditOutcome outcome;
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getAccessedAt() {
+        return accessedAt;
+    }
+
+    public String getAppCode() {
+        return appCode;
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    public CredentialType getCredentialType() {
+        return credentialType;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public Long getApiKeyId() {
+        return apiKeyId;
+    }
+
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    public AuditOutcome getOutcome() {
+        return outcome;
+    }
+}
@@ -0,0 +1,23 @@
+package ludo.mentis.aciem.ecm.exception;
+
+import java.time.Duration;
+
+/** Thrown when the crypto executor is saturated; callers should answer 503 with {@code Retry-After}. */
+public class CryptoBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public CryptoBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /** Retry-After header value in whole seconds, at least 1. */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,36 @@
+package ludo.mentis.aciem.ecm.job;
+
+import ludo.mentis.aciem.ecm.service.ApiKeyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * With {@code ecm.api-key.secret-storage=HASH}, converts API keys still stored in cipher envelopes
+ * to peppered hashes once at startup. Until a key is converted, the filter keeps verifying it
+ * through its envelope.
+ */
+@Component
+public class ApiKeyHashMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyHashMigrationJob.class);
+
+    private final ApiKeyService apiKeyService;
+
+    public ApiKeyHashMigrationJob(final ApiKeyService apiKeyService) {
+        this.apiKeyService = apiKeyService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        if (!apiKeyService.isSecretStoredHashed()) {
+            return;
+        }
+        int migrated = apiKeyService.migrateSecretsToHash();
+        if (migrated > 0) {
+            log.info("Migrated {} API key secret(s) from cipher envelopes to hashes.", migrated);
+        }
+    }
+}
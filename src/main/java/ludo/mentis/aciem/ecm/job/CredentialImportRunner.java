@@ -0,0 +1,96 @@
+package ludo.mentis.aciem.ecm.job;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFailure;
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.service.CredentialImportListener;
+import ludo.mentis.aciem.ecm.service.CredentialImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports a credential file given on the command line and exits:
+ * {@code --import-credentials=<path> [--import-format=CSV|JSON] [--import-by=<name>]}.
+ * The exit code is 0 only if every row was imported.
+ */
+@Component
+public class CredentialImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CredentialImportRunner.class);
+
+    static final String FILE_OPTION = "import-credentials";
+    static final String FORMAT_OPTION = "import-format";
+    static final String IMPORTED_BY_OPTION = "import-by";
+    private static final String DEFAULT_IMPORTED_BY = "import";
+
+    private final CredentialImportService credentialImportService;
+    private final ApplicationContext applicationContext;
+
+    public CredentialImportRunner(final CredentialImportService credentialImportService,
+                                  final ApplicationContext applicationContext) {
+        this.credentialImportService = credentialImportService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        var file = option(args, FILE_OPTION);
+        if (file == null) {
+            return;
+        }
+        var path = Path.of(file);
+        var formatOption = option(args, FORMAT_OPTION);
+        var format = formatOption != null
+                ? CredentialImportFormat.valueOf(formatOption.toUpperCase(Locale.ROOT))
+                : CredentialImportFormat.fromFilename(path.getFileName().toString());
+        var importedBy = option(args, IMPORTED_BY_OPTION);
+        if (importedBy == null) {
+            importedBy = DEFAULT_IMPORTED_BY;
+        }
+
+        log.info("Importing credentials from {} as {}", path, format);
+        try (var input = new BufferedInputStream(Files.newInputStream(path))) {
+            var report = credentialImportService.importCredentials(input, format, importedBy, new LoggingListener());
+            log.info("Credential import finished in {}ms: {} rows, {} imported, {} failed.",
+                    report.elapsedMillis(), report.read(), report.imported(), report.failed());
+            if (!report.completed()) {
+                log.error("Credential import stopped early: {}", report.error());
+            }
+            exit(report.completed() && report.failed() == 0 ? 0 : 1);
+        }
+    }
+
+    protected void exit(int code) {
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() || values.get(0).isBlank() ? null : values.get(0);
+    }
+
+    private static final class LoggingListener implements CredentialImportListener {
+
+        @Override
+        public void onProgress(long read, long imported, long failed) {
+            log.info("Credential import: {} rows read, {} imported, {} failed", read, imported, failed);
+        }
+
+        @Override
+        public void onFailure(CredentialImportFailure failure) {
+            log.warn("Row {} ({} / {}) skipped: {}", failure.rowNumber(), failure.appCode(), failure.username(),
+                    failure.reason());
+        }
+    }
+}
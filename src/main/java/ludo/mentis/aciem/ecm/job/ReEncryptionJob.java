@@ -0,0 +1,260 @@
+package ludo.mentis.aciem.ecm.job;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import ludo.mentis.aciem.ecm.config.ReEncryptionProperties;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.domain.ReEncryptionCheckpoint;
+import ludo.mentis.aciem.ecm.model.CipherEnvelope;
+import ludo.mentis.aciem.ecm.model.Kdf;
+import ludo.mentis.aciem.ecm.repos.CipherEnvelopeRepository;
+import ludo.mentis.aciem.ecm.repos.ReEncryptionCheckpointRepository;
+import ludo.mentis.aciem.ecm.service.PasswordService;
+import ludo.mentis.aciem.ecm.service.crypto.aes.AesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background migration of {@code tb_cipher_envelope} rows to the mode and key {@link PasswordService}
+ * currently writes (the target: {@code ecm.crypto.kdf} and {@code ecm.crypto.key-id}). Every row with
+ * another KDF or another key id is moved, so switching the KDF and rotating the key are the same run,
+ * after which a retired key can be removed from the configuration.
+ * <p>
+ * Rows are walked in id order (keyset pagination). Decryption and re-encryption run outside any
+ * transaction; each batch is then written back together with the checkpoint in one short
+ * transaction, so a restart resumes right after the last committed batch. Rows keep their id,
+ * so credentials and API keys referencing them are untouched.
+ */
+@Component
+public class ReEncryptionJob implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReEncryptionJob.class);
+
+    private final CipherEnvelopeRepository envelopeRepository;
+    private final ReEncryptionCheckpointRepository checkpointRepository;
+    private final PasswordService passwordService;
+    private final AesService aesService;
+    private final TransactionTemplate transactionTemplate;
+    private final ReEncryptionProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong remaining = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+    private volatile boolean stopRequested;
+    private ExecutorService executor;
+
+    public ReEncryptionJob(final CipherEnvelopeRepository envelopeRepository,
+                           final ReEncryptionCheckpointRepository checkpointRepository,
+                           final PasswordService passwordService,
+                           final AesService aesService,
+                           final PlatformTransactionManager transactionManager,
+                           final ReEncryptionProperties properties) {
+        this.envelopeRepository = envelopeRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.passwordService = passwordService;
+        this.aesService = aesService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Re-encryption job is disabled.");
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(r -> {
+            var thread = new Thread(r, "ecm-reencryption");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.submit(this::runToCompletion);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopRequested = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRemaining() {
+        return remaining.get();
+    }
+
+    public long getLastId() {
+        return lastId.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ecm.reencryption.processed", processed, AtomicLong::get)
+                .description("Envelopes re-encrypted so far")
+                .register(registry);
+        Gauge.builder("ecm.reencryption.failed", failed, AtomicLong::get)
+                .description("Envelopes that could not be re-encrypted and were skipped")
+                .register(registry);
+        Gauge.builder("ecm.reencryption.remaining", remaining, AtomicLong::get)
+                .description("Envelopes not yet written with the target KDF and key")
+                .register(registry);
+        Gauge.builder("ecm.reencryption.last.id", lastId, AtomicLong::get)
+                .description("Checkpoint: last tb_cipher_envelope id handled")
+                .register(registry);
+        Gauge.builder("ecm.reencryption.running", running, r -> r.get() ? 1 : 0)
+                .description("1 while the re-encryption job is running")
+                .register(registry);
+    }
+
+    void runToCompletion() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final var target = target();
+            var checkpoint = loadCheckpoint(target);
+            if (Boolean.TRUE.equals(checkpoint.getCompleted())) {
+                // Rows written with another mode or key after the last run (or left by failures) start a new pass
+                long left = envelopeRepository.countNotWrittenWith(target.kdf(), target.keyId(), 0L);
+                if (left == 0) {
+                    log.info("Re-encryption job <{}> already completed.", checkpoint.getJobName());
+                    return;
+                }
+                log.info("Re-encryption job <{}> completed before, but {} envelopes still need it; starting over.",
+                        checkpoint.getJobName(), left);
+                checkpoint.setCompleted(Boolean.FALSE);
+                checkpoint.setLastId(0L);
+                lastId.set(0L);
+            }
+            remaining.set(envelopeRepository.countNotWrittenWith(target.kdf(), target.keyId(), lastId.get()));
+            log.info("Re-encryption job <{}> starting after id {}; {} envelopes to go.",
+                    checkpoint.getJobName(), lastId.get(), remaining.get());
+
+            while (!stopRequested && runBatch(checkpoint, target)) {
+                Thread.sleep(properties.getPauseBetweenBatches().toMillis());
+            }
+            log.info("Re-encryption job <{}> stopped. Processed: {}, failed: {}, remaining: {}.",
+                    checkpoint.getJobName(), processed.get(), failed.get(), remaining.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Re-encryption job aborted; it will resume from the last checkpoint on next start.", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Re-encrypts the next batch and commits it together with the checkpoint.
+     *
+     * @return {@code true} if more rows may remain
+     */
+    boolean runBatch(ReEncryptionCheckpoint checkpoint, Target target) {
+        final int batchSize = properties.getBatchSize();
+        var batch = envelopeRepository.findNotWrittenWith(
+                target.kdf(), target.keyId(), checkpoint.getLastId(), PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            checkpoint.setCompleted(Boolean.TRUE);
+            transactionTemplate.executeWithoutResult(status -> checkpointRepository.save(checkpoint));
+            remaining.set(0);
+            return false;
+        }
+
+        Map<Long, CipherEnvelope> reEncrypted = new LinkedHashMap<>();
+        long batchFailures = 0;
+        for (CipherEnvelopeEntity entity : batch) {
+            try {
+                var plain = passwordService.decryptPasswordFromEntity(entity);
+                var envelope = passwordService.encryptPassword(plain);
+                if (!target.matches(envelope.getKdf(), envelope.getKeyId())) {
+                    throw new IllegalStateException("Re-encrypted envelope uses " + envelope.getKdf() + "/key "
+                            + envelope.getKeyId() + " instead of the target " + target);
+                }
+                reEncrypted.put(entity.getId(), envelope);
+            } catch (RuntimeException e) {
+                batchFailures++;
+                log.warn("Could not re-encrypt envelope id={}; leaving it as is.", entity.getId(), e);
+            }
+        }
+
+        final long newLastId = batch.get(batch.size() - 1).getId();
+        final long failures = batchFailures;
+        transactionTemplate.executeWithoutResult(status -> {
+            for (var entity : envelopeRepository.findAllById(reEncrypted.keySet())) {
+                // Skip rows that reached the target since they were read
+                if (!target.matches(entity.getKdf(), entity.getKeyId())) {
+                    passwordService.updateEntity(reEncrypted.get(entity.getId()), entity);
+                }
+            }
+            checkpoint.setLastId(newLastId);
+            checkpoint.setProcessed(checkpoint.getProcessed() + reEncrypted.size());
+            checkpoint.setFailed(checkpoint.getFailed() + failures);
+            checkpointRepository.save(checkpoint);
+        });
+
+        lastId.set(newLastId);
+        processed.addAndGet(reEncrypted.size());
+        failed.addAndGet(failures);
+        remaining.updateAndGet(r -> Math.max(0, r - batch.size()));
+        return batch.size() == batchSize;
+    }
+
+    /** The mode and key new envelopes are written with. */
+    Target target() {
+        return new Target(aesService.primaryKdf(), aesService.primaryKeyId());
+    }
+
+    private ReEncryptionCheckpoint loadCheckpoint(Target target) {
+        // Named after the target, so rotating to a new key or KDF starts a fresh run
+        var jobName = "reencrypt-" + target.kdf().name().toLowerCase() + "-" + target.keyId();
+        var checkpoint = checkpointRepository.findById(jobName)
+                .orElseGet(() -> new ReEncryptionCheckpoint(jobName));
+        lastId.set(checkpoint.getLastId());
+        processed.set(checkpoint.getProcessed());
+        failed.set(checkpoint.getFailed());
+        return checkpoint;
+    }
+
+    record Target(Kdf kdf, int keyId) {
+
+        /** Rows without a key id were written before key rotation existed and count as key 0. */
+        boolean matches(Kdf kdf, Integer keyId) {
+            return this.kdf == kdf && this.keyId == (keyId == null ? 0 : keyId);
+        }
+
+        @Override
+        public String toString() {
+            return kdf + "/key " + keyId;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ludo.mentis.aciem.ecm.model;
+
+/**
+ * Claims of a signed API access token, copied from the {@link ludo.mentis.aciem.ecm.domain.ApiKey}
+ * it was issued for. Times are epoch milliseconds.
+ */
+public record ApiAccessToken(
+        String id,
+        String clientId,
+        Long apiKeyId,
+        Long applicationId,
+        Environment environment,
+        String server,
+        long issuedAt,
+        long expiresAt) {
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import ludo.mentis.aciem.ecm.validation.ApiKeyAppEnvironmentUnique;
 import ludo.mentis.aciem.ecm.validation.ApiKeyClientIdUnique;
+import ludo.mentis.aciem.ecm.validation.ApiKeyServerValid;
 
 import java.time.LocalDateTime;
 
@@ -24,10 +25,11 @@ public class ApiKeyDTO {
     @ApiKeyClientIdUnique
     private String clientId;
 
-    @Size(max = 45)
+    @Size(max = 1000)
+    @ApiKeyServerValid
     private String server;
 
-    @NotBlank
+    // Optional: blank generates a secret on create and keeps the current one on edit
     @Size(max = 500)
     private String secret;
 
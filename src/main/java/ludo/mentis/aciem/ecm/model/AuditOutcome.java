@@ -0,0 +1,8 @@
+package ludo.mentis.aciem.ecm.model;
+
+public enum AuditOutcome {
+    GRANTED,
+    NOT_FOUND,
+    BUSY,
+    ERROR
+}
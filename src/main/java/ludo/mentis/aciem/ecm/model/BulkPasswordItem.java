@@ -0,0 +1,22 @@
+package ludo.mentis.aciem.ecm.model;
+
+/** Result for one requested credential; {@code password} is only set when {@code outcome} is GRANTED. */
+public record BulkPasswordItem(
+        String appCode,
+        Environment environment,
+        CredentialType credentialType,
+        String username,
+        String password,
+        AuditOutcome outcome,
+        String exception) {
+
+    public static BulkPasswordItem granted(PasswordRequest request, String password) {
+        return new BulkPasswordItem(request.appCode(), request.environment(), request.credentialType(),
+                request.username(), password, AuditOutcome.GRANTED, null);
+    }
+
+    public static BulkPasswordItem failed(PasswordRequest request, AuditOutcome outcome, String exception) {
+        return new BulkPasswordItem(request.appCode(), request.environment(), request.credentialType(),
+                request.username(), null, outcome, exception);
+    }
+}
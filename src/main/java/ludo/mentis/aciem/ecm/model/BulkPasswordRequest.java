@@ -0,0 +1,16 @@
+package ludo.mentis.aciem.ecm.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkPasswordRequest(
+        @NotEmpty
+        @Size(max = BulkPasswordRequest.MAX_ITEMS)
+        List<@NotNull @Valid PasswordRequest> items
+) {
+    public static final int MAX_ITEMS = 100;
+}
@@ -0,0 +1,10 @@
+package ludo.mentis.aciem.ecm.model;
+
+import java.util.List;
+import java.util.Map;
+
+public record BulkPasswordResponse(
+        List<BulkPasswordItem> items,
+        String exception,
+        Map<String, String> validationErrors) {
+}
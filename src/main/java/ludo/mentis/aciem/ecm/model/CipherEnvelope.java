@@ -9,24 +9,31 @@ import java.util.Objects;
  * Portable, self-describing envelope for AES-GCM payloads.
  * String form (toString) is:
  * v1:pbkdf2:<iters>:<b64(salt)>:<b64(iv)>:<b64(cipher+tag)>
+ * v1:hkdf:<iters>:<b64(salt)>:<b64(iv)>:<b64(cipher+tag)>
  * or for raw key mode: v1:raw::<b64(iv)>:<b64(cipher+tag)>
+ * A non-zero key id is appended as a last field, e.g. v1:raw:<b64(iv)>:<b64(cipher+tag)>:<kid>.
  */
 public final class CipherEnvelope {
 
+    public static final int MAX_KEY_ID = 255;
+
     private final String version; // e.g., "v1"
-    private final Kdf kdf; // PBKDF2 or RAW
-    private final Integer iterations; // only for PBKDF2
-    private final byte[] salt; // only for PBKDF2
+    private final Kdf kdf; // PBKDF2, HKDF or RAW
+    private final Integer iterations; // only for PBKDF2/HKDF
+    private final byte[] salt; // only for PBKDF2/HKDF
     private final byte[] iv; // 12 bytes recommended for GCM
     private final byte[] ciphertext; // ciphertext + GCM tag
+    private final int keyId; // key ring slot; 0 for envelopes written before key rotation existed
 
-    private CipherEnvelope(String version, Kdf kdf, Integer iterations, byte[] salt, byte[] iv, byte[] ciphertext) {
+    private CipherEnvelope(String version, Kdf kdf, Integer iterations, byte[] salt, byte[] iv, byte[] ciphertext,
+                           int keyId) {
         this.version = Objects.requireNonNull(version, "version");
         this.kdf = Objects.requireNonNull(kdf, "kdf");
         this.iterations = iterations; // nullable for RAW
         this.salt = salt; // nullable for RAW
         this.iv = Objects.requireNonNull(iv, "iv");
         this.ciphertext = Objects.requireNonNull(ciphertext, "ciphertext");
+        this.keyId = keyId;
     }
 
     public static Builder builder() {
@@ -40,6 +47,7 @@ public final class CipherEnvelope {
         private byte[] salt;
         private byte[] iv;
         private byte[] ciphertext;
+        private int keyId;
 
         public Builder version(String v) {
             this.version = v;
@@ -71,18 +79,25 @@ public final class CipherEnvelope {
             return this;
         }
 
+        public Builder keyId(int kid) {
+            this.keyId = kid;
+            return this;
+        }
+
         public CipherEnvelope build() {
             if (kdf == null)
                 throw new IllegalStateException("kdf is required");
-            if (kdf == Kdf.PBKDF2 && (iterations == null || iterations < 1))
-                throw new IllegalStateException("pbkdf2 iterations required");
-            if (kdf == Kdf.PBKDF2 && (salt == null || salt.length < 16))
-                throw new IllegalStateException("pbkdf2 salt >= 16 bytes required");
+            if (kdf.isSalted() && (iterations == null || iterations < 1))
+                throw new IllegalStateException(kdf.name().toLowerCase() + " iterations required");
+            if (kdf.isSalted() && (salt == null || salt.length < 16))
+                throw new IllegalStateException(kdf.name().toLowerCase() + " salt >= 16 bytes required");
             if (iv == null || iv.length == 0)
                 throw new IllegalStateException("iv required");
             if (ciphertext == null || ciphertext.length == 0)
                 throw new IllegalStateException("ciphertext required");
-            return new CipherEnvelope(version, kdf, iterations, salt, iv, ciphertext);
+            if (keyId < 0 || keyId > MAX_KEY_ID)
+                throw new IllegalStateException("key id must be 0.." + MAX_KEY_ID);
+            return new CipherEnvelope(version, kdf, iterations, salt, iv, ciphertext, keyId);
         }
     }
 
@@ -110,24 +125,29 @@ public final class CipherEnvelope {
         return ciphertext;
     }
 
+    public int getKeyId() {
+        return keyId;
+    }
+
     /** Compact textual form handy for logs or DB columns. */
     @Override
     public String toString() {
         Base64.Encoder enc = Base64.getEncoder();
-        if (kdf == Kdf.PBKDF2) {
+        String kid = keyId == 0 ? "" : ":" + keyId;
+        if (kdf.isSalted()) {
             return String.join(":",
                     version,
-                    "pbkdf2",
+                    kdf.name().toLowerCase(),
                     Integer.toString(iterations),
                     enc.encodeToString(salt),
                     enc.encodeToString(iv),
-                    enc.encodeToString(ciphertext));
+                    enc.encodeToString(ciphertext)) + kid;
         } else {
             return String.join(":",
                     version,
                     "raw",
                     enc.encodeToString(iv),
-                    enc.encodeToString(ciphertext));
+                    enc.encodeToString(ciphertext)) + kid;
         }
     }
 
@@ -143,23 +163,24 @@ public final class CipherEnvelope {
 
             Base64.Decoder dec = Base64.getDecoder();
 
-            if ("pbkdf2".equalsIgnoreCase(kdfStr)) {
-                if (parts.length != 6)
-                    throw new CryptoException("Invalid v1:pbkdf2 envelope");
+            if ("pbkdf2".equalsIgnoreCase(kdfStr) || "hkdf".equalsIgnoreCase(kdfStr)) {
+                if (parts.length != 6 && parts.length != 7)
+                    throw new CryptoException("Invalid v1:" + kdfStr + " envelope");
                 int iterations = Integer.parseInt(parts[2]);
                 byte[] salt = dec.decode(parts[3]);
                 byte[] iv = dec.decode(parts[4]);
                 byte[] ct = dec.decode(parts[5]);
                 return CipherEnvelope.builder()
                         .version(version)
-                        .kdf(Kdf.PBKDF2)
+                        .kdf(Kdf.valueOf(kdfStr.toUpperCase()))
                         .iterations(iterations)
                         .salt(salt)
                         .iv(iv)
                         .ciphertext(ct)
+                        .keyId(parts.length == 7 ? Integer.parseInt(parts[6]) : 0)
                         .build();
             } else if ("raw".equalsIgnoreCase(kdfStr)) {
-                if (parts.length != 4)
+                if (parts.length != 4 && parts.length != 5)
                     throw new CryptoException("Invalid v1:raw envelope");
                 byte[] iv = dec.decode(parts[2]);
                 byte[] ct = dec.decode(parts[3]);
@@ -168,6 +189,7 @@ public final class CipherEnvelope {
                         .kdf(Kdf.RAW)
                         .iv(iv)
                         .ciphertext(ct)
+                        .keyId(parts.length == 5 ? Integer.parseInt(parts[4]) : 0)
                         .build();
             } else {
                 throw new CryptoException("Unknown KDF: " + kdfStr);
@@ -0,0 +1,147 @@
+package ludo.mentis.aciem.ecm.model;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary (v2) form of a {@link CipherEnvelope}:
+ * <pre>
+ * u8 format (0x02) | u8 flags | u8 kdf | [u8 kid] | [i32 iterations | u8 saltLen | salt] | u8 ivLen | iv | cipher+tag
+ * </pre>
+ * The key id is present when flag {@link #FLAG_KEY_ID} is set (non-zero key ids only); the
+ * iterations and salt only for salted modes. Multi-byte integers are big-endian and the ciphertext
+ * runs to the end of the input, so no length prefix is needed for it. Other flag bits are reserved.
+ */
+public final class CipherEnvelopeCodec {
+
+    public static final byte FORMAT_V2 = 0x02;
+    public static final String VERSION = "v2";
+    public static final byte FLAG_KEY_ID = 0x01;
+
+    private static final byte KDF_RAW = 0;
+    private static final byte KDF_PBKDF2 = 1;
+    private static final byte KDF_HKDF = 2;
+
+    private CipherEnvelopeCodec() {
+    }
+
+    /** Exact number of bytes {@link #encode} produces for {@code env}. */
+    public static int encodedLength(CipherEnvelope env) {
+        int len = 3 + 1 + env.getIv().length + env.getCiphertext().length;
+        if (env.getKeyId() != 0)
+            len += 1;
+        if (env.getKdf().isSalted())
+            len += 4 + 1 + env.getSalt().length;
+        return len;
+    }
+
+    public static byte[] encode(CipherEnvelope env) {
+        var buf = ByteBuffer.allocate(encodedLength(env));
+        encode(env, buf);
+        return buf.array();
+    }
+
+    /** Writes the envelope at the buffer's position, advancing it. */
+    public static void encode(CipherEnvelope env, ByteBuffer out) {
+        checkFieldLengths(env);
+        out.put(FORMAT_V2);
+        out.put(env.getKeyId() != 0 ? FLAG_KEY_ID : 0);
+        out.put(kdfCode(env.getKdf()));
+        if (env.getKeyId() != 0)
+            out.put((byte) env.getKeyId());
+        if (env.getKdf().isSalted()) {
+            out.putInt(env.getIterations());
+            out.put((byte) env.getSalt().length);
+            out.put(env.getSalt());
+        }
+        out.put((byte) env.getIv().length);
+        out.put(env.getIv());
+        out.put(env.getCiphertext());
+    }
+
+    /** Streams the envelope without building the whole record in memory first. */
+    public static void write(CipherEnvelope env, OutputStream out) throws IOException {
+        checkFieldLengths(env);
+        out.write(FORMAT_V2);
+        out.write(env.getKeyId() != 0 ? FLAG_KEY_ID : 0);
+        out.write(kdfCode(env.getKdf()));
+        if (env.getKeyId() != 0)
+            out.write(env.getKeyId());
+        if (env.getKdf().isSalted()) {
+            int it = env.getIterations();
+            out.write(it >>> 24);
+            out.write(it >>> 16);
+            out.write(it >>> 8);
+            out.write(it);
+            out.write(env.getSalt().length);
+            out.write(env.getSalt());
+        }
+        out.write(env.getIv().length);
+        out.write(env.getIv());
+        out.write(env.getCiphertext());
+    }
+
+    public static CipherEnvelope decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads one envelope from the buffer's remaining bytes. Fields are copied straight out of the
+     * buffer (no intermediate text or Base64); the buffer's position ends up at its limit.
+     */
+    public static CipherEnvelope decode(ByteBuffer in) {
+        try {
+            if (in.get() != FORMAT_V2)
+                throw new CryptoException("Unsupported binary envelope format");
+            byte flags = in.get();
+            if ((flags & ~FLAG_KEY_ID) != 0)
+                throw new CryptoException("Unsupported binary envelope flags");
+            var kdf = kdfOf(in.get());
+            var b = CipherEnvelope.builder().version(VERSION).kdf(kdf);
+            if ((flags & FLAG_KEY_ID) != 0)
+                b.keyId(Byte.toUnsignedInt(in.get()));
+            if (kdf.isSalted()) {
+                b.iterations(in.getInt());
+                b.salt(readBytes(in, Byte.toUnsignedInt(in.get())));
+            }
+            b.iv(readBytes(in, Byte.toUnsignedInt(in.get())));
+            b.ciphertext(readBytes(in, in.remaining()));
+            return b.build();
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            throw new CryptoException("Invalid binary envelope", e);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int n) {
+        byte[] out = new byte[n];
+        in.get(out);
+        return out;
+    }
+
+    private static void checkFieldLengths(CipherEnvelope env) {
+        if (env.getIv().length > 255 || (env.getKdf().isSalted() && env.getSalt().length > 255))
+            throw new CryptoException("Salt and IV must fit in 255 bytes");
+    }
+
+    /** One-byte code of a mode in the binary formats. */
+    public static byte kdfCode(Kdf kdf) {
+        return switch (kdf) {
+            case RAW -> KDF_RAW;
+            case PBKDF2 -> KDF_PBKDF2;
+            case HKDF -> KDF_HKDF;
+        };
+    }
+
+    public static Kdf kdfOf(byte code) {
+        return switch (code) {
+            case KDF_RAW -> Kdf.RAW;
+            case KDF_PBKDF2 -> Kdf.PBKDF2;
+            case KDF_HKDF -> Kdf.HKDF;
+            default -> throw new CryptoException("Unknown binary envelope kdf " + code);
+        };
+    }
+}
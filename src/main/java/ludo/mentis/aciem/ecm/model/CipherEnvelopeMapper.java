@@ -7,9 +7,37 @@ public final class CipherEnvelopeMapper {
     }
 
     public static CipherEnvelopeEntity toEntity(CipherEnvelope env) {
-        var e = new CipherEnvelopeEntity();
-        e.setVersion(env.getVersion());
+        return updateEntity(env, new CipherEnvelopeEntity());
+    }
+
+    public static CipherEnvelopeEntity toEntity(CipherEnvelope env, boolean binary) {
+        return updateEntity(env, new CipherEnvelopeEntity(), binary);
+    }
+
+    /** Overwrites the envelope fields of an existing row, keeping its id so references stay valid. */
+    public static CipherEnvelopeEntity updateEntity(CipherEnvelope env, CipherEnvelopeEntity e) {
+        return updateEntity(env, e, false);
+    }
+
+    /**
+     * Same as {@link #updateEntity(CipherEnvelope, CipherEnvelopeEntity)}, optionally packing the
+     * envelope into the single binary column. Envelopes too large for it keep the column layout.
+     * The kdf column is filled either way so rows can still be selected by mode.
+     */
+    public static CipherEnvelopeEntity updateEntity(CipherEnvelope env, CipherEnvelopeEntity e, boolean binary) {
         e.setKdf(env.getKdf());
+        e.setKeyId(env.getKeyId());
+        if (binary && CipherEnvelopeCodec.encodedLength(env) <= CipherEnvelopeEntity.ENVELOPE_MAX_BYTES) {
+            e.setVersion(CipherEnvelopeCodec.VERSION);
+            e.setEnvelope(CipherEnvelopeCodec.encode(env));
+            e.setIterations(null);
+            e.setSalt(null);
+            e.setIv(null);
+            e.setCiphertext(null);
+            return e;
+        }
+        e.setVersion(env.getVersion());
+        e.setEnvelope(null);
         e.setIterations(env.getIterations());
         e.setSalt(env.getSalt());
         e.setIv(env.getIv());
@@ -18,12 +46,16 @@ public final class CipherEnvelopeMapper {
     }
 
     public static CipherEnvelope toModel(CipherEnvelopeEntity e) {
+        if (e.getEnvelope() != null) {
+            return CipherEnvelopeCodec.decode(e.getEnvelope());
+        }
         var b = CipherEnvelope.builder()
                 .version(e.getVersion())
                 .kdf(e.getKdf())
                 .iv(e.getIv())
-                .ciphertext(e.getCiphertext());
-        if (e.getKdf() == Kdf.PBKDF2) {
+                .ciphertext(e.getCiphertext())
+                .keyId(e.getKeyId() != null ? e.getKeyId() : 0);
+        if (e.getKdf() != null && e.getKdf().isSalted()) {
             b.iterations(e.getIterations())
                     .salt(e.getSalt());
         }
@@ -0,0 +1,13 @@
+package ludo.mentis.aciem.ecm.model;
+
+/** A row that was not imported; never carries the password. */
+public record CredentialImportFailure(
+        long rowNumber,
+        String appCode,
+        String username,
+        String reason) {
+
+    public static CredentialImportFailure of(CredentialImportRow row, String reason) {
+        return new CredentialImportFailure(row.rowNumber(), row.appCode(), row.username(), reason);
+    }
+}
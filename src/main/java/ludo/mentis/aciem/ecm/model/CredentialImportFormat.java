@@ -0,0 +1,16 @@
+package ludo.mentis.aciem.ecm.model;
+
+import java.util.Locale;
+
+/** File formats accepted by the credential import. */
+public enum CredentialImportFormat {
+    /** Comma-separated, RFC 4180 quoting, header row naming the columns. */
+    CSV,
+    /** A JSON array of objects with the same field names as the CSV header. */
+    JSON;
+
+    /** Guesses the format from a file name, defaulting to CSV. */
+    public static CredentialImportFormat fromFilename(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".json") ? JSON : CSV;
+    }
+}
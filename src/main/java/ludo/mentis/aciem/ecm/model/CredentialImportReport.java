@@ -0,0 +1,25 @@
+package ludo.mentis.aciem.ecm.model;
+
+import java.util.List;
+
+/**
+ * Outcome of one import. {@code failures} holds the first {@code ecm.import.max-reported-failures} failed
+ * rows; {@code failed} counts all of them. {@code error} is set when the import stopped before the end of
+ * the file (malformed file, database unavailable); batches committed until then stay imported.
+ */
+public record CredentialImportReport(
+        long read,
+        long imported,
+        long failed,
+        List<CredentialImportFailure> failures,
+        String error,
+        long elapsedMillis) {
+
+    public boolean failuresTruncated() {
+        return failed > failures.size();
+    }
+
+    public boolean completed() {
+        return error == null;
+    }
+}
@@ -0,0 +1,21 @@
+package ludo.mentis.aciem.ecm.model;
+
+/**
+ * One credential as read from an import file, before validation. {@code rowNumber} is the line the
+ * record starts on for CSV and the 1-based array position for JSON.
+ */
+public record CredentialImportRow(
+        long rowNumber,
+        String appCode,
+        String environment,
+        String credentialType,
+        String username,
+        String password,
+        String url,
+        String notes) {
+
+    /** Column (CSV) or field (JSON) names, in the order written by exports and templates. */
+    public static final String[] FIELDS = {
+            "appCode", "environment", "credentialType", "username", "password", "url", "notes"
+    };
+}
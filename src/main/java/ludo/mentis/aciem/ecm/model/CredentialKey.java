@@ -0,0 +1,5 @@
+package ludo.mentis.aciem.ecm.model;
+
+/** Identity of a credential across its versions: (application, environment, type, username). */
+public record CredentialKey(Long applicationId, Long environmentId, Long credentialTypeId, String username) {
+}
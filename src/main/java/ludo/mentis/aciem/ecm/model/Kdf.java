@@ -6,7 +6,19 @@ package ludo.mentis.aciem.ecm.model;
  * In cryptography, a key derivation function (KDF) is a cryptographic algorithm
  * that derives one or more secret keys from a secret value such as a master
  * key, a password, or a passphrase using a pseudorandom function
+ * <ul>
+ *   <li>{@code PBKDF2}: per-record key derived from the passphrase and the record salt.</li>
+ *   <li>{@code RAW}: the configured AES key is used as is.</li>
+ *   <li>{@code HKDF}: a master key is derived once from the passphrase with PBKDF2
+ *   (iterations are recorded in the envelope); each record key is an HKDF-SHA256 subkey
+ *   of that master key and the record salt.</li>
+ * </ul>
  */
 public enum Kdf {
-    PBKDF2, RAW
-}
\ No newline at end of file
+    PBKDF2, RAW, HKDF;
+
+    /** Whether envelopes of this kind carry an iteration count and a per-record salt. */
+    public boolean isSalted() {
+        return this != RAW;
+    }
+}
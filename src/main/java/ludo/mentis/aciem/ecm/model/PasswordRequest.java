@@ -2,15 +2,18 @@ package ludo.mentis.aciem.ecm.model;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 public record PasswordRequest(
         @NotBlank
+        @Size(max = 45)
         String appCode,
         @NotNull
         Environment environment,
         @NotNull
         CredentialType credentialType,
         @NotBlank
+        @Size(max = 255)
         String username
 ) {
 }
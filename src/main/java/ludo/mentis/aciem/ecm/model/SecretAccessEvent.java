@@ -0,0 +1,16 @@
+package ludo.mentis.aciem.ecm.model;
+
+import java.time.LocalDateTime;
+
+/** One read of a secret through the REST API, as buffered for the audit table. */
+public record SecretAccessEvent(
+        LocalDateTime accessedAt,
+        String appCode,
+        Environment environment,
+        CredentialType credentialType,
+        String username,
+        String clientId,
+        Long apiKeyId,
+        String remoteAddr,
+        AuditOutcome outcome) {
+}
@@ -0,0 +1,8 @@
+package ludo.mentis.aciem.ecm.model;
+
+public record TokenResponse(
+        String accessToken,
+        String tokenType,
+        Long expiresIn,
+        String exception) {
+}
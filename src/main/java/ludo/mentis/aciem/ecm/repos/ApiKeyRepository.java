@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
@@ -49,4 +50,9 @@ public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
     Optional<ApiKey> findByClientId(String clientId);
 
     boolean existsByClientId(String clientId);
+
+    List<ApiKey> findBySecretHashIsNullAndCipherEnvelopeEntityIsNotNull();
+
+    @Query("SELECT DISTINCT k.server FROM ApiKey k WHERE k.server IS NOT NULL")
+    List<String> findDistinctServers();
 }
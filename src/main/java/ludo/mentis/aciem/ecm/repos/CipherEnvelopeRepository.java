@@ -0,0 +1,32 @@
+package ludo.mentis.aciem.ecm.repos;
+
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.model.Kdf;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+
+public interface CipherEnvelopeRepository extends JpaRepository<CipherEnvelopeEntity, Long> {
+
+    /**
+     * Envelopes after {@code id} not written with {@code kdf} under key {@code keyId}, in id order.
+     * Rows without a key id were written before key rotation existed and count as key 0.
+     */
+    @Query("SELECT e FROM CipherEnvelopeEntity e " +
+            "WHERE e.id > :id " +
+            "  AND (e.kdf <> :kdf OR COALESCE(e.keyId, 0) <> :keyId) " +
+            "ORDER BY e.id ASC")
+    List<CipherEnvelopeEntity> findNotWrittenWith(@Param("kdf") Kdf kdf,
+                                                  @Param("keyId") int keyId,
+                                                  @Param("id") Long id,
+                                                  Pageable pageable);
+
+    @Query("SELECT COUNT(e) FROM CipherEnvelopeEntity e " +
+            "WHERE e.id > :id " +
+            "  AND (e.kdf <> :kdf OR COALESCE(e.keyId, 0) <> :keyId)")
+    long countNotWrittenWith(@Param("kdf") Kdf kdf, @Param("keyId") int keyId, @Param("id") Long id);
+}
@@ -1,15 +1,20 @@
 package ludo.mentis.aciem.ecm.repos;
 
+import jakarta.persistence.LockModeType;
 import ludo.mentis.aciem.ecm.domain.BusinessApp;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
 import ludo.mentis.aciem.ecm.domain.Credential;
+import ludo.mentis.aciem.ecm.model.CredentialKey;
 import ludo.mentis.aciem.ecm.model.CredentialSearchDTO;
-import ludo.mentis.aciem.ecm.model.PasswordRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -69,15 +74,75 @@ public interface CredentialRepository extends JpaRepository<Credential, Long> {
             Pageable pageable
     );
 
+    /**
+     * Envelope of the latest version of one credential, read without loading the credential row or its
+     * application. Resolved from {@code idx_credential_latest} plus a primary-key read of the envelope.
+     */
+    @Query("SELECT e FROM Credential c JOIN c.cipherEnvelopeEntity e " +
+            "WHERE c.application.id = :applicationId " +
+            "  AND c.environmentId = :environmentId " +
+            "  AND c.credentialTypeId = :credentialTypeId " +
+            "  AND c.username = :username " +
+            "  AND c.nextCredential IS NULL")
+    Optional<CipherEnvelopeEntity> findLatestEnvelope(@Param("applicationId") Long applicationId,
+                                                      @Param("environmentId") Long environmentId,
+                                                      @Param("credentialTypeId") Long credentialTypeId,
+                                                      @Param("username") String username);
+
+    /**
+     * Latest versions of every credential of the given apps with one of the given usernames, with
+     * application and envelope fetched in the same query. A superset of a list of exact
+     * (app, environment, type, username) tuples; callers pick their matches from it.
+     */
     @Query("SELECT c FROM Credential c " +
+            "JOIN FETCH c.application a " +
+            "JOIN FETCH c.cipherEnvelopeEntity " +
             "WHERE c.nextCredential IS NULL " +
-            "  AND c.application.code = :#{#passwordRequest.appCode} " +
-            "  AND c.environmentId = :#{#passwordRequest.environment.id} " +
-            "  AND c.credentialTypeId = :#{#passwordRequest.credentialType.id} " +
-            "  AND c.username = :#{#passwordRequest.username}")
-    Optional<Credential> findFirstByPasswordRequest(@Param("passwordRequest") PasswordRequest passwordRequest);
+            "  AND a.code IN :appCodes " +
+            "  AND c.username IN :usernames")
+    List<Credential> findLatestByAppCodesAndUsernames(@Param("appCodes") Collection<String> appCodes,
+                                                      @Param("usernames") Collection<String> usernames);
+
+    /**
+     * Identities that already have an enabled first version among the given apps and usernames, the
+     * tuples {@code CredentialUnique} rejects for a new credential. A superset of the exact tuples of an
+     * import batch; callers match against it in memory.
+     */
+    @Query("SELECT new ludo.mentis.aciem.ecm.model.CredentialKey(" +
+            " c.application.id, c.environmentId, c.credentialTypeId, c.username) " +
+            "FROM Credential c " +
+            "WHERE c.application.id IN :applicationIds " +
+            "  AND c.username IN :usernames " +
+            "  AND c.version = 1 " +
+            "  AND c.enabled = true")
+    List<CredentialKey> findEnabledFirstVersionKeys(@Param("applicationIds") Collection<Long> applicationIds,
+                                                    @Param("usernames") Collection<String> usernames);
 
     Credential findFirstByApplication(BusinessApp application);
 
-    Optional<Credential> findByNextCredential(Credential credential);
+    /**
+     * The given version and all earlier versions of the same credential, newest first, with application
+     * and envelope fetched in the same query. Empty if {@code id} does not exist. A first version may have
+     * no lineage id, so it is matched by its own id; {@code v} is read by primary key, which leaves a
+     * primary-key and an {@code idx_credential_lineage} lookup for {@code c}.
+     */
+    @Query("SELECT c FROM Credential c " +
+            "JOIN FETCH c.application " +
+            "JOIN FETCH c.cipherEnvelopeEntity " +
+            "JOIN Credential v ON (c.id = COALESCE(v.lineageId, v.id) OR c.lineageId = COALESCE(v.lineageId, v.id)) " +
+            "WHERE v.id = :id " +
+            "  AND c.version <= v.version " +
+            "ORDER BY c.version DESC")
+    List<Credential> findHistory(@Param("id") Long id);
+
+    /**
+     * Latest version of a credential, locked until the transaction ends so that concurrent updates
+     * append to the chain one at a time. {@code lineageId} is the id of the first version, see
+     * {@link Credential#getLineageRootId()}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Credential c " +
+            "WHERE (c.id = :lineageId OR c.lineageId = :lineageId) " +
+            "  AND c.nextCredential IS NULL")
+    Optional<Credential> findLatestInLineageForUpdate(@Param("lineageId") Long lineageId);
 }
@@ -0,0 +1,8 @@
+package ludo.mentis.aciem.ecm.repos;
+
+import ludo.mentis.aciem.ecm.domain.ReEncryptionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+
+public interface ReEncryptionCheckpointRepository extends JpaRepository<ReEncryptionCheckpoint, String> {
+}
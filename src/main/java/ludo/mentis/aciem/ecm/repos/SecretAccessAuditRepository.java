@@ -0,0 +1,15 @@
+package ludo.mentis.aciem.ecm.repos;
+
+import ludo.mentis.aciem.ecm.domain.SecretAccessAudit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+
+public interface SecretAccessAuditRepository extends JpaRepository<SecretAccessAudit, Long> {
+
+    /** Served by {@code idx_secret_access_audit_app_time}. */
+    Page<SecretAccessAudit> findByAppCodeAndAccessedAtBetweenOrderByAccessedAtDesc(
+            String appCode, LocalDateTime from, LocalDateTime to, Pageable pageable);
+}
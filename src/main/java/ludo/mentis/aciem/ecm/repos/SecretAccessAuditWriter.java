@@ -0,0 +1,55 @@
+package ludo.mentis.aciem.ecm.repos;
+
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Batched inserts into {@code tb_secret_access_audit}. Plain JDBC rather than JPA: the identity
+ * key would make Hibernate insert row by row, and the rows are never read back here.
+ */
+@Repository
+public class SecretAccessAuditWriter {
+
+    private static final String INSERT = "INSERT INTO tb_secret_access_audit " +
+            "(accessed_at, app_code, environment, credential_type, username, client_id, id_api_key, remote_addr, outcome) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Column widths of V007; longer values are cut so that they cannot reject the batch
+    private static final int APP_CODE_MAX = 45;
+    private static final int USERNAME_MAX = 255;
+    private static final int CLIENT_ID_MAX = 45;
+    private static final int REMOTE_ADDR_MAX = 45;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SecretAccessAuditWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void write(List<SecretAccessEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT, events, events.size(), (ps, event) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(event.accessedAt()));
+            ps.setString(2, truncate(event.appCode(), APP_CODE_MAX));
+            ps.setString(3, event.environment().name());
+            ps.setString(4, event.credentialType().name());
+            ps.setString(5, truncate(event.username(), USERNAME_MAX));
+            ps.setString(6, truncate(event.clientId(), CLIENT_ID_MAX));
+            if (event.apiKeyId() == null) {
+                ps.setNull(7, Types.BIGINT);
+            } else {
+                ps.setLong(7, event.apiKeyId());
+            }
+            ps.setString(8, truncate(event.remoteAddr(), REMOTE_ADDR_MAX));
+            ps.setString(9, event.outcome().name());
+        });
+    }
+
+    private static String truncate(String value, int max) {
+        return value == null || value.length() <= max ? value : value.substring(0, max);
+    }
+}
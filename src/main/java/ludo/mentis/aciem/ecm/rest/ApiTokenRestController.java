@@ -0,0 +1,93 @@
+package ludo.mentis.aciem.ecm.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.ApiAccessToken;
+import ludo.mentis.aciem.ecm.model.TokenResponse;
+import ludo.mentis.aciem.ecm.rest.filter.ApiKeyAuthFilter;
+import ludo.mentis.aciem.ecm.service.ApiTokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/token")
+@Tag(name = "Access tokens", description = "Exchange an API key for a short-lived access token")
+public class ApiTokenRestController {
+
+    private final ApiTokenService apiTokenService;
+    private final Logger logger = LoggerFactory.getLogger(ApiTokenRestController.class);
+
+    public ApiTokenRestController(ApiTokenService apiTokenService) {
+        this.apiTokenService = apiTokenService;
+    }
+
+    @PostMapping
+    @Operation(
+            summary = "Issue access token",
+            description = "Exchanges the client ID and API key of this request for a signed access token. " +
+                    "Send it as 'Authorization: Bearer <token>' on later calls until it expires."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Token issued",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TokenResponse.class))
+            ),
+            @ApiResponse(responseCode = "403", description = "Called with an access token instead of an API key",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TokenResponse.class))
+            )
+    })
+    public ResponseEntity<TokenResponse> issue(HttpServletRequest request) {
+        // Tokens must not be renewed with tokens, or revoking the API key would never take effect
+        if (request.getAttribute(ApiKeyAuthFilter.ATTR_ACCESS_TOKEN) != null) {
+            final var response = new TokenResponse(null, null, null, "An API key is required to issue access tokens.");
+            return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
+        }
+        final var apiKeyId = (Long) request.getAttribute(ApiKeyAuthFilter.ATTR_API_KEY_ID);
+        return new ResponseEntity<>(apiTokenService.issue(apiKeyId), HttpStatus.OK);
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Revoke access token", description = "Revokes the access token sent with this request.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Token revoked"),
+            @ApiResponse(responseCode = "400", description = "Called with an API key instead of an access token",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TokenResponse.class))
+            )
+    })
+    public ResponseEntity<TokenResponse> revoke(HttpServletRequest request) {
+        if (!(request.getAttribute(ApiKeyAuthFilter.ATTR_ACCESS_TOKEN) instanceof ApiAccessToken token)) {
+            final var response = new TokenResponse(null, null, null, "No access token to revoke.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        apiTokenService.revoke(token);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<TokenResponse> handleNotFoundException(NotFoundException ex) {
+        final var response = new TokenResponse(null, null, null, "Invalid client ID or API key.");
+        return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<TokenResponse> handleException(Exception ex) {
+        logger.error("Internal error on ApiTokenRestController", ex);
+        final var response = new TokenResponse(null, null, null, "Internal server error. Check server logs for details.");
+        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+}
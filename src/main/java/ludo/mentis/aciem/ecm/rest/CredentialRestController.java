@@ -8,24 +8,41 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import ludo.mentis.aciem.ecm.exception.CryptoBusyException;
 import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.BulkPasswordItem;
+import ludo.mentis.aciem.ecm.model.BulkPasswordRequest;
+import ludo.mentis.aciem.ecm.model.BulkPasswordResponse;
 import ludo.mentis.aciem.ecm.model.PasswordRequest;
 import ludo.mentis.aciem.ecm.model.PasswordResponse;
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import ludo.mentis.aciem.ecm.rest.filter.ApiKeyAuthFilter;
 import ludo.mentis.aciem.ecm.service.CredentialRestService;
+import ludo.mentis.aciem.ecm.service.SecretAccessAuditService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/v1/credential")
@@ -33,10 +50,13 @@ import java.util.Map;
 public class CredentialRestController {
 
     private final CredentialRestService credentialRestService;
+    private final SecretAccessAuditService auditService;
     private final Logger logger = LoggerFactory.getLogger(CredentialRestController.class);
 
-    public CredentialRestController(CredentialRestService credentialRestService) {
+    public CredentialRestController(CredentialRestService credentialRestService,
+                                    SecretAccessAuditService auditService) {
         this.credentialRestService = credentialRestService;
+        this.auditService = auditService;
     }
 
     @GetMapping
@@ -61,22 +81,105 @@ public class CredentialRestController {
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = PasswordResponse.class))
+            ),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After delay",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PasswordResponse.class))
             )
     })
-    public ResponseEntity<PasswordResponse> getPassword(final @Valid @ParameterObject PasswordRequest passwordRequest, HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<PasswordResponse>> getPassword(final @Valid @ParameterObject PasswordRequest passwordRequest, HttpServletRequest request) {
         logGetPassword(passwordRequest, request);
+        final var event = auditEvent(passwordRequest, request);
+
+        final CompletableFuture<Optional<String>> future;
+        try {
+            future = credentialRestService.getPasswordAsync(passwordRequest);
+        } catch (RuntimeException ex) {
+            auditService.record(event.apply(outcome(null, ex)));
+            throw ex;
+        }
+        // Decryption runs on the crypto executor; the servlet thread is released meanwhile
+        return future.whenComplete((credential, ex) -> auditService.record(event.apply(outcome(credential, ex))))
+                .thenApply(credential -> {
+                    if (credential.isEmpty()) {
+                        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                    }
+                    final var response = new PasswordResponse(credential.get(), null, null);
+                    return new ResponseEntity<>(response, HttpStatus.OK);
+                });
+    }
+
+    @PostMapping("/bulk")
+    @Operation(
+            summary = "Get several credential passwords",
+            description = "Retrieves up to " + BulkPasswordRequest.MAX_ITEMS + " passwords in one call. Items are " +
+                    "answered in request order, each with its own outcome; a missing credential does not fail the batch."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Per-item results",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkPasswordResponse.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Validation error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PasswordResponse.class))
+            ),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PasswordResponse.class))
+            ),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After delay",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PasswordResponse.class))
+            )
+    })
+    public CompletableFuture<ResponseEntity<BulkPasswordResponse>> getPasswords(final @Valid @RequestBody BulkPasswordRequest bulkRequest, HttpServletRequest request) {
+        final var passwordRequests = bulkRequest.items();
+        logger.debug("Bulk password request from IP: {}, items={}", request.getRemoteAddr(), passwordRequests.size());
+        final var events = passwordRequests.stream().map(item -> auditEvent(item, request)).toList();
 
-        final var credential = credentialRestService.getPassword(passwordRequest);
-        if (credential.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        final CompletableFuture<List<BulkPasswordItem>> future;
+        try {
+            future = credentialRestService.getPasswordsAsync(passwordRequests);
+        } catch (RuntimeException ex) {
+            events.forEach(event -> auditService.record(event.apply(outcome(null, ex))));
+            throw ex;
         }
-        final var response = new PasswordResponse(credential.get(), null, null);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        return future.whenComplete((items, ex) -> {
+                    for (int i = 0; i < events.size(); i++) {
+                        var outcome = ex == null ? items.get(i).outcome() : outcome(null, ex);
+                        auditService.record(events.get(i).apply(outcome));
+                    }
+                })
+                .thenApply(items -> ResponseEntity.ok(new BulkPasswordResponse(items, null, null)));
     }
 
+    /** Captures the request side of the audit event now; the outcome is only known once the lookup completes. */
+    private static Function<AuditOutcome, SecretAccessEvent> auditEvent(PasswordRequest passwordRequest,
+                                                                         HttpServletRequest request) {
+        final var accessedAt = LocalDateTime.now();
+        final var clientId = (String) request.getAttribute(ApiKeyAuthFilter.ATTR_CLIENT_ID);
+        final var apiKeyId = (Long) request.getAttribute(ApiKeyAuthFilter.ATTR_API_KEY_ID);
+        final var remoteAddr = request.getRemoteAddr();
+        return outcome -> new SecretAccessEvent(accessedAt, passwordRequest.appCode(), passwordRequest.environment(),
+                passwordRequest.credentialType(), passwordRequest.username(), clientId, apiKeyId, remoteAddr, outcome);
+    }
+
+    private static AuditOutcome outcome(Optional<String> credential, Throwable ex) {
+        if (ex == null) {
+            return credential.isPresent() ? AuditOutcome.GRANTED : AuditOutcome.NOT_FOUND;
+        }
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof NotFoundException) {
+            return AuditOutcome.NOT_FOUND;
+        }
+        return cause instanceof CryptoBusyException ? AuditOutcome.BUSY : AuditOutcome.ERROR;
+    }
+
+    // The durable record is the audit table; this line is for troubleshooting only
     private void logGetPassword(PasswordRequest passwordRequest, HttpServletRequest request) {
-        logger.info("Password request from IP: {}, Host: {}, Parameters: appCode={}, environment={}, credentialType={}, username={}",
-                request.getRemoteAddr(), request.getRemoteHost(),
+        logger.debug("Password request from IP: {}, Parameters: appCode={}, environment={}, credentialType={}, username={}",
+                request.getRemoteAddr(),
                 passwordRequest.appCode(), passwordRequest.environment(),
                 passwordRequest.credentialType(), passwordRequest.username());
     }
@@ -99,6 +202,14 @@ public class CredentialRestController {
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(CryptoBusyException.class)
+    public ResponseEntity<PasswordResponse> handleCryptoBusyException(CryptoBusyException ex) {
+        final var response = new PasswordResponse(null, "Server busy, retry later.", null);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<PasswordResponse> handleException(Exception ex) {
         logger.error("Internal error on CredentialRestController", ex);
@@ -4,10 +4,17 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import ludo.mentis.aciem.ecm.domain.ApiKey;
+import ludo.mentis.aciem.ecm.exception.CryptoBusyException;
+import ludo.mentis.aciem.ecm.model.ApiAccessToken;
 import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
+import ludo.mentis.aciem.ecm.service.ApiKeySecretHasher;
+import ludo.mentis.aciem.ecm.service.ApiKeyVerificationCache;
+import ludo.mentis.aciem.ecm.service.ApiTokenService;
 import ludo.mentis.aciem.ecm.service.PasswordService;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.util.AntPathMatcher;
@@ -15,7 +22,10 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
@@ -24,16 +34,39 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
     private static final String API_PREFIX = "/api/**";
     private static final String HEADER_API_KEY = "X-API-KEY";
     private static final String HEADER_CLIENT_ID = "X-API-CLIENT-ID";
+    private static final String BEARER_PREFIX = "Bearer ";
     public static final String INVALID_CREDENTIALS_MESSAGE = "Invalid client ID or API key.";
+    public static final String INVALID_TOKEN_MESSAGE = "Invalid or expired access token.";
+    /** Request attribute holding the id of the authenticated API key. */
+    public static final String ATTR_API_KEY_ID = ApiKeyAuthFilter.class.getName() + ".apiKeyId";
+    /** Request attribute holding the client id of the caller. */
+    public static final String ATTR_CLIENT_ID = ApiKeyAuthFilter.class.getName() + ".clientId";
+    /** Request attribute holding the {@link ApiAccessToken} when the call was authenticated by a token. */
+    public static final String ATTR_ACCESS_TOKEN = ApiKeyAuthFilter.class.getName() + ".accessToken";
 
     private final ApiKeyRepository apiKeyRepository;
     private final PasswordService passwordService;
+    private final CryptoExecutor cryptoExecutor;
+    private final ApiKeyVerificationCache verificationCache;
+    private final ApiKeySecretHasher secretHasher;
+    private final ApiRateLimiter rateLimiter;
+    private final HostResolver hostResolver;
+    private final ApiTokenService tokenService;
 
     private final AntPathMatcher matcher = new AntPathMatcher();
 
-    public ApiKeyAuthFilter(ApiKeyRepository apiKeyRepository, PasswordService passwordService) {
+    public ApiKeyAuthFilter(ApiKeyRepository apiKeyRepository, PasswordService passwordService,
+                            CryptoExecutor cryptoExecutor, ApiKeyVerificationCache verificationCache,
+                            ApiKeySecretHasher secretHasher, ApiRateLimiter rateLimiter,
+                            HostResolver hostResolver, ApiTokenService tokenService) {
         this.apiKeyRepository = apiKeyRepository;
         this.passwordService = passwordService;
+        this.cryptoExecutor = cryptoExecutor;
+        this.verificationCache = verificationCache;
+        this.secretHasher = secretHasher;
+        this.rateLimiter = rateLimiter;
+        this.hostResolver = hostResolver;
+        this.tokenService = tokenService;
     }
 
     @Override
@@ -47,51 +80,148 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws IOException {
 
+        String remoteAddr = request.getRemoteAddr();
+        if (isRateLimited(rateLimiter.checkAddress(remoteAddr == null ? "" : remoteAddr), response)) {
+            return;
+        }
+
+        String bearer = extractBearerToken(request);
+        if (bearer != null) {
+            authenticateToken(bearer, remoteAddr, request, response, filterChain);
+            return;
+        }
+
         String providedKey = extractApiKey(request);
         String clientId = extractClientId(request);
         if (!StringUtils.hasText(providedKey) || !StringUtils.hasText(clientId)) {
             reject(response, HttpStatus.UNAUTHORIZED, "Client ID and API key are required. Provide them via '" + HEADER_CLIENT_ID + "' and '" + HEADER_API_KEY + "' headers or 'clientId' and 'apiKey' query parameters.");
             return;
         }
+        // The key is not verified yet: charge the client bucket of this address only
+        if (isRateLimited(rateLimiter.checkClient(clientId, remoteAddr == null ? "" : remoteAddr), response)) {
+            return;
+        }
 
-        String callerHost = safeRemoteHost(request);
+        byte[] provided = providedKey.getBytes(StandardCharsets.UTF_8);
 
         try {
-            Optional<ApiKey> apiKeyOpt = apiKeyRepository.findByClientId(clientId);
-            if (apiKeyOpt.isEmpty()) {
-                reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
-                return;
-            }
-            ApiKey key = apiKeyOpt.get();
-            if (key.getCipherEnvelope() == null) {
-                reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
-                return;
+            byte[] digest = verificationCache.digest(provided);
+            // Repeat callers with an already verified key skip the lookup and the decryption
+            var verified = verificationCache.lookup(clientId, digest);
+            if (verified == null) {
+                // ...and repeat offenders are turned away before any DB or crypto work
+                if (verificationCache.isRejected(clientId, digest)) {
+                    reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
+                    return;
+                }
+                verified = verify(clientId, provided, digest, response);
+                if (verified == null) {
+                    return;
+                }
             }
-            var secret = decryptApiKeySecret(key, response);
-            if (secret == null) {
+            // API key matched; now check server restriction if any
+            if (!isHostAllowed(verified.server(), remoteAddr, response)) {
                 return;
             }
-            if (!providedKey.equals(secret)) {
-                reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
+            // Authorized
+            request.setAttribute(ATTR_API_KEY_ID, verified.apiKeyId());
+            request.setAttribute(ATTR_CLIENT_ID, clientId);
+            filterChain.doFilter(request, response);
+        } catch (Exception ex) {
+            log.error("Error while validating API key", ex);
+            reject(response, HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error while validating API key.");
+        } finally {
+            Arrays.fill(provided, (byte) 0);
+        }
+    }
+
+    /** Stateless path for callers holding an access token: one HMAC, no repository or crypto pool. */
+    private void authenticateToken(String bearer, String remoteAddr, HttpServletRequest request,
+                                   HttpServletResponse response, FilterChain filterChain) throws IOException {
+        try {
+            ApiAccessToken token = tokenService.verify(bearer).orElse(null);
+            if (token == null) {
+                reject(response, HttpStatus.UNAUTHORIZED, INVALID_TOKEN_MESSAGE);
                 return;
             }
-            // API key matched; now check server restriction if any
-            String server = key.getServer();
-            if (StringUtils.hasText(server) && !server.equalsIgnoreCase(callerHost)) {
-                reject(response, HttpStatus.FORBIDDEN, "API key is not allowed from this host.");
+            if (isRateLimited(rateLimiter.checkClient(token.clientId()), response)
+                    || !isHostAllowed(token.server(), remoteAddr, response)) {
                 return;
             }
-            // Authorized
+            request.setAttribute(ATTR_API_KEY_ID, token.apiKeyId());
+            request.setAttribute(ATTR_CLIENT_ID, token.clientId());
+            request.setAttribute(ATTR_ACCESS_TOKEN, token);
             filterChain.doFilter(request, response);
         } catch (Exception ex) {
-            log.error("Error while validating API key", ex);
+            log.error("Error while validating access token", ex);
             reject(response, HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error while validating API key.");
         }
     }
 
-    private String decryptApiKeySecret(ApiKey key, HttpServletResponse response) throws IOException {
+    /** Checks the server restriction against the peer address only; writes a 403 or 503 when not allowed. */
+    private boolean isHostAllowed(String server, String remoteAddr, HttpServletResponse response)
+            throws IOException {
+        HostMatcher allowed = hostResolver.matcher(server);
+        if (allowed.matches(HostMatcher.parseAddress(remoteAddr))) {
+            return true;
+        }
+        if (allowed.isPending()) {
+            // Hostnames of this restriction are still being looked up in the background
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Server busy, retry later.");
+            return false;
+        }
+        reject(response, HttpStatus.FORBIDDEN, "API key is not allowed from this host.");
+        return false;
+    }
+
+    /** Full check against the stored key; {@code null} once a rejection has been written. */
+    private ApiKeyVerificationCache.Verified verify(String clientId, byte[] provided, byte[] digest,
+                                                    HttpServletResponse response) throws IOException {
+        Optional<ApiKey> apiKeyOpt = apiKeyRepository.findByClientId(clientId);
+        if (apiKeyOpt.isEmpty()) {
+            verificationCache.rememberUnknownClient(clientId);
+            reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
+            return null;
+        }
+        ApiKey key = apiKeyOpt.get();
+        Boolean matches;
+        if (key.getSecretHash() != null) {
+            // One-way stored secret: a single HMAC, cheap enough for the request thread
+            matches = secretHasher.matches(key.getSecretHash(), provided);
+        } else if (key.getCipherEnvelope() != null) {
+            matches = matchesApiKeySecret(key, provided, response);
+        } else {
+            verificationCache.rememberUnknownClient(clientId);
+            reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
+            return null;
+        }
+        if (matches == null) {
+            return null;
+        }
+        if (!matches) {
+            verificationCache.rememberFailure(clientId, digest);
+            reject(response, HttpStatus.UNAUTHORIZED, INVALID_CREDENTIALS_MESSAGE);
+            return null;
+        }
+        // Compile the restriction while the key is loaded, so its hostnames start resolving now
+        hostResolver.matcher(key.getServer());
+        verificationCache.put(clientId, digest, key.getId(), key.getServer());
+        return new ApiKeyVerificationCache.Verified(key.getId(), key.getServer());
+    }
+
+    /**
+     * Constant-time check of the provided key, run on the bounded crypto executor;
+     * {@code null} once a 503 or 500 has been written.
+     */
+    private Boolean matchesApiKeySecret(ApiKey key, byte[] provided, HttpServletResponse response)
+            throws IOException {
         try {
-            return passwordService.decryptPasswordFromEntity(key.getCipherEnvelope());
+            return cryptoExecutor.call(() -> passwordService.matchesPassword(key.getCipherEnvelope(), provided));
+        } catch (CryptoBusyException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Server busy, retry later.");
+            return null;
         } catch (Exception e) {
             log.warn("Failed to decrypt API key id={}", key.getId(), e);
             reject(response, HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error while validating API key.");
@@ -99,6 +229,26 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
         }
     }
 
+    /** Writes a 429 with Retry-After when {@code waitNanos} is positive. */
+    private boolean isRateLimited(long waitNanos, HttpServletResponse response) throws IOException {
+        if (waitNanos <= 0) {
+            return false;
+        }
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, retry later.");
+        return true;
+    }
+
+    private String extractBearerToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = header.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+
     private String extractApiKey(HttpServletRequest request) {
         String header = request.getHeader(HEADER_API_KEY);
         if (StringUtils.hasText(header)) {
@@ -117,15 +267,6 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
         return StringUtils.hasText(query) ? query.trim() : null;
     }
 
-    private String safeRemoteHost(HttpServletRequest request) {
-        try {
-            String host = request.getRemoteHost();
-            return host == null ? "" : host;
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
     private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
         response.setStatus(status.value());
         response.setContentType("application/json");
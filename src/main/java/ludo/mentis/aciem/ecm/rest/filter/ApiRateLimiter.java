@@ -0,0 +1,47 @@
+package ludo.mentis.aciem.ecm.rest.filter;
+
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token-bucket limits for {@code /api/**}, per remote address and per client id, applied before any
+ * database or crypto work. Before the key is verified the client bucket is also keyed by the calling
+ * address, so someone who only knows a client id cannot use up the real client's allowance.
+ * A rate of 0 disables the corresponding limit.
+ */
+@Component
+public class ApiRateLimiter {
+
+    private final TokenBucketLimiter byAddress;
+    private final TokenBucketLimiter byClient;
+
+    public ApiRateLimiter(ApiKeyProperties properties) {
+        this.byAddress = limiter(properties.getRateLimitPerAddress(), properties);
+        this.byClient = limiter(properties.getRateLimitPerClient(), properties);
+    }
+
+    private static TokenBucketLimiter limiter(double rate, ApiKeyProperties properties) {
+        return rate > 0
+                ? new TokenBucketLimiter(rate, properties.getRateLimitBurst(), properties.getRateLimitMaxKeys(),
+                System::nanoTime)
+                : null;
+    }
+
+    /** Nanoseconds the caller must wait, or 0 when the request may proceed. */
+    public long checkAddress(String address) {
+        return byAddress == null ? 0 : byAddress.tryAcquire(address);
+    }
+
+    /** Nanoseconds the caller must wait, or 0 when the request may proceed; for authenticated callers. */
+    public long checkClient(String clientId) {
+        return byClient == null ? 0 : byClient.tryAcquire(clientId);
+    }
+
+    /**
+     * Nanoseconds the caller must wait, or 0 when the request may proceed; for a client id that is not
+     * verified yet, charged to the (client id, address) pair.
+     */
+    public long checkClient(String clientId, String address) {
+        return byClient == null ? 0 : byClient.tryAcquire(clientId + '\n' + address);
+    }
+}
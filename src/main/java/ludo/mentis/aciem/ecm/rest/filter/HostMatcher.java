@@ -0,0 +1,176 @@
+package ludo.mentis.aciem.ecm.rest.filter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of an API key's {@code server} restriction: a comma-separated list of IP addresses,
+ * CIDR ranges and hostnames. Addresses and ranges are parsed once; hostnames are read from
+ * {@link HostResolver}'s cache, so {@link #matches} never waits on DNS.
+ */
+final class HostMatcher {
+
+    /** Matcher for keys without a restriction. */
+    static final HostMatcher ANY = new HostMatcher(new byte[0][], new int[0], new HostResolver.Hostname[0], true);
+    /** Matcher for restrictions that could not be parsed. */
+    static final HostMatcher NONE = new HostMatcher(new byte[0][], new int[0], new HostResolver.Hostname[0], false);
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    /** Characters of an IPv6 literal; {@link InetAddress#getByName} only skips DNS for text starting with a hex digit or ':'. */
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:][0-9a-fA-F:.]*");
+    private static final Pattern HOSTNAME = Pattern.compile("[a-z0-9]([a-z0-9-]*[a-z0-9])?(\\.[a-z0-9]([a-z0-9-]*[a-z0-9])?)*\\.?");
+
+    private final byte[][] networks;
+    private final int[] prefixes;
+    private final HostResolver.Hostname[] hostnames;
+    private final boolean any;
+
+    private HostMatcher(byte[][] networks, int[] prefixes, HostResolver.Hostname[] hostnames, boolean any) {
+        this.networks = networks;
+        this.prefixes = prefixes;
+        this.hostnames = hostnames;
+        this.any = any;
+    }
+
+    /**
+     * Parses {@code server}; each hostname is handed to {@code hostnames}, which starts resolving it.
+     *
+     * @throws IllegalArgumentException if an entry is neither an address, a range nor a valid hostname
+     */
+    static HostMatcher compile(String server, Function<String, HostResolver.Hostname> hostnames) {
+        if (server == null || server.isBlank()) {
+            return ANY;
+        }
+        List<byte[]> networks = new ArrayList<>();
+        List<Integer> prefixes = new ArrayList<>();
+        List<HostResolver.Hostname> names = new ArrayList<>();
+        for (String raw : server.split(",")) {
+            String entry = raw.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int slash = entry.indexOf('/');
+            String host = slash < 0 ? entry : entry.substring(0, slash);
+            byte[] address = parseAddress(host);
+            if (address == null) {
+                if (slash >= 0)
+                    throw new IllegalArgumentException("CIDR range needs an IP address: " + entry);
+                String name = host.toLowerCase(Locale.ROOT);
+                if (name.length() > 253 || !HOSTNAME.matcher(name).matches())
+                    throw new IllegalArgumentException("Not an IP address, CIDR range or hostname: " + entry);
+                names.add(hostnames.apply(name));
+                continue;
+            }
+            int prefix = address.length * 8;
+            if (slash >= 0) {
+                prefix = parsePrefix(entry.substring(slash + 1), prefix, entry);
+            }
+            networks.add(address);
+            prefixes.add(prefix);
+        }
+        return new HostMatcher(networks.toArray(new byte[0][]),
+                prefixes.stream().mapToInt(Integer::intValue).toArray(),
+                names.toArray(new HostResolver.Hostname[0]), false);
+    }
+
+    /** Whether {@code address} (as returned by {@link #parseAddress}) is allowed; {@code null} is never allowed. */
+    boolean matches(byte[] address) {
+        if (any) {
+            return true;
+        }
+        if (address == null) {
+            return false;
+        }
+        for (int i = 0; i < networks.length; i++) {
+            if (inNetwork(address, networks[i], prefixes[i])) {
+                return true;
+            }
+        }
+        for (HostResolver.Hostname hostname : hostnames) {
+            if (hostname.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether some hostname of this restriction has not been resolved yet. */
+    boolean isPending() {
+        for (HostResolver.Hostname hostname : hostnames) {
+            if (hostname.isPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal without touching DNS; IPv4-mapped IPv6 addresses come back as 4 bytes.
+     * Returns {@code null} for anything else.
+     */
+    static byte[] parseAddress(String s) {
+        if (s == null || s.isEmpty()) {
+            return null;
+        }
+        if (IPV4.matcher(s).matches()) {
+            String[] parts = s.split("\\.");
+            byte[] out = new byte[4];
+            for (int i = 0; i < 4; i++) {
+                int octet = Integer.parseInt(parts[i]);
+                if (octet > 255)
+                    return null;
+                out[i] = (byte) octet;
+            }
+            return out;
+        }
+        String literal = s.startsWith("[") && s.endsWith("]") ? s.substring(1, s.length() - 1) : s;
+        int zone = literal.indexOf('%');
+        if (zone >= 0) {
+            literal = literal.substring(0, zone);
+        }
+        if (literal.indexOf(':') < 0 || !IPV6.matcher(literal).matches()) {
+            return null;
+        }
+        try {
+            // Only hex digits, ':' and '.' are left, so this is parsed as a literal and never looked up;
+            // IPv4-mapped literals come back as an Inet4Address
+            return InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static int parsePrefix(String s, int max, String entry) {
+        try {
+            int prefix = Integer.parseInt(s);
+            if (prefix >= 0 && prefix <= max)
+                return prefix;
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid CIDR prefix: " + entry);
+    }
+
+    private static boolean inNetwork(byte[] address, byte[] network, int prefix) {
+        if (address.length != network.length) {
+            return false;
+        }
+        int whole = prefix / 8;
+        for (int i = 0; i < whole; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+        int bits = prefix % 8;
+        if (bits == 0) {
+            return true;
+        }
+        int mask = (0xFF << (8 - bits)) & 0xFF;
+        return ((address[whole] ^ network[whole]) & mask) == 0;
+    }
+}
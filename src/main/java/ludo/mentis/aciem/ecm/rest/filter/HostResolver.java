@@ -0,0 +1,213 @@
+package ludo.mentis.aciem.ecm.rest.filter;
+
+import jakarta.annotation.PreDestroy;
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Compiles API key host restrictions into {@link HostMatcher}s and keeps their hostnames resolved.
+ * Lookups run on a single background thread and are refreshed once {@code ecm.api-key.host-resolve-ttl}
+ * expires; until then, and while a refresh is running, requests are matched against the last known
+ * addresses. Request threads never resolve or reverse-resolve anything.
+ */
+@Component
+public class HostResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(HostResolver.class);
+
+    /** Compiled restrictions and hostnames kept before the caches are reset. */
+    static final int MAX_ENTRIES = 4096;
+    /** Retry interval after a failed lookup, capped by the TTL. */
+    static final Duration FAILURE_RETRY = Duration.ofSeconds(30);
+
+    private final Lookup lookup;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+    private final long ttlNanos;
+    private final long failureRetryNanos;
+    private final ApiKeyRepository apiKeyRepository;
+    private final ConcurrentHashMap<String, HostMatcher> matchers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Hostname> hostnames = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HostResolver(ApiKeyProperties properties, ApiKeyRepository apiKeyRepository) {
+        this(properties.getHostResolveTtl(), InetAddress::getAllByName, newExecutor(), System::nanoTime,
+                apiKeyRepository);
+    }
+
+    HostResolver(Duration ttl, Lookup lookup, Executor executor, LongSupplier nanoClock,
+                 ApiKeyRepository apiKeyRepository) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("host resolve ttl must be positive");
+        this.ttlNanos = ttl.toNanos();
+        this.failureRetryNanos = Math.min(ttlNanos, FAILURE_RETRY.toNanos());
+        this.lookup = Objects.requireNonNull(lookup, "lookup");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.apiKeyRepository = apiKeyRepository;
+    }
+
+    private static ExecutorService newExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_ENTRIES),
+                r -> {
+                    Thread t = new Thread(r, "ecm-host-resolver");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** Starts resolving the hostnames of every stored restriction, so the first calls are not held up. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (apiKeyRepository == null) {
+            return;
+        }
+        apiKeyRepository.findDistinctServers().forEach(this::matcher);
+    }
+
+    /**
+     * Compiled matcher for {@code server}, cached by its text. A malformed restriction is logged once and
+     * compiled to a matcher that accepts nothing.
+     */
+    HostMatcher matcher(String server) {
+        if (server == null || server.isBlank()) {
+            return HostMatcher.ANY;
+        }
+        HostMatcher matcher = matchers.get(server);
+        if (matcher != null) {
+            return matcher;
+        }
+        if (matchers.size() >= MAX_ENTRIES) {
+            matchers.clear();
+        }
+        return matchers.computeIfAbsent(server, this::compile);
+    }
+
+    private HostMatcher compile(String server) {
+        try {
+            return HostMatcher.compile(server, this::hostname);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid API key host restriction '{}': {}", server, e.getMessage());
+            return HostMatcher.NONE;
+        }
+    }
+
+    /**
+     * Checks that {@code server} is a list of addresses, ranges and hostnames the filter can match,
+     * without resolving anything.
+     *
+     * @throws IllegalArgumentException naming the first invalid entry
+     */
+    public static void validate(String server) {
+        HostMatcher.compile(server, name -> null);
+    }
+
+    /** Shared, self-refreshing resolution of {@code name}. */
+    Hostname hostname(String name) {
+        Hostname hostname = hostnames.get(name);
+        if (hostname == null) {
+            if (hostnames.size() >= MAX_ENTRIES) {
+                hostnames.clear();
+            }
+            hostname = hostnames.computeIfAbsent(name, Hostname::new);
+        }
+        hostname.refreshIfStale();
+        return hostname;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /** Forward lookup, {@link InetAddress#getAllByName} outside tests. */
+    @FunctionalInterface
+    interface Lookup {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    /** Last known addresses of one hostname. */
+    final class Hostname {
+
+        private final String name;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile List<byte[]> addresses;
+        private volatile long refreshAtNanos;
+
+        private Hostname(String name) {
+            this.name = name;
+            this.refreshAtNanos = nanoClock.getAsLong();
+        }
+
+        boolean contains(byte[] address) {
+            refreshIfStale();
+            List<byte[]> known = addresses;
+            if (known == null) {
+                return false;
+            }
+            for (byte[] candidate : known) {
+                if (Arrays.equals(candidate, address)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Whether the first lookup has not completed yet. */
+        boolean isPending() {
+            return addresses == null;
+        }
+
+        private void refreshIfStale() {
+            if (nanoClock.getAsLong() - refreshAtNanos < 0 || !refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::refresh);
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+            }
+        }
+
+        private void refresh() {
+            try {
+                InetAddress[] resolved = lookup.resolve(name);
+                addresses = Arrays.stream(resolved).map(InetAddress::getAddress).toList();
+                refreshAtNanos = nanoClock.getAsLong() + ttlNanos;
+            } catch (UnknownHostException | RuntimeException e) {
+                log.warn("Could not resolve API key host '{}': {}", name, e.getMessage());
+                // Keep the last known addresses; an unresolvable name matches nothing
+                if (addresses == null) {
+                    addresses = List.of();
+                }
+                refreshAtNanos = nanoClock.getAsLong() + failureRetryNanos;
+            } finally {
+                refreshing.set(false);
+            }
+        }
+    }
+}
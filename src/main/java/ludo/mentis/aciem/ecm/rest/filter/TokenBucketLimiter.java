@@ -0,0 +1,85 @@
+package ludo.mentis.aciem.ecm.rest.filter;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed token buckets, lock-free per key.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (the GCRA form of
+ * a token bucket): a request is admitted when pushing that time one interval forward keeps it
+ * within {@code burst} intervals of now, and the push is one CAS. A bucket whose time lies in the
+ * past is full, which is the same as having no bucket, so such entries are swept whenever the map
+ * reaches {@code maxKeys}. If sweeping cannot make room, new keys share one overflow bucket, which
+ * bounds memory no matter how many distinct keys arrive.
+ */
+final class TokenBucketLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    TokenBucketLimiter(double permitsPerSecond, int burst, int maxKeys, LongSupplier nanoClock) {
+        if (!(permitsPerSecond > 0))
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        if (burst < 1)
+            throw new IllegalArgumentException("burst >= 1");
+        if (maxKeys < 1)
+            throw new IllegalArgumentException("maxKeys >= 1");
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.maxKeys = maxKeys;
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.overflow = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /** Takes one permit for {@code key}; returns 0 when admitted, else the nanoseconds until a permit frees up. */
+    long tryAcquire(String key) {
+        var bucket = bucket(key);
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long tat = bucket.get();
+            long next = (tat - now > 0 ? tat : now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0)
+                return excess;
+            if (bucket.compareAndSet(tat, next))
+                return 0;
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String key) {
+        var bucket = buckets.get(key);
+        if (bucket != null)
+            return bucket;
+        if (buckets.size() >= maxKeys) {
+            sweep();
+            if (buckets.size() >= maxKeys)
+                return overflow;
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(nanoClock.getAsLong()));
+    }
+
+    /** Drops full buckets; one thread sweeps at a time, the others fall through to the overflow bucket. */
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true))
+            return;
+        try {
+            long now = nanoClock.getAsLong();
+            buckets.values().removeIf(tat -> tat.get() - now <= 0);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
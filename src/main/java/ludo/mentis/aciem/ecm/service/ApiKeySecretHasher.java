@@ -0,0 +1,73 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * One-way storage of API key secrets: HMAC-SHA256 keyed with a server-side pepper
+ * ({@code ecm.api-key.pepper}). API keys are long random tokens, so a single keyed hash is enough;
+ * a slow password hash would only add latency to every request.
+ */
+@Component
+public class ApiKeySecretHasher {
+
+    public static final int HASH_BYTES = 32;
+    static final int MIN_PEPPER_BYTES = 16;
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final SecretKeySpec pepper;
+    private final ThreadLocal<Mac> macs;
+
+    public ApiKeySecretHasher(ApiKeyProperties properties) {
+        var configured = properties.getPepper();
+        if (configured == null || configured.isBlank()) {
+            if (properties.getSecretStorage() == ApiKeyProperties.SecretStorage.HASH)
+                throw new IllegalStateException("ecm.api-key.pepper is required when ecm.api-key.secret-storage=HASH");
+            this.pepper = null;
+        } else {
+            byte[] bytes = configured.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length < MIN_PEPPER_BYTES)
+                throw new IllegalStateException("ecm.api-key.pepper must be at least " + MIN_PEPPER_BYTES + " bytes");
+            this.pepper = new SecretKeySpec(bytes, HMAC);
+        }
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /** Whether a pepper is configured, i.e. hashes can be computed and checked. */
+    public boolean isEnabled() {
+        return pepper != null;
+    }
+
+    public byte[] hash(String secret) {
+        return hash(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] hash(byte[] secret) {
+        if (pepper == null)
+            throw new IllegalStateException("API key hashing is not configured (ecm.api-key.pepper)");
+        return macs.get().doFinal(secret);
+    }
+
+    /** Constant-time comparison of {@code provided} against a stored hash. */
+    public boolean matches(byte[] storedHash, byte[] provided) {
+        return storedHash != null && MessageDigest.isEqual(storedHash, hash(provided));
+    }
+
+    private Mac newMac() {
+        try {
+            var mac = Mac.getInstance(HMAC);
+            mac.init(pepper);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("HmacSHA256 unavailable", e);
+        }
+    }
+}
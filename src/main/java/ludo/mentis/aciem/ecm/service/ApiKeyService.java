@@ -12,6 +12,7 @@ public interface ApiKeyService {
 
     ApiKeyDTO get(Long id);
 
+    /** Creates the key; a blank secret is generated and written back to {@code apiKeyDTO}. */
     Long create(ApiKeyDTO apiKeyDTO);
 
     void update(Long id, ApiKeyDTO apiKeyDTO);
@@ -19,4 +20,10 @@ public interface ApiKeyService {
     void delete(Long id);
 
     boolean clientIdExists(String clientId);
+
+    /** Whether new secrets are stored one-way, so they can only be shown once at creation. */
+    boolean isSecretStoredHashed();
+
+    /** Replaces the envelope of every envelope-backed key with a peppered hash; returns the number migrated. */
+    int migrateSecretsToHash();
 }
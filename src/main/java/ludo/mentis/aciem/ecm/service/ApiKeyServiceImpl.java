@@ -1,30 +1,59 @@
 package ludo.mentis.aciem.ecm.service;
 
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
 import ludo.mentis.aciem.ecm.domain.ApiKey;
 import ludo.mentis.aciem.ecm.exception.NotFoundException;
 import ludo.mentis.aciem.ecm.model.ApiKeyDTO;
 import ludo.mentis.aciem.ecm.model.ApiKeySearchDTO;
 import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
 import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import ludo.mentis.aciem.ecm.repos.CipherEnvelopeRepository;
+import ludo.mentis.aciem.ecm.util.ApiKeyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class ApiKeyServiceImpl implements ApiKeyService {
 
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyServiceImpl.class);
+
     private final ApiKeyRepository apiKeyRepository;
     private final BusinessAppRepository applicationRepository;
+    private final CipherEnvelopeRepository envelopeRepository;
     private final PasswordService passwordService;
+    private final ApiKeyVerificationCache verificationCache;
+    private final ApiTokenService tokenService;
+    private final ApiKeySecretHasher secretHasher;
+    private final ApiKeyUtils apiKeyUtils;
+    private final boolean hashSecrets;
 
     public ApiKeyServiceImpl(final ApiKeyRepository apiKeyRepository,
                                  final BusinessAppRepository applicationRepository,
-                                 final PasswordService passwordService) {
+                                 final CipherEnvelopeRepository envelopeRepository,
+                                 final PasswordService passwordService,
+                                 final ApiKeyVerificationCache verificationCache,
+                                 final ApiTokenService tokenService,
+                                 final ApiKeySecretHasher secretHasher,
+                                 final ApiKeyUtils apiKeyUtils,
+                                 final ApiKeyProperties properties) {
         this.apiKeyRepository = apiKeyRepository;
         this.applicationRepository = applicationRepository;
+        this.envelopeRepository = envelopeRepository;
         this.passwordService = passwordService;
+        this.verificationCache = verificationCache;
+        this.tokenService = tokenService;
+        this.secretHasher = secretHasher;
+        this.apiKeyUtils = apiKeyUtils;
+        this.hashSecrets = properties.getSecretStorage() == ApiKeyProperties.SecretStorage.HASH;
     }
 
     @Override
@@ -53,20 +82,30 @@ public class ApiKeyServiceImpl implements ApiKeyService {
 
     @Override
     public Long create(final ApiKeyDTO apiKeyDTO) {
+        if (apiKeyDTO.getSecret() == null || apiKeyDTO.getSecret().isBlank()) {
+            apiKeyDTO.setSecret(apiKeyUtils.generateApiKey());
+        }
         var apiKey = mapToEntity(apiKeyDTO);
-        return apiKeyRepository.save(apiKey).getId();
+        var id = apiKeyRepository.save(apiKey).getId();
+        // The client id may have been cached as unknown
+        evictVerification(apiKey.getClientId());
+        return id;
     }
 
     @Override
     public void update(final Long id, final ApiKeyDTO apiKeyDTO) {
         final var apiKey = apiKeyRepository.findById(id)
                 .orElseThrow(NotFoundException::new);
+        final var previousClientId = apiKey.getClientId();
         mapToEntity(apiKeyDTO, apiKey);
         apiKeyRepository.save(apiKey);
+        evictVerification(previousClientId);
+        evictVerification(apiKey.getClientId());
     }
 
     @Override
     public void delete(final Long id) {
+        apiKeyRepository.findById(id).ifPresent(apiKey -> evictVerification(apiKey.getClientId()));
         apiKeyRepository.deleteById(id);
     }
 
@@ -75,6 +114,51 @@ public class ApiKeyServiceImpl implements ApiKeyService {
         return apiKeyRepository.existsByClientId(clientId);
     }
 
+    @Override
+    public boolean isSecretStoredHashed() {
+        return hashSecrets;
+    }
+
+    @Override
+    public int migrateSecretsToHash() {
+        int migrated = 0;
+        for (var apiKey : apiKeyRepository.findBySecretHashIsNullAndCipherEnvelopeEntityIsNotNull()) {
+            byte[] secret = null;
+            try {
+                secret = passwordService.decryptPasswordBytesFromEntity(apiKey.getCipherEnvelope());
+                apiKey.setSecretHash(secretHasher.hash(secret));
+                dropEnvelope(apiKey);
+                apiKeyRepository.save(apiKey);
+                evictVerification(apiKey.getClientId());
+                migrated++;
+            } catch (RuntimeException e) {
+                log.warn("Could not migrate secret of API key id={} to a hash", apiKey.getId(), e);
+            } finally {
+                if (secret != null)
+                    Arrays.fill(secret, (byte) 0);
+            }
+        }
+        return migrated;
+    }
+
+    /**
+     * Drops cached verifications and revokes issued access tokens for {@code clientId} now and again
+     * once the transaction ends, so a request racing the commit cannot re-cache the old key.
+     */
+    private void evictVerification(final String clientId) {
+        verificationCache.invalidate(clientId);
+        tokenService.revokeClient(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    verificationCache.invalidate(clientId);
+                    tokenService.revokeClient(clientId);
+                }
+            });
+        }
+    }
+
     private ApiKeyDTO mapToDTO(final ApiKey apiKey, final ApiKeyDTO apiKeyDTO) {
         apiKeyDTO.setId(apiKey.getId());
         apiKeyDTO.setEnvironment(apiKey.getEnvironment());
@@ -85,6 +169,7 @@ public class ApiKeyServiceImpl implements ApiKeyService {
         apiKeyDTO.setUpdatedAt(apiKey.getUpdatedAt());
         apiKeyDTO.setUpdatedBy(apiKey.getUpdatedBy());
 
+        // Hashed secrets cannot be shown again; the DTO secret stays null
         var envelop = apiKey.getCipherEnvelope();
         if (envelop != null) {
             var secret = passwordService.decryptPasswordFromEntity(envelop);
@@ -113,10 +198,25 @@ public class ApiKeyServiceImpl implements ApiKeyService {
         apiKey.setApplication(application);
 
         if (apiKeyDTO.getSecret() != null && !apiKeyDTO.getSecret().isBlank()) {
-            var envelope = passwordService.encryptPasswordToEntity(apiKeyDTO.getSecret());
-            apiKey.setCipherEnvelope(envelope);
+            if (hashSecrets) {
+                apiKey.setSecretHash(secretHasher.hash(apiKeyDTO.getSecret()));
+                dropEnvelope(apiKey);
+            } else {
+                var envelope = passwordService.encryptPasswordToEntity(apiKeyDTO.getSecret());
+                apiKey.setCipherEnvelope(envelope);
+                apiKey.setSecretHash(null);
+            }
         }
 
         return apiKey;
     }
+
+    /** Unlinks and deletes the key's envelope so no reversible copy of the secret is left behind. */
+    private void dropEnvelope(final ApiKey apiKey) {
+        var envelope = apiKey.getCipherEnvelope();
+        apiKey.setCipherEnvelope(null);
+        if (envelope != null && envelope.getId() != null) {
+            envelopeRepository.delete(envelope);
+        }
+    }
 }
\ No newline at end of file
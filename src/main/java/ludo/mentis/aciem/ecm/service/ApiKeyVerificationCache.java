@@ -0,0 +1,247 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived memory of API-key verification outcomes, keyed by client id.
+ * <p>
+ * Keys are never held: callers pass a {@link #digest(byte[]) digest}, an HMAC of the presented key
+ * under a random per-process key. Successful verifications remember the accepted digest together
+ * with the key's server restriction, so a repeat caller is accepted without a database lookup or
+ * decryption. Failures are remembered too, for a shorter time: unknown client ids, and the last few
+ * wrong digests per client, so a retry loop is rejected before any database or crypto work.
+ * All entries of a client are dropped when {@link ApiKeyServiceImpl} creates, changes or deletes
+ * its key; other nodes see such changes once their entries expire.
+ */
+@Component
+public class ApiKeyVerificationCache {
+
+    /** Wrong keys remembered per client id; older ones are forgotten first. */
+    static final int MAX_FAILED_DIGESTS = 8;
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int maxRejections;
+    private final long rejectionTtlNanos;
+    private final LongSupplier nanoClock;
+    private final SecretKeySpec digestKey;
+    private final ThreadLocal<Mac> macs;
+    private final LinkedHashMap<String, Entry> entries;
+    private final LinkedHashMap<String, Rejection> rejections;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejectionHits = new LongAdder();
+
+    @Autowired
+    public ApiKeyVerificationCache(ApiKeyProperties properties) {
+        this(properties.getVerificationCacheSize(), properties.getVerificationCacheTtl(),
+                properties.getNegativeCacheSize(), properties.getNegativeCacheTtl(), System::nanoTime);
+    }
+
+    ApiKeyVerificationCache(int maxEntries, Duration ttl, int maxRejections, Duration rejectionTtl,
+                            LongSupplier nanoClock) {
+        if (maxEntries < 0 || maxRejections < 0)
+            throw new IllegalArgumentException("verification cache size >= 0");
+        if (ttl == null || ttl.isNegative() || ttl.isZero()
+                || rejectionTtl == null || rejectionTtl.isNegative() || rejectionTtl.isZero())
+            throw new IllegalArgumentException("verification cache ttl must be positive");
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.maxRejections = maxRejections;
+        this.rejectionTtlNanos = rejectionTtl.toNanos();
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.digestKey = new SecretKeySpec(keyBytes, HMAC);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.entries = lru(maxEntries);
+        this.rejections = lru(maxRejections);
+    }
+
+    private static <V> LinkedHashMap<String, V> lru(int max) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    /** Keyed digest of a presented API key; the only form in which keys are compared or stored. */
+    public byte[] digest(byte[] providedKey) {
+        return macs.get().doFinal(providedKey);
+    }
+
+    /** Returns the cached verification if {@code digest} matches it and it has not expired, else {@code null}. */
+    public Verified lookup(String clientId, byte[] digest) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(clientId);
+            if (entry != null && isExpired(entry.expiresAtNanos)) {
+                entries.remove(clientId);
+                entry = null;
+            }
+        }
+        if (entry != null && MessageDigest.isEqual(entry.digest, digest)) {
+            hits.increment();
+            return entry.verified;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Remembers that {@code digest} was verified against the stored key of {@code clientId}. */
+    public void put(String clientId, byte[] digest, Long apiKeyId, String server) {
+        if (maxEntries == 0) {
+            return;
+        }
+        var entry = new Entry(digest, new Verified(apiKeyId, server), nanoClock.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            entries.put(clientId, entry);
+        }
+        synchronized (rejections) {
+            rejections.remove(clientId);
+        }
+    }
+
+    /** Whether {@code clientId} recently turned out unknown, or recently failed with this same {@code digest}. */
+    public boolean isRejected(String clientId, byte[] digest) {
+        if (maxRejections == 0) {
+            return false;
+        }
+        synchronized (rejections) {
+            var rejection = rejections.get(clientId);
+            if (rejection == null) {
+                return false;
+            }
+            if (isExpired(rejection.expiresAtNanos)) {
+                rejections.remove(clientId);
+                return false;
+            }
+            if (rejection.unknownClient || rejection.contains(digest)) {
+                rejectionHits.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public void rememberUnknownClient(String clientId) {
+        if (maxRejections == 0) {
+            return;
+        }
+        synchronized (rejections) {
+            rejections.put(clientId, new Rejection(true, new byte[0][], nanoClock.getAsLong() + rejectionTtlNanos));
+        }
+    }
+
+    public void rememberFailure(String clientId, byte[] digest) {
+        if (maxRejections == 0) {
+            return;
+        }
+        synchronized (rejections) {
+            var previous = rejections.get(clientId);
+            byte[][] digests = previous == null || isExpired(previous.expiresAtNanos)
+                    ? new byte[0][]
+                    : previous.digests;
+            if (digests.length == MAX_FAILED_DIGESTS) {
+                digests = Arrays.copyOfRange(digests, 1, digests.length);
+            }
+            digests = Arrays.copyOf(digests, digests.length + 1);
+            digests[digests.length - 1] = digest;
+            rejections.put(clientId, new Rejection(false, digests, nanoClock.getAsLong() + rejectionTtlNanos));
+        }
+    }
+
+    public void invalidate(String clientId) {
+        if (clientId == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(clientId);
+        }
+        synchronized (rejections) {
+            rejections.remove(clientId);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        synchronized (rejections) {
+            rejections.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long rejectionHits() {
+        return rejectionHits.sum();
+    }
+
+    private boolean isExpired(long expiresAtNanos) {
+        return nanoClock.getAsLong() - expiresAtNanos >= 0;
+    }
+
+    private Mac newMac() {
+        try {
+            var mac = Mac.getInstance(HMAC);
+            mac.init(digestKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    /** A verified API key: its id and the host it is restricted to, if any. */
+    public record Verified(Long apiKeyId, String server) {
+    }
+
+    private record Entry(byte[] digest, Verified verified, long expiresAtNanos) {
+    }
+
+    private record Rejection(boolean unknownClient, byte[][] digests, long expiresAtNanos) {
+        boolean contains(byte[] digest) {
+            for (byte[] d : digests) {
+                if (MessageDigest.isEqual(d, digest))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
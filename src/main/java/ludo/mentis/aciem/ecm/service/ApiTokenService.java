@@ -0,0 +1,21 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.model.ApiAccessToken;
+import ludo.mentis.aciem.ecm.model.TokenResponse;
+
+import java.util.Optional;
+
+public interface ApiTokenService {
+
+    /** Issues a signed access token carrying the claims of API key {@code apiKeyId}. */
+    TokenResponse issue(Long apiKeyId);
+
+    /** Checks signature, expiry and the deny list; no database access. */
+    Optional<ApiAccessToken> verify(String token);
+
+    /** Denies {@code token} on this node until it expires. */
+    void revoke(ApiAccessToken token);
+
+    /** Denies every token issued so far for {@code clientId} on this node. */
+    void revokeClient(String clientId);
+}
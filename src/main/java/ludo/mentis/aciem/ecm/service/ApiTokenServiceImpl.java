@@ -0,0 +1,228 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import ludo.mentis.aciem.ecm.domain.ApiKey;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.ApiAccessToken;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.TokenResponse;
+import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Stateless access tokens for {@code /api/v1}: {@code base64url(claims) "." base64url(HMAC-SHA256)}.
+ * Verifying one costs a single HMAC and never touches the database. Revocations are kept in memory
+ * until the affected tokens would have expired anyway.
+ */
+@Service
+public class ApiTokenServiceImpl implements ApiTokenService {
+
+    static final String TOKEN_TYPE = "Bearer";
+    static final int MIN_SECRET_BYTES = 32;
+    private static final String HMAC = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int ID_BYTES = 16;
+    private static final int MAX_TOKEN_CHARS = 1024;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecretKeySpec signingKey;
+    private final ThreadLocal<Mac> macs;
+    private final SecureRandom random = new SecureRandom();
+
+    /** Token id -> expiry of the revoked token. */
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    /** Client id -> time before which every token of that client is revoked. */
+    private final ConcurrentHashMap<String, Long> revokedClients = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ApiTokenServiceImpl(final ApiKeyRepository apiKeyRepository, final ApiKeyProperties properties) {
+        this(apiKeyRepository, properties, System::currentTimeMillis);
+    }
+
+    ApiTokenServiceImpl(final ApiKeyRepository apiKeyRepository, final ApiKeyProperties properties,
+                        final LongSupplier clock) {
+        Duration ttl = properties.getTokenTtl();
+        if (ttl == null || ttl.isNegative() || ttl.isZero())
+            throw new IllegalStateException("ecm.api-key.token-ttl must be positive");
+        this.apiKeyRepository = apiKeyRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.signingKey = new SecretKeySpec(signingKeyBytes(properties.getTokenSecret()), HMAC);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    private static byte[] signingKeyBytes(String secret) {
+        // Every node must sign with the same key, and keep it across restarts
+        if (secret == null || secret.isBlank())
+            throw new IllegalStateException("ecm.api-key.token-secret is required");
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < MIN_SECRET_BYTES)
+            throw new IllegalStateException("ecm.api-key.token-secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        return key;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TokenResponse issue(final Long apiKeyId) {
+        ApiKey apiKey = apiKeyRepository.findById(apiKeyId).orElseThrow(NotFoundException::new);
+        byte[] id = new byte[ID_BYTES];
+        random.nextBytes(id);
+        long now = clock.getAsLong();
+        var token = new ApiAccessToken(
+                ENCODER.encodeToString(id),
+                apiKey.getClientId(),
+                apiKey.getId(),
+                apiKey.getApplication().getId(),
+                apiKey.getEnvironment(),
+                apiKey.getServer(),
+                now,
+                now + ttlMillis);
+        return new TokenResponse(encode(token), TOKEN_TYPE, ttlMillis / 1000, null);
+    }
+
+    @Override
+    public Optional<ApiAccessToken> verify(final String token) {
+        if (token == null || token.length() > MAX_TOKEN_CHARS) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return Optional.empty();
+        }
+        ApiAccessToken claims = decode(payload);
+        if (claims == null || claims.expiresAt() <= clock.getAsLong() || isRevoked(claims)) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
+    }
+
+    @Override
+    public void revoke(final ApiAccessToken token) {
+        purgeExpired();
+        revokedTokens.put(token.id(), token.expiresAt());
+    }
+
+    @Override
+    public void revokeClient(final String clientId) {
+        if (clientId == null) {
+            return;
+        }
+        purgeExpired();
+        revokedClients.put(clientId, clock.getAsLong());
+    }
+
+    private boolean isRevoked(ApiAccessToken token) {
+        if (revokedTokens.containsKey(token.id())) {
+            return true;
+        }
+        Long revokedAt = revokedClients.get(token.clientId());
+        return revokedAt != null && token.issuedAt() <= revokedAt;
+    }
+
+    /** Revocations only need to outlive the tokens they cover. */
+    private void purgeExpired() {
+        long now = clock.getAsLong();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedClients.values().removeIf(revokedAt -> revokedAt + ttlMillis <= now);
+    }
+
+    private String encode(ApiAccessToken token) {
+        var bytes = new ByteArrayOutputStream(128);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.write(DECODER.decode(token.id()));
+            out.writeLong(token.issuedAt());
+            out.writeLong(token.expiresAt());
+            out.writeLong(token.apiKeyId());
+            out.writeLong(token.applicationId());
+            out.writeByte((int) token.environment().getId());
+            out.writeUTF(token.clientId());
+            out.writeUTF(token.server() == null ? "" : token.server());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /** Only called on payloads with a valid signature; {@code null} for an unknown layout. */
+    private static ApiAccessToken decode(byte[] payload) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != VERSION) {
+                return null;
+            }
+            byte[] id = in.readNBytes(ID_BYTES);
+            long issuedAt = in.readLong();
+            long expiresAt = in.readLong();
+            long apiKeyId = in.readLong();
+            long applicationId = in.readLong();
+            Environment environment = environment(in.readByte());
+            String clientId = in.readUTF();
+            String server = in.readUTF();
+            return new ApiAccessToken(ENCODER.encodeToString(id), clientId, apiKeyId, applicationId, environment,
+                    server.isEmpty() ? null : server, issuedAt, expiresAt);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Environment environment(int id) {
+        for (Environment environment : Environment.values()) {
+            if (environment.getId() == id) {
+                return environment;
+            }
+        }
+        return null;
+    }
+
+    private byte[] sign(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+}
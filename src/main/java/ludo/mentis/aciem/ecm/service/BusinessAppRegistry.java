@@ -0,0 +1,139 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.AppRegistryProperties;
+import ludo.mentis.aciem.ecm.domain.BusinessApp;
+import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-mostly view of all business apps: code and name to id, id to name.
+ * <p>
+ * Readers get an immutable snapshot without touching the database. {@link BusinessAppServiceImpl}
+ * reloads it after every create, update or delete; changes made on other nodes are picked up once the
+ * snapshot is older than {@code ecm.app-registry.refresh-interval}, by the first reader that notices.
+ * Codes and names compare case-insensitively, like the database collation.
+ */
+@Component
+public class BusinessAppRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(BusinessAppRegistry.class);
+
+    private final BusinessAppRepository businessAppRepository;
+    private final long refreshIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public BusinessAppRegistry(BusinessAppRepository businessAppRepository, AppRegistryProperties properties) {
+        this(businessAppRepository, properties.getRefreshInterval(), System::nanoTime);
+    }
+
+    BusinessAppRegistry(BusinessAppRepository businessAppRepository, Duration refreshInterval,
+                        LongSupplier nanoClock) {
+        if (refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero())
+            throw new IllegalArgumentException("app registry refresh interval must be positive");
+        this.businessAppRepository = businessAppRepository;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+    }
+
+    /** Loads the snapshot once startup runners have had a chance to seed apps. */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        var apps = businessAppRepository.findAll(Sort.by("name"));
+        Map<String, App> byCode = new HashMap<>();
+        Map<String, App> byName = new HashMap<>();
+        Map<Long, App> byId = new HashMap<>();
+        Map<Long, String> namesById = new LinkedHashMap<>();
+        for (BusinessApp businessApp : apps) {
+            var app = new App(businessApp.getId(), businessApp.getCode(), businessApp.getName());
+            byCode.put(normalize(app.code()), app);
+            byName.put(normalize(app.name()), app);
+            byId.put(app.id(), app);
+            namesById.put(app.id(), app.name());
+        }
+        snapshot = new Snapshot(Map.copyOf(byCode), Map.copyOf(byName), Map.copyOf(byId),
+                Collections.unmodifiableMap(namesById), nanoClock.getAsLong());
+    }
+
+    public Optional<App> findByCode(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(current().byCode().get(normalize(code)));
+    }
+
+    public Optional<App> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(current().byId().get(id));
+    }
+
+    public boolean codeExists(String code) {
+        return findByCode(code).isPresent();
+    }
+
+    public boolean nameExists(String name) {
+        return name != null && current().byName().containsKey(normalize(name));
+    }
+
+    /** App names by id, ordered by name, for select boxes. */
+    public Map<Long, String> namesById() {
+        return current().namesById();
+    }
+
+    private Snapshot current() {
+        var current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null)
+                    refresh();
+                return snapshot;
+            }
+        }
+        // One reader reloads a stale snapshot; the others keep using it meanwhile
+        if (nanoClock.getAsLong() - current.loadedAtNanos() >= refreshIntervalNanos
+                && refreshing.compareAndSet(false, true)) {
+            try {
+                refresh();
+                return snapshot;
+            } catch (RuntimeException e) {
+                log.warn("Could not reload business apps; keeping the previous list", e);
+                synchronized (this) {
+                    if (snapshot == current)
+                        snapshot = current.reloadedAt(nanoClock.getAsLong());
+                }
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    public record App(Long id, String code, String name) {
+    }
+
+    private record Snapshot(Map<String, App> byCode, Map<String, App> byName, Map<Long, App> byId,
+                            Map<Long, String> namesById, long loadedAtNanos) {
+        Snapshot reloadedAt(long nanos) {
+            return new Snapshot(byCode, byName, byId, namesById, nanos);
+        }
+    }
+}
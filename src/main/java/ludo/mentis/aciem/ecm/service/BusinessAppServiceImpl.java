@@ -9,17 +9,22 @@ import ludo.mentis.aciem.ecm.repos.CredentialRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class BusinessAppServiceImpl implements BusinessAppService {
 
     private final BusinessAppRepository businessAppRepository;
     private final CredentialRepository credentialRepository;
+    private final BusinessAppRegistry businessAppRegistry;
 
     public BusinessAppServiceImpl(final BusinessAppRepository businessAppRepository,
-                                  final CredentialRepository credentialRepository) {
+                                  final CredentialRepository credentialRepository,
+                                  final BusinessAppRegistry businessAppRegistry) {
         this.businessAppRepository = businessAppRepository;
         this.credentialRepository = credentialRepository;
+        this.businessAppRegistry = businessAppRegistry;
     }
 
     @Override
@@ -41,7 +46,9 @@ public class BusinessAppServiceImpl implements BusinessAppService {
     @Override
     public Long create(final BusinessAppDTO businessAppDTO) {
         var businessApp = mapToEntity(businessAppDTO);
-        return businessAppRepository.save(businessApp).getId();
+        var id = businessAppRepository.save(businessApp).getId();
+        refreshRegistry();
+        return id;
     }
 
     @Override
@@ -50,11 +57,26 @@ public class BusinessAppServiceImpl implements BusinessAppService {
                 .orElseThrow(NotFoundException::new);
         mapToEntity(businessAppDTO, businessApp);
         businessAppRepository.save(businessApp);
+        refreshRegistry();
     }
 
     @Override
     public void delete(final Long id) {
         businessAppRepository.deleteById(id);
+        refreshRegistry();
+    }
+
+    /** Reloads the registry now and, inside a transaction, again once it ends, when the change is visible. */
+    private void refreshRegistry() {
+        businessAppRegistry.refresh();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    businessAppRegistry.refresh();
+                }
+            });
+        }
     }
 
     private BusinessAppDTO mapToDTO(final BusinessApp businessApp, final BusinessAppDTO businessAppDTO) {
@@ -78,12 +100,12 @@ public class BusinessAppServiceImpl implements BusinessAppService {
 
     @Override
     public boolean nameExists(final String name) {
-        return businessAppRepository.existsByNameIgnoreCase(name);
+        return businessAppRegistry.nameExists(name);
     }
 
     @Override
     public boolean codeExists(String code) {
-        return businessAppRepository.existsByCodeIgnoreCase(code);
+        return businessAppRegistry.codeExists(code);
     }
 
     @Override
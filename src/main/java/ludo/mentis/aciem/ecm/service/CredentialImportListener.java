@@ -0,0 +1,18 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFailure;
+
+/** Callbacks from a running import, on the importing thread. */
+public interface CredentialImportListener {
+
+    CredentialImportListener NONE = new CredentialImportListener() {
+    };
+
+    /** Called after each batch is written. */
+    default void onProgress(long read, long imported, long failed) {
+    }
+
+    /** Called for every row that is skipped. */
+    default void onFailure(CredentialImportFailure failure) {
+    }
+}
@@ -0,0 +1,16 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportReport;
+
+import java.io.InputStream;
+
+public interface CredentialImportService {
+
+    /**
+     * Streams {@code input} and creates each row as a new credential (version 1, enabled). Invalid,
+     * duplicate or unencryptable rows are reported and skipped; the others are committed batch by batch.
+     */
+    CredentialImportReport importCredentials(InputStream input, CredentialImportFormat format, String importedBy,
+                                             CredentialImportListener listener);
+}
@@ -0,0 +1,435 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.CredentialImportProperties;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.domain.Credential;
+import ludo.mentis.aciem.ecm.model.CredentialImportFailure;
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportReport;
+import ludo.mentis.aciem.ecm.model.CredentialImportRow;
+import ludo.mentis.aciem.ecm.model.CredentialKey;
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import ludo.mentis.aciem.ecm.repos.CredentialRepository;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
+import ludo.mentis.aciem.ecm.service.importer.CredentialImportReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk creation of credentials from a CSV or JSON file.
+ * <p>
+ * The file is read in batches of {@code ecm.import.batch-size} rows. Each batch is validated like the
+ * add form ({@code CredentialDTO} constraints plus {@code CredentialUnique}), using the in-memory app
+ * registry and one set lookup per batch instead of a query per row. Passwords are then encrypted one by one
+ * on the import's own {@code ecm.import.encryption-threads} threads, so an import never competes with the
+ * REST bulk decryptions for the shared crypto pool. The previous batch is written meanwhile, each batch
+ * in one transaction with JDBC batching. If a batch hits a unique index (a credential created meanwhile), its
+ * rows are retried one by one so only the clashing rows fail.
+ */
+@Service
+public class CredentialImportServiceImpl implements CredentialImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CredentialImportServiceImpl.class);
+
+    static final String ALREADY_EXISTS =
+            "A Credential with the same Application, Environment, Type, Username, Version and Enabled already exists.";
+    static final String ENCRYPTION_FAILED = "Password could not be encrypted.";
+    private static final int USERNAME_MAX = 255;
+    private static final int PASSWORD_MAX = 500;
+    private static final int URL_MAX = 500;
+    // TEXT column, counted in bytes
+    private static final int NOTES_MAX_BYTES = 65_535;
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final int CREATED_BY_MAX = 45;
+
+    private final CredentialRepository credentialRepository;
+    private final BusinessAppRepository businessAppRepository;
+    private final BusinessAppRegistry businessAppRegistry;
+    private final PasswordService passwordService;
+    private final TransactionTemplate transactionTemplate;
+    private final CredentialImportProperties properties;
+
+    public CredentialImportServiceImpl(final CredentialRepository credentialRepository,
+                                       final BusinessAppRepository businessAppRepository,
+                                       final BusinessAppRegistry businessAppRegistry,
+                                       final PasswordService passwordService,
+                                       final PlatformTransactionManager transactionManager,
+                                       final CredentialImportProperties properties) {
+        if (properties.getBatchSize() < 1)
+            throw new IllegalArgumentException("import batch size must be positive");
+        this.credentialRepository = credentialRepository;
+        this.businessAppRepository = businessAppRepository;
+        this.businessAppRegistry = businessAppRegistry;
+        this.passwordService = passwordService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Override
+    public CredentialImportReport importCredentials(final InputStream input, final CredentialImportFormat format,
+                                                    final String importedBy, final CredentialImportListener listener) {
+        final long start = System.nanoTime();
+        final var run = new Run(listener, truncate(importedBy, CREATED_BY_MAX));
+        final var executor = newEncryptionExecutor();
+        String error = null;
+        try (var reader = CredentialImportReader.open(input, format)) {
+            error = importAll(reader, run, executor);
+        } catch (IOException e) {
+            error = e.getMessage();
+        } finally {
+            executor.shutdownNow();
+        }
+        final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (error != null) {
+            log.warn("Credential import stopped after {} rows ({} imported, {} failed): {}",
+                    run.read, run.imported, run.failed, error);
+        } else {
+            log.info("Credential import completed in {}ms: {} rows, {} imported, {} failed.",
+                    elapsedMillis, run.read, run.imported, run.failed);
+        }
+        return new CredentialImportReport(run.read, run.imported, run.failed, List.copyOf(run.failures), error,
+                elapsedMillis);
+    }
+
+    /**
+     * Reads, prepares and writes batches until the end of the file; returns why it stopped early, if it did.
+     * Batch N+1 is parsed, validated and its encryption started before batch N is written.
+     */
+    private String importAll(final CredentialImportReader reader, final Run run, final ExecutorService executor) {
+        Batch inFlight = null;
+        String error = null;
+        boolean more = true;
+        try {
+            while (more) {
+                var rows = new ArrayList<CredentialImportRow>(properties.getBatchSize());
+                try {
+                    more = readBatch(reader, rows);
+                } catch (IOException e) {
+                    // Rows read before the malformed part are still imported
+                    error = e.getMessage();
+                    more = false;
+                }
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                var next = prepare(rows, run, executor);
+                if (inFlight != null) {
+                    write(inFlight, run);
+                }
+                inFlight = next;
+            }
+            if (inFlight != null) {
+                write(inFlight, run);
+            }
+        } catch (RuntimeException e) {
+            log.error("Credential import aborted", e);
+            return "Import aborted: " + e.getMessage();
+        }
+        return error;
+    }
+
+    private boolean readBatch(final CredentialImportReader reader, final List<CredentialImportRow> rows)
+            throws IOException {
+        while (rows.size() < properties.getBatchSize()) {
+            var row = reader.next();
+            if (row == null) {
+                return false;
+            }
+            rows.add(row);
+        }
+        return true;
+    }
+
+    /** Validates a batch and starts encrypting the rows that passed. */
+    private Batch prepare(final List<CredentialImportRow> rows, final Run run, final ExecutorService executor) {
+        List<Pending> candidates = new ArrayList<>(rows.size());
+        for (var row : rows) {
+            run.read++;
+            var pending = validate(row, run);
+            if (pending != null) {
+                candidates.add(pending);
+            }
+        }
+
+        // CredentialUnique for the whole batch in one query
+        if (!candidates.isEmpty()) {
+            var applicationIds = candidates.stream().map(p -> p.key().applicationId()).collect(Collectors.toSet());
+            var usernames = candidates.stream().map(p -> p.row().username()).collect(Collectors.toSet());
+            var existing = new HashSet<CredentialKey>();
+            for (var key : credentialRepository.findEnabledFirstVersionKeys(applicationIds, usernames)) {
+                existing.add(normalize(key));
+            }
+            candidates.removeIf(p -> {
+                if (existing.contains(p.key())) {
+                    run.fail(p.row(), ALREADY_EXISTS);
+                    return true;
+                }
+                return false;
+            });
+        }
+        return new Batch(candidates, encrypt(candidates, executor));
+    }
+
+    /** Field checks of the add form; returns {@code null} after reporting the row if it is invalid. */
+    private Pending validate(final CredentialImportRow row, final Run run) {
+        var appCode = trim(row.appCode());
+        if (appCode == null) {
+            return run.fail(row, "Application code is required.");
+        }
+        var app = businessAppRegistry.findByCode(appCode).orElse(null);
+        if (app == null) {
+            return run.fail(row, "Business app not found with code: `" + appCode + "`.");
+        }
+        var environment = parseEnum(Environment.class, row.environment());
+        if (environment == null) {
+            return run.fail(row, "Unknown environment `" + row.environment() + "`; expected one of "
+                    + Arrays.toString(Environment.values()) + ".");
+        }
+        var credentialType = parseEnum(CredentialType.class, row.credentialType());
+        if (credentialType == null) {
+            return run.fail(row, "Unknown credential type `" + row.credentialType() + "`; expected one of "
+                    + Arrays.toString(CredentialType.values()) + ".");
+        }
+        var username = row.username();
+        if (username == null || username.isBlank()) {
+            return run.fail(row, "Username is required.");
+        }
+        if (username.length() > USERNAME_MAX) {
+            return run.fail(row, "Username is longer than " + USERNAME_MAX + " characters.");
+        }
+        if (row.password() == null || row.password().isBlank()) {
+            return run.fail(row, "Password is required.");
+        }
+        if (row.password().length() > PASSWORD_MAX) {
+            return run.fail(row, "Password is longer than " + PASSWORD_MAX + " characters.");
+        }
+        if (row.url() != null && row.url().length() > URL_MAX) {
+            return run.fail(row, "URL is longer than " + URL_MAX + " characters.");
+        }
+        if (row.notes() != null && row.notes().getBytes(StandardCharsets.UTF_8).length > NOTES_MAX_BYTES) {
+            return run.fail(row, "Notes are longer than " + NOTES_MAX_BYTES + " bytes.");
+        }
+
+        var key = normalize(new CredentialKey(app.id(), environment.getId(), credentialType.getId(), username));
+        var firstRow = run.seen.putIfAbsent(key, row.rowNumber());
+        if (firstRow != null) {
+            return run.fail(row, "Same credential as row " + firstRow + " of this file.");
+        }
+        return new Pending(row, key, environment, credentialType);
+    }
+
+    /** Splits the batch into one slice per encryption thread; results come back in row order. */
+    private List<CompletableFuture<List<CryptoResult<CipherEnvelopeEntity>>>> encrypt(
+            final List<Pending> candidates, final ExecutorService executor) {
+        List<CompletableFuture<List<CryptoResult<CipherEnvelopeEntity>>>> slices = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return slices;
+        }
+        int sliceSize = Math.max(1, (candidates.size() + encryptionThreads() - 1) / encryptionThreads());
+        for (int from = 0; from < candidates.size(); from += sliceSize) {
+            var passwords = candidates.subList(from, Math.min(from + sliceSize, candidates.size())).stream()
+                    .map(p -> p.row().password())
+                    .toList();
+            slices.add(CompletableFuture.supplyAsync(() -> encryptEach(passwords), executor));
+        }
+        return slices;
+    }
+
+    /** Encrypts on the calling import thread; one failed password does not fail the others. */
+    private List<CryptoResult<CipherEnvelopeEntity>> encryptEach(final List<String> passwords) {
+        List<CryptoResult<CipherEnvelopeEntity>> results = new ArrayList<>(passwords.size());
+        for (var password : passwords) {
+            try {
+                results.add(CryptoResult.success(passwordService.encryptPasswordToEntity(password)));
+            } catch (RuntimeException e) {
+                results.add(CryptoResult.failure(e));
+            }
+        }
+        return results;
+    }
+
+    /** Waits for the batch's envelopes and writes the rows that encrypted, in one transaction if possible. */
+    private void write(final Batch batch, final Run run) {
+        List<Pending> ready = new ArrayList<>(batch.rows().size());
+        int index = 0;
+        for (var slice : batch.encrypted()) {
+            for (var result : slice.join()) {
+                var pending = batch.rows().get(index++);
+                if (result.isSuccess()) {
+                    ready.add(pending.withEnvelope(result.value()));
+                } else {
+                    log.warn("Could not encrypt the password of import row {}", pending.row().rowNumber(),
+                            result.error());
+                    run.fail(pending.row(), ENCRYPTION_FAILED);
+                }
+            }
+        }
+
+        if (!ready.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(ready, run.importedBy));
+                run.imported += ready.size();
+            } catch (DataIntegrityViolationException e) {
+                // Someone created one of these credentials since the batch was checked, or a row holds a
+                // value the table rejects; find out which
+                for (var pending : ready) {
+                    try {
+                        // The failed attempt left generated ids on the envelopes
+                        pending.envelope().setId(null);
+                        transactionTemplate.executeWithoutResult(status -> persist(List.of(pending), run.importedBy));
+                        run.imported++;
+                    } catch (DataIntegrityViolationException ex) {
+                        run.fail(pending.row(), isDuplicateKey(ex)
+                                ? ALREADY_EXISTS
+                                : "Could not be saved: " + ex.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+        run.listener.onProgress(run.read, run.imported, run.failed);
+    }
+
+    private void persist(final List<Pending> rows, final String importedBy) {
+        List<Credential> credentials = new ArrayList<>(rows.size());
+        for (var pending : rows) {
+            var credential = new Credential();
+            credential.setApplication(businessAppRepository.getReferenceById(pending.key().applicationId()));
+            credential.setEnvironment(pending.environment());
+            credential.setCredentialType(pending.credentialType());
+            credential.setUsername(pending.row().username());
+            // Version 1 is its own lineage, so the lineage id stays null
+            credential.setVersion(1);
+            credential.setEnabled(true);
+            credential.setUrl(trim(pending.row().url()));
+            credential.setNotes(pending.row().notes());
+            credential.setCreatedBy(importedBy);
+            credential.setCipherEnvelope(pending.envelope());
+            credentials.add(credential);
+        }
+        credentialRepository.saveAll(credentials);
+    }
+
+    /** Whether {@code e} comes from a unique index, the only case where the credential already exists. */
+    private static boolean isDuplicateKey(final DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ExecutorService newEncryptionExecutor() {
+        var threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(encryptionThreads(), r -> {
+            var thread = new Thread(r, "ecm-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private int encryptionThreads() {
+        return properties.getEncryptionThreads() > 0
+                ? properties.getEncryptionThreads()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Usernames compare case-insensitively, like the database collation. */
+    private static CredentialKey normalize(CredentialKey key) {
+        return new CredentialKey(key.applicationId(), key.environmentId(), key.credentialTypeId(),
+                key.username().toLowerCase(Locale.ROOT));
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        var name = trim(value);
+        if (name == null) {
+            return null;
+        }
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(name)) {
+                return constant;
+            }
+        }
+        return null;
+    }
+
+    private static String trim(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private static String truncate(String value, int max) {
+        return value == null || value.length() <= max ? value : value.substring(0, max);
+    }
+
+    /** Counters and reported failures of one import; only touched by the importing thread. */
+    private final class Run {
+        final CredentialImportListener listener;
+        final String importedBy;
+        final Map<CredentialKey, Long> seen = new HashMap<>();
+        final List<CredentialImportFailure> failures = new ArrayList<>();
+        long read;
+        long imported;
+        long failed;
+
+        Run(CredentialImportListener listener, String importedBy) {
+            this.listener = listener == null ? CredentialImportListener.NONE : listener;
+            this.importedBy = importedBy;
+        }
+
+        Pending fail(CredentialImportRow row, String reason) {
+            var failure = CredentialImportFailure.of(row, reason);
+            failed++;
+            if (failures.size() < properties.getMaxReportedFailures()) {
+                failures.add(failure);
+            }
+            listener.onFailure(failure);
+            return null;
+        }
+    }
+
+    private record Pending(CredentialImportRow row, CredentialKey key, Environment environment,
+                           CredentialType credentialType, CipherEnvelopeEntity envelope) {
+
+        Pending(CredentialImportRow row, CredentialKey key, Environment environment, CredentialType credentialType) {
+            this(row, key, environment, credentialType, null);
+        }
+
+        Pending withEnvelope(CipherEnvelopeEntity envelope) {
+            return new Pending(row, key, environment, credentialType, envelope);
+        }
+    }
+
+    private record Batch(List<Pending> rows,
+                         List<CompletableFuture<List<CryptoResult<CipherEnvelopeEntity>>>> encrypted) {
+    }
+}
@@ -1,9 +1,26 @@
 package ludo.mentis.aciem.ecm.service;
 
+import ludo.mentis.aciem.ecm.model.BulkPasswordItem;
 import ludo.mentis.aciem.ecm.model.PasswordRequest;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface CredentialRestService {
     Optional<String> getPassword(final PasswordRequest passwordRequest);
+
+    /**
+     * Looks the credential up on the calling thread and decrypts it on the crypto executor.
+     * The future fails with {@link ludo.mentis.aciem.ecm.exception.CryptoBusyException} when the executor is saturated.
+     */
+    CompletableFuture<Optional<String>> getPasswordAsync(final PasswordRequest passwordRequest);
+
+    /**
+     * Resolves all {@code passwordRequests} with one query and decrypts the matches in parallel on a single
+     * crypto executor slot. Results are in request order; a missing or undecryptable credential only fails
+     * its own item. The future fails with {@link ludo.mentis.aciem.ecm.exception.CryptoBusyException} when
+     * the executor is saturated.
+     */
+    CompletableFuture<List<BulkPasswordItem>> getPasswordsAsync(final List<PasswordRequest> passwordRequests);
 }
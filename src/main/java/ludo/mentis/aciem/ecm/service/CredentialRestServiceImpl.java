@@ -1,38 +1,142 @@
 package ludo.mentis.aciem.ecm.service;
 
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.domain.Credential;
 import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.BulkPasswordItem;
 import ludo.mentis.aciem.ecm.model.PasswordRequest;
-import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
 import ludo.mentis.aciem.ecm.repos.CredentialRepository;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoExecutor;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 public class CredentialRestServiceImpl implements CredentialRestService {
 
+    private static final Logger log = LoggerFactory.getLogger(CredentialRestServiceImpl.class);
+
     private final CredentialRepository repository;
-    private final BusinessAppRepository businessAppRepository;
+    private final BusinessAppRegistry businessAppRegistry;
     private final PasswordService passwordService;
+    private final CryptoExecutor cryptoExecutor;
+    private final SecretCache secretCache;
+
+    static final String CREDENTIAL_NOT_FOUND = "Credential not found.";
+    static final String DECRYPTION_FAILED = "Credential could not be decrypted.";
 
     public CredentialRestServiceImpl(final CredentialRepository repository,
-                                     final BusinessAppRepository businessAppRepository,
-                                     final PasswordService passwordService) {
+                                     final BusinessAppRegistry businessAppRegistry,
+                                     final PasswordService passwordService,
+                                     final CryptoExecutor cryptoExecutor,
+                                     final SecretCache secretCache) {
         this.repository = repository;
-        this.businessAppRepository = businessAppRepository;
+        this.businessAppRegistry = businessAppRegistry;
         this.passwordService = passwordService;
+        this.cryptoExecutor = cryptoExecutor;
+        this.secretCache = secretCache;
     }
 
     @Override
     public Optional<String> getPassword(final PasswordRequest passwordRequest) {
-        var credential = repository.findFirstByPasswordRequest(passwordRequest);
-        if (!businessAppRepository.existsByCodeIgnoreCase(passwordRequest.appCode())) {
-            throw new NotFoundException("Business app not found with code: `" + passwordRequest.appCode() + "`.");
+        var cached = secretCache.get(passwordRequest);
+        if (cached != null) {
+            return Optional.of(cached);
         }
-        if (credential.isEmpty()) {
+        var generation = secretCache.generation();
+        var envelope = findEnvelope(passwordRequest);
+        if (envelope.isEmpty()) {
             return Optional.empty();
         }
-        var password = this.passwordService.decryptPasswordFromEntity(credential.get().getCipherEnvelope());
+        var password = this.passwordService.decryptPasswordFromEntity(envelope.get());
+        secretCache.put(passwordRequest, password, generation);
         return Optional.ofNullable(password);
     }
+
+    @Override
+    public CompletableFuture<Optional<String>> getPasswordAsync(final PasswordRequest passwordRequest) {
+        // A hit needs neither the database nor a crypto executor slot
+        var cached = secretCache.get(passwordRequest);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        var generation = secretCache.generation();
+        var envelope = findEnvelope(passwordRequest);
+        if (envelope.isEmpty()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return cryptoExecutor.submit(() -> {
+            var password = passwordService.decryptPasswordFromEntity(envelope.get());
+            secretCache.put(passwordRequest, password, generation);
+            return Optional.ofNullable(password);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<BulkPasswordItem>> getPasswordsAsync(final List<PasswordRequest> passwordRequests) {
+        var appCodes = passwordRequests.stream().map(PasswordRequest::appCode).collect(Collectors.toSet());
+        var usernames = passwordRequests.stream().map(PasswordRequest::username).collect(Collectors.toSet());
+        Map<SecretCache.Key, Credential> byKey = new HashMap<>();
+        for (var credential : repository.findLatestByAppCodesAndUsernames(appCodes, usernames)) {
+            byKey.put(SecretCache.Key.of(credential.getApplication().getCode(), credential.getEnvironment(),
+                    credential.getCredentialType(), credential.getUsername()), credential);
+        }
+
+        // Each distinct credential is decrypted once, however often it was requested
+        List<CipherEnvelopeEntity> envelopes = new ArrayList<>();
+        Map<Long, Integer> envelopeIndex = new HashMap<>();
+        int[] slots = new int[passwordRequests.size()];
+        for (int i = 0; i < slots.length; i++) {
+            var request = passwordRequests.get(i);
+            var credential = byKey.get(SecretCache.Key.of(request.appCode(), request.environment(),
+                    request.credentialType(), request.username()));
+            slots[i] = credential == null ? -1 : envelopeIndex.computeIfAbsent(credential.getId(), id -> {
+                envelopes.add(credential.getCipherEnvelope());
+                return envelopes.size() - 1;
+            });
+        }
+        if (envelopes.isEmpty()) {
+            return CompletableFuture.completedFuture(toItems(passwordRequests, slots, List.of()));
+        }
+        return cryptoExecutor.submit(() -> passwordService.decryptPasswordsFromEntities(envelopes))
+                .thenApply(results -> toItems(passwordRequests, slots, results));
+    }
+
+    private static List<BulkPasswordItem> toItems(List<PasswordRequest> requests, int[] slots,
+                                                  List<CryptoResult<String>> results) {
+        List<BulkPasswordItem> items = new ArrayList<>(requests.size());
+        for (int i = 0; i < slots.length; i++) {
+            var request = requests.get(i);
+            var result = slots[i] < 0 ? null : results.get(slots[i]);
+            if (result == null || (result.isSuccess() && result.value() == null)) {
+                items.add(BulkPasswordItem.failed(request, AuditOutcome.NOT_FOUND, CREDENTIAL_NOT_FOUND));
+            } else if (result.isSuccess()) {
+                items.add(BulkPasswordItem.granted(request, result.value()));
+            } else {
+                log.warn("Failed to decrypt credential for appCode={}, username={}", request.appCode(),
+                        request.username(), result.error());
+                items.add(BulkPasswordItem.failed(request, AuditOutcome.ERROR, DECRYPTION_FAILED));
+            }
+        }
+        return items;
+    }
+
+    /** Resolves the app in memory, then reads the latest envelope in one indexed query. */
+    private Optional<CipherEnvelopeEntity> findEnvelope(final PasswordRequest passwordRequest) {
+        var app = businessAppRegistry.findByCode(passwordRequest.appCode())
+                .orElseThrow(() -> new NotFoundException(
+                        "Business app not found with code: `" + passwordRequest.appCode() + "`."));
+        return repository.findLatestEnvelope(app.id(), passwordRequest.environment().getId(),
+                passwordRequest.credentialType().getId(), passwordRequest.username());
+    }
 }
@@ -11,8 +11,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -22,13 +23,16 @@ public class CredentialServiceImpl implements CredentialService {
     private final CredentialRepository credentialRepository;
     private final BusinessAppRepository applicationRepository;
     private final PasswordService passwordService;
+    private final SecretCache secretCache;
 
     public CredentialServiceImpl(final CredentialRepository credentialRepository,
                                  final BusinessAppRepository applicationRepository,
-                                 final PasswordService passwordService) {
+                                 final PasswordService passwordService,
+                                 final SecretCache secretCache) {
         this.credentialRepository = credentialRepository;
         this.applicationRepository = applicationRepository;
         this.passwordService = passwordService;
+        this.secretCache = secretCache;
     }
 
     @Override
@@ -61,25 +65,33 @@ public class CredentialServiceImpl implements CredentialService {
     public Long create(final CredentialDTO credentialDTO) {
         credentialDTO.setEnabled(true);
         var credential = mapToEntity(credentialDTO);
-        return credentialRepository.save(credential).getId();
+        // A new credential is its own lineage, so its lineage id stays null
+        var saved = credentialRepository.save(credential);
+        evictCachedSecret(credential);
+        return saved.getId();
     }
 
     @Override
     public void update(final Long id, final CredentialDTO credentialDTO) {
-        final var oldRecord = credentialRepository.findById(id)
+        final var requested = credentialRepository.findById(id)
+                .orElseThrow(NotFoundException::new);
+        final var oldRecord = credentialRepository.findLatestInLineageForUpdate(requested.getLineageRootId())
                 .orElseThrow(NotFoundException::new);
 
-        if (oldRecord.getNextCredential() != null) {
+        if (!oldRecord.getId().equals(requested.getId())) {
             throw new IllegalOperationException("You cannot update an old version!");
         }
 
         var newRecord = mapToEntity(credentialDTO);
+        newRecord.setLineageId(oldRecord.getLineageRootId());
         newRecord.setVersion(oldRecord.getVersion() + 1);
         newRecord.setUsername(oldRecord.getUsername()); // the username cannot be changed
         newRecord.setEnabled(true);
 
         oldRecord.setNextCredential(credentialRepository.save(newRecord));
         credentialRepository.save(oldRecord);
+        evictCachedSecret(oldRecord);
+        evictCachedSecret(newRecord);
     }
 
     @Override
@@ -87,20 +99,39 @@ public class CredentialServiceImpl implements CredentialService {
         var credential = credentialRepository.findById(id).orElseThrow(NotFoundException::new);
         credential.setEnabled(false);
         credentialRepository.save(credential);
+        evictCachedSecret(credential);
     }
 
     @Override
     public List<Credential> findHistory(Long id) {
-        var list = new ArrayList<Credential>();
-        var credential = credentialRepository.findById(id)
-                .orElseThrow(NotFoundException::new);
-        while (credential != null) {
-            list.add(credential);
-            var previous = credentialRepository.findByNextCredential(credential);
-            credential = previous.orElse(null);
+        var history = credentialRepository.findHistory(id);
+        if (history.isEmpty()) {
+            throw new NotFoundException();
+        }
+        return history;
+    }
+
+    /**
+     * Drops the cached password of {@code credential} now and again once the transaction ends, so a
+     * lookup racing the commit cannot re-cache the old value.
+     */
+    private void evictCachedSecret(final Credential credential) {
+        if (credential.getApplication() == null) {
+            return;
+        }
+        final var appCode = credential.getApplication().getCode();
+        final var environment = credential.getEnvironment();
+        final var credentialType = credential.getCredentialType();
+        final var username = credential.getUsername();
+        secretCache.invalidate(appCode, environment, credentialType, username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    secretCache.invalidate(appCode, environment, credentialType, username);
+                }
+            });
         }
-        list.sort((c1, c2) -> c2.getVersion().compareTo(c1.getVersion()));
-        return list;
     }
 
     private CredentialDTO mapToDTO(final Credential credential, final CredentialDTO credentialDTO) {
@@ -2,6 +2,9 @@ package ludo.mentis.aciem.ecm.service;
 
 import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
 import ludo.mentis.aciem.ecm.model.CipherEnvelope;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
+
+import java.util.List;
 
 public interface PasswordService {
 
@@ -12,4 +15,22 @@ public interface PasswordService {
     CipherEnvelopeEntity encryptPasswordToEntity(final String password);
 
     String decryptPasswordFromEntity(final CipherEnvelopeEntity envelope);
+
+    /** Decrypts to UTF-8 bytes owned by the caller, who should zero them after use. */
+    byte[] decryptPasswordBytesFromEntity(final CipherEnvelopeEntity envelope);
+
+    /** Decrypts to chars owned by the caller, who should zero them after use. */
+    char[] decryptPasswordCharsFromEntity(final CipherEnvelopeEntity envelope);
+
+    /**
+     * Constant-time comparison of the stored secret with {@code candidate} (UTF-8). The decrypted
+     * secret never becomes a String and is zeroed before returning.
+     */
+    boolean matchesPassword(final CipherEnvelopeEntity envelope, final byte[] candidate);
+
+    List<CryptoResult<CipherEnvelopeEntity>> encryptPasswordsToEntities(final List<String> passwords);
+
+    List<CryptoResult<String>> decryptPasswordsFromEntities(final List<CipherEnvelopeEntity> envelopes);
+
+    void updateEntity(final CipherEnvelope envelope, final CipherEnvelopeEntity entity);
 }
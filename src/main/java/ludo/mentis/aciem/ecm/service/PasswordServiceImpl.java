@@ -4,41 +4,126 @@ import ludo.mentis.aciem.ecm.config.CryptoProperties;
 import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
 import ludo.mentis.aciem.ecm.model.CipherEnvelope;
 import ludo.mentis.aciem.ecm.model.CipherEnvelopeMapper;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
 import ludo.mentis.aciem.ecm.service.crypto.CryptoService;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @Service
 public class PasswordServiceImpl implements PasswordService {
 
     private final CryptoService cryptoService;
     private final CryptoProperties config;
+    private final byte[] aad; // never handed to callers, so it is safe to share
 
     public PasswordServiceImpl(CryptoService cryptoService, CryptoProperties config) {
         this.cryptoService = cryptoService;
         this.config = config;
+        this.aad = config.getAad().getBytes(StandardCharsets.UTF_8);
     }
 
     @Override
     public CipherEnvelope encryptPassword(String password) {
-        byte[] aad = config.getAad().getBytes(StandardCharsets.UTF_8);
         return cryptoService.encryptString(password, aad);
     }
 
     @Override
     public String decryptPassword(CipherEnvelope envelope) {
-        byte[] aad = config.getAad().getBytes(StandardCharsets.UTF_8);
         return cryptoService.decryptToString(envelope, aad);
     }
 
     @Override
     public CipherEnvelopeEntity encryptPasswordToEntity(String password) {
-        return CipherEnvelopeMapper.toEntity(encryptPassword(password));
+        return CipherEnvelopeMapper.toEntity(encryptPassword(password), isBinaryStorage());
     }
 
     @Override
     public String decryptPasswordFromEntity(CipherEnvelopeEntity envelope) {
         return decryptPassword(CipherEnvelopeMapper.toModel(envelope));
     }
+
+    @Override
+    public byte[] decryptPasswordBytesFromEntity(CipherEnvelopeEntity envelope) {
+        return cryptoService.decrypt(CipherEnvelopeMapper.toModel(envelope), aad);
+    }
+
+    @Override
+    public char[] decryptPasswordCharsFromEntity(CipherEnvelopeEntity envelope) {
+        byte[] bytes = decryptPasswordBytesFromEntity(envelope);
+        try {
+            var decoded = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes));
+            char[] out = new char[decoded.remaining()];
+            decoded.get(out);
+            Arrays.fill(decoded.array(), '\0');
+            return out;
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    @Override
+    public boolean matchesPassword(CipherEnvelopeEntity envelope, byte[] candidate) {
+        byte[] secret = decryptPasswordBytesFromEntity(envelope);
+        try {
+            return MessageDigest.isEqual(secret, candidate);
+        } finally {
+            Arrays.fill(secret, (byte) 0);
+        }
+    }
+
+    @Override
+    public List<CryptoResult<CipherEnvelopeEntity>> encryptPasswordsToEntities(List<String> passwords) {
+        var plaintexts = passwords.stream()
+                .map(p -> p == null ? null : p.getBytes(StandardCharsets.UTF_8))
+                .toList();
+        final boolean binary = isBinaryStorage();
+        return cryptoService.encryptAll(plaintexts, aad).stream()
+                .map(r -> r.isSuccess()
+                        ? CryptoResult.success(CipherEnvelopeMapper.toEntity(r.value(), binary))
+                        : CryptoResult.<CipherEnvelopeEntity>failure(r.error()))
+                .toList();
+    }
+
+    @Override
+    public List<CryptoResult<String>> decryptPasswordsFromEntities(List<CipherEnvelopeEntity> envelopes) {
+        // A row that does not even map to an envelope fails on its own, like one that fails to decrypt
+        List<CipherEnvelope> models = new ArrayList<>(envelopes.size());
+        RuntimeException[] mappingErrors = new RuntimeException[envelopes.size()];
+        for (int i = 0; i < envelopes.size(); i++) {
+            try {
+                models.add(CipherEnvelopeMapper.toModel(envelopes.get(i)));
+            } catch (RuntimeException e) {
+                models.add(null);
+                mappingErrors[i] = e;
+            }
+        }
+        var decrypted = cryptoService.decryptAll(models, aad);
+        List<CryptoResult<String>> results = new ArrayList<>(decrypted.size());
+        for (int i = 0; i < decrypted.size(); i++) {
+            var r = decrypted.get(i);
+            if (mappingErrors[i] != null) {
+                results.add(CryptoResult.failure(mappingErrors[i]));
+            } else if (r.isSuccess()) {
+                results.add(CryptoResult.success(new String(r.value(), StandardCharsets.UTF_8)));
+            } else {
+                results.add(CryptoResult.failure(r.error()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void updateEntity(CipherEnvelope envelope, CipherEnvelopeEntity entity) {
+        CipherEnvelopeMapper.updateEntity(envelope, entity, isBinaryStorage());
+    }
+
+    private boolean isBinaryStorage() {
+        return config.getEnvelopeStorage() == CryptoProperties.EnvelopeStorage.BINARY;
+    }
 }
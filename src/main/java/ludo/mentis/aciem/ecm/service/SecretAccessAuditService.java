@@ -0,0 +1,17 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.domain.SecretAccessAudit;
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+
+public interface SecretAccessAuditService {
+
+    /** Queues {@code event} for the audit table; never waits on the database. */
+    void record(SecretAccessEvent event);
+
+    /** Audit rows of application {@code appCode} between {@code from} and {@code to}, newest first. */
+    Page<SecretAccessAudit> findByApp(String appCode, LocalDateTime from, LocalDateTime to, Pageable pageable);
+}
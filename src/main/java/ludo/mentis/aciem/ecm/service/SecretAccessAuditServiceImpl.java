@@ -0,0 +1,217 @@
+package ludo.mentis.aciem.ecm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import ludo.mentis.aciem.ecm.config.AuditProperties;
+import ludo.mentis.aciem.ecm.domain.SecretAccessAudit;
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import ludo.mentis.aciem.ecm.repos.SecretAccessAuditRepository;
+import ludo.mentis.aciem.ecm.repos.SecretAccessAuditWriter;
+import ludo.mentis.aciem.ecm.service.audit.MpmcRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Requests push access events into a lock-free ring buffer; a single background thread drains it
+ * and writes the events in batches of {@code ecm.audit.batch-size}. When the buffer is full the
+ * configured {@link AuditProperties.Backpressure} policy decides which event is dropped, so request
+ * latency never depends on audit I/O. Dropped and unwritten events are counted.
+ */
+@Service
+public class SecretAccessAuditServiceImpl implements SecretAccessAuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(SecretAccessAuditServiceImpl.class);
+
+    private final SecretAccessAuditRepository auditRepository;
+    private final SecretAccessAuditWriter auditWriter;
+    private final boolean enabled;
+    private final MpmcRingBuffer<SecretAccessEvent> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditProperties.Backpressure backpressure;
+    private final long blockTimeoutNanos;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    public SecretAccessAuditServiceImpl(final SecretAccessAuditRepository auditRepository,
+                                        final SecretAccessAuditWriter auditWriter,
+                                        final AuditProperties properties) {
+        if (properties.getBatchSize() < 1)
+            throw new IllegalStateException("ecm.audit.batch-size must be >= 1");
+        this.auditRepository = auditRepository;
+        this.auditWriter = auditWriter;
+        this.enabled = properties.isEnabled();
+        this.buffer = new MpmcRingBuffer<>(properties.getBufferSize());
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.backpressure = properties.getBackpressure();
+        this.blockTimeoutNanos = properties.getBlockTimeout().toNanos();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runWriter, "ecm-audit-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void record(final SecretAccessEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!offer(event)) {
+            dropped.increment();
+            return;
+        }
+        // A full batch is waiting; no need to sit out the rest of the flush interval
+        if (buffer.size() >= batchSize) {
+            Thread thread = writerThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    private boolean offer(SecretAccessEvent event) {
+        if (buffer.offer(event)) {
+            return true;
+        }
+        switch (backpressure) {
+            case DROP_OLDEST -> {
+                // Another producer may refill the freed slot first; give up after a few rounds
+                for (int attempt = 0; attempt < 4; attempt++) {
+                    if (buffer.poll() != null) {
+                        dropped.increment();
+                    }
+                    if (buffer.offer(event)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (System.nanoTime() - deadline < 0) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                    if (buffer.offer(event)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public Page<SecretAccessAudit> findByApp(final String appCode, final LocalDateTime from, final LocalDateTime to,
+                                             final Pageable pageable) {
+        return auditRepository.findByAppCodeAndAccessedAtBetweenOrderByAccessedAtDesc(appCode, from, to, pageable);
+    }
+
+    private void runWriter() {
+        while (running) {
+            if (flushBatch() == 0) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    /** Writes every buffered event; used at shutdown and by tests. */
+    public void flush() {
+        while (flushBatch() > 0) {
+            // keep draining
+        }
+    }
+
+    /** Drains and writes up to one batch; returns the number of events taken from the buffer. */
+    int flushBatch() {
+        List<SecretAccessEvent> batch = new ArrayList<>(Math.min(batchSize, buffer.capacity()));
+        SecretAccessEvent event;
+        while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            auditWriter.write(batch);
+            written.add(batch.size());
+        } catch (DataIntegrityViolationException e) {
+            // The batch goes out as one multi-row INSERT, so one bad row rejects all of them
+            writeOneByOne(batch);
+        } catch (RuntimeException e) {
+            // Audit must not take the API down; the loss is logged and counted
+            failed.add(batch.size());
+            log.error("Failed to write {} audit event(s)", batch.size(), e);
+        }
+        return batch.size();
+    }
+
+    private void writeOneByOne(List<SecretAccessEvent> batch) {
+        for (SecretAccessEvent event : batch) {
+            try {
+                auditWriter.write(List.of(event));
+                written.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.error("Failed to write audit event of app {}", event.appCode(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public int getQueueSize() {
+        return buffer.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+}
@@ -0,0 +1,247 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.SecretCacheProperties;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.PasswordRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived memory of decrypted credential passwords, keyed by (app, environment, type, username).
+ * <p>
+ * Passwords are never held in clear: each entry is sealed with AES-GCM under a random key that only
+ * lives in this process, so a heap dump shows neither the plaintext nor the envelope key. Sealed bytes
+ * are overwritten when an entry expires, is evicted or is invalidated. {@link CredentialServiceImpl}
+ * invalidates the exact credential it creates, changes or deletes; other nodes see such changes once
+ * their entries expire. Disabled (size 0) unless {@code ecm.secret-cache.enabled} is set.
+ */
+@Component
+public class SecretCache {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final SecretKey sealingKey;
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(SecretCache::newCipher);
+    private final AtomicLong nonceCounter = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public SecretCache(SecretCacheProperties properties) {
+        this(properties.isEnabled() ? properties.getMaxEntries() : 0, properties.getTtl(), System::nanoTime);
+    }
+
+    SecretCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        if (maxEntries < 0)
+            throw new IllegalArgumentException("secret cache size >= 0");
+        if (ttl == null || ttl.isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("secret cache ttl must be positive");
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.sealingKey = new SecretKeySpec(keyBytes, "AES");
+        Arrays.fill(keyBytes, (byte) 0);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= SecretCache.this.maxEntries)
+                    return false;
+                eldest.getValue().wipe();
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Invalidation counter to read before loading a password; {@link #put} ignores a password whose
+     * load started before the latest invalidation, so a lookup racing an update cannot cache the old one.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /** Returns the cached password for {@code request}, or {@code null} if absent or expired. */
+    public String get(PasswordRequest request) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        var key = Key.of(request);
+        byte[] sealed;
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null && isExpired(entry.expiresAtNanos)) {
+                entries.remove(key).wipe();
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            // Unseal a copy outside the lock; the entry may be wiped meanwhile
+            sealed = entry.sealed.clone();
+        }
+        hits.increment();
+        byte[] plain = null;
+        try {
+            plain = cipher(Cipher.DECRYPT_MODE, key, sealed, 0).doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Could not unseal cached secret", e);
+        } finally {
+            Arrays.fill(sealed, (byte) 0);
+            if (plain != null)
+                Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    /** Remembers {@code password} for {@code request} unless an invalidation happened since {@code loadedAt}. */
+    public void put(PasswordRequest request, String password, long loadedAt) {
+        if (maxEntries == 0 || password == null) {
+            return;
+        }
+        var key = Key.of(request);
+        var entry = new Entry(seal(key, password), nanoClock.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            if (generation.get() != loadedAt) {
+                entry.wipe();
+                return;
+            }
+            var previous = entries.put(key, entry);
+            if (previous != null)
+                previous.wipe();
+        }
+    }
+
+    public void invalidate(String appCode, Environment environment, CredentialType credentialType, String username) {
+        if (appCode == null || environment == null || credentialType == null || username == null) {
+            return;
+        }
+        var key = Key.of(appCode, environment, credentialType, username);
+        synchronized (entries) {
+            generation.incrementAndGet();
+            var previous = entries.remove(key);
+            if (previous != null)
+                previous.wipe();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.values().forEach(Entry::wipe);
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private byte[] seal(Key key, String password) {
+        byte[] plain = password.getBytes(StandardCharsets.UTF_8);
+        try {
+            // A counter never repeats a nonce under the process key
+            byte[] iv = ByteBuffer.allocate(IV_LENGTH).putLong(IV_LENGTH - Long.BYTES, nonceCounter.incrementAndGet())
+                    .array();
+            byte[] sealed = new byte[IV_LENGTH + plain.length + TAG_BITS / 8];
+            System.arraycopy(iv, 0, sealed, 0, IV_LENGTH);
+            cipher(Cipher.ENCRYPT_MODE, key, iv, 0).doFinal(plain, 0, plain.length, sealed, IV_LENGTH);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Could not seal secret for caching", e);
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    /** Cipher for one entry; the key is bound as AAD so a sealed value cannot be replayed under another key. */
+    private Cipher cipher(int mode, Key key, byte[] iv, int ivOffset) throws GeneralSecurityException {
+        var cipher = ciphers.get();
+        cipher.init(mode, sealingKey, new GCMParameterSpec(TAG_BITS, iv, ivOffset, IV_LENGTH));
+        cipher.updateAAD(key.toString().getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(TRANSFORMATION + " unavailable", e);
+        }
+    }
+
+    private boolean isExpired(long expiresAtNanos) {
+        return nanoClock.getAsLong() - expiresAtNanos >= 0;
+    }
+
+    /** Credential identity, compared case-insensitively on code and username like the database collation. */
+    public record Key(String appCode, Environment environment, CredentialType credentialType, String username) {
+
+        public static Key of(PasswordRequest request) {
+            return of(request.appCode(), request.environment(), request.credentialType(), request.username());
+        }
+
+        public static Key of(String appCode, Environment environment, CredentialType credentialType,
+                             String username) {
+            return new Key(appCode.toLowerCase(Locale.ROOT), environment, credentialType,
+                    username.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private record Entry(byte[] sealed, long expiresAtNanos) {
+        void wipe() {
+            Arrays.fill(sealed, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ludo.mentis.aciem.ecm.service.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer queue (Vyukov's array queue). Each slot carries a
+ * sequence number telling producers and consumers whose turn it is, so {@link #offer} and
+ * {@link #poll} are a single CAS on the tail or head in the uncontended case and never block.
+ */
+public final class MpmcRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /** @param capacity rounded up to a power of two */
+    public MpmcRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30))
+            throw new IllegalArgumentException("capacity must be 2..2^30");
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Adds {@code item} unless the buffer is full. */
+    public boolean offer(E item) {
+        if (item == null)
+            throw new NullPointerException("item");
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.set(slot, item);
+                    sequences.set(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** Removes the oldest item, or returns {@code null} when the buffer is empty. */
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E item = items.get(slot);
+                    items.set(slot, null);
+                    sequences.set(slot, pos + mask + 1);
+                    return item;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /** Approximate number of buffered items. */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
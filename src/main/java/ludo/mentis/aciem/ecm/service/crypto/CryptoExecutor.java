@@ -0,0 +1,95 @@
+package ludo.mentis.aciem.ecm.service.crypto;
+
+import ludo.mentis.aciem.ecm.exception.CryptoBusyException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool for CPU-heavy crypto (key derivation, decrypts) so that request bursts queue here
+ * instead of pinning every servlet thread. When both the threads and the queue are full, work is
+ * rejected right away with {@link CryptoBusyException}.
+ */
+public class CryptoExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+    private final Duration retryAfter;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CryptoExecutor(int threads, int queueCapacity, Duration retryAfter) {
+        if (threads < 1)
+            throw new IllegalArgumentException("crypto executor threads >= 1");
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("crypto executor queue capacity >= 1");
+        this.queueCapacity = queueCapacity;
+        this.retryAfter = Objects.requireNonNull(retryAfter, "retryAfter");
+        var counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            var thread = new Thread(r, "ecm-crypto-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** Runs {@code task} on the pool; the future fails with {@link CryptoBusyException} when saturated. */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, pool);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new CryptoBusyException("Crypto executor saturated", retryAfter));
+        }
+    }
+
+    /**
+     * Runs {@code task} on the pool and waits for it. The caller's thread only waits while the task
+     * holds one of the bounded slots; saturation throws {@link CryptoBusyException} without waiting.
+     */
+    public <T> T call(Supplier<T> task) {
+        try {
+            return submit(task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            if (e.getCause() instanceof Error err)
+                throw err;
+            throw e;
+        }
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return pool.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
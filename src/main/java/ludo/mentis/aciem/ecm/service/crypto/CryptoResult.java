@@ -0,0 +1,26 @@
+package ludo.mentis.aciem.ecm.service.crypto;
+
+/**
+ * Outcome of one item in a batch operation: either a value or the exception that item failed with.
+ */
+public record CryptoResult<T>(T value, RuntimeException error) {
+
+    public static <T> CryptoResult<T> success(T value) {
+        return new CryptoResult<>(value, null);
+    }
+
+    public static <T> CryptoResult<T> failure(RuntimeException error) {
+        return new CryptoResult<>(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /** Returns the value, or rethrows the item's failure. */
+    public T getOrThrow() {
+        if (error != null)
+            throw error;
+        return value;
+    }
+}
@@ -2,6 +2,11 @@ package ludo.mentis.aciem.ecm.service.crypto;
 
 import ludo.mentis.aciem.ecm.model.CipherEnvelope;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
 public interface CryptoService extends AutoCloseable {
 
     /** Encrypt UTF-8 text, returning an object envelope. */
@@ -22,6 +27,27 @@ public interface CryptoService extends AutoCloseable {
     /** Decrypt an object envelope (with optional AAD) to a UTF-8 string. */
     String decryptToString(CipherEnvelope envelope, byte[] expectedAad);
 
+    /**
+     * Encrypt many payloads in parallel. Results are in input order; a failing item is reported
+     * in its own result and does not abort the rest of the batch.
+     */
+    List<CryptoResult<CipherEnvelope>> encryptAll(List<byte[]> plaintexts, byte[] aad);
+
+    /** Decrypt many envelopes in parallel; same ordering and failure semantics as {@link #encryptAll}. */
+    List<CryptoResult<byte[]>> decryptAll(List<CipherEnvelope> envelopes, byte[] expectedAad);
+
+    /**
+     * Encrypt a stream of any length in fixed-size, individually authenticated segments. Memory use
+     * is bounded by the segment size. Streams are not closed.
+     */
+    void encryptStream(InputStream plaintext, OutputStream ciphertext, byte[] aad) throws IOException;
+
+    /**
+     * Decrypt a stream written by {@link #encryptStream}. Each segment is verified before it is
+     * written; if this throws, whatever was already written must be discarded.
+     */
+    void decryptStream(InputStream ciphertext, OutputStream plaintext, byte[] expectedAad) throws IOException;
+
     @Override
     void close();
 }
@@ -3,40 +3,66 @@ package ludo.mentis.aciem.ecm.service.crypto.aes;
 import jakarta.annotation.PreDestroy;
 import ludo.mentis.aciem.ecm.exception.CryptoException;
 import ludo.mentis.aciem.ecm.model.CipherEnvelope;
+import ludo.mentis.aciem.ecm.model.CipherEnvelopeCodec;
 import ludo.mentis.aciem.ecm.model.Kdf;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
 import ludo.mentis.aciem.ecm.service.crypto.CryptoService;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.KeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 @Service
 public final class AesService implements CryptoService {
 
-    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int GCM_TAG_BITS = 128;
     private static final int IV_LEN = 12;
+    /** Batches are split into about this many chunks per worker, to even out uneven items. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final byte STREAM_FORMAT = 0x11;
+    static final int MIN_STREAM_SEGMENT = 1024;
+    static final int MAX_STREAM_SEGMENT = 16 * 1024 * 1024;
 
     private final AesServiceConfig cfg;
-    private final SecureRandom rng;
+    private final NonceSource nonces;
+    private final KeySlot primary; // all new writes
+    private final KeySlot[] ring; // indexed by key id, so decrypt selects its key without allocating
+    private final ForkJoinPool batchPool;
 
     public AesService(AesServiceConfig cfg) {
         this.cfg = Objects.requireNonNull(cfg, "cfg");
-        try {
-            this.rng = SecureRandom.getInstanceStrong();
-        } catch (NoSuchAlgorithmException e) {
-            throw new CryptoException("SecureRandom strong not available", e);
-        }
+        this.nonces = cfg.nonceSource;
+        this.ring = new KeySlot[CipherEnvelope.MAX_KEY_ID + 1];
+        this.primary = new KeySlot(cfg.keyId, cfg.passphrase, cfg.secretKey, cfg);
+        ring[primary.keyId] = primary;
+        cfg.retiredPassphrases.forEach((kid, pass) -> ring[kid] = new KeySlot(kid, pass, null, cfg));
+        cfg.retiredSecretKeys.forEach((kid, key) -> ring[kid] = new KeySlot(kid, null, key, cfg));
+        this.batchPool = new ForkJoinPool(cfg.batchParallelism, pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ecm-crypto-batch-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
     }
 
     @Override
@@ -53,27 +79,28 @@ public final class AesService implements CryptoService {
     public CipherEnvelope encrypt(byte[] plaintext, byte[] aad) {
         try {
             byte[] iv = new byte[IV_LEN];
-            rng.nextBytes(iv);
+            nonces.nextIv(iv);
 
-            if (cfg.passphrase != null) {
+            if (primary.hasPassphrase()) {
                 byte[] salt = new byte[cfg.saltLengthBytes];
-                rng.nextBytes(salt);
-                SecretKey sk = deriveKey(cfg, salt, cfg.pbkdf2Iterations);
+                nonces.nextBytes(salt);
+                SecretKey sk = primary.recordKey(cfg.kdf, salt, cfg.pbkdf2Iterations);
                 byte[] ct = encryptAesGcm(sk, iv, plaintext, aad);
                 return CipherEnvelope.builder()
-                        .kdf(Kdf.PBKDF2)
+                        .kdf(cfg.kdf)
                         .iterations(cfg.pbkdf2Iterations)
                         .salt(salt)
                         .iv(iv)
                         .ciphertext(ct)
+                        .keyId(primary.keyId)
                         .build();
             } else {
-                ensureRawKey(cfg);
-                byte[] ct = encryptAesGcm(cfg.secretKey, iv, plaintext, aad);
+                byte[] ct = encryptAesGcm(primary.recordKey(Kdf.RAW, null, 0), iv, plaintext, aad);
                 return CipherEnvelope.builder()
                         .kdf(Kdf.RAW)
                         .iv(iv)
                         .ciphertext(ct)
+                        .keyId(primary.keyId)
                         .build();
             }
         } catch (GeneralSecurityException e) {
@@ -89,21 +116,11 @@ public final class AesService implements CryptoService {
         try {
             Objects.requireNonNull(envelope, "envelope");
 
-            final SecretKey sk;
-            if (envelope.getKdf() == Kdf.PBKDF2) {
-                if (cfg.passphrase == null) {
-                    // You *can* decrypt even if this instance uses RAW mode,
-                    // as long as you build a new AesService instance with a passphrase.
-                    // Here we enforce consistency with this instance’s config.
-                    throw new CryptoException("This service is not configured for PBKDF2 (passphrase missing)");
-                }
-                sk = deriveKey(cfg, envelope.getSalt(), envelope.getIterations());
-            } else {
-                ensureRawKey(cfg);
-                sk = cfg.secretKey;
-            }
+            final Kdf kdf = envelope.getKdf();
+            final SecretKey sk = slot(envelope.getKeyId()).recordKey(kdf, envelope.getSalt(),
+                    kdf.isSalted() ? envelope.getIterations() : 0);
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            Cipher cipher = JceObjects.aesGcm();
             cipher.init(Cipher.DECRYPT_MODE, sk, new GCMParameterSpec(GCM_TAG_BITS, envelope.getIv()));
             if (expectedAad != null)
                 cipher.updateAAD(expectedAad);
@@ -125,55 +142,209 @@ public final class AesService implements CryptoService {
         return new String(out, StandardCharsets.UTF_8);
     }
 
+    @Override
+    public List<CryptoResult<CipherEnvelope>> encryptAll(List<byte[]> plaintexts, byte[] aad) {
+        return runAll(plaintexts, p -> encrypt(p, aad));
+    }
+
+    @Override
+    public List<CryptoResult<byte[]>> decryptAll(List<CipherEnvelope> envelopes, byte[] expectedAad) {
+        return runAll(envelopes, e -> decrypt(e, expectedAad));
+    }
+
+    /**
+     * Stream header: {@code u8 format | u8 kdf | u8 kid | i32 iterations | u8 saltLen | salt | nonce prefix(7)
+     * | i32 segmentSize}. Each stream gets its own key derived from the fresh salt (through HKDF for
+     * a raw key), so segment nonces never repeat across streams.
+     */
+    @Override
+    public void encryptStream(InputStream plaintext, OutputStream ciphertext, byte[] aad) throws IOException {
+        byte[] salt = new byte[cfg.saltLengthBytes];
+        nonces.nextBytes(salt);
+        byte[] prefix = new byte[SegmentedGcm.NONCE_PREFIX_BYTES];
+        nonces.nextBytes(prefix);
+        int iterations = primary.hasPassphrase() ? cfg.pbkdf2Iterations : 0;
+        byte[] header = streamHeader(cfg.kdf, primary.keyId, iterations, salt, prefix, cfg.streamSegmentBytes);
+
+        SecretKey key = primary.streamKey(cfg.kdf, salt, iterations);
+        ciphertext.write(header);
+        SegmentedGcm.encrypt(key, prefix, concat(header, aad), cfg.streamSegmentBytes, plaintext, ciphertext);
+    }
+
+    @Override
+    public void decryptStream(InputStream ciphertext, OutputStream plaintext, byte[] expectedAad) throws IOException {
+        var in = new DataInputStream(ciphertext);
+        final Kdf kdf;
+        final int keyId;
+        final int iterations;
+        final byte[] salt;
+        final byte[] prefix = new byte[SegmentedGcm.NONCE_PREFIX_BYTES];
+        final int segmentSize;
+        try {
+            if (in.readByte() != STREAM_FORMAT)
+                throw new CryptoException("Unsupported stream format");
+            kdf = CipherEnvelopeCodec.kdfOf(in.readByte());
+            keyId = in.readUnsignedByte();
+            iterations = in.readInt();
+            int saltLen = in.readUnsignedByte();
+            if (saltLen > DerivedKeyCache.MAX_SALT_BYTES)
+                throw new CryptoException("Invalid stream header");
+            salt = new byte[saltLen];
+            in.readFully(salt);
+            in.readFully(prefix);
+            segmentSize = in.readInt();
+        } catch (java.io.EOFException e) {
+            throw new CryptoException("Truncated stream header", e);
+        }
+        if (segmentSize < MIN_STREAM_SEGMENT || segmentSize > MAX_STREAM_SEGMENT
+                || (kdf.isSalted() && iterations < 1))
+            throw new CryptoException("Invalid stream header");
+
+        byte[] header = streamHeader(kdf, keyId, iterations, salt, prefix, segmentSize);
+        SecretKey key = slot(keyId).streamKey(kdf, salt, iterations);
+        SegmentedGcm.decrypt(key, prefix, concat(header, expectedAad), segmentSize, in, plaintext);
+    }
+
     /** Optional helper to generate a random AES key (for raw-key mode). */
     public SecretKey generateRandomKey() {
         try {
             KeyGenerator kg = KeyGenerator.getInstance("AES");
-            kg.init(cfg.keyLengthBits, rng);
+            kg.init(cfg.keyLengthBits);
             return kg.generateKey();
         } catch (NoSuchAlgorithmException e) {
             throw new CryptoException("AES KeyGenerator not available", e);
         }
     }
 
+    /** Key id of the primary key, which all new envelopes are written with. */
+    public int primaryKeyId() {
+        return primary.keyId;
+    }
+
+    /** Envelope mode of new writes: the configured KDF with a passphrase, {@code RAW} with a raw key. */
+    public Kdf primaryKdf() {
+        return primary.hasPassphrase() ? cfg.kdf : Kdf.RAW;
+    }
+
+    /**
+     * Snapshot of the derived-key cache counters, summed over the key ring; all zero when the
+     * cache is disabled.
+     */
+    public KeyCacheStats keyCacheStats() {
+        long hits = 0, misses = 0, evictions = 0;
+        int size = 0, maxEntries = 0;
+        for (KeySlot slot : ring) {
+            if (slot == null || slot.keyCache() == null)
+                continue;
+            var cache = slot.keyCache();
+            hits += cache.hits();
+            misses += cache.misses();
+            evictions += cache.evictions();
+            size += cache.size();
+            maxEntries += cache.maxEntries();
+        }
+        return new KeyCacheStats(hits, misses, evictions, size, maxEntries);
+    }
+
     @PreDestroy
     @Override
     public void close() {
-        if (cfg.passphrase != null) {
-            java.util.Arrays.fill(cfg.passphrase, '\0');
+        batchPool.shutdownNow();
+        for (KeySlot slot : ring) {
+            if (slot != null)
+                slot.destroy();
         }
     }
 
+    public record KeyCacheStats(long hits, long misses, long evictions, int size, int maxEntries) {
+    }
+
     // ==== Helpers ====
 
-    private static SecretKey deriveKey(AesServiceConfig cfg, byte[] salt, int iterations) {
-        try {
-            KeySpec spec = new PBEKeySpec(cfg.passphrase, salt, iterations, cfg.keyLengthBits);
-            SecretKeyFactory f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-            byte[] keyBytes = f.generateSecret(spec).getEncoded();
+    /**
+     * Applies {@code op} to every input on the batch pool, in contiguous chunks. Small batches run
+     * on the calling thread. Per-item exceptions become failed results.
+     */
+    private <I, O> List<CryptoResult<O>> runAll(List<I> inputs, Function<I, O> op) {
+        Objects.requireNonNull(inputs, "inputs");
+        final int n = inputs.size();
+        @SuppressWarnings("unchecked")
+        final CryptoResult<O>[] results = new CryptoResult[n];
+        final int chunk = Math.max(1, (n + cfg.batchParallelism * CHUNKS_PER_THREAD - 1)
+                / (cfg.batchParallelism * CHUNKS_PER_THREAD));
+
+        if (cfg.batchParallelism == 1 || n <= 1) {
+            runRange(inputs, op, results, 0, n);
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int from = 0; from < n; from += chunk) {
+                final int start = from;
+                final int end = Math.min(n, from + chunk);
+                tasks.add(() -> {
+                    runRange(inputs, op, results, start, end);
+                    return null;
+                });
+            }
             try {
-                return new javax.crypto.spec.SecretKeySpec(keyBytes, "AES");
-            } finally {
-                java.util.Arrays.fill(keyBytes, (byte) 0);
+                for (Future<Void> f : batchPool.invokeAll(tasks))
+                    f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CryptoException("Batch operation interrupted", e);
+            } catch (ExecutionException e) {
+                throw new CryptoException("Batch operation failed", e.getCause());
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private static <I, O> void runRange(List<I> inputs, Function<I, O> op, CryptoResult<O>[] results,
+                                        int from, int to) {
+        for (int i = from; i < to; i++) {
+            try {
+                results[i] = CryptoResult.success(op.apply(inputs.get(i)));
+            } catch (RuntimeException e) {
+                results[i] = CryptoResult.failure(e);
             }
-        } catch (GeneralSecurityException e) {
-            throw new CryptoException("Key derivation failed", e);
         }
     }
 
+    private KeySlot slot(int keyId) {
+        KeySlot slot = keyId >= 0 && keyId < ring.length ? ring[keyId] : null;
+        if (slot == null)
+            throw new CryptoException("Unknown key id " + keyId);
+        return slot;
+    }
+
+    private static byte[] streamHeader(Kdf kdf, int keyId, int iterations, byte[] salt, byte[] prefix,
+                                       int segmentSize) {
+        return ByteBuffer.allocate(1 + 1 + 1 + 4 + 1 + salt.length + prefix.length + 4)
+                .put(STREAM_FORMAT)
+                .put(CipherEnvelopeCodec.kdfCode(kdf))
+                .put((byte) keyId)
+                .putInt(iterations)
+                .put((byte) salt.length)
+                .put(salt)
+                .put(prefix)
+                .putInt(segmentSize)
+                .array();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        if (b == null)
+            return a;
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
     private static byte[] encryptAesGcm(SecretKey key, byte[] iv, byte[] plaintext, byte[] aad)
             throws GeneralSecurityException {
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        // Reused per thread: init with the fresh IV is mandatory, GCM refuses a key/IV pair it has just used
+        Cipher cipher = JceObjects.aesGcm();
         cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
         if (aad != null)
             cipher.updateAAD(aad);
         return cipher.doFinal(plaintext);
     }
-
-    private static void ensureRawKey(AesServiceConfig cfg) {
-        if (cfg.secretKey == null)
-            throw new CryptoException("Expected raw key config");
-        if (!"AES".equalsIgnoreCase(cfg.secretKey.getAlgorithm()))
-            throw new CryptoException("SecretKey must be AES");
-    }
 }
@@ -1,26 +1,59 @@
 package ludo.mentis.aciem.ecm.service.crypto.aes;
 
+import ludo.mentis.aciem.ecm.model.CipherEnvelope;
+import ludo.mentis.aciem.ecm.model.Kdf;
+
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public final class AesServiceConfig {
     // Use exactly one: passphrase OR secretKey
     final char[] passphrase; // nullable
     final SecretKey secretKey; // nullable
+    final int keyId; // key id of the primary key, written into every new envelope
+    final Map<Integer, char[]> retiredPassphrases; // decrypt-only keys by key id
+    final Map<Integer, SecretKey> retiredSecretKeys;
+    final Kdf kdf; // envelope mode for new writes: PBKDF2 or HKDF with a passphrase, RAW with a secretKey
     final int pbkdf2Iterations;
     final int saltLengthBytes;
     final int keyLengthBits;
+    final int keyCacheMaxEntries; // 0 disables the derived-key cache
+    final Duration keyCacheTtl;
+    final NonceSource nonceSource;
+    final int batchParallelism;
+    final int streamSegmentBytes;
 
     private AesServiceConfig(char[] passphrase,
                              SecretKey secretKey,
+                             int keyId,
+                             Map<Integer, char[]> retiredPassphrases,
+                             Map<Integer, SecretKey> retiredSecretKeys,
+                             Kdf kdf,
                              int pbkdf2Iterations,
                              int saltLengthBytes,
-                             int keyLengthBits) {
+                             int keyLengthBits,
+                             int keyCacheMaxEntries,
+                             Duration keyCacheTtl,
+                             NonceSource nonceSource,
+                             int batchParallelism,
+                             int streamSegmentBytes) {
         this.passphrase = passphrase;
         this.secretKey = secretKey;
+        this.keyId = keyId;
+        this.retiredPassphrases = Map.copyOf(retiredPassphrases);
+        this.retiredSecretKeys = Map.copyOf(retiredSecretKeys);
+        this.kdf = kdf;
         this.pbkdf2Iterations = pbkdf2Iterations;
         this.saltLengthBytes = saltLengthBytes;
         this.keyLengthBits = keyLengthBits;
+        this.keyCacheMaxEntries = keyCacheMaxEntries;
+        this.keyCacheTtl = keyCacheTtl;
+        this.nonceSource = nonceSource;
+        this.batchParallelism = batchParallelism;
+        this.streamSegmentBytes = streamSegmentBytes;
     }
 
     public static Builder builder() {
@@ -30,9 +63,18 @@ public final class AesServiceConfig {
     public static final class Builder {
         private char[] passphrase;
         private SecretKey secretKey;
+        private int keyId;
+        private final Map<Integer, char[]> retiredPassphrases = new LinkedHashMap<>();
+        private final Map<Integer, SecretKey> retiredSecretKeys = new LinkedHashMap<>();
+        private Kdf kdf;
         private int pbkdf2Iterations = 210_000;
         private int saltLengthBytes = 16;
         private int keyLengthBits = 256;
+        private int keyCacheMaxEntries = 1024;
+        private Duration keyCacheTtl = Duration.ofMinutes(10);
+        private NonceSource nonceSource = NonceSource.drbg();
+        private int batchParallelism = Runtime.getRuntime().availableProcessors();
+        private int streamSegmentBytes = 64 * 1024;
 
         public Builder passphrase(char[] passphrase) {
             this.passphrase = Objects.requireNonNull(passphrase, "passphrase");
@@ -44,6 +86,34 @@ public final class AesServiceConfig {
             return this;
         }
 
+        public Builder keyId(int kid) {
+            this.keyId = checkKeyId(kid);
+            return this;
+        }
+
+        /** Adds a former passphrase that is still accepted for envelopes written with {@code kid}. */
+        public Builder retiredPassphrase(int kid, char[] passphrase) {
+            checkKeyId(kid);
+            Objects.requireNonNull(passphrase, "passphrase");
+            if (retiredSecretKeys.containsKey(kid) || retiredPassphrases.putIfAbsent(kid, passphrase) != null)
+                throw new IllegalArgumentException("duplicate key id " + kid);
+            return this;
+        }
+
+        /** Adds a former raw key that is still accepted for envelopes written with {@code kid}. */
+        public Builder retiredSecretKey(int kid, SecretKey secretKey) {
+            checkKeyId(kid);
+            Objects.requireNonNull(secretKey, "secretKey");
+            if (retiredPassphrases.containsKey(kid) || retiredSecretKeys.putIfAbsent(kid, secretKey) != null)
+                throw new IllegalArgumentException("duplicate key id " + kid);
+            return this;
+        }
+
+        public Builder kdf(Kdf kdf) {
+            this.kdf = Objects.requireNonNull(kdf, "kdf");
+            return this;
+        }
+
         public Builder pbkdf2Iterations(int iterations) {
             if (iterations < 100_000)
                 throw new IllegalArgumentException("iterations too low");
@@ -65,11 +135,66 @@ public final class AesServiceConfig {
             return this;
         }
 
+        public Builder keyCacheMaxEntries(int entries) {
+            if (entries < 0)
+                throw new IllegalArgumentException("key cache entries >= 0");
+            this.keyCacheMaxEntries = entries;
+            return this;
+        }
+
+        public Builder keyCacheTtl(Duration ttl) {
+            Objects.requireNonNull(ttl, "ttl");
+            if (ttl.isNegative() || ttl.isZero())
+                throw new IllegalArgumentException("key cache ttl must be positive");
+            this.keyCacheTtl = ttl;
+            return this;
+        }
+
+        public Builder nonceSource(NonceSource nonceSource) {
+            this.nonceSource = Objects.requireNonNull(nonceSource, "nonceSource");
+            return this;
+        }
+
+        public Builder batchParallelism(int threads) {
+            if (threads < 1)
+                throw new IllegalArgumentException("batch parallelism >= 1");
+            this.batchParallelism = threads;
+            return this;
+        }
+
+        public Builder streamSegmentBytes(int bytes) {
+            if (bytes < AesService.MIN_STREAM_SEGMENT || bytes > AesService.MAX_STREAM_SEGMENT)
+                throw new IllegalArgumentException("stream segment size out of range");
+            this.streamSegmentBytes = bytes;
+            return this;
+        }
+
         public AesServiceConfig build() {
             if ((passphrase == null) == (secretKey == null)) {
                 throw new IllegalStateException("Provide exactly one: passphrase OR secretKey");
             }
-            return new AesServiceConfig(passphrase, secretKey, pbkdf2Iterations, saltLengthBytes, keyLengthBits);
+            if (retiredPassphrases.containsKey(keyId) || retiredSecretKeys.containsKey(keyId)) {
+                throw new IllegalStateException("Primary key id " + keyId + " is also registered as retired");
+            }
+            Kdf mode = kdf;
+            if (secretKey != null) {
+                if (mode != null && mode != Kdf.RAW)
+                    throw new IllegalStateException("A raw secretKey only supports Kdf.RAW");
+                mode = Kdf.RAW;
+            } else if (mode == null) {
+                mode = Kdf.PBKDF2;
+            } else if (mode == Kdf.RAW) {
+                throw new IllegalStateException("Kdf.RAW requires a secretKey, not a passphrase");
+            }
+            return new AesServiceConfig(passphrase, secretKey, keyId, retiredPassphrases, retiredSecretKeys, mode,
+                    pbkdf2Iterations, saltLengthBytes, keyLengthBits, keyCacheMaxEntries, keyCacheTtl, nonceSource,
+                    batchParallelism, streamSegmentBytes);
+        }
+
+        private static int checkKeyId(int kid) {
+            if (kid < 0 || kid > CipherEnvelope.MAX_KEY_ID)
+                throw new IllegalArgumentException("key id must be 0.." + CipherEnvelope.MAX_KEY_ID);
+            return kid;
         }
     }
 }
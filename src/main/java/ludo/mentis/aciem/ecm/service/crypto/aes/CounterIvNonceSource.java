@@ -0,0 +1,90 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * 96-bit GCM IVs built as a 32-bit fixed field followed by a 64-bit invocation counter
+ * (NIST SP 800-38D, 8.2.1).
+ * <p>
+ * The fixed field identifies the node and must be configured, unique among all nodes that share a
+ * key. The counter never restarts: ranges of {@link #BLOCK} values are reserved in {@code counterFile}
+ * before any of them is used, so after a restart the node continues past everything it may have
+ * handed out. Salts still come from the random delegate.
+ */
+final class CounterIvNonceSource implements NonceSource {
+
+    static final int IV_LEN = 12;
+    static final long BLOCK = 1L << 20;
+
+    private final NonceSource random;
+    private final byte[] fixedField;
+    private final Path counterFile;
+    private long next; // guarded by this
+    private long limit; // first value not reserved yet; guarded by this
+
+    CounterIvNonceSource(NonceSource random, int fixedField, Path counterFile) {
+        this.random = Objects.requireNonNull(random, "random");
+        this.counterFile = Objects.requireNonNull(counterFile, "counterFile");
+        this.fixedField = new byte[]{
+                (byte) (fixedField >>> 24), (byte) (fixedField >>> 16), (byte) (fixedField >>> 8), (byte) fixedField};
+        this.next = readReserved(counterFile);
+        this.limit = next;
+    }
+
+    @Override
+    public void nextBytes(byte[] out) {
+        random.nextBytes(out);
+    }
+
+    @Override
+    public void nextIv(byte[] iv) {
+        if (iv.length != IV_LEN)
+            throw new IllegalArgumentException("Counter IVs are " + IV_LEN + " bytes");
+        long n;
+        synchronized (this) {
+            if (next == limit)
+                reserveBlock();
+            n = next++;
+        }
+        System.arraycopy(fixedField, 0, iv, 0, fixedField.length);
+        for (int i = IV_LEN - 1; i >= fixedField.length; i--) {
+            iv[i] = (byte) n;
+            n >>>= 8;
+        }
+    }
+
+    /** Persists the end of the next block before any value of it is handed out. */
+    private void reserveBlock() {
+        long newLimit = limit + BLOCK;
+        if (newLimit < 0) // 2^63 IVs; the counter never wraps back to 0
+            throw new IllegalStateException("GCM invocation counter exhausted");
+        try {
+            var tmp = counterFile.resolveSibling(counterFile.getFileName() + ".tmp");
+            Files.writeString(tmp, Long.toString(newLimit), StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+            Files.move(tmp, counterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new CryptoException("Could not reserve GCM invocation counters in " + counterFile, e);
+        }
+        limit = newLimit;
+    }
+
+    private static long readReserved(Path counterFile) {
+        if (!Files.exists(counterFile))
+            return 0;
+        try {
+            return Long.parseLong(Files.readString(counterFile, StandardCharsets.US_ASCII).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Unreadable GCM invocation counter file " + counterFile, e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Size- and TTL-bounded LRU cache of PBKDF2-derived AES keys, keyed by (salt, iterations).
+ * <p>
+ * Raw key bytes never leave the cache: every hit hands out a fresh {@link SecretKeySpec} copied
+ * under the lock, so an entry can be zeroed on eviction without racing a caller that is still
+ * initialising a {@code Cipher} with it. The number of entries is capped, and so is the salt
+ * length, which puts a hard upper bound on the memory the cache can retain.
+ */
+final class DerivedKeyCache {
+
+    /** Salts longer than this are never cached (the envelope column holds at most 64 bytes). */
+    static final int MAX_SALT_BYTES = 64;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<CacheKey, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    DerivedKeyCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    DerivedKeyCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be >= 1");
+        if (ttl == null || ttl.isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("ttl must be positive");
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                if (size() > DerivedKeyCache.this.maxEntries) {
+                    eldest.getValue().wipe();
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached key for (salt, iterations), deriving and caching it on a miss.
+     * The derivation runs outside the lock so concurrent misses do not serialize on PBKDF2.
+     */
+    SecretKey get(byte[] salt, int iterations, KeyDeriver deriver) {
+        if (salt == null || salt.length > MAX_SALT_BYTES) {
+            misses.increment();
+            return toKey(deriver.derive(salt, iterations), true);
+        }
+
+        final var key = new CacheKey(salt, iterations);
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired(nanoClock.getAsLong())) {
+                    hits.increment();
+                    return entry.toSecretKey();
+                }
+                entries.remove(key);
+                entry.wipe();
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        byte[] keyBytes = deriver.derive(salt, iterations);
+        synchronized (entries) {
+            var existing = entries.get(key);
+            if (existing != null && !existing.isExpired(nanoClock.getAsLong())) {
+                // Another thread won the race; keep its entry and discard ours.
+                Arrays.fill(keyBytes, (byte) 0);
+                return existing.toSecretKey();
+            }
+            var entry = new Entry(keyBytes, nanoClock.getAsLong() + ttlNanos);
+            var replaced = entries.put(key.copy(), entry);
+            if (replaced != null) {
+                replaced.wipe();
+            }
+            return entry.toSecretKey();
+        }
+    }
+
+    /** Drops every entry, zeroing the cached key material. */
+    void clear() {
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                it.next().wipe();
+                it.remove();
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    int maxEntries() {
+        return maxEntries;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private static SecretKey toKey(byte[] keyBytes, boolean wipe) {
+        try {
+            return new SecretKeySpec(keyBytes, "AES");
+        } finally {
+            if (wipe)
+                Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /** Derives raw key bytes; ownership of the returned array passes to the cache. */
+    @FunctionalInterface
+    interface KeyDeriver {
+        byte[] derive(byte[] salt, int iterations);
+    }
+
+    private static final class CacheKey {
+        private final byte[] salt;
+        private final int iterations;
+        private final int hash;
+
+        CacheKey(byte[] salt, int iterations) {
+            this.salt = salt;
+            this.iterations = iterations;
+            this.hash = 31 * Arrays.hashCode(salt) + iterations;
+        }
+
+        /** The lookup key borrows the caller's array; stored keys own a private copy. */
+        CacheKey copy() {
+            return new CacheKey(salt.clone(), iterations);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof CacheKey other))
+                return false;
+            return iterations == other.iterations && Arrays.equals(salt, other.salt);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] keyBytes;
+        private final long expiresAtNanos;
+
+        Entry(byte[] keyBytes, long expiresAtNanos) {
+            this.keyBytes = keyBytes;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        SecretKey toSecretKey() {
+            return toKey(keyBytes, false);
+        }
+
+        void wipe() {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+}
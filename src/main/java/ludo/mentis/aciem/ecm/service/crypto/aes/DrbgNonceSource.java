@@ -0,0 +1,37 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import static java.security.DrbgParameters.Capability.NONE;
+
+/**
+ * One Hash_DRBG per thread, each seeded independently from the platform's non-blocking entropy
+ * source. A shared {@link SecureRandom} is synchronized internally, so concurrent writers would
+ * otherwise queue on a single lock; here every thread draws from its own generator.
+ */
+final class DrbgNonceSource implements NonceSource {
+
+    static final DrbgNonceSource INSTANCE = new DrbgNonceSource();
+
+    private static final ThreadLocal<SecureRandom> RNG = ThreadLocal.withInitial(DrbgNonceSource::newDrbg);
+
+    private DrbgNonceSource() {
+    }
+
+    @Override
+    public void nextBytes(byte[] out) {
+        RNG.get().nextBytes(out);
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG", DrbgParameters.instantiation(256, NONE, null));
+        } catch (NoSuchAlgorithmException e) {
+            throw new CryptoException("DRBG SecureRandom not available", e);
+        }
+    }
+}
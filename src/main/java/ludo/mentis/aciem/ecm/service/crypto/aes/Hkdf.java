@@ -0,0 +1,74 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * HKDF-SHA256 (RFC 5869). The JDK does not ship an HKDF API before Java 24,
+ * so extract and expand are built on {@code HmacSHA256}.
+ */
+final class Hkdf {
+
+    private static final String HMAC = JceObjects.HMAC_SHA256;
+    private static final int HASH_LEN = 32;
+
+    private Hkdf() {
+    }
+
+    /** Derives an AES subkey of {@code keyLengthBits} from the input keying material. */
+    static SecretKey deriveAesKey(byte[] ikm, byte[] salt, byte[] info, int keyLengthBits) {
+        byte[] prk = extract(salt, ikm);
+        byte[] okm = null;
+        try {
+            okm = expand(prk, info, keyLengthBits / 8);
+            return new SecretKeySpec(okm, "AES");
+        } finally {
+            Arrays.fill(prk, (byte) 0);
+            if (okm != null)
+                Arrays.fill(okm, (byte) 0);
+        }
+    }
+
+    static byte[] extract(byte[] salt, byte[] ikm) {
+        try {
+            Mac mac = JceObjects.hmacSha256();
+            byte[] s = (salt == null || salt.length == 0) ? new byte[HASH_LEN] : salt;
+            mac.init(new SecretKeySpec(s, HMAC));
+            return mac.doFinal(ikm);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("HKDF extract failed", e);
+        }
+    }
+
+    static byte[] expand(byte[] prk, byte[] info, int length) {
+        if (length < 1 || length > 255 * HASH_LEN)
+            throw new IllegalArgumentException("HKDF output length out of range");
+        try {
+            Mac mac = JceObjects.hmacSha256();
+            mac.init(new SecretKeySpec(prk, HMAC));
+            byte[] out = new byte[length];
+            byte[] t = new byte[0];
+            int pos = 0;
+            for (int i = 1; pos < length; i++) {
+                mac.update(t);
+                if (info != null)
+                    mac.update(info);
+                mac.update((byte) i);
+                Arrays.fill(t, (byte) 0);
+                t = mac.doFinal();
+                int n = Math.min(t.length, length - pos);
+                System.arraycopy(t, 0, out, pos, n);
+                pos += n;
+            }
+            Arrays.fill(t, (byte) 0);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("HKDF expand failed", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import java.security.GeneralSecurityException;
+
+/**
+ * Thread-confined instances of the JCE engines used by {@link AesService}.
+ * <p>
+ * {@code getInstance} walks the provider list and allocates a new engine on every call; keeping
+ * one engine per thread avoids both. None of these engines is thread-safe, so they must never be
+ * shared. Callers always fully re-initialise an engine before use ({@code Cipher.init} with a fresh
+ * IV for every encryption, {@code Mac.init} per key), which also resets any state left behind by a
+ * failed operation.
+ */
+final class JceObjects {
+
+    static final String AES_GCM = "AES/GCM/NoPadding";
+    static final String PBKDF2 = "PBKDF2WithHmacSHA256";
+    static final String HMAC_SHA256 = "HmacSHA256";
+
+    private static final ThreadLocal<Cipher> AES_GCM_CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(AES_GCM);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(AES_GCM + " not available", e);
+        }
+    });
+
+    private static final ThreadLocal<SecretKeyFactory> PBKDF2_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(PBKDF2);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(PBKDF2 + " not available", e);
+        }
+    });
+
+    private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_SHA256);
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException(HMAC_SHA256 + " not available", e);
+        }
+    });
+
+    private JceObjects() {
+    }
+
+    /** The calling thread's AES/GCM cipher; must be {@code init}-ed before every operation. */
+    static Cipher aesGcm() {
+        return AES_GCM_CIPHER.get();
+    }
+
+    /** The calling thread's PBKDF2WithHmacSHA256 factory. */
+    static SecretKeyFactory pbkdf2() {
+        return PBKDF2_FACTORY.get();
+    }
+
+    /** The calling thread's HmacSHA256 engine; must be {@code init}-ed with the key before use. */
+    static Mac hmacSha256() {
+        return HMAC.get();
+    }
+}
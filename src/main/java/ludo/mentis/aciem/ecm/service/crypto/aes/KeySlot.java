@@ -0,0 +1,147 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import ludo.mentis.aciem.ecm.model.Kdf;
+
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.spec.KeySpec;
+import java.util.Arrays;
+
+/**
+ * One entry of the key ring: a passphrase or a raw AES key plus everything derived from it
+ * (HKDF master key, PBKDF2 key cache). Envelopes name their slot by key id.
+ */
+final class KeySlot {
+
+    /**
+     * Fixed PBKDF2 salt for the HKDF master key. It only provides domain separation from the
+     * per-record PBKDF2 salts: the master key must be reproducible from the passphrase and the
+     * iteration count recorded in each envelope.
+     */
+    private static final byte[] MASTER_SALT = "ludo.mentis.aciem.ecm/hkdf-master".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HKDF_INFO = "ecm:aes-gcm:record-key".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STREAM_INFO = "ecm:aes-gcm:stream-key".getBytes(StandardCharsets.UTF_8);
+
+    final int keyId;
+    private final char[] passphrase; // nullable
+    private final SecretKey secretKey; // nullable
+    private final int keyLengthBits;
+    private final int masterIterations;
+    private final DerivedKeyCache keyCache; // nullable when disabled or for a raw key
+    private final byte[] masterKey; // HKDF master key for masterIterations; nullable unless kdf == HKDF
+
+    KeySlot(int keyId, char[] passphrase, SecretKey secretKey, AesServiceConfig cfg) {
+        this.keyId = keyId;
+        this.passphrase = passphrase;
+        this.secretKey = secretKey;
+        this.keyLengthBits = cfg.keyLengthBits;
+        this.masterIterations = cfg.pbkdf2Iterations;
+        this.keyCache = (passphrase != null && cfg.keyCacheMaxEntries > 0)
+                ? new DerivedKeyCache(cfg.keyCacheMaxEntries, cfg.keyCacheTtl)
+                : null;
+        // PBKDF2 runs once here; every HKDF record key afterwards is a couple of HMACs.
+        this.masterKey = (passphrase != null && cfg.kdf == Kdf.HKDF)
+                ? deriveKeyBytes(MASTER_SALT, cfg.pbkdf2Iterations)
+                : null;
+    }
+
+    boolean hasPassphrase() {
+        return passphrase != null;
+    }
+
+    /** Key for a single envelope of the given mode. */
+    SecretKey recordKey(Kdf kdf, byte[] salt, int iterations) {
+        if (kdf.isSalted()) {
+            requirePassphrase(kdf);
+            return kdf == Kdf.HKDF ? hkdfKey(salt, iterations) : pbkdf2Key(salt, iterations);
+        }
+        return rawKey();
+    }
+
+    /** Per-stream key; a raw key is expanded with the stream salt so nonces never repeat across streams. */
+    SecretKey streamKey(Kdf kdf, byte[] salt, int iterations) {
+        if (kdf.isSalted())
+            return recordKey(kdf, salt, iterations);
+        byte[] ikm = rawKey().getEncoded();
+        try {
+            return Hkdf.deriveAesKey(ikm, salt, STREAM_INFO, ikm.length * 8);
+        } finally {
+            Arrays.fill(ikm, (byte) 0);
+        }
+    }
+
+    DerivedKeyCache keyCache() {
+        return keyCache;
+    }
+
+    void destroy() {
+        if (keyCache != null) {
+            keyCache.clear();
+        }
+        if (masterKey != null) {
+            Arrays.fill(masterKey, (byte) 0);
+        }
+        if (passphrase != null) {
+            Arrays.fill(passphrase, '\0');
+        }
+    }
+
+    private void requirePassphrase(Kdf kdf) {
+        if (passphrase == null) {
+            // You *can* decrypt even if this key is a raw one,
+            // as long as you build a new AesService instance with a passphrase.
+            // Here we enforce consistency with this key's config.
+            throw new CryptoException("Key " + keyId + " is not configured for " + kdf + " (passphrase missing)");
+        }
+    }
+
+    private SecretKey rawKey() {
+        if (secretKey == null)
+            throw new CryptoException("Expected raw key config");
+        if (!"AES".equalsIgnoreCase(secretKey.getAlgorithm()))
+            throw new CryptoException("SecretKey must be AES");
+        return secretKey;
+    }
+
+    private SecretKey pbkdf2Key(byte[] salt, int iterations) {
+        if (keyCache != null)
+            return keyCache.get(salt, iterations, this::deriveKeyBytes);
+        byte[] keyBytes = deriveKeyBytes(salt, iterations);
+        try {
+            return new SecretKeySpec(keyBytes, "AES");
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Record key for HKDF envelopes. The master key for the configured iteration count is held
+     * for the lifetime of the slot; envelopes written under another count (e.g. before
+     * ecm.crypto.iterations was changed) derive theirs through the PBKDF2 key cache.
+     */
+    private SecretKey hkdfKey(byte[] salt, int iterations) {
+        if (masterKey != null && iterations == masterIterations)
+            return Hkdf.deriveAesKey(masterKey, salt, HKDF_INFO, keyLengthBits);
+        byte[] ikm = pbkdf2Key(MASTER_SALT, iterations).getEncoded();
+        try {
+            return Hkdf.deriveAesKey(ikm, salt, HKDF_INFO, keyLengthBits);
+        } finally {
+            Arrays.fill(ikm, (byte) 0);
+        }
+    }
+
+    private byte[] deriveKeyBytes(byte[] salt, int iterations) {
+        try {
+            KeySpec spec = new PBEKeySpec(passphrase, salt, iterations, keyLengthBits);
+            SecretKeyFactory f = JceObjects.pbkdf2();
+            return f.generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Key derivation failed", e);
+        }
+    }
+}
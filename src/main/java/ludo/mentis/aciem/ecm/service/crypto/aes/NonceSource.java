@@ -0,0 +1,32 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import java.nio.file.Path;
+
+/**
+ * Source of the random salts and GCM IVs written into cipher envelopes.
+ * Implementations must be thread-safe and must never block on entropy.
+ */
+public interface NonceSource {
+
+    /** Fills {@code out} with unpredictable bytes (salts). */
+    void nextBytes(byte[] out);
+
+    /** Fills {@code iv} with an IV never used before under the same key. Defaults to random bytes. */
+    default void nextIv(byte[] iv) {
+        nextBytes(iv);
+    }
+
+    /** Random salts and IVs from a per-thread DRBG. */
+    static NonceSource drbg() {
+        return DrbgNonceSource.INSTANCE;
+    }
+
+    /**
+     * Random salts, counter-based 96-bit IVs (NIST SP 800-38D deterministic construction).
+     * {@code fixedField} must be unique per node sharing the key; {@code counterFile} keeps the
+     * invocation counter across restarts and must belong to this node alone.
+     */
+    static NonceSource counterIv(int fixedField, Path counterFile) {
+        return new CounterIvNonceSource(DrbgNonceSource.INSTANCE, fixedField, counterFile);
+    }
+}
@@ -0,0 +1,113 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Segmented AES-GCM for payloads that should not be held in memory whole.
+ * <p>
+ * The plaintext is cut into fixed-size segments, each sealed with its own tag. The nonce of
+ * segment {@code i} is {@code prefix(7) || i(4) || last(1)}. The last-segment flag makes
+ * truncation at a segment boundary fail authentication, and the counter rejects reordering.
+ * Every segment is authenticated with {@code header || aad}, so the stream header cannot be
+ * altered either. A segment is only written out once its tag has verified; if decryption throws,
+ * the caller must discard what was written so far.
+ */
+final class SegmentedGcm {
+
+    static final int TAG_BYTES = 16;
+    static final int NONCE_PREFIX_BYTES = 7;
+
+    private SegmentedGcm() {
+    }
+
+    static void encrypt(SecretKey key, byte[] noncePrefix, byte[] aad, int segmentSize,
+                        InputStream in, OutputStream out) throws IOException {
+        byte[] current = new byte[segmentSize];
+        byte[] next = new byte[segmentSize];
+        byte[] sealed = new byte[segmentSize + TAG_BYTES];
+        int currentLen = in.readNBytes(current, 0, segmentSize);
+        int segment = 0;
+        try {
+            while (true) {
+                int nextLen = currentLen == segmentSize ? in.readNBytes(next, 0, segmentSize) : 0;
+                boolean last = nextLen == 0;
+                Cipher cipher = init(Cipher.ENCRYPT_MODE, key, noncePrefix, segment, last, aad);
+                int n = cipher.doFinal(current, 0, currentLen, sealed, 0);
+                out.write(sealed, 0, n);
+                if (last)
+                    return;
+                byte[] swap = current;
+                current = next;
+                next = swap;
+                currentLen = nextLen;
+                segment = nextSegment(segment);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Stream encryption failed", e);
+        } finally {
+            java.util.Arrays.fill(current, (byte) 0);
+            java.util.Arrays.fill(next, (byte) 0);
+        }
+    }
+
+    static void decrypt(SecretKey key, byte[] noncePrefix, byte[] aad, int segmentSize,
+                        InputStream in, OutputStream out) throws IOException {
+        final int sealedSize = segmentSize + TAG_BYTES;
+        byte[] current = new byte[sealedSize];
+        byte[] next = new byte[sealedSize];
+        byte[] plain = new byte[segmentSize];
+        int currentLen = in.readNBytes(current, 0, sealedSize);
+        int segment = 0;
+        try {
+            while (true) {
+                if (currentLen < TAG_BYTES)
+                    throw new CryptoException("Truncated stream");
+                int nextLen = currentLen == sealedSize ? in.readNBytes(next, 0, sealedSize) : 0;
+                boolean last = nextLen == 0;
+                Cipher cipher = init(Cipher.DECRYPT_MODE, key, noncePrefix, segment, last, aad);
+                int n = cipher.doFinal(current, 0, currentLen, plain, 0);
+                out.write(plain, 0, n);
+                if (last)
+                    return;
+                byte[] swap = current;
+                current = next;
+                next = swap;
+                currentLen = nextLen;
+                segment = nextSegment(segment);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Stream decryption failed", e);
+        } finally {
+            java.util.Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    private static Cipher init(int mode, SecretKey key, byte[] prefix, int segment, boolean last, byte[] aad)
+            throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_PREFIX_BYTES + 5];
+        System.arraycopy(prefix, 0, nonce, 0, NONCE_PREFIX_BYTES);
+        nonce[7] = (byte) (segment >>> 24);
+        nonce[8] = (byte) (segment >>> 16);
+        nonce[9] = (byte) (segment >>> 8);
+        nonce[10] = (byte) segment;
+        nonce[11] = (byte) (last ? 1 : 0);
+        Cipher cipher = JceObjects.aesGcm();
+        cipher.init(mode, key, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+        cipher.updateAAD(aad);
+        return cipher;
+    }
+
+    private static int nextSegment(int segment) {
+        if (segment == -1)
+            throw new CryptoException("Stream too long");
+        return segment + 1;
+    }
+}
@@ -0,0 +1,41 @@
+package ludo.mentis.aciem.ecm.service.importer;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportRow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull-style reader over an import file: one row per call, so only the row being read is held in
+ * memory. Structural problems (bad quoting, not a JSON array) are thrown as {@link IOException}
+ * naming the line or item; field values are passed through unchecked.
+ */
+public interface CredentialImportReader extends Closeable {
+
+    /** The next row, or {@code null} at the end of the file. */
+    CredentialImportRow next() throws IOException;
+
+    static CredentialImportReader open(InputStream input, CredentialImportFormat format) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvCredentialImportReader(input);
+            case JSON -> new JsonCredentialImportReader(input);
+        };
+    }
+
+    /** Position of {@code name} in {@link CredentialImportRow#FIELDS}, ignoring case; -1 if unknown. */
+    static int fieldIndex(String name) {
+        for (int i = 0; i < CredentialImportRow.FIELDS.length; i++) {
+            if (CredentialImportRow.FIELDS[i].equalsIgnoreCase(name.trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static CredentialImportRow toRow(long rowNumber, String[] values) {
+        return new CredentialImportRow(rowNumber, values[0], values[1], values[2], values[3], values[4],
+                values[5], values[6]);
+    }
+}
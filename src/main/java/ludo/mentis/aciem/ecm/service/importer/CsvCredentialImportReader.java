@@ -0,0 +1,154 @@
+package ludo.mentis.aciem.ecm.service.importer;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV in UTF-8: comma separated, fields optionally quoted with {@code "}, {@code ""} for a quote
+ * inside a quoted field, which may also span lines. The first record is the header; columns are matched
+ * to {@link CredentialImportRow#FIELDS} by name, unknown columns are ignored and blank lines skipped.
+ */
+final class CsvCredentialImportReader implements CredentialImportReader {
+
+    private static final int[] REQUIRED = {0, 1, 2, 3, 4};
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long line = 1;
+    private final int[] columnOf = new int[CredentialImportRow.FIELDS.length];
+
+    CsvCredentialImportReader(InputStream input) throws IOException {
+        this.in = new InputStreamReader(input, StandardCharsets.UTF_8);
+        // Skip a UTF-8 byte order mark
+        if (peek() == '\uFEFF') {
+            position++;
+        }
+        var header = readRecord();
+        if (header == null) {
+            throw new IOException("The file is empty; expected a header row.");
+        }
+        Arrays.fill(columnOf, -1);
+        for (int column = 0; column < header.size(); column++) {
+            int field = CredentialImportReader.fieldIndex(header.get(column));
+            if (field >= 0 && columnOf[field] < 0) {
+                columnOf[field] = column;
+            }
+        }
+        for (int field : REQUIRED) {
+            if (columnOf[field] < 0) {
+                throw new IOException("Missing column `" + CredentialImportRow.FIELDS[field] + "` in the header row.");
+            }
+        }
+    }
+
+    @Override
+    public CredentialImportRow next() throws IOException {
+        List<String> record;
+        long start;
+        do {
+            start = line;
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && record.get(0).isEmpty());
+
+        var values = new String[columnOf.length];
+        for (int field = 0; field < columnOf.length; field++) {
+            int column = columnOf[field];
+            if (column >= 0 && column < record.size() && !record.get(column).isEmpty()) {
+                values[field] = record.get(column);
+            }
+        }
+        return CredentialImportReader.toRow(start, values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /** Fields of the next record, or {@code null} at the end of the input. */
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        final long start = line;
+        var fields = new ArrayList<String>(CredentialImportRow.FIELDS.length);
+        var field = new StringBuilder();
+        boolean quoted = false;
+        boolean closedQuote = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Line " + start + ": quoted field is never closed.");
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c == '"') {
+                        field.append('"');
+                        c = read();
+                    } else {
+                        quoted = false;
+                        closedQuote = true;
+                    }
+                    continue;
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                closedQuote = false;
+            } else if (c == '\n' || c == -1) {
+                fields.add(field.toString());
+                if (c == '\n') {
+                    line++;
+                }
+                return fields;
+            } else if (c == '\r') {
+                // Part of a CRLF line ending
+            } else if (c == '"' && field.isEmpty() && !closedQuote) {
+                quoted = true;
+            } else if (closedQuote) {
+                throw new IOException("Line " + line + ": unexpected character after a closing quote.");
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c != -1) {
+            position--;
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
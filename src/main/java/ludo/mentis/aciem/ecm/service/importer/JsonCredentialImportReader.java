@@ -0,0 +1,61 @@
+package ludo.mentis.aciem.ecm.service.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import ludo.mentis.aciem.ecm.model.CredentialImportRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A JSON array of flat objects, read token by token so the array is never held in memory. Field names
+ * match {@link CredentialImportRow#FIELDS} ignoring case; unknown fields are skipped, scalar values are
+ * taken as text.
+ */
+final class JsonCredentialImportReader implements CredentialImportReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private long item;
+
+    JsonCredentialImportReader(InputStream input) throws IOException {
+        this.parser = JSON_FACTORY.createParser(input);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of credentials.");
+        }
+    }
+
+    @Override
+    public CredentialImportRow next() throws IOException {
+        var token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        item++;
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Item " + item + ": expected an object.");
+        }
+        var values = new String[CredentialImportRow.FIELDS.length];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int field = CredentialImportReader.fieldIndex(parser.currentName());
+            var value = parser.nextToken();
+            if (value.isStructStart()) {
+                if (field >= 0) {
+                    throw new IOException("Item " + item + ": `" + CredentialImportRow.FIELDS[field]
+                            + "` must be a string.");
+                }
+                parser.skipChildren();
+            } else if (field >= 0 && value != JsonToken.VALUE_NULL) {
+                values[field] = parser.getText();
+            }
+        }
+        return CredentialImportReader.toRow(item, values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,48 @@
+package ludo.mentis.aciem.ecm.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.Payload;
+import ludo.mentis.aciem.ecm.rest.filter.HostResolver;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.*;
+
+
+/**
+ * Validate that the server value is a list of IP addresses, CIDR ranges and hostnames the API filter can match.
+ */
+@Target({FIELD, METHOD, ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Constraint(validatedBy = ApiKeyServerValid.ApiKeyServerValidValidator.class)
+public @interface ApiKeyServerValid {
+
+    String message() default "Enter comma-separated IP addresses, CIDR ranges or hostnames.";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    class ApiKeyServerValidValidator implements ConstraintValidator<ApiKeyServerValid, String> {
+
+        @Override
+        public boolean isValid(final String value, final ConstraintValidatorContext cvContext) {
+            if (value == null) {
+                // no value present
+                return true;
+            }
+            try {
+                HostResolver.validate(value);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -5,7 +5,7 @@ import jakarta.validation.Constraint;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import jakarta.validation.Payload;
-import ludo.mentis.aciem.ecm.service.BusinessAppService;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import org.springframework.web.servlet.HandlerMapping;
 
 import java.lang.annotation.Documented;
@@ -36,12 +36,12 @@ public @interface BusinessAppCodeUnique {
 
     class BusinessAppCodeUniqueValidator implements ConstraintValidator<BusinessAppCodeUnique, String> {
 
-        private final BusinessAppService businessAppService;
+        private final BusinessAppRegistry businessAppRegistry;
         private final HttpServletRequest request;
 
-        public BusinessAppCodeUniqueValidator(final BusinessAppService businessAppService,
+        public BusinessAppCodeUniqueValidator(final BusinessAppRegistry businessAppRegistry,
                                               final HttpServletRequest request) {
-            this.businessAppService = businessAppService;
+            this.businessAppRegistry = businessAppRegistry;
             this.request = request;
         }
 
@@ -56,8 +56,8 @@ public @interface BusinessAppCodeUnique {
             final String currentId = (pathVariables != null ? pathVariables.get("id") : null);
             if (currentId != null) {
                 try {
-                    final var existing = businessAppService.get(Long.parseLong(currentId));
-                    if (existing != null && existing.getCode() != null && value.equalsIgnoreCase(existing.getCode())) {
+                    final var existing = businessAppRegistry.findById(Long.parseLong(currentId)).orElse(null);
+                    if (existing != null && existing.code() != null && value.equalsIgnoreCase(existing.code())) {
                         // value hasn't changed
                         return true;
                     }
@@ -65,7 +65,7 @@ public @interface BusinessAppCodeUnique {
                     // if parse fails or service throws, fall back to existence check
                 }
             }
-            return !businessAppService.codeExists(value);
+            return !businessAppRegistry.codeExists(value);
         }
 
     }
@@ -5,7 +5,7 @@ import jakarta.validation.Constraint;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import jakarta.validation.Payload;
-import ludo.mentis.aciem.ecm.service.BusinessAppService;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import org.springframework.web.servlet.HandlerMapping;
 
 import java.lang.annotation.Documented;
@@ -36,12 +36,12 @@ public @interface BusinessAppNameUnique {
 
     class BusinessAppNameUniqueValidator implements ConstraintValidator<BusinessAppNameUnique, String> {
 
-        private final BusinessAppService businessAppService;
+        private final BusinessAppRegistry businessAppRegistry;
         private final HttpServletRequest request;
 
-        public BusinessAppNameUniqueValidator(final BusinessAppService businessAppService,
+        public BusinessAppNameUniqueValidator(final BusinessAppRegistry businessAppRegistry,
                                               final HttpServletRequest request) {
-            this.businessAppService = businessAppService;
+            this.businessAppRegistry = businessAppRegistry;
             this.request = request;
         }
 
@@ -56,8 +56,8 @@ public @interface BusinessAppNameUnique {
             final String currentId = (pathVariables != null ? pathVariables.get("id") : null);
             if (currentId != null) {
                 try {
-                    final var existing = businessAppService.get(Long.parseLong(currentId));
-                    if (existing != null && existing.getName() != null && value.equalsIgnoreCase(existing.getName())) {
+                    final var existing = businessAppRegistry.findById(Long.parseLong(currentId)).orElse(null);
+                    if (existing != null && existing.name() != null && value.equalsIgnoreCase(existing.name())) {
                         // value hasn't changed
                         return true;
                     }
@@ -65,7 +65,7 @@ public @interface BusinessAppNameUnique {
                     // if parse fails or service throws, fall back to existence check
                 }
             }
-            return !businessAppService.nameExists(value);
+            return !businessAppRegistry.nameExists(value);
         }
 
     }
@@ -0,0 +1,15 @@
+-- -----------------------------------------------------
+-- Table `tb_reencryption_checkpoint`
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `tb_reencryption_checkpoint` (
+  `job_name` VARCHAR(64) NOT NULL,
+  `last_id` BIGINT NOT NULL DEFAULT 0,
+  `processed` BIGINT NOT NULL DEFAULT 0,
+  `failed` BIGINT NOT NULL DEFAULT 0,
+  `completed` BIT NOT NULL DEFAULT 0,
+  `updated_at` TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (`job_name`))
+ENGINE = InnoDB;
+
+-- Keyset walk over the envelopes still written with a given KDF
+CREATE INDEX `idx_cipher_envelope_kdf` ON `tb_cipher_envelope` (`kdf` ASC, `id_cipher_envelope` ASC) VISIBLE;
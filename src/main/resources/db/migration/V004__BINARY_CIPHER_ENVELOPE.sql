@@ -0,0 +1,8 @@
+-- -----------------------------------------------------
+-- Optional single-column (v2 binary) storage for `tb_cipher_envelope`.
+-- v1 rows keep using the per-field columns, which become nullable.
+-- -----------------------------------------------------
+ALTER TABLE `tb_cipher_envelope`
+  MODIFY COLUMN `iv` VARBINARY(32) NULL,
+  MODIFY COLUMN `ciphertext` LONGBLOB NULL,
+  ADD COLUMN `envelope` VARBINARY(2048) NULL AFTER `ciphertext`;
@@ -0,0 +1,6 @@
+-- -----------------------------------------------------
+-- Key ring slot each envelope was written with. NULL (rows written before key rotation
+-- existed) reads as key id 0.
+-- -----------------------------------------------------
+ALTER TABLE `tb_cipher_envelope`
+  ADD COLUMN `key_id` SMALLINT NULL AFTER `kdf`;
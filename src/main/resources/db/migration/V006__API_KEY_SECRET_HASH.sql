@@ -0,0 +1,7 @@
+-- -----------------------------------------------------
+-- One-way storage of API key secrets (ecm.api-key.secret-storage=HASH): HMAC-SHA256 of the
+-- secret under a server-side pepper. Hashed keys have no cipher envelope.
+-- -----------------------------------------------------
+ALTER TABLE `tb_api_key`
+  MODIFY COLUMN `id_cipher_envelope` BIGINT NULL,
+  ADD COLUMN `secret_hash` VARBINARY(32) NULL AFTER `id_cipher_envelope`;
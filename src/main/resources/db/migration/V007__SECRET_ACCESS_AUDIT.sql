@@ -0,0 +1,22 @@
+-- -----------------------------------------------------
+-- Table `tb_secret_access_audit`
+-- Append-only record of secrets read through the REST API, written in batches.
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `tb_secret_access_audit` (
+  `id_secret_access_audit` BIGINT NOT NULL AUTO_INCREMENT,
+  `accessed_at` TIMESTAMP(3) NOT NULL,
+  `app_code` VARCHAR(45) NOT NULL,
+  `environment` VARCHAR(16) NOT NULL,
+  `credential_type` VARCHAR(16) NOT NULL,
+  `username` VARCHAR(255) NOT NULL,
+  `client_id` VARCHAR(45) NULL,
+  `id_api_key` BIGINT NULL,
+  `remote_addr` VARCHAR(45) NULL,
+  `outcome` VARCHAR(16) NOT NULL,
+  PRIMARY KEY (`id_secret_access_audit`))
+ENGINE = InnoDB;
+
+-- Who read an application's secrets in a time window
+CREATE INDEX `idx_secret_access_audit_app_time` ON `tb_secret_access_audit` (`app_code` ASC, `accessed_at` ASC) VISIBLE;
+-- Time-window scans and retention purges
+CREATE INDEX `idx_secret_access_audit_time` ON `tb_secret_access_audit` (`accessed_at` ASC) VISIBLE;
@@ -0,0 +1,10 @@
+-- -----------------------------------------------------
+-- Covering index for the REST lookup of a credential's latest version
+-- The four identity columns, the latest-version test (`id_credential_next` IS NULL) and the
+-- envelope id are all in the index, so the lookup reads tb_credential from the index alone and
+-- then fetches the envelope by primary key.
+-- -----------------------------------------------------
+CREATE INDEX `idx_credential_latest` ON `tb_credential` (`id_application` ASC, `id_environment` ASC, `id_credential_type` ASC, `username` ASC, `id_credential_next` ASC, `id_cipher_envelope` ASC) VISIBLE;
+
+-- The new index leads with `id_application` and serves `fk_credential_application` as well
+DROP INDEX `fk_credential_application_idx` ON `tb_credential`;
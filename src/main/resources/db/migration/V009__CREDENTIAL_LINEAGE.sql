@@ -0,0 +1,48 @@
+-- -----------------------------------------------------
+-- Lineage of `tb_credential`: every version of a credential carries the id of its first
+-- version, so the whole chain is found with one indexed lookup instead of walking
+-- `id_credential_next` one query per version.
+-- -----------------------------------------------------
+ALTER TABLE `tb_credential`
+  ADD COLUMN `id_credential_lineage` BIGINT NULL AFTER `id_credential_next`;
+
+-- Backfill: start at every first version (no other row points to it) and follow the chain forward
+CREATE TEMPORARY TABLE `tmp_credential_lineage` (
+  `id_credential` BIGINT NOT NULL,
+  `id_credential_lineage` BIGINT NOT NULL,
+  PRIMARY KEY (`id_credential`))
+ENGINE = InnoDB;
+
+-- Each version is one level of recursion
+SET SESSION cte_max_recursion_depth = 100000;
+
+INSERT INTO `tmp_credential_lineage` (`id_credential`, `id_credential_lineage`)
+WITH RECURSIVE `chain` (`id_credential`, `id_credential_next`, `id_credential_lineage`) AS (
+  SELECT `first`.`id_credential`, `first`.`id_credential_next`, `first`.`id_credential`
+  FROM `tb_credential` `first`
+  WHERE NOT EXISTS (SELECT 1 FROM `tb_credential` `previous`
+                    WHERE `previous`.`id_credential_next` = `first`.`id_credential`)
+  UNION ALL
+  SELECT `next`.`id_credential`, `next`.`id_credential_next`, `chain`.`id_credential_lineage`
+  FROM `chain`
+  JOIN `tb_credential` `next` ON `next`.`id_credential` = `chain`.`id_credential_next`
+)
+SELECT `id_credential`, `id_credential_lineage` FROM `chain`;
+
+UPDATE `tb_credential` `c`
+  JOIN `tmp_credential_lineage` `l` ON `l`.`id_credential` = `c`.`id_credential`
+  SET `c`.`id_credential_lineage` = `l`.`id_credential_lineage`;
+
+DROP TEMPORARY TABLE `tmp_credential_lineage`;
+
+-- History of a credential in version order; also serves `fk_credential_lineage`
+CREATE INDEX `idx_credential_lineage` ON `tb_credential` (`id_credential_lineage` ASC, `version` ASC) VISIBLE;
+
+-- NULL-able: NULL means "this row is the first version". First versions backfilled above hold their own id
+-- instead; both forms are valid, and lookups match a first version by `id_credential` as well as by lineage
+ALTER TABLE `tb_credential`
+  ADD CONSTRAINT `fk_credential_lineage`
+    FOREIGN KEY (`id_credential_lineage`)
+    REFERENCES `tb_credential` (`id_credential`)
+    ON DELETE NO ACTION
+    ON UPDATE NO ACTION;
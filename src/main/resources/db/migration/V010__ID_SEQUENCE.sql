@@ -0,0 +1,41 @@
+-- -----------------------------------------------------
+-- Table `tb_id_sequence`
+-- Ids of credentials, envelopes, API keys and applications are reserved in blocks by the
+-- application (pooled-lo table generator) instead of by AUTO_INCREMENT, so inserts can be
+-- batched. `next_val` is the next id not yet handed out for that table.
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `tb_id_sequence` (
+  `sequence_name` VARCHAR(64) NOT NULL,
+  `next_val` BIGINT NOT NULL,
+  PRIMARY KEY (`sequence_name`))
+ENGINE = InnoDB;
+
+-- Continue after the highest id and the AUTO_INCREMENT counter, so ids of deleted rows are not reused
+SET SESSION information_schema_stats_expiry = 0;
+
+INSERT INTO `tb_id_sequence` (`sequence_name`, `next_val`)
+SELECT 'tb_cipher_envelope', GREATEST(COALESCE(MAX(`id_cipher_envelope`), 0) + 1,
+       (SELECT COALESCE(MAX(`AUTO_INCREMENT`), 1) FROM `information_schema`.`TABLES`
+        WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = 'tb_cipher_envelope'))
+FROM `tb_cipher_envelope`;
+
+INSERT INTO `tb_id_sequence` (`sequence_name`, `next_val`)
+SELECT 'tb_application', GREATEST(COALESCE(MAX(`id_application`), 0) + 1,
+       (SELECT COALESCE(MAX(`AUTO_INCREMENT`), 1) FROM `information_schema`.`TABLES`
+        WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = 'tb_application'))
+FROM `tb_application`;
+
+INSERT INTO `tb_id_sequence` (`sequence_name`, `next_val`)
+SELECT 'tb_credential', GREATEST(COALESCE(MAX(`id_credential`), 0) + 1,
+       (SELECT COALESCE(MAX(`AUTO_INCREMENT`), 1) FROM `information_schema`.`TABLES`
+        WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = 'tb_credential'))
+FROM `tb_credential`;
+
+INSERT INTO `tb_id_sequence` (`sequence_name`, `next_val`)
+SELECT 'tb_api_key', GREATEST(COALESCE(MAX(`id_api_key`), 0) + 1,
+       (SELECT COALESCE(MAX(`AUTO_INCREMENT`), 1) FROM `information_schema`.`TABLES`
+        WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = 'tb_api_key'))
+FROM `tb_api_key`;
+
+-- The id columns keep AUTO_INCREMENT (existing foreign keys), but it is no longer used: rows inserted
+-- without an id could collide with a block already reserved by a running node.
@@ -0,0 +1,5 @@
+-- -----------------------------------------------------
+-- tb_api_key.server holds a comma-separated list of IP addresses, CIDR ranges and hostnames.
+-- -----------------------------------------------------
+ALTER TABLE `tb_api_key`
+  MODIFY COLUMN `server` VARCHAR(1000) NULL;
@@ -0,0 +1,22 @@
+-- -----------------------------------------------------
+-- Ids of these tables come from `tb_id_sequence` (V010). Without AUTO_INCREMENT a row inserted
+-- without an id fails instead of taking an id from a block a running node has already reserved.
+-- -----------------------------------------------------
+
+-- The columns keep their type, so the foreign keys that reference them stay valid; MySQL only
+-- allows changing a referenced column with the checks off
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE `tb_cipher_envelope`
+  MODIFY COLUMN `id_cipher_envelope` BIGINT NOT NULL;
+
+ALTER TABLE `tb_application`
+  MODIFY COLUMN `id_application` BIGINT NOT NULL;
+
+ALTER TABLE `tb_credential`
+  MODIFY COLUMN `id_credential` BIGINT NOT NULL;
+
+ALTER TABLE `tb_api_key`
+  MODIFY COLUMN `id_api_key` BIGINT NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
@@ -4,8 +4,8 @@ import ludo.mentis.aciem.commons.web.FlashMessages;
 import ludo.mentis.aciem.commons.web.PaginationUtils;
 import ludo.mentis.aciem.commons.web.SortUtils;
 import ludo.mentis.aciem.ecm.model.ApiKeyDTO;
-import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
 import ludo.mentis.aciem.ecm.service.ApiKeyService;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -19,6 +19,7 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,7 +39,7 @@ class ApiKeyControllerTest {
     private ApiKeyService apiKeyService;
 
     @Mock
-    private BusinessAppRepository businessAppRepository;
+    private BusinessAppRegistry businessAppRegistry;
 
     @Mock
     private Model model;
@@ -52,10 +53,10 @@ class ApiKeyControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        // prepareContext may be called by MVC typically; in direct invocation we stub repository sort-dependent call
-        when(businessAppRepository.findAll(any(Sort.class))).thenReturn(List.of());
+        // prepareContext may be called by MVC typically; in direct invocation we stub the app registry
+        when(businessAppRegistry.namesById()).thenReturn(Map.of());
         when(sortUtils.addSortAttributesToModel(any(), any(), any(), any())).thenReturn(Sort.by(Sort.Order.desc("id")));
-        controller = new ApiKeyController(sortUtils, apiKeyService, paginationUtils, businessAppRepository);
+        controller = new ApiKeyController(sortUtils, apiKeyService, paginationUtils, businessAppRegistry);
     }
 
     @Test
@@ -138,4 +139,30 @@ class ApiKeyControllerTest {
         verify(apiKeyService).delete(9L);
         verify(redirectAttributes).addFlashAttribute(eq(FlashMessages.MSG_SUCCESS), any());
     }
+
+    @Test
+    void addPost_withGeneratedSecret_revealsItOnce() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        var dto = new ApiKeyDTO();
+        doAnswer(inv -> {
+            ((ApiKeyDTO) inv.getArgument(0)).setSecret("generated");
+            return 1L;
+        }).when(apiKeyService).create(any(ApiKeyDTO.class));
+
+        controller.add(dto, bindingResult, redirectAttributes);
+
+        verify(redirectAttributes).addFlashAttribute(ApiKeyController.MSG_API_KEY_SECRET, "generated");
+    }
+
+    @Test
+    void addPost_withTypedSecret_inEnvelopeMode_doesNotReveal() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(apiKeyService.isSecretStoredHashed()).thenReturn(false);
+        var dto = new ApiKeyDTO();
+        dto.setSecret("typed");
+
+        controller.add(dto, bindingResult, redirectAttributes);
+
+        verify(redirectAttributes, never()).addFlashAttribute(eq(ApiKeyController.MSG_API_KEY_SECRET), any());
+    }
 }
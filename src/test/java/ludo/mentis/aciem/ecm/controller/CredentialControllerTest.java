@@ -4,7 +4,7 @@ import ludo.mentis.aciem.commons.web.FlashMessages;
 import ludo.mentis.aciem.commons.web.PaginationUtils;
 import ludo.mentis.aciem.commons.web.SortUtils;
 import ludo.mentis.aciem.ecm.model.CredentialDTO;
-import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import ludo.mentis.aciem.ecm.service.CredentialService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +16,7 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -36,7 +37,7 @@ class CredentialControllerTest {
     private CredentialService credentialService;
 
     @Mock
-    private BusinessAppRepository businessAppRepository;
+    private BusinessAppRegistry businessAppRegistry;
 
     @Mock
     private Model model;
@@ -50,11 +51,11 @@ class CredentialControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        when(businessAppRepository.findAll(any(Sort.class))).thenReturn(List.of());
+        when(businessAppRegistry.namesById()).thenReturn(Map.of());
         // Provide default sort behavior used by list()
         when(sortUtils.addSortAttributesToModel(any(), any(), any(), any()))
                 .thenReturn(Sort.by(Sort.Order.desc("id")));
-        controller = new CredentialController(sortUtils, paginationUtils, credentialService, businessAppRepository);
+        controller = new CredentialController(sortUtils, paginationUtils, credentialService, businessAppRegistry);
     }
 
     @Test
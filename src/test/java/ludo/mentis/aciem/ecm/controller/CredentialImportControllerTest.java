@@ -0,0 +1,77 @@
+package ludo.mentis.aciem.ecm.controller;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportReport;
+import ludo.mentis.aciem.ecm.service.CredentialImportListener;
+import ludo.mentis.aciem.ecm.service.CredentialImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CredentialImportControllerTest {
+
+    private CredentialImportService credentialImportService;
+    private CredentialImportController controller;
+    private final Principal principal = () -> "alice";
+
+    @BeforeEach
+    void setUp() {
+        credentialImportService = mock(CredentialImportService.class);
+        controller = new CredentialImportController(credentialImportService);
+    }
+
+    @Test
+    void form_returnsImportView() {
+        var model = new ExtendedModelMap();
+
+        assertThat(controller.form(model)).isEqualTo("credential/import");
+        assertThat(model.getAttribute("formatValues")).isEqualTo(CredentialImportFormat.values());
+    }
+
+    @Test
+    void upload_importsFile_asCurrentUser_andShowsReport() throws IOException {
+        var report = new CredentialImportReport(1, 1, 0, List.of(), null, 5);
+        when(credentialImportService.importCredentials(any(), eq(CredentialImportFormat.JSON), eq("alice"),
+                eq(CredentialImportListener.NONE))).thenReturn(report);
+        var file = new MockMultipartFile("file", "creds.json", "application/json", "[]".getBytes());
+        var model = new ExtendedModelMap();
+
+        var view = controller.upload(file, null, principal, model, new RedirectAttributesModelMap());
+
+        assertThat(view).isEqualTo("credential/import");
+        assertThat(model.getAttribute("report")).isSameAs(report);
+    }
+
+    @Test
+    void upload_usesChosenFormat_overFileName() throws IOException {
+        when(credentialImportService.importCredentials(any(), any(), any(), any()))
+                .thenReturn(new CredentialImportReport(0, 0, 0, List.of(), null, 1));
+        var file = new MockMultipartFile("file", "creds.txt", "text/plain", "x".getBytes());
+
+        controller.upload(file, CredentialImportFormat.JSON, principal, new ExtendedModelMap(),
+                new RedirectAttributesModelMap());
+
+        verify(credentialImportService).importCredentials(any(), eq(CredentialImportFormat.JSON), eq("alice"), any());
+    }
+
+    @Test
+    void upload_emptyFile_redirectsWithError() throws IOException {
+        var file = new MockMultipartFile("file", "creds.csv", "text/csv", new byte[0]);
+
+        var view = controller.upload(file, null, principal, new ExtendedModelMap(), new RedirectAttributesModelMap());
+
+        assertThat(view).isEqualTo("redirect:/credentials/import");
+        verifyNoInteractions(credentialImportService);
+    }
+}
@@ -0,0 +1,109 @@
+package ludo.mentis.aciem.ecm.controller.filter;
+
+import jakarta.servlet.http.HttpServletResponse;
+import ludo.mentis.aciem.ecm.util.UserRoles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadSizeLimitFilterTest {
+
+    private final UploadSizeLimitFilter filter = new UploadSizeLimitFilter();
+
+    private static MockHttpServletRequest upload(String path, long length) {
+        // The mock only reports the length of content it holds
+        var request = new MockHttpServletRequest("POST", path) {
+            @Override
+            public long getContentLengthLong() {
+                return length;
+            }
+        };
+        request.setServletPath(path);
+        request.setContentType("multipart/form-data; boundary=x");
+        return request;
+    }
+
+    private MockHttpServletResponse call(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void loggedInAs(String... authorities) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, authorities));
+    }
+
+    @Test
+    void importPath_acceptsLargeUploads_fromAdmins() throws Exception {
+        loggedInAs(UserRoles.ADMIN);
+        var chain = new MockFilterChain();
+
+        call(upload("/credentials/import", UploadSizeLimitFilter.MAX_REQUEST_SIZE * 10), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void importPath_rejectsLargeUploads_withoutLogin() throws Exception {
+        var chain = new MockFilterChain();
+
+        var response = call(upload("/credentials/import", UploadSizeLimitFilter.MAX_REQUEST_SIZE + 1), chain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void importPath_rejectsLargeUploads_fromNonAdmins() throws Exception {
+        loggedInAs("ROLE_USER");
+        var chain = new MockFilterChain();
+
+        var response = call(upload("/credentials/import", UploadSizeLimitFilter.MAX_REQUEST_SIZE + 1), chain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    @Test
+    void otherPaths_rejectLargeUploads() throws Exception {
+        var chain = new MockFilterChain();
+
+        var response = call(upload("/login", UploadSizeLimitFilter.MAX_REQUEST_SIZE + 1), chain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void otherPaths_requireContentLength() throws Exception {
+        var chain = new MockFilterChain();
+
+        var response = call(upload("/login", -1), chain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_LENGTH_REQUIRED);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void otherPaths_acceptSmallUploads_andNonMultipartBodies() throws Exception {
+        var chain = new MockFilterChain();
+        call(upload("/login", 1024), chain);
+        assertThat(chain.getRequest()).isNotNull();
+
+        var form = new MockHttpServletRequest("POST", "/login");
+        form.setContentType("application/x-www-form-urlencoded");
+        var formChain = new MockFilterChain();
+        call(form, formChain);
+        assertThat(formChain.getRequest()).isNotNull();
+    }
+}
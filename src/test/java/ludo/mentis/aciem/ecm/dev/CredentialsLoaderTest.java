@@ -7,6 +7,7 @@ import ludo.mentis.aciem.ecm.model.Environment;
 import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
 import ludo.mentis.aciem.ecm.repos.CredentialRepository;
 import ludo.mentis.aciem.ecm.service.PasswordService;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
 import ludo.mentis.aciem.ecm.util.RandomUtils;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -64,12 +65,19 @@ class CredentialsLoaderTest {
         when(randomUtils.pickRandomEnumValue(CredentialType.class)).thenReturn(CredentialType.DATABASE);
         when(randomUtils.pickRandomBoolean()).thenReturn(true);
 
-        when(passwordService.encryptPasswordToEntity(anyString())).thenReturn(new CipherEnvelopeEntity());
+        when(passwordService.encryptPasswordsToEntities(anyList())).thenAnswer(inv -> {
+            List<String> passwords = inv.getArgument(0);
+            return passwords.stream().map(p -> CryptoResult.success(new CipherEnvelopeEntity())).toList();
+        });
+
+        when(credentialRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         var loader = new CredentialsLoader(credentialRepository, businessAppRepository, randomUtils, passwordService);
 
         var count = loader.run();
         assertEquals(30, count);
+        // One insert each; a first version has no lineage id to write
         verify(credentialRepository, times(30)).save(any());
+        verify(passwordService).encryptPasswordsToEntities(argThat(list -> list.size() == 30));
     }
 }
@@ -0,0 +1,63 @@
+package ludo.mentis.aciem.ecm.domain;
+
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the id mapping against the migrations and the batch size; there is no database in the test
+ * suite, so the generator and batched inserts themselves are not exercised here.
+ */
+class IdGeneratorMappingTest {
+
+    @ParameterizedTest
+    @ValueSource(classes = {Credential.class, CipherEnvelopeEntity.class, ApiKey.class, BusinessApp.class})
+    void id_isReservedFromItsOwnSequenceRow_inBatchSizedBlocks(Class<?> entity) throws IOException {
+        Field id = Arrays.stream(entity.getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(Id.class))
+                .findFirst()
+                .orElseThrow();
+        var generatedValue = id.getAnnotation(GeneratedValue.class);
+        var generator = id.getAnnotation(TableGenerator.class);
+        var table = entity.getAnnotation(Table.class).name();
+
+        assertThat(generatedValue.strategy()).isEqualTo(GenerationType.TABLE);
+        assertThat(generatedValue.generator()).isEqualTo(generator.name());
+        assertThat(generator.table()).isEqualTo("tb_id_sequence");
+        assertThat(generator.pkColumnName()).isEqualTo("sequence_name");
+        assertThat(generator.valueColumnName()).isEqualTo("next_val");
+        assertThat(generator.pkColumnValue()).isEqualTo(table);
+        // One reserved block fills one JDBC batch
+        assertThat(generator.allocationSize())
+                .isEqualTo(Integer.parseInt(applicationProperty("spring.jpa.properties.hibernate.jdbc.batch_size")));
+        assertThat(migration("V010__ID_SEQUENCE.sql")).contains("SELECT '" + table + "'");
+        assertThat(migration("V012__DROP_ID_AUTO_INCREMENT.sql")).contains("ALTER TABLE `" + table + "`");
+    }
+
+    private static String applicationProperty(String name) throws IOException {
+        try (InputStream in = IdGeneratorMappingTest.class.getResourceAsStream("/application.properties")) {
+            var properties = new Properties();
+            properties.load(in);
+            return properties.getProperty(name);
+        }
+    }
+
+    private static String migration(String name) throws IOException {
+        try (InputStream in = IdGeneratorMappingTest.class.getResourceAsStream("/db/migration/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
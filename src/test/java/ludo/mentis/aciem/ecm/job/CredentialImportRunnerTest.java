@@ -0,0 +1,71 @@
+package ludo.mentis.aciem.ecm.job;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportReport;
+import ludo.mentis.aciem.ecm.service.CredentialImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.context.ApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CredentialImportRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    private CredentialImportService credentialImportService;
+    private Integer exitCode;
+    private CredentialImportRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        credentialImportService = mock(CredentialImportService.class);
+        runner = new CredentialImportRunner(credentialImportService, mock(ApplicationContext.class)) {
+            @Override
+            protected void exit(int code) {
+                exitCode = code;
+            }
+        };
+    }
+
+    @Test
+    void run_withoutOption_doesNothing() throws IOException {
+        runner.run(new DefaultApplicationArguments("--server.port=8080"));
+
+        verifyNoInteractions(credentialImportService);
+        assertThat(exitCode).isNull();
+    }
+
+    @Test
+    void run_importsFile_andExitsWithZero_whenEveryRowImported() throws IOException {
+        var file = Files.writeString(dir.resolve("creds.json"), "[]");
+        when(credentialImportService.importCredentials(any(), eq(CredentialImportFormat.JSON), eq("migration"), any()))
+                .thenReturn(new CredentialImportReport(2, 2, 0, List.of(), null, 10));
+
+        runner.run(new DefaultApplicationArguments("--import-credentials=" + file, "--import-by=migration"));
+
+        assertThat(exitCode).isZero();
+    }
+
+    @Test
+    void run_exitsWithOne_whenRowsFailed_andHonoursFormatOption() throws IOException {
+        var file = Files.writeString(dir.resolve("creds.txt"), "appCode\n");
+        when(credentialImportService.importCredentials(any(), eq(CredentialImportFormat.CSV), eq("import"), any()))
+                .thenReturn(new CredentialImportReport(2, 1, 1, List.of(), null, 10));
+
+        runner.run(new DefaultApplicationArguments("--import-credentials=" + file, "--import-format=csv"));
+
+        assertThat(exitCode).isEqualTo(1);
+    }
+}
@@ -0,0 +1,247 @@
+package ludo.mentis.aciem.ecm.job;
+
+import ludo.mentis.aciem.ecm.config.ReEncryptionProperties;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.domain.ReEncryptionCheckpoint;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import ludo.mentis.aciem.ecm.model.CipherEnvelope;
+import ludo.mentis.aciem.ecm.model.CipherEnvelopeMapper;
+import ludo.mentis.aciem.ecm.model.Kdf;
+import ludo.mentis.aciem.ecm.repos.CipherEnvelopeRepository;
+import ludo.mentis.aciem.ecm.repos.ReEncryptionCheckpointRepository;
+import ludo.mentis.aciem.ecm.service.PasswordService;
+import ludo.mentis.aciem.ecm.service.crypto.aes.AesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReEncryptionJobTest {
+
+    private CipherEnvelopeRepository envelopeRepository;
+    private ReEncryptionCheckpointRepository checkpointRepository;
+    private PasswordService passwordService;
+    private AesService aesService;
+    private ReEncryptionProperties properties;
+    private ReEncryptionJob job;
+
+    @BeforeEach
+    void setUp() {
+        envelopeRepository = mock(CipherEnvelopeRepository.class);
+        checkpointRepository = mock(ReEncryptionCheckpointRepository.class);
+        passwordService = mock(PasswordService.class);
+        doAnswer(inv -> CipherEnvelopeMapper.updateEntity(inv.getArgument(0), inv.getArgument(1)))
+                .when(passwordService).updateEntity(any(), any());
+        aesService = mock(AesService.class);
+        when(aesService.primaryKdf()).thenReturn(Kdf.HKDF);
+        when(aesService.primaryKeyId()).thenReturn(1);
+        properties = new ReEncryptionProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(2);
+        properties.setPauseBetweenBatches(Duration.ZERO);
+        job = new ReEncryptionJob(envelopeRepository, checkpointRepository, passwordService, aesService,
+                mock(PlatformTransactionManager.class), properties);
+    }
+
+    private static final ReEncryptionJob.Target TARGET = new ReEncryptionJob.Target(Kdf.HKDF, 1);
+    private static final String JOB_NAME = "reencrypt-hkdf-1";
+
+    private static CipherEnvelopeEntity row(long id, Kdf kdf, Integer keyId) {
+        var e = new CipherEnvelopeEntity();
+        e.setId(id);
+        e.setVersion("v1");
+        e.setKdf(kdf);
+        e.setKeyId(keyId);
+        e.setIterations(210_000);
+        e.setSalt(new byte[16]);
+        e.setIv(new byte[12]);
+        e.setCiphertext(new byte[]{(byte) id});
+        return e;
+    }
+
+    private static CipherEnvelopeEntity pbkdf2Row(long id) {
+        return row(id, Kdf.PBKDF2, null);
+    }
+
+    private static CipherEnvelope hkdfEnvelope(int keyId) {
+        return CipherEnvelope.builder()
+                .kdf(Kdf.HKDF)
+                .iterations(210_000)
+                .salt(new byte[16])
+                .iv(new byte[12])
+                .ciphertext(new byte[]{9})
+                .keyId(keyId)
+                .build();
+    }
+
+    private void givenBatch(CipherEnvelopeEntity... rows) {
+        when(envelopeRepository.findNotWrittenWith(eq(Kdf.HKDF), eq(1), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(rows));
+    }
+
+    @Test
+    void runBatch_reEncryptsRows_and_advancesCheckpoint() {
+        var r1 = pbkdf2Row(5);
+        var r2 = pbkdf2Row(8);
+        givenBatch(r1, r2);
+        when(envelopeRepository.findAllById(any())).thenReturn(List.of(r1, r2));
+        when(passwordService.decryptPasswordFromEntity(any())).thenReturn("plain");
+        when(passwordService.encryptPassword("plain")).thenReturn(hkdfEnvelope(1));
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+
+        boolean more = job.runBatch(checkpoint, TARGET);
+
+        assertThat(more).isTrue();
+        assertThat(r1.getKdf()).isEqualTo(Kdf.HKDF);
+        assertThat(r2.getKeyId()).isEqualTo(1);
+        assertThat(r1.getId()).isEqualTo(5L);
+        assertThat(checkpoint.getLastId()).isEqualTo(8L);
+        assertThat(checkpoint.getProcessed()).isEqualTo(2L);
+        assertThat(job.getLastId()).isEqualTo(8L);
+        verify(checkpointRepository).save(checkpoint);
+    }
+
+    @Test
+    void runBatch_movesRowsOffRetiredKey_underSameKdf() {
+        var retired = row(3, Kdf.HKDF, 0);
+        givenBatch(retired);
+        when(envelopeRepository.findAllById(any())).thenReturn(List.of(retired));
+        when(passwordService.decryptPasswordFromEntity(retired)).thenReturn("plain");
+        when(passwordService.encryptPassword("plain")).thenReturn(hkdfEnvelope(1));
+
+        job.runBatch(new ReEncryptionCheckpoint(JOB_NAME), TARGET);
+
+        assertThat(retired.getKdf()).isEqualTo(Kdf.HKDF);
+        assertThat(retired.getKeyId()).isEqualTo(1);
+    }
+
+    @Test
+    void runBatch_skipsRowsThatFailToDecrypt() {
+        var good = pbkdf2Row(1);
+        var bad = pbkdf2Row(2);
+        givenBatch(good, bad);
+        when(envelopeRepository.findAllById(any())).thenReturn(List.of(good));
+        when(passwordService.decryptPasswordFromEntity(good)).thenReturn("plain");
+        when(passwordService.decryptPasswordFromEntity(bad)).thenThrow(new CryptoException("Decryption failed"));
+        when(passwordService.encryptPassword("plain")).thenReturn(hkdfEnvelope(1));
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+
+        job.runBatch(checkpoint, TARGET);
+
+        assertThat(good.getKdf()).isEqualTo(Kdf.HKDF);
+        assertThat(bad.getKdf()).isEqualTo(Kdf.PBKDF2);
+        assertThat(checkpoint.getLastId()).isEqualTo(2L);
+        assertThat(checkpoint.getProcessed()).isEqualTo(1L);
+        assertThat(checkpoint.getFailed()).isEqualTo(1L);
+        assertThat(job.getFailed()).isEqualTo(1L);
+    }
+
+    @Test
+    void runBatch_countsMalformedRowsAsFailed_andKeepsGoing() {
+        var malformed = pbkdf2Row(1);
+        var good = pbkdf2Row(2);
+        givenBatch(malformed, good);
+        when(envelopeRepository.findAllById(any())).thenReturn(List.of(good));
+        when(passwordService.decryptPasswordFromEntity(malformed))
+                .thenThrow(new IllegalStateException("Envelope has neither columns nor binary form"));
+        when(passwordService.decryptPasswordFromEntity(good)).thenReturn("plain");
+        when(passwordService.encryptPassword("plain")).thenReturn(hkdfEnvelope(1));
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+
+        job.runBatch(checkpoint, TARGET);
+
+        assertThat(good.getKdf()).isEqualTo(Kdf.HKDF);
+        assertThat(checkpoint.getLastId()).isEqualTo(2L);
+        assertThat(checkpoint.getFailed()).isEqualTo(1L);
+    }
+
+    @Test
+    void runBatch_countsRowsNotReachingTargetAsFailed() {
+        var row = pbkdf2Row(1);
+        givenBatch(row);
+        when(passwordService.decryptPasswordFromEntity(row)).thenReturn("plain");
+        when(passwordService.encryptPassword("plain")).thenReturn(hkdfEnvelope(0));
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+
+        job.runBatch(checkpoint, TARGET);
+
+        assertThat(row.getKdf()).isEqualTo(Kdf.PBKDF2);
+        assertThat(checkpoint.getFailed()).isEqualTo(1L);
+        assertThat(checkpoint.getProcessed()).isZero();
+    }
+
+    @Test
+    void runBatch_whenNothingLeft_marksCompleted() {
+        givenBatch();
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+
+        assertThat(job.runBatch(checkpoint, TARGET)).isFalse();
+        assertThat(checkpoint.getCompleted()).isTrue();
+        verify(checkpointRepository).save(checkpoint);
+    }
+
+    @Test
+    void target_comesFromPrimaryKdfAndKey() {
+        assertThat(job.target()).isEqualTo(TARGET);
+        assertThat(TARGET.matches(Kdf.HKDF, 1)).isTrue();
+        assertThat(TARGET.matches(Kdf.HKDF, 0)).isFalse();
+        assertThat(new ReEncryptionJob.Target(Kdf.HKDF, 0).matches(Kdf.HKDF, null)).isTrue();
+    }
+
+    @Test
+    void runToCompletion_resumesFromPersistedCheckpoint_namedAfterTarget() {
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+        checkpoint.setLastId(42L);
+        checkpoint.setProcessed(40L);
+        when(checkpointRepository.findById(JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(envelopeRepository.countNotWrittenWith(Kdf.HKDF, 1, 42L)).thenReturn(0L);
+        givenBatch();
+
+        job.runToCompletion();
+
+        verify(envelopeRepository).findNotWrittenWith(eq(Kdf.HKDF), eq(1), eq(42L), any(Pageable.class));
+        assertThat(job.getProcessed()).isEqualTo(40L);
+        assertThat(checkpoint.getCompleted()).isTrue();
+        assertThat(job.isRunning()).isFalse();
+    }
+
+    @Test
+    void runToCompletion_skipsCompletedJob_whenNothingLeft() {
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+        checkpoint.setCompleted(true);
+        checkpoint.setLastId(42L);
+        when(checkpointRepository.findById(JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(envelopeRepository.countNotWrittenWith(Kdf.HKDF, 1, 0L)).thenReturn(0L);
+
+        job.runToCompletion();
+
+        verify(envelopeRepository, never()).findNotWrittenWith(any(), anyInt(), anyLong(), any());
+        assertThat(checkpoint.getLastId()).isEqualTo(42L);
+    }
+
+    @Test
+    void runToCompletion_restartsCompletedJob_whenRowsRemain() {
+        var checkpoint = new ReEncryptionCheckpoint(JOB_NAME);
+        checkpoint.setCompleted(true);
+        checkpoint.setLastId(42L);
+        when(checkpointRepository.findById(JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(envelopeRepository.countNotWrittenWith(Kdf.HKDF, 1, 0L)).thenReturn(1L);
+        givenBatch();
+
+        job.runToCompletion();
+
+        verify(envelopeRepository).findNotWrittenWith(eq(Kdf.HKDF), eq(1), eq(0L), any(Pageable.class));
+        assertThat(checkpoint.getCompleted()).isTrue();
+    }
+}
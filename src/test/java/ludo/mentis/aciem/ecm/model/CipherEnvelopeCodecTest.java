@@ -0,0 +1,130 @@
+package ludo.mentis.aciem.ecm.model;
+
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CipherEnvelopeCodecTest {
+
+    private static byte[] bytes(int len, int seed) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) b[i] = (byte) (seed + i);
+        return b;
+    }
+
+    private static CipherEnvelope hkdf() {
+        return CipherEnvelope.builder()
+                .kdf(Kdf.HKDF)
+                .iterations(210_000)
+                .salt(bytes(16, 1))
+                .iv(bytes(12, 50))
+                .ciphertext(bytes(40, 100))
+                .build();
+    }
+
+    private static CipherEnvelope raw() {
+        return CipherEnvelope.builder()
+                .kdf(Kdf.RAW)
+                .iv(bytes(12, 7))
+                .ciphertext(bytes(20, 9))
+                .build();
+    }
+
+    @Test
+    void salted_roundTrip() {
+        CipherEnvelope env = hkdf();
+
+        byte[] encoded = CipherEnvelopeCodec.encode(env);
+        CipherEnvelope back = CipherEnvelopeCodec.decode(encoded);
+
+        assertEquals(CipherEnvelopeCodec.encodedLength(env), encoded.length);
+        assertEquals(CipherEnvelopeCodec.VERSION, back.getVersion());
+        assertEquals(Kdf.HKDF, back.getKdf());
+        assertEquals(210_000, (int) back.getIterations());
+        assertArrayEquals(env.getSalt(), back.getSalt());
+        assertArrayEquals(env.getIv(), back.getIv());
+        assertArrayEquals(env.getCiphertext(), back.getCiphertext());
+    }
+
+    @Test
+    void raw_roundTrip_isSmallerThanTextForm() {
+        CipherEnvelope env = raw();
+
+        byte[] encoded = CipherEnvelopeCodec.encode(env);
+        CipherEnvelope back = CipherEnvelopeCodec.decode(encoded);
+
+        assertEquals(Kdf.RAW, back.getKdf());
+        assertNull(back.getSalt());
+        assertArrayEquals(env.getCiphertext(), back.getCiphertext());
+        assertTrue(encoded.length < env.toString().length());
+    }
+
+    @Test
+    void streamingWriter_matchesEncode() throws IOException {
+        var out = new ByteArrayOutputStream();
+        CipherEnvelopeCodec.write(hkdf(), out);
+
+        assertArrayEquals(CipherEnvelopeCodec.encode(hkdf()), out.toByteArray());
+    }
+
+    @Test
+    void decode_readsFromBufferSlice() {
+        byte[] encoded = CipherEnvelopeCodec.encode(raw());
+        var buf = ByteBuffer.allocate(encoded.length + 8);
+        buf.position(8);
+        buf.put(encoded);
+        buf.position(8);
+
+        CipherEnvelope back = CipherEnvelopeCodec.decode(buf);
+
+        assertArrayEquals(raw().getIv(), back.getIv());
+        assertFalse(buf.hasRemaining());
+    }
+
+    @Test
+    void decoded_envelope_keepsTextForm() {
+        CipherEnvelope back = CipherEnvelopeCodec.decode(CipherEnvelopeCodec.encode(hkdf()));
+
+        CipherEnvelope parsed = CipherEnvelope.parse(back.toString());
+
+        assertArrayEquals(back.getCiphertext(), parsed.getCiphertext());
+    }
+
+    @Test
+    void keyId_roundTrips_and_costsOneByte() {
+        CipherEnvelope env = CipherEnvelope.builder()
+                .kdf(Kdf.RAW)
+                .iv(bytes(12, 7))
+                .ciphertext(bytes(20, 9))
+                .keyId(200)
+                .build();
+
+        byte[] encoded = CipherEnvelopeCodec.encode(env);
+
+        assertEquals(CipherEnvelopeCodec.encode(raw()).length + 1, encoded.length);
+        assertEquals(200, CipherEnvelopeCodec.decode(encoded).getKeyId());
+        assertEquals(0, CipherEnvelopeCodec.decode(CipherEnvelopeCodec.encode(raw())).getKeyId());
+    }
+
+    @Test
+    void truncatedOrUnknownInput_isRejected() {
+        byte[] encoded = CipherEnvelopeCodec.encode(hkdf());
+
+        assertThrows(CryptoException.class, () -> CipherEnvelopeCodec.decode(new byte[]{2, 0, 1, 0}));
+        assertThrows(CryptoException.class, () -> CipherEnvelopeCodec.decode(java.util.Arrays.copyOf(encoded, 25)));
+        byte[] badFormat = encoded.clone();
+        badFormat[0] = 1;
+        assertThrows(CryptoException.class, () -> CipherEnvelopeCodec.decode(badFormat));
+        byte[] badFlags = encoded.clone();
+        badFlags[1] = 2;
+        assertThrows(CryptoException.class, () -> CipherEnvelopeCodec.decode(badFlags));
+        byte[] badKdf = encoded.clone();
+        badKdf[2] = 9;
+        assertThrows(CryptoException.class, () -> CipherEnvelopeCodec.decode(badKdf));
+    }
+}
@@ -0,0 +1,80 @@
+package ludo.mentis.aciem.ecm.model;
+
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CipherEnvelopeMapperTest {
+
+    private static CipherEnvelope pbkdf2(int ciphertextLength) {
+        return CipherEnvelope.builder()
+                .kdf(Kdf.PBKDF2)
+                .iterations(210_000)
+                .salt(new byte[16])
+                .iv(new byte[12])
+                .ciphertext(new byte[ciphertextLength])
+                .build();
+    }
+
+    @Test
+    void columnLayout_roundTrip() {
+        CipherEnvelopeEntity e = CipherEnvelopeMapper.toEntity(pbkdf2(20));
+
+        assertThat(e.getEnvelope()).isNull();
+        assertThat(e.getVersion()).isEqualTo("v1");
+        assertThat(e.getCiphertext()).hasSize(20);
+        assertThat(CipherEnvelopeMapper.toModel(e).getIterations()).isEqualTo(210_000);
+    }
+
+    @Test
+    void binaryLayout_usesSingleColumn_and_keepsKdf() {
+        CipherEnvelopeEntity e = CipherEnvelopeMapper.toEntity(pbkdf2(20), true);
+
+        assertThat(e.getEnvelope()).isNotNull();
+        assertThat(e.getVersion()).isEqualTo(CipherEnvelopeCodec.VERSION);
+        assertThat(e.getKdf()).isEqualTo(Kdf.PBKDF2);
+        assertThat(e.getSalt()).isNull();
+        assertThat(e.getIv()).isNull();
+        assertThat(e.getCiphertext()).isNull();
+
+        CipherEnvelope back = CipherEnvelopeMapper.toModel(e);
+        assertThat(back.getKdf()).isEqualTo(Kdf.PBKDF2);
+        assertThat(back.getCiphertext()).hasSize(20);
+    }
+
+    @Test
+    void binaryLayout_fallsBackToColumns_whenTooLarge() {
+        CipherEnvelopeEntity e = CipherEnvelopeMapper.toEntity(pbkdf2(CipherEnvelopeEntity.ENVELOPE_MAX_BYTES), true);
+
+        assertThat(e.getEnvelope()).isNull();
+        assertThat(e.getCiphertext()).hasSize(CipherEnvelopeEntity.ENVELOPE_MAX_BYTES);
+    }
+
+    @Test
+    void updateEntity_switchingLayouts_clearsTheOtherOne() {
+        CipherEnvelopeEntity e = CipherEnvelopeMapper.toEntity(pbkdf2(20), true);
+
+        CipherEnvelopeMapper.updateEntity(pbkdf2(30), e, false);
+
+        assertThat(e.getEnvelope()).isNull();
+        assertThat(CipherEnvelopeMapper.toModel(e).getCiphertext()).hasSize(30);
+    }
+
+    @Test
+    void keyId_isStored_and_missingKeyIdReadsAsZero() {
+        CipherEnvelope env = CipherEnvelope.builder()
+                .kdf(Kdf.RAW)
+                .iv(new byte[12])
+                .ciphertext(new byte[16])
+                .keyId(3)
+                .build();
+        CipherEnvelopeEntity e = CipherEnvelopeMapper.toEntity(env);
+
+        assertThat(e.getKeyId()).isEqualTo(3);
+        assertThat(CipherEnvelopeMapper.toModel(e).getKeyId()).isEqualTo(3);
+
+        e.setKeyId(null);
+        assertThat(CipherEnvelopeMapper.toModel(e).getKeyId()).isZero();
+    }
+}
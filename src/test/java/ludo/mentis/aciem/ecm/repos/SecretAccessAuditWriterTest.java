@@ -0,0 +1,42 @@
+package ludo.mentis.aciem.ecm.repos;
+
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SecretAccessAuditWriterTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void write_cutsValuesToTheColumnWidths() throws Exception {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var event = new SecretAccessEvent(LocalDateTime.now(), "A".repeat(60), Environment.DEV,
+                CredentialType.DATABASE, "u".repeat(300), "c".repeat(50), null, "127.0.0.1", AuditOutcome.NOT_FOUND);
+
+        new SecretAccessAuditWriter(jdbcTemplate).write(List.of(event));
+
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<SecretAccessEvent>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList(), anyInt(), setter.capture());
+        var ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, event);
+        verify(ps).setString(2, "A".repeat(45));
+        verify(ps).setString(5, "u".repeat(255));
+        verify(ps).setString(6, "c".repeat(45));
+        verify(ps).setString(8, "127.0.0.1");
+    }
+}
@@ -0,0 +1,80 @@
+package ludo.mentis.aciem.ecm.rest;
+
+import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.ApiAccessToken;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.TokenResponse;
+import ludo.mentis.aciem.ecm.rest.filter.ApiKeyAuthFilter;
+import ludo.mentis.aciem.ecm.service.ApiTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ApiTokenRestControllerTest {
+
+    private static final ApiAccessToken TOKEN =
+            new ApiAccessToken("id", "client", 3L, 9L, Environment.DEV, null, 1L, 2L);
+
+    private ApiTokenService apiTokenService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        apiTokenService = Mockito.mock(ApiTokenService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ApiTokenRestController(apiTokenService)).build();
+    }
+
+    @Test
+    void issue_withApiKey_returnsToken() throws Exception {
+        when(apiTokenService.issue(3L)).thenReturn(new TokenResponse("abc.def", "Bearer", 300L, null));
+
+        mockMvc.perform(post("/api/v1/token").requestAttr(ApiKeyAuthFilter.ATTR_API_KEY_ID, 3L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").value("abc.def"))
+                .andExpect(jsonPath("$.tokenType").value("Bearer"))
+                .andExpect(jsonPath("$.expiresIn").value(300));
+    }
+
+    @Test
+    void issue_withAccessToken_returns403() throws Exception {
+        mockMvc.perform(post("/api/v1/token")
+                        .requestAttr(ApiKeyAuthFilter.ATTR_API_KEY_ID, 3L)
+                        .requestAttr(ApiKeyAuthFilter.ATTR_ACCESS_TOKEN, TOKEN))
+                .andExpect(status().isForbidden());
+
+        verify(apiTokenService, never()).issue(any());
+    }
+
+    @Test
+    void issue_forDeletedKey_returns401() throws Exception {
+        when(apiTokenService.issue(3L)).thenThrow(new NotFoundException());
+
+        mockMvc.perform(post("/api/v1/token").requestAttr(ApiKeyAuthFilter.ATTR_API_KEY_ID, 3L))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void revoke_withAccessToken_returns204() throws Exception {
+        mockMvc.perform(delete("/api/v1/token").requestAttr(ApiKeyAuthFilter.ATTR_ACCESS_TOKEN, TOKEN))
+                .andExpect(status().isNoContent());
+
+        verify(apiTokenService).revoke(TOKEN);
+    }
+
+    @Test
+    void revoke_withoutAccessToken_returns400() throws Exception {
+        mockMvc.perform(delete("/api/v1/token").requestAttr(ApiKeyAuthFilter.ATTR_API_KEY_ID, 3L))
+                .andExpect(status().isBadRequest());
+    }
+}
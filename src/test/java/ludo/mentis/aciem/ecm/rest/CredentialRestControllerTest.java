@@ -1,34 +1,52 @@
 package ludo.mentis.aciem.ecm.rest;
 
+import ludo.mentis.aciem.ecm.exception.CryptoBusyException;
 import ludo.mentis.aciem.ecm.exception.NotFoundException;
 import ludo.mentis.aciem.ecm.model.CredentialType;
 import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.BulkPasswordItem;
+import ludo.mentis.aciem.ecm.model.PasswordRequest;
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import ludo.mentis.aciem.ecm.rest.filter.ApiKeyAuthFilter;
 import ludo.mentis.aciem.ecm.service.CredentialRestService;
+import ludo.mentis.aciem.ecm.service.SecretAccessAuditService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class CredentialRestControllerTest {
 
     private CredentialRestService credentialRestService;
+    private SecretAccessAuditService auditService;
     private MockMvc mockMvc;
 
     @BeforeEach
     void setup() {
         credentialRestService = Mockito.mock(CredentialRestService.class);
-        var controller = new CredentialRestController(credentialRestService);
+        auditService = Mockito.mock(SecretAccessAuditService.class);
+        var controller = new CredentialRestController(credentialRestService, auditService);
 
         LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
         validator.afterPropertiesSet();
@@ -38,11 +56,19 @@ class CredentialRestControllerTest {
                 .build();
     }
 
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        var result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
     @Test
     void getPassword_shouldReturn200WithPassword_whenFound() throws Exception {
-        when(credentialRestService.getPassword(any())).thenReturn(Optional.of("s3cr3t!"));
+        when(credentialRestService.getPasswordAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of("s3cr3t!")));
 
-        mockMvc.perform(get("/api/v1/credential")
+        performAsync(get("/api/v1/credential")
                         .param("appCode", "ERP")
                         .param("environment", Environment.DEV.name())
                         .param("credentialType", CredentialType.DATABASE.name())
@@ -55,9 +81,10 @@ class CredentialRestControllerTest {
 
     @Test
     void getPassword_shouldReturn404_whenOptionalEmpty() throws Exception {
-        when(credentialRestService.getPassword(any())).thenReturn(Optional.empty());
+        when(credentialRestService.getPasswordAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
-        mockMvc.perform(get("/api/v1/credential")
+        performAsync(get("/api/v1/credential")
                         .param("appCode", "ERP")
                         .param("environment", Environment.QA.name())
                         .param("credentialType", CredentialType.API_KEY.name())
@@ -67,7 +94,7 @@ class CredentialRestControllerTest {
 
     @Test
     void getPassword_shouldReturn404_withExceptionBody_whenNotFoundExceptionThrown() throws Exception {
-        when(credentialRestService.getPassword(any())).thenThrow(new NotFoundException("Business app not found with code: `ERP`."));
+        when(credentialRestService.getPasswordAsync(any())).thenThrow(new NotFoundException("Business app not found with code: `ERP`."));
 
         mockMvc.perform(get("/api/v1/credential")
                         .param("appCode", "ERP")
@@ -94,7 +121,7 @@ class CredentialRestControllerTest {
 
     @Test
     void getPassword_shouldReturn500_withGenericMessage_whenUnexpectedException() throws Exception {
-        when(credentialRestService.getPassword(any())).thenThrow(new RuntimeException("boom"));
+        when(credentialRestService.getPasswordAsync(any())).thenThrow(new RuntimeException("boom"));
 
         mockMvc.perform(get("/api/v1/credential")
                         .param("appCode", "ERP")
@@ -105,4 +132,143 @@ class CredentialRestControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.exception").value("Internal server error. Check server logs for details."));
     }
+
+    @Test
+    void getPassword_shouldReturn503WithRetryAfter_whenCryptoExecutorSaturated() throws Exception {
+        when(credentialRestService.getPasswordAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new CryptoBusyException("busy", Duration.ofSeconds(3))));
+
+        performAsync(get("/api/v1/credential")
+                        .param("appCode", "ERP")
+                        .param("environment", Environment.DEV.name())
+                        .param("credentialType", CredentialType.DATABASE.name())
+                        .param("username", "john"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.exception").value("Server busy, retry later."))
+                .andExpect(jsonPath("$.password").doesNotExist());
+    }
+
+    @Test
+    void getPassword_recordsAuditEvent_withCallerAndOutcome() throws Exception {
+        when(credentialRestService.getPasswordAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of("s3cr3t!")));
+
+        performAsync(get("/api/v1/credential")
+                        .param("appCode", "ERP")
+                        .param("environment", Environment.DEV.name())
+                        .param("credentialType", CredentialType.DATABASE.name())
+                        .param("username", "john")
+                        .requestAttr(ApiKeyAuthFilter.ATTR_CLIENT_ID, "client")
+                        .requestAttr(ApiKeyAuthFilter.ATTR_API_KEY_ID, 3L))
+                .andExpect(status().isOk());
+
+        var captor = ArgumentCaptor.forClass(SecretAccessEvent.class);
+        verify(auditService).record(captor.capture());
+        var event = captor.getValue();
+        assertThat(event.appCode()).isEqualTo("ERP");
+        assertThat(event.username()).isEqualTo("john");
+        assertThat(event.clientId()).isEqualTo("client");
+        assertThat(event.apiKeyId()).isEqualTo(3L);
+        assertThat(event.remoteAddr()).isEqualTo("127.0.0.1");
+        assertThat(event.outcome()).isEqualTo(AuditOutcome.GRANTED);
+    }
+
+    @Test
+    void getPassword_recordsAuditEvent_whenLookupThrows() throws Exception {
+        when(credentialRestService.getPasswordAsync(any())).thenThrow(new NotFoundException("missing"));
+
+        mockMvc.perform(get("/api/v1/credential")
+                        .param("appCode", "ERP")
+                        .param("environment", Environment.PROD.name())
+                        .param("credentialType", CredentialType.WINDOWS.name())
+                        .param("username", "bob"))
+                .andExpect(status().isNotFound());
+
+        var captor = ArgumentCaptor.forClass(SecretAccessEvent.class);
+        verify(auditService).record(captor.capture());
+        assertThat(captor.getValue().outcome()).isEqualTo(AuditOutcome.NOT_FOUND);
+    }
+
+    @Test
+    void getPassword_recordsBusyOutcome_whenCryptoExecutorSaturated() throws Exception {
+        when(credentialRestService.getPasswordAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new CryptoBusyException("busy", Duration.ofSeconds(1))));
+
+        performAsync(get("/api/v1/credential")
+                        .param("appCode", "ERP")
+                        .param("environment", Environment.DEV.name())
+                        .param("credentialType", CredentialType.DATABASE.name())
+                        .param("username", "john"))
+                .andExpect(status().isServiceUnavailable());
+
+        var captor = ArgumentCaptor.forClass(SecretAccessEvent.class);
+        verify(auditService).record(captor.capture());
+        assertThat(captor.getValue().outcome()).isEqualTo(AuditOutcome.BUSY);
+    }
+
+    private static final String BULK_BODY = """
+            {"items": [
+              {"appCode": "ERP", "environment": "DEV", "credentialType": "DATABASE", "username": "john"},
+              {"appCode": "ERP", "environment": "PROD", "credentialType": "DATABASE", "username": "john"}
+            ]}
+            """;
+
+    @Test
+    void getPasswords_shouldReturn200WithPerItemResults() throws Exception {
+        var granted = new PasswordRequest("ERP", Environment.DEV, CredentialType.DATABASE, "john");
+        var missing = new PasswordRequest("ERP", Environment.PROD, CredentialType.DATABASE, "john");
+        when(credentialRestService.getPasswordsAsync(List.of(granted, missing)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        BulkPasswordItem.granted(granted, "s3cr3t!"),
+                        BulkPasswordItem.failed(missing, AuditOutcome.NOT_FOUND, "Credential not found."))));
+
+        performAsync(post("/api/v1/credential/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BULK_BODY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].password").value("s3cr3t!"))
+                .andExpect(jsonPath("$.items[0].outcome").value("GRANTED"))
+                .andExpect(jsonPath("$.items[1].password").doesNotExist())
+                .andExpect(jsonPath("$.items[1].outcome").value("NOT_FOUND"));
+
+        var captor = ArgumentCaptor.forClass(SecretAccessEvent.class);
+        verify(auditService, times(2)).record(captor.capture());
+        assertThat(captor.getAllValues()).extracting(SecretAccessEvent::outcome)
+                .containsExactly(AuditOutcome.GRANTED, AuditOutcome.NOT_FOUND);
+    }
+
+    @Test
+    void getPasswords_shouldReturn400_whenItemsEmptyOrInvalid() throws Exception {
+        mockMvc.perform(post("/api/v1/credential/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.validationErrors.items").exists());
+
+        mockMvc.perform(post("/api/v1/credential/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\": [{\"environment\": \"DEV\", \"credentialType\": \"DATABASE\"}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.validationErrors['items[0].appCode']").exists());
+
+        verifyNoInteractions(credentialRestService);
+    }
+
+    @Test
+    void getPasswords_shouldReturn503AndAuditEveryItem_whenCryptoExecutorSaturated() throws Exception {
+        when(credentialRestService.getPasswordsAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new CryptoBusyException("busy", Duration.ofSeconds(2))));
+
+        performAsync(post("/api/v1/credential/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BULK_BODY))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+
+        var captor = ArgumentCaptor.forClass(SecretAccessEvent.class);
+        verify(auditService, times(2)).record(captor.capture());
+        assertThat(captor.getAllValues()).extracting(SecretAccessEvent::outcome)
+                .containsOnly(AuditOutcome.BUSY);
+    }
 }
@@ -1,10 +1,21 @@
 package ludo.mentis.aciem.ecm.rest.filter;
 
 import jakarta.servlet.ServletException;
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
 import ludo.mentis.aciem.ecm.domain.ApiKey;
+import ludo.mentis.aciem.ecm.domain.BusinessApp;
 import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.exception.CryptoBusyException;
+import ludo.mentis.aciem.ecm.model.ApiAccessToken;
+import ludo.mentis.aciem.ecm.model.Environment;
 import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
+import ludo.mentis.aciem.ecm.service.ApiKeySecretHasher;
+import ludo.mentis.aciem.ecm.service.ApiKeyVerificationCache;
+import ludo.mentis.aciem.ecm.service.ApiTokenService;
+import ludo.mentis.aciem.ecm.service.ApiTokenServiceImpl;
 import ludo.mentis.aciem.ecm.service.PasswordService;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoExecutor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -14,23 +25,63 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
 class ApiKeyAuthFilterTest {
 
     private ApiKeyRepository apiKeyRepository;
     private PasswordService passwordService;
+    private CryptoExecutor cryptoExecutor;
+    private ApiKeyVerificationCache verificationCache;
+    private ApiKeySecretHasher secretHasher;
+    private HostResolver hostResolver;
+    private ApiTokenService tokenService;
     private ApiKeyAuthFilter filter;
+    private MockHttpServletRequest lastRequest;
 
     @BeforeEach
     void setup() {
         apiKeyRepository = Mockito.mock(ApiKeyRepository.class);
         passwordService = Mockito.mock(PasswordService.class);
-        filter = new ApiKeyAuthFilter(apiKeyRepository, passwordService);
+        cryptoExecutor = new CryptoExecutor(1, 4, Duration.ofSeconds(2));
+        verificationCache = new ApiKeyVerificationCache(new ApiKeyProperties());
+        var apiKeyProperties = new ApiKeyProperties();
+        apiKeyProperties.setPepper("0123456789abcdef0123456789abcdef");
+        secretHasher = new ApiKeySecretHasher(apiKeyProperties);
+        hostResolver = new HostResolver(Duration.ofMinutes(5), ApiKeyAuthFilterTest::lookup, Runnable::run,
+                System::nanoTime, null);
+        tokenService = new ApiTokenServiceImpl(apiKeyRepository, apiKeyProperties);
+        filter = new ApiKeyAuthFilter(apiKeyRepository, passwordService, cryptoExecutor, verificationCache,
+                secretHasher, new ApiRateLimiter(new ApiKeyProperties()), hostResolver, tokenService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cryptoExecutor.close();
+    }
+
+    private static InetAddress[] lookup(String host) throws UnknownHostException {
+        return switch (host) {
+            case "client.host" -> new InetAddress[]{InetAddress.getByAddress(host, new byte[]{127, 0, 0, 1})};
+            case "allowed.host" -> new InetAddress[]{InetAddress.getByAddress(host, new byte[]{10, 0, 0, 1})};
+            default -> throw new UnknownHostException(host);
+        };
+    }
+
+    private void stubStoredSecret(ApiKey key, String secret) {
+        when(passwordService.matchesPassword(eq(key.getCipherEnvelope()), any(byte[].class)))
+                .thenAnswer(inv -> secret.equals(new String((byte[]) inv.getArgument(1), StandardCharsets.UTF_8)));
     }
 
     @Test
@@ -93,7 +144,8 @@ class ApiKeyAuthFilterTest {
         ApiKey key = new ApiKey();
         key.setCipherEnvelope(new CipherEnvelopeEntity());
         when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
-        when(passwordService.decryptPasswordFromEntity(key.getCipherEnvelope())).thenThrow(new RuntimeException("dec error"));
+        when(passwordService.matchesPassword(eq(key.getCipherEnvelope()), any(byte[].class)))
+                .thenThrow(new RuntimeException("dec error"));
 
         filter.doFilter(request, response, new MockFilterChain());
 
@@ -101,6 +153,30 @@ class ApiKeyAuthFilterTest {
         assertThat(response.getContentAsString()).contains("Internal server error while validating API key.");
     }
 
+    @Test
+    void cryptoExecutorSaturated_shouldReturn503WithRetryAfter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
+        request.addHeader("X-API-KEY", "secret");
+        request.addHeader("X-API-CLIENT-ID", "client");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ApiKey key = new ApiKey();
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        var busyExecutor = Mockito.mock(CryptoExecutor.class);
+        when(busyExecutor.call(any())).thenThrow(new CryptoBusyException("busy", Duration.ofMillis(1500)));
+        var busyFilter = new ApiKeyAuthFilter(apiKeyRepository, passwordService, busyExecutor,
+                verificationCache, secretHasher, new ApiRateLimiter(new ApiKeyProperties()), hostResolver, tokenService);
+
+        MockFilterChain chain = new MockFilterChain();
+        busyFilter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(chain.getRequest()).isNull();
+        Mockito.verifyNoInteractions(passwordService);
+    }
+
     @Test
     void mismatchedSecret_shouldReturn401() throws ServletException, IOException {
         MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
@@ -111,7 +187,7 @@ class ApiKeyAuthFilterTest {
         ApiKey key = new ApiKey();
         key.setCipherEnvelope(new CipherEnvelopeEntity());
         when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
-        when(passwordService.decryptPasswordFromEntity(key.getCipherEnvelope())).thenReturn("actual");
+        stubStoredSecret(key, "actual");
 
         filter.doFilter(request, response, new MockFilterChain());
 
@@ -124,14 +200,14 @@ class ApiKeyAuthFilterTest {
         MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
         request.addHeader("X-API-KEY", "secret");
         request.addHeader("X-API-CLIENT-ID", "client");
-        request.setRemoteHost("other.host");
+        request.setRemoteAddr("192.0.2.10");
         MockHttpServletResponse response = new MockHttpServletResponse();
 
         ApiKey key = new ApiKey();
         key.setCipherEnvelope(new CipherEnvelopeEntity());
         key.setServer("allowed.host");
         when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
-        when(passwordService.decryptPasswordFromEntity(key.getCipherEnvelope())).thenReturn("secret");
+        stubStoredSecret(key, "secret");
 
         filter.doFilter(request, response, new MockFilterChain());
 
@@ -144,14 +220,13 @@ class ApiKeyAuthFilterTest {
         MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
         request.addHeader("X-API-KEY", "secret");
         request.addHeader("X-API-CLIENT-ID", "client");
-        request.setRemoteHost("client.host");
         MockHttpServletResponse response = new MockHttpServletResponse();
 
         ApiKey key = new ApiKey();
         key.setCipherEnvelope(new CipherEnvelopeEntity());
-        key.setServer("CLIENT.HOST"); // case-insensitive match
+        key.setServer("CLIENT.HOST"); // hostnames are case-insensitive and resolve to 127.0.0.1
         when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
-        when(passwordService.decryptPasswordFromEntity(key.getCipherEnvelope())).thenReturn("secret");
+        stubStoredSecret(key, "secret");
 
         MockFilterChain chain = new MockFilterChain();
         filter.doFilter(request, response, chain);
@@ -162,4 +237,229 @@ class ApiKeyAuthFilterTest {
         // Also assert repository was queried with the provided client id
         Mockito.verify(apiKeyRepository).findByClientId(anyString());
     }
+
+    private MockHttpServletResponse call(String clientId, String apiKey) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
+        request.addHeader("X-API-KEY", apiKey);
+        request.addHeader("X-API-CLIENT-ID", clientId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void repeatCaller_isServedFromVerificationCache() throws ServletException, IOException {
+        ApiKey key = new ApiKey();
+        key.setId(3L);
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        key.setServer("client.host");
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        stubStoredSecret(key, "secret");
+
+        assertThat(call("client", "secret").getStatus()).isEqualTo(200);
+        assertThat(call("client", "secret").getStatus()).isEqualTo(200);
+
+        Mockito.verify(apiKeyRepository, times(1)).findByClientId("client");
+        Mockito.verify(passwordService, times(1)).matchesPassword(any(), any(byte[].class));
+        assertThat(verificationCache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedClient_withDifferentKey_isVerifiedAgain() throws ServletException, IOException {
+        ApiKey key = new ApiKey();
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        stubStoredSecret(key, "secret");
+
+        assertThat(call("client", "secret").getStatus()).isEqualTo(200);
+        assertThat(call("client", "guess").getStatus()).isEqualTo(401);
+
+        Mockito.verify(apiKeyRepository, times(2)).findByClientId("client");
+    }
+
+    @Test
+    void cachedVerification_stillEnforcesServerRestriction() throws ServletException, IOException {
+        var digest = verificationCache.digest("secret".getBytes(StandardCharsets.UTF_8));
+        verificationCache.put("client", digest, 3L, "allowed.host");
+
+        var response = call("client", "secret");
+
+        assertThat(response.getStatus()).isEqualTo(403);
+        Mockito.verifyNoInteractions(apiKeyRepository, passwordService);
+    }
+
+    @Test
+    void hashedSecret_isVerifiedWithoutDecryption() throws ServletException, IOException {
+        ApiKey key = new ApiKey();
+        key.setSecretHash(secretHasher.hash("secret"));
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+
+        assertThat(call("client", "secret").getStatus()).isEqualTo(200);
+        verificationCache.clear();
+        assertThat(call("client", "wrong").getStatus()).isEqualTo(401);
+        Mockito.verifyNoInteractions(passwordService);
+    }
+
+    @Test
+    void unknownClient_isRejectedFromNegativeCache_onRetry() throws ServletException, IOException {
+        when(apiKeyRepository.findByClientId("ghost")).thenReturn(Optional.empty());
+
+        assertThat(call("ghost", "secret").getStatus()).isEqualTo(401);
+        assertThat(call("ghost", "secret").getStatus()).isEqualTo(401);
+
+        Mockito.verify(apiKeyRepository, times(1)).findByClientId("ghost");
+    }
+
+    @Test
+    void repeatedWrongKey_isRejectedWithoutDecrypting() throws ServletException, IOException {
+        ApiKey key = new ApiKey();
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        stubStoredSecret(key, "secret");
+
+        assertThat(call("client", "guess").getStatus()).isEqualTo(401);
+        assertThat(call("client", "guess").getStatus()).isEqualTo(401);
+        assertThat(call("client", "secret").getStatus()).isEqualTo(200);
+
+        Mockito.verify(passwordService, times(2)).matchesPassword(any(), any(byte[].class));
+    }
+
+    @Test
+    void rateLimitedAddress_shouldReturn429_beforeAnyLookup() throws ServletException, IOException {
+        var properties = new ApiKeyProperties();
+        properties.setRateLimitPerAddress(1);
+        properties.setRateLimitBurst(1);
+        filter = new ApiKeyAuthFilter(apiKeyRepository, passwordService, cryptoExecutor, verificationCache,
+                secretHasher, new ApiRateLimiter(properties), hostResolver, tokenService);
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.empty());
+
+        assertThat(call("client", "secret").getStatus()).isEqualTo(401);
+        var limited = call("client", "secret");
+
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(limited.getHeader("Retry-After")).isEqualTo("1");
+        Mockito.verify(apiKeyRepository, times(1)).findByClientId("client");
+    }
+
+    @Test
+    void guessingKeysFromOtherAddress_doesNotRateLimitRealClient() throws ServletException, IOException {
+        var properties = new ApiKeyProperties();
+        properties.setRateLimitPerClient(1);
+        properties.setRateLimitBurst(1);
+        filter = new ApiKeyAuthFilter(apiKeyRepository, passwordService, cryptoExecutor, verificationCache,
+                secretHasher, new ApiRateLimiter(properties), hostResolver, tokenService);
+        ApiKey key = new ApiKey();
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        stubStoredSecret(key, "secret");
+
+        assertThat(callFrom("10.9.9.9", "guess-1").getStatus()).isEqualTo(401);
+        assertThat(callFrom("10.9.9.9", "guess-2").getStatus()).isEqualTo(429);
+
+        assertThat(callFrom("10.1.0.5").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void cidrRestriction_isMatchedAgainstRemoteAddress() throws ServletException, IOException {
+        ApiKey key = new ApiKey();
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        key.setServer("10.1.0.0/16, 2001:db8::/32");
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        stubStoredSecret(key, "secret");
+
+        assertThat(callFrom("10.1.200.3").getStatus()).isEqualTo(200);
+        assertThat(callFrom("2001:db8:0:0:0:0:0:7").getStatus()).isEqualTo(200);
+        assertThat(callFrom("10.2.0.1").getStatus()).isEqualTo(403);
+    }
+
+    @Test
+    void hostnameStillResolving_shouldReturn503WithRetryAfter() throws ServletException, IOException {
+        hostResolver = new HostResolver(Duration.ofMinutes(5), ApiKeyAuthFilterTest::lookup, task -> { },
+                System::nanoTime, null);
+        filter = new ApiKeyAuthFilter(apiKeyRepository, passwordService, cryptoExecutor, verificationCache,
+                secretHasher, new ApiRateLimiter(new ApiKeyProperties()), hostResolver, tokenService);
+        ApiKey key = new ApiKey();
+        key.setCipherEnvelope(new CipherEnvelopeEntity());
+        key.setServer("client.host");
+        when(apiKeyRepository.findByClientId("client")).thenReturn(Optional.of(key));
+        stubStoredSecret(key, "secret");
+
+        var response = call("client", "secret");
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+    }
+
+    private String issueToken(String server) {
+        var app = new BusinessApp("ERP", "Erp");
+        app.setId(9L);
+        ApiKey key = new ApiKey();
+        key.setId(3L);
+        key.setApplication(app);
+        key.setEnvironment(Environment.PROD);
+        key.setClientId("client");
+        key.setServer(server);
+        when(apiKeyRepository.findById(3L)).thenReturn(Optional.of(key));
+        var token = tokenService.issue(3L).accessToken();
+        Mockito.clearInvocations(apiKeyRepository);
+        return token;
+    }
+
+    private MockHttpServletResponse callWithToken(String token) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        lastRequest = request;
+        return response;
+    }
+
+    @Test
+    void validAccessToken_isAcceptedWithoutRepositoryOrCrypto() throws ServletException, IOException {
+        var token = issueToken("127.0.0.1");
+
+        var response = callWithToken(token);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(lastRequest.getAttribute(ApiKeyAuthFilter.ATTR_API_KEY_ID)).isEqualTo(3L);
+        assertThat(lastRequest.getAttribute(ApiKeyAuthFilter.ATTR_ACCESS_TOKEN))
+                .isInstanceOfSatisfying(ApiAccessToken.class, t -> {
+                    assertThat(t.applicationId()).isEqualTo(9L);
+                    assertThat(t.environment()).isEqualTo(Environment.PROD);
+                });
+        Mockito.verifyNoInteractions(apiKeyRepository, passwordService);
+    }
+
+    @Test
+    void tamperedOrRevokedAccessToken_shouldReturn401() throws ServletException, IOException {
+        var token = issueToken(null);
+
+        assertThat(callWithToken(token + "x").getStatus()).isEqualTo(401);
+        tokenService.revokeClient("client");
+        var response = callWithToken(token);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentAsString()).contains(ApiKeyAuthFilter.INVALID_TOKEN_MESSAGE);
+    }
+
+    @Test
+    void accessToken_stillEnforcesServerRestriction() throws ServletException, IOException {
+        var token = issueToken("allowed.host");
+
+        assertThat(callWithToken(token).getStatus()).isEqualTo(403);
+    }
+
+    private MockHttpServletResponse callFrom(String remoteAddr) throws ServletException, IOException {
+        return callFrom(remoteAddr, "secret");
+    }
+
+    private MockHttpServletResponse callFrom(String remoteAddr, String apiKey) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/secure");
+        request.addHeader("X-API-KEY", apiKey);
+        request.addHeader("X-API-CLIENT-ID", "client");
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
 }
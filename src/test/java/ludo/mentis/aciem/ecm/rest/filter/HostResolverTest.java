@@ -0,0 +1,145 @@
+package ludo.mentis.aciem.ecm.rest.filter;
+
+import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HostResolverTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private InetAddress[] lookup(String host) throws UnknownHostException {
+        lookups.incrementAndGet();
+        if (host.equals("app.example.com")) {
+            return new InetAddress[]{InetAddress.getByAddress(host, new byte[]{10, 0, 0, 7})};
+        }
+        throw new UnknownHostException(host);
+    }
+
+    private HostResolver resolver() {
+        return new HostResolver(Duration.ofMinutes(5), this::lookup, Runnable::run, clock::get, null);
+    }
+
+    private static byte[] ip(String s) {
+        return HostMatcher.parseAddress(s);
+    }
+
+    @Test
+    void blankRestriction_allowsAnyAddress() {
+        assertThat(resolver().matcher(null).matches(ip("192.0.2.1"))).isTrue();
+        assertThat(resolver().matcher(" ").matches(null)).isTrue();
+    }
+
+    @Test
+    void addressesAndRanges_areMatchedWithoutLookups() {
+        var matcher = resolver().matcher("192.0.2.10, 10.1.0.0/16, 2001:db8::/32");
+
+        assertThat(matcher.matches(ip("192.0.2.10"))).isTrue();
+        assertThat(matcher.matches(ip("10.1.255.1"))).isTrue();
+        assertThat(matcher.matches(ip("2001:db8:0:0:0:0:0:1"))).isTrue();
+        assertThat(matcher.matches(ip("::ffff:10.1.0.1"))).isTrue();
+        assertThat(matcher.matches(ip("10.2.0.1"))).isFalse();
+        assertThat(matcher.matches(ip("2001:db9:0:0:0:0:0:1"))).isFalse();
+        assertThat(matcher.matches(null)).isFalse();
+        assertThat(lookups).hasValue(0);
+    }
+
+    @Test
+    void parseAddress_neverTreatsHostnamesAsAddresses() {
+        assertThat(ip("app.example.com")).isNull();
+        assertThat(ip("256.0.0.1")).isNull();
+        assertThat(ip("[::1]")).hasSize(16);
+        assertThat(ip("host:8080")).isNull();
+        assertThat(ip("[app.example.com]:443")).isNull();
+        assertThat(ip(".:")).isNull();
+        assertThat(ip("fe80::1%eth0")).hasSize(16);
+    }
+
+    @Test
+    void validate_rejectsEntriesTheFilterCannotMatch() {
+        HostResolver.validate("192.0.2.10, 10.1.0.0/16, 2001:db8::/32, app.example.com");
+        HostResolver.validate(null);
+
+        assertThatThrownBy(() -> HostResolver.validate("host:8080"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HostResolver.validate("10.1.0.0/33"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HostResolver.validate("app.example.com/24"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void hostname_isResolvedOnce_andMatchedCaseInsensitively() {
+        var resolver = resolver();
+        var matcher = resolver.matcher("App.Example.COM");
+
+        assertThat(matcher.matches(ip("10.0.0.7"))).isTrue();
+        assertThat(resolver.matcher("App.Example.COM").matches(ip("10.0.0.8"))).isFalse();
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void hostname_isRefreshedInBackground_onceTtlExpires() {
+        var resolver = new HostResolver(Duration.ofMinutes(5), this::lookup, queued::add, clock::get, null);
+        var matcher = resolver.matcher("app.example.com");
+        assertThat(matcher.isPending()).isTrue();
+        assertThat(matcher.matches(ip("10.0.0.7"))).isFalse();
+
+        queued.remove(0).run();
+        assertThat(matcher.isPending()).isFalse();
+        assertThat(matcher.matches(ip("10.0.0.7"))).isTrue();
+
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        // The stale addresses keep matching while the refresh is queued
+        assertThat(matcher.matches(ip("10.0.0.7"))).isTrue();
+        assertThat(queued).hasSize(1);
+        assertThat(matcher.matches(ip("10.0.0.7"))).isTrue();
+        assertThat(queued).hasSize(1);
+    }
+
+    @Test
+    void unresolvableHostname_matchesNothing_andIsRetriedLater() {
+        var resolver = resolver();
+        var matcher = resolver.matcher("missing.example.com");
+
+        assertThat(matcher.isPending()).isFalse();
+        assertThat(matcher.matches(ip("10.0.0.7"))).isFalse();
+        clock.addAndGet(HostResolver.FAILURE_RETRY.toNanos());
+        matcher.matches(ip("10.0.0.7"));
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void invalidRestriction_matchesNothing() {
+        var resolver = resolver();
+
+        assertThat(resolver.matcher("10.0.0.0/33").matches(ip("10.0.0.1"))).isFalse();
+        assertThat(resolver.matcher("app example").matches(ip("10.0.0.7"))).isFalse();
+        assertThat(resolver.matcher("app.example.com/8").matches(ip("10.0.0.7"))).isFalse();
+    }
+
+    @Test
+    void warmUp_resolvesStoredRestrictions() {
+        var repository = mock(ApiKeyRepository.class);
+        when(repository.findDistinctServers()).thenReturn(List.of("app.example.com", "192.0.2.1"));
+        var resolver = new HostResolver(Duration.ofMinutes(5), this::lookup, Runnable::run, clock::get, repository);
+
+        resolver.warmUp();
+
+        assertThat(lookups).hasValue(1);
+    }
+}
@@ -0,0 +1,75 @@
+package ludo.mentis.aciem.ecm.rest.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    @Test
+    void admitsBurst_thenAsksToWaitOneInterval() {
+        var limiter = new TokenBucketLimiter(10, 3, 100, clock::get);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+
+        assertThat(limiter.tryAcquire("a")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        var limiter = new TokenBucketLimiter(10, 1, 100, clock::get);
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+    }
+
+    @Test
+    void keysAreIndependent() {
+        var limiter = new TokenBucketLimiter(1, 1, 100, clock::get);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("b")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+    }
+
+    @Test
+    void fullMap_sweepsIdleBuckets() {
+        var limiter = new TokenBucketLimiter(10, 1, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(limiter.tryAcquire("c")).isZero();
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void fullMap_withBusyBuckets_sendsNewKeysToSharedOverflowBucket() {
+        var limiter = new TokenBucketLimiter(1, 1, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        assertThat(limiter.tryAcquire("c")).isZero();
+        assertThat(limiter.tryAcquire("d")).isPositive();
+        assertThat(limiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> new TokenBucketLimiter(0, 1, 1, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketLimiter(1, 0, 1, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,64 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiKeySecretHasherTest {
+
+    private static ApiKeyProperties properties(ApiKeyProperties.SecretStorage storage, String pepper) {
+        var properties = new ApiKeyProperties();
+        properties.setSecretStorage(storage);
+        properties.setPepper(pepper);
+        return properties;
+    }
+
+    private static final ApiKeyProperties HASH =
+            properties(ApiKeyProperties.SecretStorage.HASH, "0123456789abcdef0123456789abcdef");
+
+    @Test
+    void hash_isDeterministic_andPepperDependent() {
+        var hasher = new ApiKeySecretHasher(HASH);
+        var other = new ApiKeySecretHasher(
+                properties(ApiKeyProperties.SecretStorage.HASH, "fedcba9876543210fedcba9876543210"));
+
+        assertThat(hasher.hash("secret")).hasSize(ApiKeySecretHasher.HASH_BYTES);
+        assertThat(hasher.hash("secret")).isEqualTo(hasher.hash("secret"));
+        assertThat(other.hash("secret")).isNotEqualTo(hasher.hash("secret"));
+    }
+
+    @Test
+    void matches_acceptsOnlyTheHashedSecret() {
+        var hasher = new ApiKeySecretHasher(HASH);
+        var stored = hasher.hash("secret");
+
+        assertThat(hasher.matches(stored, "secret".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(hasher.matches(stored, "secreT".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(hasher.matches(null, "secret".getBytes(StandardCharsets.UTF_8))).isFalse();
+    }
+
+    @Test
+    void hashMode_withoutPepper_failsAtStartup() {
+        assertThatThrownBy(() -> new ApiKeySecretHasher(properties(ApiKeyProperties.SecretStorage.HASH, " ")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("ecm.api-key.pepper");
+    }
+
+    @Test
+    void shortPepper_isRejected() {
+        assertThatThrownBy(() -> new ApiKeySecretHasher(properties(ApiKeyProperties.SecretStorage.ENVELOPE, "short")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void envelopeMode_withoutPepper_isDisabled() {
+        var hasher = new ApiKeySecretHasher(properties(ApiKeyProperties.SecretStorage.ENVELOPE, null));
+
+        assertThat(hasher.isEnabled()).isFalse();
+        assertThatThrownBy(() -> hasher.hash("secret")).isInstanceOf(IllegalStateException.class);
+    }
+}
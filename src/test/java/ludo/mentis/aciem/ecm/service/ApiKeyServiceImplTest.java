@@ -1,5 +1,6 @@
 package ludo.mentis.aciem.ecm.service;
 
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
 import ludo.mentis.aciem.ecm.domain.ApiKey;
 import ludo.mentis.aciem.ecm.domain.BusinessApp;
 import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
@@ -9,6 +10,8 @@ import ludo.mentis.aciem.ecm.model.ApiKeySearchDTO;
 import ludo.mentis.aciem.ecm.model.Environment;
 import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
 import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import ludo.mentis.aciem.ecm.repos.CipherEnvelopeRepository;
+import ludo.mentis.aciem.ecm.util.ApiKeyUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -16,6 +19,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +34,10 @@ class ApiKeyServiceImplTest {
     private ApiKeyRepository apiKeyRepository;
     private BusinessAppRepository businessAppRepository;
     private PasswordService passwordService;
+    private CipherEnvelopeRepository envelopeRepository;
+    private ApiKeyVerificationCache verificationCache;
+    private ApiTokenService tokenService;
+    private ApiKeyUtils apiKeyUtils;
     private ApiKeyServiceImpl service;
 
     @BeforeEach
@@ -37,7 +45,23 @@ class ApiKeyServiceImplTest {
         apiKeyRepository = mock(ApiKeyRepository.class);
         businessAppRepository = mock(BusinessAppRepository.class);
         passwordService = mock(PasswordService.class);
-        service = new ApiKeyServiceImpl(apiKeyRepository, businessAppRepository, passwordService);
+        envelopeRepository = mock(CipherEnvelopeRepository.class);
+        verificationCache = mock(ApiKeyVerificationCache.class);
+        tokenService = mock(ApiTokenService.class);
+        apiKeyUtils = mock(ApiKeyUtils.class);
+        service = newService(new ApiKeyProperties());
+    }
+
+    private ApiKeyServiceImpl newService(ApiKeyProperties properties) {
+        return new ApiKeyServiceImpl(apiKeyRepository, businessAppRepository, envelopeRepository, passwordService,
+                verificationCache, tokenService, new ApiKeySecretHasher(properties), apiKeyUtils, properties);
+    }
+
+    private static ApiKeyProperties hashProperties() {
+        var properties = new ApiKeyProperties();
+        properties.setSecretStorage(ApiKeyProperties.SecretStorage.HASH);
+        properties.setPepper("0123456789abcdef0123456789abcdef");
+        return properties;
     }
 
     @Test
@@ -123,12 +147,85 @@ class ApiKeyServiceImplTest {
         assertThat(ent.getClientId()).isEqualTo("c");
         assertThat(ent.getServer()).isEqualTo("s");
         verify(passwordService).encryptPasswordToEntity("sec");
+        verify(verificationCache).invalidate("c");
+    }
+
+    @Test
+    void create_withBlankSecret_generatesOne_andWritesItBack() {
+        var dto = new ApiKeyDTO();
+        dto.setClientId("c");
+        when(apiKeyUtils.generateApiKey()).thenReturn("generated");
+        var saved = new ApiKey();
+        saved.setId(1L);
+        when(apiKeyRepository.save(any(ApiKey.class))).thenReturn(saved);
+
+        service.create(dto);
+
+        assertThat(dto.getSecret()).isEqualTo("generated");
+        verify(passwordService).encryptPasswordToEntity("generated");
+    }
+
+    @Test
+    void create_inHashMode_storesHash_andNoEnvelope() {
+        var properties = hashProperties();
+        service = newService(properties);
+        var dto = new ApiKeyDTO();
+        dto.setClientId("c");
+        dto.setSecret("sec");
+        when(apiKeyRepository.save(any(ApiKey.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.create(dto);
+
+        ArgumentCaptor<ApiKey> captor = ArgumentCaptor.forClass(ApiKey.class);
+        verify(apiKeyRepository).save(captor.capture());
+        var ent = captor.getValue();
+        assertThat(ent.getCipherEnvelope()).isNull();
+        assertThat(ent.getSecretHash()).isEqualTo(new ApiKeySecretHasher(properties).hash("sec"));
+        verify(passwordService, never()).encryptPasswordToEntity(any());
+        assertThat(service.isSecretStoredHashed()).isTrue();
+    }
+
+    @Test
+    void get_inHashMode_leavesSecretEmpty() {
+        service = newService(hashProperties());
+        var entity = new ApiKey();
+        entity.setApplication(new BusinessApp("C", "N"));
+        entity.setSecretHash(new byte[32]);
+        when(apiKeyRepository.findById(4L)).thenReturn(Optional.of(entity));
+
+        assertThat(service.get(4L).getSecret()).isNull();
+        verifyNoInteractions(passwordService);
+    }
+
+    @Test
+    void migrateSecretsToHash_replacesEnvelopes_andDeletesThem() {
+        var properties = hashProperties();
+        service = newService(properties);
+        var envelope = new CipherEnvelopeEntity();
+        envelope.setId(12L);
+        var key = new ApiKey();
+        key.setId(3L);
+        key.setClientId("cid");
+        key.setCipherEnvelope(envelope);
+        when(apiKeyRepository.findBySecretHashIsNullAndCipherEnvelopeEntityIsNotNull()).thenReturn(List.of(key));
+        when(passwordService.decryptPasswordBytesFromEntity(envelope))
+                .thenReturn("secret".getBytes(StandardCharsets.UTF_8));
+
+        int migrated = service.migrateSecretsToHash();
+
+        assertThat(migrated).isEqualTo(1);
+        assertThat(key.getSecretHash()).isEqualTo(new ApiKeySecretHasher(properties).hash("secret"));
+        assertThat(key.getCipherEnvelope()).isNull();
+        verify(envelopeRepository).delete(envelope);
+        verify(apiKeyRepository).save(key);
+        verify(verificationCache).invalidate("cid");
     }
 
     @Test
     void update_whenFound_mapsAndSaves() {
         var existing = new ApiKey();
         existing.setId(7L);
+        existing.setClientId("old");
         when(apiKeyRepository.findById(7L)).thenReturn(Optional.of(existing));
 
         var app = new BusinessApp("C","N");
@@ -150,6 +247,10 @@ class ApiKeyServiceImplTest {
         assertThat(existing.getClientId()).isEqualTo("x");
         assertThat(existing.getServer()).isEqualTo("y");
         verify(passwordService).encryptPasswordToEntity("zzz");
+        verify(verificationCache).invalidate("old");
+        verify(verificationCache).invalidate("x");
+        verify(tokenService).revokeClient("old");
+        verify(tokenService).revokeClient("x");
     }
 
     @Test
@@ -165,6 +266,20 @@ class ApiKeyServiceImplTest {
         verify(apiKeyRepository).deleteById(5L);
     }
 
+    @Test
+    void delete_invalidatesCachedVerification_andRevokesTokens() {
+        var existing = new ApiKey();
+        existing.setId(5L);
+        existing.setClientId("cid");
+        when(apiKeyRepository.findById(5L)).thenReturn(Optional.of(existing));
+
+        service.delete(5L);
+
+        verify(verificationCache).invalidate("cid");
+        verify(tokenService).revokeClient("cid");
+        verify(apiKeyRepository).deleteById(5L);
+    }
+
     @Test
     void clientIdExists_delegates() {
         when(apiKeyRepository.existsByClientId("cid")).thenReturn(true);
@@ -0,0 +1,134 @@
+package ludo.mentis.aciem.ecm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiKeyVerificationCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ApiKeyVerificationCache cache =
+            new ApiKeyVerificationCache(2, Duration.ofSeconds(30), 2, Duration.ofSeconds(10), clock::get);
+
+    private byte[] digest(String s) {
+        return cache.digest(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void digest_isStableWithinCache_andDiffersAcrossCaches() {
+        var other = new ApiKeyVerificationCache(2, Duration.ofSeconds(30), 2, Duration.ofSeconds(10), clock::get);
+
+        assertThat(digest("secret")).isEqualTo(digest("secret"));
+        assertThat(other.digest("secret".getBytes(StandardCharsets.UTF_8))).isNotEqualTo(digest("secret"));
+    }
+
+    @Test
+    void lookup_returnsVerification_forSameKey() {
+        cache.put("client", digest("secret"), 1L, "host");
+
+        var verified = cache.lookup("client", digest("secret"));
+
+        assertThat(verified).isEqualTo(new ApiKeyVerificationCache.Verified(1L, "host"));
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void lookup_missesForDifferentKey_orUnknownClient() {
+        cache.put("client", digest("secret"), 1L, null);
+
+        assertThat(cache.lookup("client", digest("other"))).isNull();
+        assertThat(cache.lookup("nobody", digest("secret"))).isNull();
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    void lookup_missesOnceExpired() {
+        cache.put("client", digest("secret"), 1L, null);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertThat(cache.lookup("client", digest("secret"))).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsed_overCapacity() {
+        cache.put("a", digest("1"), 1L, null);
+        cache.put("b", digest("2"), 2L, null);
+        cache.lookup("a", digest("1"));
+        cache.put("c", digest("3"), 3L, null);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.lookup("b", digest("2"))).isNull();
+        assertThat(cache.lookup("a", digest("1"))).isNotNull();
+    }
+
+    @Test
+    void unknownClient_isRejected_untilExpiry() {
+        cache.rememberUnknownClient("ghost");
+
+        assertThat(cache.isRejected("ghost", digest("anything"))).isTrue();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(cache.isRejected("ghost", digest("anything"))).isFalse();
+    }
+
+    @Test
+    void failedDigest_isRejected_butOtherKeysAreNot() {
+        cache.rememberFailure("client", digest("wrong"));
+
+        assertThat(cache.isRejected("client", digest("wrong"))).isTrue();
+        assertThat(cache.isRejected("client", digest("right"))).isFalse();
+        assertThat(cache.rejectionHits()).isEqualTo(1);
+    }
+
+    @Test
+    void failedDigests_areBoundedPerClient() {
+        for (int i = 0; i <= ApiKeyVerificationCache.MAX_FAILED_DIGESTS; i++) {
+            cache.rememberFailure("client", digest("wrong" + i));
+        }
+
+        assertThat(cache.isRejected("client", digest("wrong0"))).isFalse();
+        assertThat(cache.isRejected("client", digest("wrong" + ApiKeyVerificationCache.MAX_FAILED_DIGESTS))).isTrue();
+    }
+
+    @Test
+    void successfulVerification_clearsRejections() {
+        cache.rememberFailure("client", digest("wrong"));
+
+        cache.put("client", digest("secret"), 1L, null);
+
+        assertThat(cache.isRejected("client", digest("wrong"))).isFalse();
+    }
+
+    @Test
+    void invalidate_dropsPositiveAndNegativeEntries() {
+        cache.put("client", digest("secret"), 1L, null);
+        cache.rememberUnknownClient("client");
+
+        cache.invalidate("client");
+
+        assertThat(cache.lookup("client", digest("secret"))).isNull();
+        assertThat(cache.isRejected("client", digest("secret"))).isFalse();
+    }
+
+    @Test
+    void zeroSize_disablesCache() {
+        var disabled = new ApiKeyVerificationCache(0, Duration.ofSeconds(30), 0, Duration.ofSeconds(10), clock::get);
+        var d = disabled.digest("secret".getBytes(StandardCharsets.UTF_8));
+        disabled.put("client", d, 1L, null);
+        disabled.rememberUnknownClient("client");
+
+        assertThat(disabled.lookup("client", d)).isNull();
+        assertThat(disabled.isRejected("client", d)).isFalse();
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveTtl() {
+        assertThatThrownBy(() -> new ApiKeyVerificationCache(1, Duration.ZERO, 1, Duration.ofSeconds(1), clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,138 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.ApiKeyProperties;
+import ludo.mentis.aciem.ecm.domain.ApiKey;
+import ludo.mentis.aciem.ecm.domain.BusinessApp;
+import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.repos.ApiKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ApiTokenServiceImplTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private ApiKeyRepository apiKeyRepository;
+    private ApiKeyProperties properties;
+    private ApiTokenServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        apiKeyRepository = mock(ApiKeyRepository.class);
+        properties = new ApiKeyProperties();
+        properties.setTokenSecret(SECRET);
+        properties.setTokenTtl(Duration.ofMinutes(5));
+        service = new ApiTokenServiceImpl(apiKeyRepository, properties, clock::get);
+
+        var app = new BusinessApp("ERP", "Erp");
+        app.setId(9L);
+        var key = new ApiKey();
+        key.setId(3L);
+        key.setApplication(app);
+        key.setEnvironment(Environment.UAT);
+        key.setClientId("client");
+        key.setServer("10.0.0.0/8");
+        when(apiKeyRepository.findById(3L)).thenReturn(Optional.of(key));
+    }
+
+    @Test
+    void issue_thenVerify_returnsClaimsOfTheKey() {
+        var response = service.issue(3L);
+
+        assertThat(response.tokenType()).isEqualTo("Bearer");
+        assertThat(response.expiresIn()).isEqualTo(300L);
+        var claims = service.verify(response.accessToken()).orElseThrow();
+        assertThat(claims.clientId()).isEqualTo("client");
+        assertThat(claims.apiKeyId()).isEqualTo(3L);
+        assertThat(claims.applicationId()).isEqualTo(9L);
+        assertThat(claims.environment()).isEqualTo(Environment.UAT);
+        assertThat(claims.server()).isEqualTo("10.0.0.0/8");
+        assertThat(claims.expiresAt()).isEqualTo(clock.get() + 300_000L);
+    }
+
+    @Test
+    void issue_forUnknownKey_throwsNotFound() {
+        assertThatThrownBy(() -> service.issue(4L)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void verify_rejectsTamperedAndMalformedTokens() {
+        var token = service.issue(3L).accessToken();
+        var dot = token.indexOf('.');
+        var otherPayload = service.issue(3L).accessToken().substring(0, dot);
+
+        assertThat(service.verify(otherPayload + token.substring(dot))).isEmpty();
+        assertThat(service.verify(token.substring(0, dot))).isEmpty();
+        assertThat(service.verify("not a token")).isEmpty();
+        assertThat(service.verify("a.b.c")).isEmpty();
+        assertThat(service.verify(null)).isEmpty();
+    }
+
+    @Test
+    void verify_rejectsTokensSignedWithAnotherSecret() {
+        var other = new ApiKeyProperties();
+        other.setTokenSecret("fedcba9876543210fedcba9876543210");
+        var token = new ApiTokenServiceImpl(apiKeyRepository, other, clock::get).issue(3L).accessToken();
+
+        assertThat(service.verify(token)).isEmpty();
+    }
+
+    @Test
+    void verify_rejectsExpiredTokens() {
+        var token = service.issue(3L).accessToken();
+
+        clock.addAndGet(Duration.ofMinutes(5).toMillis());
+
+        assertThat(service.verify(token)).isEmpty();
+    }
+
+    @Test
+    void revoke_deniesOnlyThatToken() {
+        var first = service.issue(3L).accessToken();
+        var second = service.issue(3L).accessToken();
+
+        service.revoke(service.verify(first).orElseThrow());
+
+        assertThat(service.verify(first)).isEmpty();
+        assertThat(service.verify(second)).isPresent();
+    }
+
+    @Test
+    void revokeClient_deniesTokensIssuedBefore_butNotAfter() {
+        var before = service.issue(3L).accessToken();
+        clock.incrementAndGet();
+        service.revokeClient("client");
+        clock.incrementAndGet();
+        var after = service.issue(3L).accessToken();
+
+        assertThat(service.verify(before)).isEmpty();
+        assertThat(service.verify(after)).isPresent();
+    }
+
+    @Test
+    void constructor_rejectsMissingSecret() {
+        properties.setTokenSecret(" ");
+
+        assertThatThrownBy(() -> new ApiTokenServiceImpl(apiKeyRepository, properties, clock::get))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("required");
+    }
+
+    @Test
+    void constructor_rejectsShortSecret() {
+        properties.setTokenSecret("short");
+
+        assertThatThrownBy(() -> new ApiTokenServiceImpl(apiKeyRepository, properties, clock::get))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
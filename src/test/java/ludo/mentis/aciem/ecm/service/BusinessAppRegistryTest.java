@@ -0,0 +1,88 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.domain.BusinessApp;
+import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BusinessAppRegistryTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private BusinessAppRepository businessAppRepository;
+    private BusinessAppRegistry registry;
+
+    private static BusinessApp app(long id, String code, String name) {
+        var app = new BusinessApp(code, name);
+        app.setId(id);
+        return app;
+    }
+
+    @BeforeEach
+    void setUp() {
+        businessAppRepository = mock(BusinessAppRepository.class);
+        when(businessAppRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(app(2L, "CRM", "Alpha"), app(1L, "ERP", "Beta")));
+        registry = new BusinessAppRegistry(businessAppRepository, Duration.ofSeconds(60), clock::get);
+    }
+
+    @Test
+    void lookups_areCaseInsensitive_andLoadOnce() {
+        assertThat(registry.codeExists("erp")).isTrue();
+        assertThat(registry.codeExists("HR")).isFalse();
+        assertThat(registry.nameExists("ALPHA")).isTrue();
+        assertThat(registry.findByCode("Crm")).contains(new BusinessAppRegistry.App(2L, "CRM", "Alpha"));
+        assertThat(registry.findById(1L)).hasValueSatisfying(app -> assertThat(app.code()).isEqualTo("ERP"));
+
+        verify(businessAppRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void namesById_keepsNameOrder() {
+        assertThat(registry.namesById()).containsExactly(
+                Map.entry(2L, "Alpha"), Map.entry(1L, "Beta"));
+    }
+
+    @Test
+    void refresh_replacesSnapshot() {
+        assertThat(registry.codeExists("HR")).isFalse();
+        when(businessAppRepository.findAll(any(Sort.class))).thenReturn(List.of(app(3L, "HR", "Gamma")));
+
+        registry.refresh();
+
+        assertThat(registry.codeExists("HR")).isTrue();
+        assertThat(registry.codeExists("ERP")).isFalse();
+    }
+
+    @Test
+    void staleSnapshot_isReloadedByNextReader() {
+        registry.codeExists("ERP");
+        when(businessAppRepository.findAll(any(Sort.class))).thenReturn(List.of(app(3L, "HR", "Gamma")));
+
+        clock.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertThat(registry.codeExists("HR")).isFalse();
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(registry.codeExists("HR")).isTrue();
+    }
+
+    @Test
+    void failedReload_keepsPreviousSnapshot() {
+        registry.codeExists("ERP");
+        when(businessAppRepository.findAll(any(Sort.class))).thenThrow(new IllegalStateException("db down"));
+        clock.addAndGet(Duration.ofSeconds(60).toNanos());
+
+        assertThat(registry.codeExists("ERP")).isTrue();
+        assertThat(registry.codeExists("ERP")).isTrue();
+        // Not retried on every read while the database is unavailable
+        verify(businessAppRepository, times(2)).findAll(any(Sort.class));
+    }
+}
@@ -24,13 +24,15 @@ class BusinessAppServiceImplTest {
 
     private BusinessAppRepository businessAppRepository;
     private CredentialRepository credentialRepository;
+    private BusinessAppRegistry businessAppRegistry;
     private BusinessAppServiceImpl service;
 
     @BeforeEach
     void setUp() {
         businessAppRepository = mock(BusinessAppRepository.class);
         credentialRepository = mock(CredentialRepository.class);
-        service = new BusinessAppServiceImpl(businessAppRepository, credentialRepository);
+        businessAppRegistry = mock(BusinessAppRegistry.class);
+        service = new BusinessAppServiceImpl(businessAppRepository, credentialRepository, businessAppRegistry);
     }
 
     @Test
@@ -78,6 +80,7 @@ class BusinessAppServiceImplTest {
         Long id = service.create(dto);
         assertThat(id).isEqualTo(11L);
         verify(businessAppRepository).save(any(BusinessApp.class));
+        verify(businessAppRegistry).refresh();
     }
 
     @Test
@@ -94,6 +97,7 @@ class BusinessAppServiceImplTest {
         verify(businessAppRepository).save(existing);
         assertThat(existing.getCode()).isEqualTo("X");
         assertThat(existing.getName()).isEqualTo("Y");
+        verify(businessAppRegistry).refresh();
     }
 
     @Test
@@ -107,16 +111,16 @@ class BusinessAppServiceImplTest {
     void delete_delegates() {
         service.delete(8L);
         verify(businessAppRepository).deleteById(8L);
+        verify(businessAppRegistry).refresh();
     }
 
     @Test
-    void exists_checks_delegate() {
-        when(businessAppRepository.existsByNameIgnoreCase("nm")).thenReturn(true);
-        when(businessAppRepository.existsByCodeIgnoreCase("cd")).thenReturn(false);
+    void exists_checks_delegateToRegistry() {
+        when(businessAppRegistry.nameExists("nm")).thenReturn(true);
+        when(businessAppRegistry.codeExists("cd")).thenReturn(false);
         assertThat(service.nameExists("nm")).isTrue();
         assertThat(service.codeExists("cd")).isFalse();
-        verify(businessAppRepository).existsByNameIgnoreCase("nm");
-        verify(businessAppRepository).existsByCodeIgnoreCase("cd");
+        verifyNoInteractions(businessAppRepository);
     }
 
     @Test
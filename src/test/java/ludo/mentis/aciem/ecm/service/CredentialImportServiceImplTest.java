@@ -0,0 +1,257 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.CredentialImportProperties;
+import ludo.mentis.aciem.ecm.domain.BusinessApp;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
+import ludo.mentis.aciem.ecm.domain.Credential;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import ludo.mentis.aciem.ecm.model.CredentialImportFailure;
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialKey;
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
+import ludo.mentis.aciem.ecm.repos.CredentialRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CredentialImportServiceImplTest {
+
+    private static final String HEADER = "appCode,environment,credentialType,username,password,url,notes\n";
+    private static final BusinessAppRegistry.App BILLING = new BusinessAppRegistry.App(7L, "BILLING", "Billing");
+
+    private CredentialRepository credentialRepository;
+    private BusinessAppRepository businessAppRepository;
+    private BusinessAppRegistry businessAppRegistry;
+    private PasswordService passwordService;
+    private CredentialImportProperties properties;
+    private List<Credential> saved;
+    private AtomicLong ids;
+
+    @BeforeEach
+    void setUp() {
+        credentialRepository = mock(CredentialRepository.class);
+        businessAppRepository = mock(BusinessAppRepository.class);
+        businessAppRegistry = mock(BusinessAppRegistry.class);
+        passwordService = mock(PasswordService.class);
+        properties = new CredentialImportProperties();
+        properties.setBatchSize(2);
+        properties.setEncryptionThreads(2);
+        saved = new ArrayList<>();
+        ids = new AtomicLong(100);
+
+        when(businessAppRegistry.findByCode(anyString())).thenReturn(Optional.empty());
+        when(businessAppRegistry.findByCode("BILLING")).thenReturn(Optional.of(BILLING));
+        when(businessAppRepository.getReferenceById(anyLong())).thenAnswer(inv -> {
+            var app = new BusinessApp();
+            app.setId(inv.getArgument(0));
+            return app;
+        });
+        when(passwordService.encryptPasswordToEntity(anyString())).thenAnswer(inv -> new CipherEnvelopeEntity());
+        when(passwordService.encryptPasswordToEntity("boom")).thenThrow(new CryptoException("Encryption failed"));
+        when(credentialRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Credential> credentials = inv.getArgument(0);
+            credentials.forEach(c -> c.setId(ids.incrementAndGet()));
+            saved.addAll(credentials);
+            return credentials;
+        });
+    }
+
+    private CredentialImportServiceImpl service() {
+        return new CredentialImportServiceImpl(credentialRepository, businessAppRepository, businessAppRegistry,
+                passwordService, mock(PlatformTransactionManager.class), properties);
+    }
+
+    private static InputStream csv(String rows) {
+        return new ByteArrayInputStream((HEADER + rows).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importCredentials_createsFirstVersions_inBatches() {
+        var listener = mock(CredentialImportListener.class);
+
+        var report = service().importCredentials(csv("""
+                BILLING,PROD,DATABASE,app_user,pw1,jdbc:mysql://db,main db
+                billing-unknown-case,DEV,LINUX,root,pw2,,
+                BILLING,dev,linux,root,pw3,,
+                """), CredentialImportFormat.CSV, "alice", listener);
+
+        assertThat(report.completed()).isTrue();
+        assertThat(report.read()).isEqualTo(3);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.failed()).isEqualTo(1);
+        assertThat(report.failures()).extracting(CredentialImportFailure::rowNumber).containsExactly(3L);
+        verify(credentialRepository, times(2)).saveAll(anyList());
+        verify(listener, times(2)).onProgress(anyLong(), anyLong(), anyLong());
+
+        var first = saved.get(0);
+        assertThat(first.getApplication().getId()).isEqualTo(7L);
+        assertThat(first.getEnvironment()).isEqualTo(Environment.PROD);
+        assertThat(first.getCredentialType()).isEqualTo(CredentialType.DATABASE);
+        assertThat(first.getUsername()).isEqualTo("app_user");
+        assertThat(first.getVersion()).isEqualTo(1);
+        assertThat(first.getEnabled()).isTrue();
+        assertThat(first.getUrl()).isEqualTo("jdbc:mysql://db");
+        assertThat(first.getNotes()).isEqualTo("main db");
+        assertThat(first.getCreatedBy()).isEqualTo("alice");
+        assertThat(first.getCipherEnvelope()).isNotNull();
+        assertThat(saved).allSatisfy(c -> assertThat(c.getLineageId()).isNull());
+        verify(passwordService, never()).encryptPasswordsToEntities(anyList());
+        assertThat(saved.get(1).getEnvironment()).isEqualTo(Environment.DEV);
+    }
+
+    @Test
+    void importCredentials_reportsInvalidAndDuplicateRows() {
+        when(credentialRepository.findEnabledFirstVersionKeys(anyCollection(), anyCollection()))
+                .thenReturn(List.of(new CredentialKey(7L, Environment.QA.getId(), CredentialType.OTHER.getId(),
+                        "EXISTING")));
+        properties.setBatchSize(10);
+
+        var report = service().importCredentials(csv("""
+                NOPE,DEV,LINUX,root,pw,,
+                BILLING,STAGING,LINUX,root,pw,,
+                BILLING,DEV,PRINTER,root,pw,,
+                BILLING,DEV,LINUX,,pw,,
+                BILLING,DEV,LINUX,root,,,
+                BILLING,DEV,LINUX,root,pw,,
+                BILLING,DEV,LINUX,ROOT,pw,,
+                BILLING,QA,OTHER,existing,pw,,
+                BILLING,DEV,LINUX,boom-user,boom,,
+                """), CredentialImportFormat.CSV, "alice", CredentialImportListener.NONE);
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failed()).isEqualTo(8);
+        assertThat(report.failures()).extracting(CredentialImportFailure::reason).containsExactly(
+                "Business app not found with code: `NOPE`.",
+                "Unknown environment `STAGING`; expected one of [DEV, QA, UAT, PROD].",
+                "Unknown credential type `PRINTER`; expected one of "
+                        + "[DATABASE, WINDOWS, LINUX, API_KEY, JWT_TOKEN, OTHER].",
+                "Username is required.",
+                "Password is required.",
+                "Same credential as row 7 of this file.",
+                CredentialImportServiceImpl.ALREADY_EXISTS,
+                CredentialImportServiceImpl.ENCRYPTION_FAILED);
+        assertThat(saved).extracting(Credential::getUsername).containsExactly("root");
+    }
+
+    @Test
+    void importCredentials_retriesRowByRow_whenBatchHitsUniqueIndex() {
+        when(credentialRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Credential> credentials = inv.getArgument(0);
+            if (credentials.size() > 1 || credentials.get(0).getUsername().equals("taken")) {
+                throw new DuplicateKeyException("Duplicate entry");
+            }
+            credentials.forEach(c -> c.setId(ids.incrementAndGet()));
+            saved.addAll(credentials);
+            return credentials;
+        });
+
+        var report = service().importCredentials(csv("""
+                BILLING,DEV,LINUX,free,pw,,
+                BILLING,DEV,LINUX,taken,pw,,
+                """), CredentialImportFormat.CSV, "alice", CredentialImportListener.NONE);
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failures()).extracting(CredentialImportFailure::username, CredentialImportFailure::reason)
+                .containsExactly(tuple("taken", CredentialImportServiceImpl.ALREADY_EXISTS));
+        assertThat(saved).extracting(Credential::getUsername).containsExactly("free");
+    }
+
+    @Test
+    void importCredentials_reportsTheActualError_whenRetriedRowIsNotADuplicate() {
+        when(credentialRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Credential> credentials = inv.getArgument(0);
+            if (credentials.stream().anyMatch(c -> c.getUsername().equals("odd"))) {
+                throw new DataIntegrityViolationException("could not execute batch",
+                        new SQLException("Incorrect string value for column 'url'", "HY000", 1366));
+            }
+            credentials.forEach(c -> c.setId(ids.incrementAndGet()));
+            saved.addAll(credentials);
+            return credentials;
+        });
+
+        var report = service().importCredentials(csv("""
+                BILLING,DEV,LINUX,free,pw,,
+                BILLING,DEV,LINUX,odd,pw,,
+                """), CredentialImportFormat.CSV, "alice", CredentialImportListener.NONE);
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.failures()).extracting(CredentialImportFailure::reason)
+                .containsExactly("Could not be saved: Incorrect string value for column 'url'");
+    }
+
+    @Test
+    void importCredentials_rejectsNotesLargerThanTheColumn() {
+        var report = service().importCredentials(csv(
+                "BILLING,DEV,LINUX,root,pw,," + "n".repeat(65_536) + "\n"),
+                CredentialImportFormat.CSV, "alice", CredentialImportListener.NONE);
+
+        assertThat(report.failures()).extracting(CredentialImportFailure::reason)
+                .containsExactly("Notes are longer than 65535 bytes.");
+        verify(credentialRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void importCredentials_keepsRowsBeforeMalformedPart() {
+        var report = service().importCredentials(csv("""
+                BILLING,DEV,LINUX,a,pw,,
+                BILLING,DEV,LINUX,b,pw,,
+                BILLING,DEV,LINUX,c,pw,,
+                BILLING,DEV,LINUX,"d,pw,,
+                """), CredentialImportFormat.CSV, "alice", CredentialImportListener.NONE);
+
+        assertThat(report.completed()).isFalse();
+        assertThat(report.error()).isEqualTo("Line 5: quoted field is never closed.");
+        assertThat(report.imported()).isEqualTo(3);
+        assertThat(saved).extracting(Credential::getUsername).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void importCredentials_reportsUnreadableFile() {
+        var report = service().importCredentials(
+                new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), CredentialImportFormat.JSON,
+                "alice", CredentialImportListener.NONE);
+
+        assertThat(report.completed()).isFalse();
+        assertThat(report.read()).isZero();
+        verify(credentialRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void importCredentials_capsReportedFailures_butNotifiesEach() {
+        properties.setMaxReportedFailures(1);
+        var listener = mock(CredentialImportListener.class);
+
+        var report = service().importCredentials(csv("""
+                NOPE,DEV,LINUX,a,pw,,
+                NOPE,DEV,LINUX,b,pw,,
+                NOPE,DEV,LINUX,c,pw,,
+                """), CredentialImportFormat.CSV, "alice", listener);
+
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.failures()).hasSize(1);
+        assertThat(report.failuresTruncated()).isTrue();
+        verify(listener, times(3)).onFailure(any());
+    }
+}
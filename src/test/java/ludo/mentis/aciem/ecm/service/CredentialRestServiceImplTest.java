@@ -1,53 +1,81 @@
 package ludo.mentis.aciem.ecm.service;
 
+import ludo.mentis.aciem.ecm.domain.BusinessApp;
 import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
 import ludo.mentis.aciem.ecm.domain.Credential;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
 import ludo.mentis.aciem.ecm.exception.NotFoundException;
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.BulkPasswordItem;
 import ludo.mentis.aciem.ecm.model.CredentialType;
 import ludo.mentis.aciem.ecm.model.Environment;
 import ludo.mentis.aciem.ecm.model.PasswordRequest;
-import ludo.mentis.aciem.ecm.repos.BusinessAppRepository;
 import ludo.mentis.aciem.ecm.repos.CredentialRepository;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoExecutor;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
 
 class CredentialRestServiceImplTest {
 
     private CredentialRepository credentialRepository;
-    private BusinessAppRepository businessAppRepository;
+    private BusinessAppRegistry businessAppRegistry;
     private PasswordService passwordService;
+    private CryptoExecutor cryptoExecutor;
+    private SecretCache secretCache;
     private CredentialRestServiceImpl service;
 
     @BeforeEach
     void setUp() {
         credentialRepository = mock(CredentialRepository.class);
-        businessAppRepository = mock(BusinessAppRepository.class);
+        businessAppRegistry = mock(BusinessAppRegistry.class);
         passwordService = mock(PasswordService.class);
-        service = new CredentialRestServiceImpl(credentialRepository, businessAppRepository, passwordService);
+        cryptoExecutor = new CryptoExecutor(1, 4, Duration.ofSeconds(1));
+        secretCache = new SecretCache(0, Duration.ofMinutes(1), System::nanoTime);
+        service = new CredentialRestServiceImpl(credentialRepository, businessAppRegistry, passwordService,
+                cryptoExecutor, secretCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cryptoExecutor.close();
+    }
+
+    private static final BusinessAppRegistry.App APP = new BusinessAppRegistry.App(1L, "APP", "Application");
+
+    /** Stubs the single lookup for APP / DEV / DATABASE / user, by the app id the registry resolved. */
+    private void givenLatestEnvelope(Optional<CipherEnvelopeEntity> envelope) {
+        when(credentialRepository.findLatestEnvelope(1L, Environment.DEV.getId(), CredentialType.DATABASE.getId(),
+                "user")).thenReturn(envelope);
     }
 
     @Test
     void getPassword_whenBusinessAppMissing_throwsNotFound() {
         var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
-        when(businessAppRepository.existsByCodeIgnoreCase("APP")).thenReturn(false);
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> service.getPassword(req))
                 .isInstanceOf(NotFoundException.class)
                 .hasMessageContaining("APP");
+        verify(credentialRepository, never()).findLatestEnvelope(any(), any(), any(), any());
     }
 
     @Test
     void getPassword_whenNoCredential_returnsEmpty() {
         var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
-        when(businessAppRepository.existsByCodeIgnoreCase("APP")).thenReturn(true);
-        when(credentialRepository.findFirstByPasswordRequest(req)).thenReturn(Optional.empty());
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.of(APP));
+        givenLatestEnvelope(Optional.empty());
 
         var out = service.getPassword(req);
         assertThat(out).isEmpty();
@@ -56,29 +84,184 @@ class CredentialRestServiceImplTest {
     @Test
     void getPassword_whenCredentialFound_returnsDecryptedPassword() {
         var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
-        when(businessAppRepository.existsByCodeIgnoreCase("APP")).thenReturn(true);
-        var cred = new Credential();
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.of(APP));
         var env = new CipherEnvelopeEntity();
         env.setCiphertext(new byte[]{1});
-        cred.setCipherEnvelope(env);
-        when(credentialRepository.findFirstByPasswordRequest(req)).thenReturn(Optional.of(cred));
+        givenLatestEnvelope(Optional.of(env));
         when(passwordService.decryptPasswordFromEntity(env)).thenReturn("pass");
 
         var out = service.getPassword(req);
         assertThat(out).contains("pass");
     }
 
+    @Test
+    void getPassword_looksUpEnvelopeByRegistryAppId() {
+        var req = new PasswordRequest("app", Environment.PROD, CredentialType.API_KEY, "svc");
+        when(businessAppRegistry.findByCode("app")).thenReturn(Optional.of(new BusinessAppRegistry.App(42L, "APP", "App")));
+        when(credentialRepository.findLatestEnvelope(any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        service.getPassword(req);
+
+        verify(credentialRepository).findLatestEnvelope(42L, Environment.PROD.getId(), CredentialType.API_KEY.getId(),
+                "svc");
+    }
+
     @Test
     void getPassword_whenDecryptedNull_returnsEmpty() {
         var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
-        when(businessAppRepository.existsByCodeIgnoreCase("APP")).thenReturn(true);
-        var cred = new Credential();
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.of(APP));
         var env = new CipherEnvelopeEntity();
-        cred.setCipherEnvelope(env);
-        when(credentialRepository.findFirstByPasswordRequest(req)).thenReturn(Optional.of(cred));
+        givenLatestEnvelope(Optional.of(env));
         when(passwordService.decryptPasswordFromEntity(env)).thenReturn(null);
 
         var out = service.getPassword(req);
         assertThat(out).isEmpty();
     }
+
+    @Test
+    void getPasswordAsync_decryptsOnCryptoExecutor() {
+        var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.of(APP));
+        var env = new CipherEnvelopeEntity();
+        givenLatestEnvelope(Optional.of(env));
+        when(passwordService.decryptPasswordFromEntity(env))
+                .thenAnswer(inv -> Thread.currentThread().getName());
+
+        var out = service.getPasswordAsync(req).join();
+        assertThat(out).hasValueSatisfying(name -> assertThat(name).startsWith("ecm-crypto-"));
+    }
+
+    @Test
+    void getPasswordAsync_whenBusinessAppMissing_throwsNotFoundWithoutSubmitting() {
+        var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.getPasswordAsync(req))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(cryptoExecutor.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void getPasswordAsync_whenCacheEnabled_answersRepeatLookupWithoutDatabaseOrDecrypt() {
+        secretCache = new SecretCache(10, Duration.ofMinutes(1), System::nanoTime);
+        service = new CredentialRestServiceImpl(credentialRepository, businessAppRegistry, passwordService,
+                cryptoExecutor, secretCache);
+        var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.of(APP));
+        var env = new CipherEnvelopeEntity();
+        givenLatestEnvelope(Optional.of(env));
+        when(passwordService.decryptPasswordFromEntity(env)).thenReturn("pass");
+
+        assertThat(service.getPasswordAsync(req).join()).contains("pass");
+        assertThat(service.getPasswordAsync(req).join()).contains("pass");
+        assertThat(service.getPassword(new PasswordRequest("app", Environment.DEV, CredentialType.DATABASE, "USER")))
+                .contains("pass");
+
+        verify(credentialRepository, times(1)).findLatestEnvelope(any(), any(), any(), any());
+        verify(passwordService, times(1)).decryptPasswordFromEntity(any());
+        assertThat(secretCache.hits()).isEqualTo(2);
+    }
+
+    @Test
+    void getPassword_afterInvalidation_reloadsFromDatabase() {
+        secretCache = new SecretCache(10, Duration.ofMinutes(1), System::nanoTime);
+        service = new CredentialRestServiceImpl(credentialRepository, businessAppRegistry, passwordService,
+                cryptoExecutor, secretCache);
+        var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "user");
+        when(businessAppRegistry.findByCode("APP")).thenReturn(Optional.of(APP));
+        var env = new CipherEnvelopeEntity();
+        givenLatestEnvelope(Optional.of(env));
+        when(passwordService.decryptPasswordFromEntity(env)).thenReturn("old", "new");
+
+        assertThat(service.getPassword(req)).contains("old");
+        secretCache.invalidate("APP", Environment.DEV, CredentialType.DATABASE, "user");
+
+        assertThat(service.getPassword(req)).contains("new");
+    }
+
+    private static Credential credential(long id, String appCode, Environment environment, CredentialType type,
+                                         String username) {
+        var app = new BusinessApp();
+        app.setCode(appCode);
+        var cred = new Credential();
+        cred.setId(id);
+        cred.setApplication(app);
+        cred.setEnvironment(environment);
+        cred.setCredentialType(type);
+        cred.setUsername(username);
+        var env = new CipherEnvelopeEntity();
+        env.setId(id);
+        cred.setCipherEnvelope(env);
+        return cred;
+    }
+
+    @Test
+    void getPasswordsAsync_usesOneQuery_andAnswersInRequestOrder() {
+        var a = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        var missing = new PasswordRequest("APP", Environment.PROD, CredentialType.DATABASE, "alice");
+        var b = new PasswordRequest("other", Environment.QA, CredentialType.LINUX, "Bob");
+        var credA = credential(1, "APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        var credB = credential(2, "OTHER", Environment.QA, CredentialType.LINUX, "bob");
+        when(credentialRepository.findLatestByAppCodesAndUsernames(anyCollection(), anyCollection()))
+                .thenReturn(List.of(credB, credA));
+        when(passwordService.decryptPasswordsFromEntities(List.of(credA.getCipherEnvelope(), credB.getCipherEnvelope())))
+                .thenReturn(List.of(CryptoResult.success("pa"), CryptoResult.success("pb")));
+
+        var items = service.getPasswordsAsync(List.of(a, missing, b)).join();
+
+        assertThat(items).extracting(BulkPasswordItem::outcome)
+                .containsExactly(AuditOutcome.GRANTED, AuditOutcome.NOT_FOUND, AuditOutcome.GRANTED);
+        assertThat(items).extracting(BulkPasswordItem::password).containsExactly("pa", null, "pb");
+        verify(credentialRepository, times(1)).findLatestByAppCodesAndUsernames(anyCollection(), anyCollection());
+        verify(businessAppRegistry, never()).codeExists(any());
+    }
+
+    @Test
+    void getPasswordsAsync_decryptsDuplicateRequestsOnce() {
+        var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        var cred = credential(1, "APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        when(credentialRepository.findLatestByAppCodesAndUsernames(anyCollection(), anyCollection()))
+                .thenReturn(List.of(cred));
+        when(passwordService.decryptPasswordsFromEntities(List.of(cred.getCipherEnvelope())))
+                .thenReturn(List.of(CryptoResult.success("pa")));
+
+        var items = service.getPasswordsAsync(List.of(req, req)).join();
+
+        assertThat(items).extracting(BulkPasswordItem::password).containsExactly("pa", "pa");
+    }
+
+    @Test
+    void getPasswordsAsync_reportsDecryptionFailurePerItem() {
+        var a = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        var b = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "bob");
+        var credA = credential(1, "APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        var credB = credential(2, "APP", Environment.DEV, CredentialType.DATABASE, "bob");
+        when(credentialRepository.findLatestByAppCodesAndUsernames(anyCollection(), anyCollection()))
+                .thenReturn(List.of(credA, credB));
+        when(passwordService.decryptPasswordsFromEntities(any()))
+                .thenReturn(List.of(CryptoResult.failure(new CryptoException("tag mismatch")),
+                        CryptoResult.success("pb")));
+
+        var items = service.getPasswordsAsync(List.of(a, b)).join();
+
+        assertThat(items.get(0).outcome()).isEqualTo(AuditOutcome.ERROR);
+        assertThat(items.get(0).password()).isNull();
+        assertThat(items.get(0).exception()).isEqualTo(CredentialRestServiceImpl.DECRYPTION_FAILED);
+        assertThat(items.get(1).outcome()).isEqualTo(AuditOutcome.GRANTED);
+    }
+
+    @Test
+    void getPasswordsAsync_whenNothingMatches_completesWithoutDecrypting() {
+        var req = new PasswordRequest("APP", Environment.DEV, CredentialType.DATABASE, "alice");
+        when(credentialRepository.findLatestByAppCodesAndUsernames(anyCollection(), anyCollection()))
+                .thenReturn(List.of());
+
+        var items = service.getPasswordsAsync(List.of(req)).join();
+
+        assertThat(items).singleElement().satisfies(item -> {
+            assertThat(item.outcome()).isEqualTo(AuditOutcome.NOT_FOUND);
+            assertThat(item.exception()).isEqualTo(CredentialRestServiceImpl.CREDENTIAL_NOT_FOUND);
+        });
+        verify(passwordService, never()).decryptPasswordsFromEntities(any());
+    }
 }
@@ -32,6 +32,7 @@ class CredentialServiceImplTest {
     private CredentialRepository credentialRepository;
     private BusinessAppRepository businessAppRepository;
     private PasswordService passwordService;
+    private SecretCache secretCache;
     private CredentialServiceImpl service;
 
     @BeforeEach
@@ -39,7 +40,9 @@ class CredentialServiceImplTest {
         credentialRepository = mock(CredentialRepository.class);
         businessAppRepository = mock(BusinessAppRepository.class);
         passwordService = mock(PasswordService.class);
-        service = new CredentialServiceImpl(credentialRepository, businessAppRepository, passwordService);
+        secretCache = mock(SecretCache.class);
+        service = new CredentialServiceImpl(credentialRepository, businessAppRepository, passwordService,
+                secretCache);
     }
 
     @Test
@@ -124,12 +127,15 @@ class CredentialServiceImplTest {
 
         Long id = service.create(dto);
         assertThat(id).isEqualTo(100L);
+        assertThat(saved.getLineageId()).isNull();
+        assertThat(saved.getLineageRootId()).isEqualTo(100L);
         ArgumentCaptor<Credential> cap = ArgumentCaptor.forClass(Credential.class);
         verify(credentialRepository).save(cap.capture());
         var ent = cap.getValue();
         assertThat(ent.getEnabled()).isTrue();
         assertThat(ent.getVersion()).isEqualTo(1);
         verify(passwordService).encryptPasswordToEntity("p");
+        verify(secretCache).invalidate("C", Environment.QA, CredentialType.API_KEY, "u");
     }
 
     @Test
@@ -138,8 +144,12 @@ class CredentialServiceImplTest {
         old.setId(1L);
         old.setUsername("john");
         old.setVersion(1);
+        old.setLineageId(1L);
         old.setNextCredential(new Credential());
+        var latest = new Credential();
+        latest.setId(2L);
         when(credentialRepository.findById(1L)).thenReturn(Optional.of(old));
+        when(credentialRepository.findLatestInLineageForUpdate(1L)).thenReturn(Optional.of(latest));
 
         var dto = new CredentialDTO();
         assertThatThrownBy(() -> service.update(1L, dto))
@@ -152,7 +162,9 @@ class CredentialServiceImplTest {
         old.setId(1L);
         old.setUsername("john");
         old.setVersion(1);
+        old.setLineageId(1L);
         when(credentialRepository.findById(1L)).thenReturn(Optional.of(old));
+        when(credentialRepository.findLatestInLineageForUpdate(1L)).thenReturn(Optional.of(old));
 
         var app = new BusinessApp("C","N");
         app.setId(3L);
@@ -176,7 +188,62 @@ class CredentialServiceImplTest {
         assertThat(old.getNextCredential().getVersion()).isEqualTo(2);
         assertThat(old.getNextCredential().getUsername()).isEqualTo("john");
         assertThat(old.getNextCredential().getEnabled()).isTrue();
+        assertThat(old.getNextCredential().getLineageId()).isEqualTo(1L);
         verify(passwordService).encryptPasswordToEntity("new");
+        verify(secretCache).invalidate("C", Environment.PROD, CredentialType.LINUX, "john");
+    }
+
+    @Test
+    void update_firstVersionWithoutLineageId_startsLineageAtItsOwnId() {
+        var old = new Credential();
+        old.setId(5L);
+        old.setUsername("john");
+        old.setVersion(1);
+        when(credentialRepository.findById(5L)).thenReturn(Optional.of(old));
+        when(credentialRepository.findLatestInLineageForUpdate(5L)).thenReturn(Optional.of(old));
+        var app = new BusinessApp("C","N");
+        app.setId(3L);
+        when(businessAppRepository.findById(3L)).thenReturn(Optional.of(app));
+        when(credentialRepository.save(any(Credential.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var dto = new CredentialDTO();
+        dto.setApplicationId(3L);
+        dto.setEnvironment(Environment.PROD);
+        dto.setCredentialType(CredentialType.LINUX);
+        dto.setPassword("new");
+
+        service.update(5L, dto);
+
+        assertThat(old.getLineageId()).isNull();
+        assertThat(old.getNextCredential().getLineageId()).isEqualTo(5L);
+    }
+
+    @Test
+    void update_invalidatesCachedSecretOfOldAndNewIdentity() {
+        var oldApp = new BusinessApp("OLD", "N");
+        var old = new Credential();
+        old.setId(1L);
+        old.setApplication(oldApp);
+        old.setEnvironment(Environment.DEV);
+        old.setCredentialType(CredentialType.DATABASE);
+        old.setUsername("john");
+        old.setVersion(1);
+        old.setLineageId(1L);
+        when(credentialRepository.findById(1L)).thenReturn(Optional.of(old));
+        when(credentialRepository.findLatestInLineageForUpdate(1L)).thenReturn(Optional.of(old));
+        var app = new BusinessApp("NEW", "N");
+        app.setId(3L);
+        when(businessAppRepository.findById(3L)).thenReturn(Optional.of(app));
+        when(credentialRepository.save(any(Credential.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var dto = new CredentialDTO();
+        dto.setApplicationId(3L);
+        dto.setEnvironment(Environment.QA);
+        dto.setCredentialType(CredentialType.DATABASE);
+        service.update(1L, dto);
+
+        verify(secretCache).invalidate("OLD", Environment.DEV, CredentialType.DATABASE, "john");
+        verify(secretCache).invalidate("NEW", Environment.QA, CredentialType.DATABASE, "john");
     }
 
     @Test
@@ -192,6 +259,21 @@ class CredentialServiceImplTest {
         verify(credentialRepository).save(entity);
     }
 
+    @Test
+    void delete_invalidatesCachedSecret() {
+        var entity = new Credential();
+        entity.setId(2L);
+        entity.setApplication(new BusinessApp("C", "N"));
+        entity.setEnvironment(Environment.UAT);
+        entity.setCredentialType(CredentialType.WINDOWS);
+        entity.setUsername("bob");
+        when(credentialRepository.findById(2L)).thenReturn(Optional.of(entity));
+
+        service.delete(2L);
+
+        verify(secretCache).invalidate("C", Environment.UAT, CredentialType.WINDOWS, "bob");
+    }
+
     @Test
     void delete_notFound_throws() {
         when(credentialRepository.findById(5L)).thenReturn(Optional.empty());
@@ -199,16 +281,21 @@ class CredentialServiceImplTest {
     }
 
     @Test
-    void findHistory_traversesBackwards_andSortsDescendingByVersion() {
+    void findHistory_loadsLineageInOneQuery() {
         var c3 = new Credential(); c3.setId(3L); c3.setVersion(3);
         var c2 = new Credential(); c2.setId(2L); c2.setVersion(2);
         var c1 = new Credential(); c1.setId(1L); c1.setVersion(1);
-        when(credentialRepository.findById(3L)).thenReturn(Optional.of(c3));
-        when(credentialRepository.findByNextCredential(c3)).thenReturn(Optional.of(c2));
-        when(credentialRepository.findByNextCredential(c2)).thenReturn(Optional.of(c1));
-        when(credentialRepository.findByNextCredential(c1)).thenReturn(Optional.empty());
+        when(credentialRepository.findHistory(3L)).thenReturn(List.of(c3, c2, c1));
 
         var list = service.findHistory(3L);
         assertThat(list).extracting(Credential::getVersion).containsExactly(3,2,1);
+        verify(credentialRepository).findHistory(3L);
+        verifyNoMoreInteractions(credentialRepository);
+    }
+
+    @Test
+    void findHistory_notFound_throws() {
+        when(credentialRepository.findHistory(5L)).thenReturn(List.of());
+        assertThatThrownBy(() -> service.findHistory(5L)).isInstanceOf(NotFoundException.class);
     }
 }
@@ -1,13 +1,17 @@
 package ludo.mentis.aciem.ecm.service;
 
 import ludo.mentis.aciem.ecm.config.CryptoProperties;
+import ludo.mentis.aciem.ecm.domain.CipherEnvelopeEntity;
 import ludo.mentis.aciem.ecm.model.CipherEnvelope;
 import ludo.mentis.aciem.ecm.model.Kdf;
+import ludo.mentis.aciem.ecm.service.crypto.CryptoResult;
 import ludo.mentis.aciem.ecm.service.crypto.CryptoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -59,4 +63,78 @@ class PasswordServiceImplTest {
         verify(cryptoService).decryptToString(eq(envelope), aadCaptor.capture());
         assertThat(new String(aadCaptor.getValue())).isEqualTo("test-aad");
     }
+
+    @Test
+    void encryptPasswordToEntity_usesBinaryColumn_whenConfigured() {
+        cryptoProperties.setEnvelopeStorage(CryptoProperties.EnvelopeStorage.BINARY);
+        when(cryptoService.encryptString(eq("secret"), any(byte[].class)))
+                .thenReturn(CipherEnvelope.builder()
+                        .kdf(Kdf.RAW)
+                        .iv(new byte[]{1})
+                        .ciphertext(new byte[]{2})
+                        .build());
+
+        var entity = passwordService.encryptPasswordToEntity("secret");
+
+        assertThat(entity.getEnvelope()).isNotNull();
+        assertThat(entity.getCiphertext()).isNull();
+        assertThat(entity.getKdf()).isEqualTo(Kdf.RAW);
+    }
+
+    @Test
+    void decryptPasswordsFromEntities_mapsResultsInOrder_withPerItemFailures() {
+        var ok = new CipherEnvelopeEntity();
+        ok.setVersion("v1");
+        ok.setKdf(Kdf.RAW);
+        ok.setIv(new byte[]{1});
+        ok.setCiphertext(new byte[]{2});
+        var unmappable = new CipherEnvelopeEntity(); // no kdf, iv or ciphertext
+        when(cryptoService.decryptAll(anyList(), any(byte[].class))).thenAnswer(inv -> {
+            List<CipherEnvelope> envs = inv.getArgument(0);
+            return envs.stream()
+                    .map(e -> e == null
+                            ? CryptoResult.<byte[]>failure(new NullPointerException())
+                            : CryptoResult.success("plain".getBytes()))
+                    .toList();
+        });
+
+        var results = passwordService.decryptPasswordsFromEntities(List.of(ok, unmappable));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getOrThrow()).isEqualTo("plain");
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).error()).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static CipherEnvelopeEntity rawEntity() {
+        var e = new CipherEnvelopeEntity();
+        e.setVersion("v1");
+        e.setKdf(Kdf.RAW);
+        e.setIv(new byte[]{1});
+        e.setCiphertext(new byte[]{2});
+        return e;
+    }
+
+    @Test
+    void matchesPassword_comparesBytes_and_zeroesDecryptedSecret() {
+        byte[] decrypted = "s3cret".getBytes();
+        when(cryptoService.decrypt(any(CipherEnvelope.class), any(byte[].class))).thenReturn(decrypted);
+
+        assertThat(passwordService.matchesPassword(rawEntity(), "s3cret".getBytes())).isTrue();
+        assertThat(decrypted).containsOnly(0);
+
+        when(cryptoService.decrypt(any(CipherEnvelope.class), any(byte[].class))).thenReturn("s3cret".getBytes());
+        assertThat(passwordService.matchesPassword(rawEntity(), "other".getBytes())).isFalse();
+    }
+
+    @Test
+    void decryptPasswordCharsFromEntity_decodesUtf8_and_zeroesBytes() {
+        byte[] decrypted = "pässword".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        when(cryptoService.decrypt(any(CipherEnvelope.class), any(byte[].class))).thenReturn(decrypted);
+
+        char[] chars = passwordService.decryptPasswordCharsFromEntity(rawEntity());
+
+        assertThat(new String(chars)).isEqualTo("pässword");
+        assertThat(decrypted).containsOnly(0);
+    }
 }
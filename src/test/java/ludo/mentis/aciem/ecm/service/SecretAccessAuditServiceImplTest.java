@@ -0,0 +1,178 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.config.AuditProperties;
+import ludo.mentis.aciem.ecm.model.AuditOutcome;
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.SecretAccessEvent;
+import ludo.mentis.aciem.ecm.repos.SecretAccessAuditRepository;
+import ludo.mentis.aciem.ecm.repos.SecretAccessAuditWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SecretAccessAuditServiceImplTest {
+
+    private SecretAccessAuditRepository auditRepository;
+    private SecretAccessAuditWriter auditWriter;
+    private AuditProperties properties;
+    private SecretAccessAuditServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        auditRepository = mock(SecretAccessAuditRepository.class);
+        auditWriter = mock(SecretAccessAuditWriter.class);
+        properties = new AuditProperties();
+        properties.setBufferSize(4);
+        properties.setBatchSize(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    private SecretAccessAuditServiceImpl newService() {
+        service = new SecretAccessAuditServiceImpl(auditRepository, auditWriter, properties);
+        return service;
+    }
+
+    private static SecretAccessEvent event(String username) {
+        return new SecretAccessEvent(LocalDateTime.now(), "ERP", Environment.DEV, CredentialType.DATABASE,
+                username, "client", 1L, "127.0.0.1", AuditOutcome.GRANTED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<String>> writtenBatches() {
+        ArgumentCaptor<List<SecretAccessEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditWriter, atLeastOnce()).write(captor.capture());
+        List<List<String>> batches = new ArrayList<>();
+        captor.getAllValues().forEach(b -> batches.add(b.stream().map(SecretAccessEvent::username).toList()));
+        return batches;
+    }
+
+    @Test
+    void flush_writesBufferedEventsInBatches() {
+        var service = newService();
+        for (String name : List.of("a", "b", "c", "d")) {
+            service.record(event(name));
+        }
+
+        service.flush();
+
+        assertThat(writtenBatches()).containsExactly(List.of("a", "b", "c"), List.of("d"));
+        assertThat(service.getWrittenCount()).isEqualTo(4);
+        assertThat(service.getQueueSize()).isZero();
+    }
+
+    @Test
+    void dropNewest_keepsBufferedEvents_andCountsDrop() {
+        var service = newService();
+        for (String name : List.of("a", "b", "c", "d", "e")) {
+            service.record(event(name));
+        }
+
+        service.flush();
+
+        assertThat(writtenBatches()).containsExactly(List.of("a", "b", "c"), List.of("d"));
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void dropOldest_makesRoomForNewEvent() {
+        properties.setBackpressure(AuditProperties.Backpressure.DROP_OLDEST);
+        var service = newService();
+        for (String name : List.of("a", "b", "c", "d", "e")) {
+            service.record(event(name));
+        }
+
+        service.flush();
+
+        assertThat(writtenBatches()).containsExactly(List.of("b", "c", "d"), List.of("e"));
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void block_givesUpAfterTimeout() {
+        properties.setBackpressure(AuditProperties.Backpressure.BLOCK);
+        properties.setBlockTimeout(Duration.ofMillis(2));
+        var service = newService();
+        for (String name : List.of("a", "b", "c", "d", "e")) {
+            service.record(event(name));
+        }
+
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+        assertThat(service.getQueueSize()).isEqualTo(4);
+    }
+
+    @Test
+    void failedBatch_isCounted_andDoesNotStopLaterBatches() {
+        var service = newService();
+        doThrow(new RuntimeException("db down")).doNothing().when(auditWriter).write(anyList());
+        for (String name : List.of("a", "b", "c", "d")) {
+            service.record(event(name));
+        }
+
+        service.flush();
+
+        assertThat(service.getFailedCount()).isEqualTo(3);
+        assertThat(service.getWrittenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedBatch_isRetriedRowByRow_soOnlyTheBadEventIsLost() {
+        var service = newService();
+        doAnswer(inv -> {
+            List<SecretAccessEvent> batch = inv.getArgument(0);
+            if (batch.stream().anyMatch(e -> e.username().length() > 255)) {
+                throw new DataIntegrityViolationException("Data too long for column 'username'");
+            }
+            return null;
+        }).when(auditWriter).write(anyList());
+        service.record(event("a"));
+        service.record(event("x".repeat(300)));
+        service.record(event("c"));
+
+        service.flush();
+
+        assertThat(service.getWrittenCount()).isEqualTo(2);
+        assertThat(service.getFailedCount()).isEqualTo(1);
+        assertThat(writtenBatches()).contains(List.of("a"), List.of("c"));
+    }
+
+    @Test
+    void backgroundWriter_flushesWithoutExplicitCall() {
+        properties.setFlushInterval(Duration.ofMillis(10));
+        var service = newService();
+        service.start();
+
+        service.record(event("a"));
+
+        verify(auditWriter, timeout(2000)).write(anyList());
+    }
+
+    @Test
+    void disabled_recordsNothing() {
+        properties.setEnabled(false);
+        var service = newService();
+        service.start();
+
+        service.record(event("a"));
+        service.flush();
+
+        verifyNoInteractions(auditWriter);
+    }
+}
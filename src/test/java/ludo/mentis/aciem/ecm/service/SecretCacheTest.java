@@ -0,0 +1,101 @@
+package ludo.mentis.aciem.ecm.service;
+
+import ludo.mentis.aciem.ecm.model.CredentialType;
+import ludo.mentis.aciem.ecm.model.Environment;
+import ludo.mentis.aciem.ecm.model.PasswordRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SecretCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SecretCache cache = new SecretCache(2, Duration.ofSeconds(30), clock::get);
+
+    private static PasswordRequest request(String appCode, String username) {
+        return new PasswordRequest(appCode, Environment.DEV, CredentialType.DATABASE, username);
+    }
+
+    @Test
+    void get_returnsCachedPassword_caseInsensitivelyOnCodeAndUsername() {
+        cache.put(request("ERP", "john"), "s3cr3t!", cache.generation());
+
+        assertThat(cache.get(request("erp", "JOHN"))).isEqualTo("s3cr3t!");
+        assertThat(cache.get(new PasswordRequest("ERP", Environment.QA, CredentialType.DATABASE, "john"))).isNull();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void get_handlesNonAsciiPasswords() {
+        cache.put(request("ERP", "john"), "pässwörd-密码", cache.generation());
+
+        assertThat(cache.get(request("ERP", "john"))).isEqualTo("pässwörd-密码");
+    }
+
+    @Test
+    void get_missesOnceExpired() {
+        cache.put(request("ERP", "john"), "s3cr3t!", cache.generation());
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertThat(cache.get(request("ERP", "john"))).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsed_whenFull() {
+        cache.put(request("ERP", "a"), "1", cache.generation());
+        cache.put(request("ERP", "b"), "2", cache.generation());
+        cache.get(request("ERP", "a"));
+        cache.put(request("ERP", "c"), "3", cache.generation());
+
+        assertThat(cache.get(request("ERP", "b"))).isNull();
+        assertThat(cache.get(request("ERP", "a"))).isEqualTo("1");
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidate_removesOnlyThatCredential() {
+        cache.put(request("ERP", "a"), "1", cache.generation());
+        cache.put(request("ERP", "b"), "2", cache.generation());
+
+        cache.invalidate("erp", Environment.DEV, CredentialType.DATABASE, "A");
+
+        assertThat(cache.get(request("ERP", "a"))).isNull();
+        assertThat(cache.get(request("ERP", "b"))).isEqualTo("2");
+    }
+
+    @Test
+    void put_ignoresPasswordLoadedBeforeAnInvalidation() {
+        long loadedAt = cache.generation();
+        cache.invalidate("ERP", Environment.DEV, CredentialType.DATABASE, "john");
+
+        cache.put(request("ERP", "john"), "stale", loadedAt);
+
+        assertThat(cache.get(request("ERP", "john"))).isNull();
+    }
+
+    @Test
+    void disabledCache_neverStores() {
+        var disabled = new SecretCache(0, Duration.ofSeconds(30), clock::get);
+
+        disabled.put(request("ERP", "john"), "s3cr3t!", disabled.generation());
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.get(request("ERP", "john"))).isNull();
+        assertThat(disabled.size()).isZero();
+    }
+
+    @Test
+    void constructor_rejectsInvalidBounds() {
+        assertThatThrownBy(() -> new SecretCache(-1, Duration.ofSeconds(1), clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SecretCache(1, Duration.ZERO, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,89 @@
+package ludo.mentis.aciem.ecm.service.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpmcRingBufferTest {
+
+    @Test
+    void capacity_isRoundedUpToPowerOfTwo() {
+        assertEquals(8, new MpmcRingBuffer<>(5).capacity());
+        assertEquals(8, new MpmcRingBuffer<>(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new MpmcRingBuffer<>(1));
+    }
+
+    @Test
+    void offerAndPoll_areFifo_andBounded() {
+        var buffer = new MpmcRingBuffer<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, (int) buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, (int) buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void wrapsAroundManyTimes() {
+        var buffer = new MpmcRingBuffer<Integer>(2);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(buffer.offer(i));
+            assertEquals(i, (int) buffer.poll());
+        }
+    }
+
+    @Test
+    void concurrentProducers_loseNothing_whenConsumerKeepsUp() throws Exception {
+        var buffer = new MpmcRingBuffer<Integer>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        var done = new CountDownLatch(producers);
+        var consumed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(producers + 1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                pool.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            pool.execute(() -> {
+                while (consumed.get() < producers * perProducer) {
+                    Integer item = buffer.poll();
+                    if (item != null) {
+                        seen.add(item);
+                        consumed.incrementAndGet();
+                    }
+                }
+            });
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        assertEquals(producers * perProducer, seen.size());
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,92 @@
+package ludo.mentis.aciem.ecm.service.crypto;
+
+import ludo.mentis.aciem.ecm.exception.CryptoBusyException;
+import ludo.mentis.aciem.ecm.exception.CryptoException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoExecutorTest {
+
+    @Test
+    void call_runsOnCryptoThread() {
+        try (var executor = new CryptoExecutor(1, 1, Duration.ofSeconds(1))) {
+            String name = executor.call(() -> Thread.currentThread().getName());
+            assertTrue(name.startsWith("ecm-crypto-"));
+        }
+    }
+
+    @Test
+    void call_rethrowsTaskException() {
+        try (var executor = new CryptoExecutor(1, 1, Duration.ofSeconds(1))) {
+            var ex = assertThrows(CryptoException.class, () -> executor.call(() -> {
+                throw new CryptoException("Decryption failed");
+            }));
+            assertEquals("Decryption failed", ex.getMessage());
+        }
+    }
+
+    @Test
+    void submit_whenThreadsAndQueueFull_failsFastWithBusy() throws Exception {
+        try (var executor = new CryptoExecutor(1, 1, Duration.ofMillis(1500))) {
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            var running = executor.submit(() -> {
+                started.countDown();
+                await(release);
+                return 1;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            var queued = executor.submit(() -> 2);
+
+            var rejected = executor.submit(() -> 3);
+
+            var ex = assertThrows(CompletionException.class, rejected::join);
+            var busy = assertInstanceOf(CryptoBusyException.class, ex.getCause());
+            assertEquals(2, busy.getRetryAfterSeconds());
+            assertEquals(1, executor.getRejectedCount());
+            assertEquals(1, executor.getQueueSize());
+
+            release.countDown();
+            assertEquals(1, (int) running.get(5, TimeUnit.SECONDS));
+            assertEquals(2, (int) queued.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void call_whenSaturated_throwsBusy() throws Exception {
+        try (var executor = new CryptoExecutor(1, 1, Duration.ofSeconds(1))) {
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            executor.submit(() -> {
+                started.countDown();
+                await(release);
+                return null;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.submit(() -> null);
+
+            assertThrows(CryptoBusyException.class, () -> executor.call(() -> "x"));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void constructor_rejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new CryptoExecutor(0, 1, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new CryptoExecutor(1, 0, Duration.ofSeconds(1)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
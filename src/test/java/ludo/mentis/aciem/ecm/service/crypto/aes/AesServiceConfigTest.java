@@ -73,4 +73,47 @@ class AesServiceConfigTest {
                 AesServiceConfig.builder().keyLengthBits(64));
         assertTrue(ex.getMessage().toLowerCase().contains("aes key length"));
     }
+
+    @Test
+    void keyCacheSettings_invalid_throw() {
+        assertThrows(IllegalArgumentException.class, () ->
+                AesServiceConfig.builder().keyCacheMaxEntries(-1));
+        assertThrows(IllegalArgumentException.class, () ->
+                AesServiceConfig.builder().keyCacheTtl(java.time.Duration.ZERO));
+    }
+
+    @Test
+    void kdf_mustMatchKeyMaterial() {
+        SecretKey sk = new SecretKeySpec(new byte[16], "AES");
+        assertThrows(IllegalStateException.class, () ->
+                AesServiceConfig.builder().passphrase("p".toCharArray()).kdf(ludo.mentis.aciem.ecm.model.Kdf.RAW).build());
+        assertThrows(IllegalStateException.class, () ->
+                AesServiceConfig.builder().secretKey(sk).kdf(ludo.mentis.aciem.ecm.model.Kdf.HKDF).build());
+        assertNotNull(AesServiceConfig.builder().passphrase("p".toCharArray()).kdf(ludo.mentis.aciem.ecm.model.Kdf.HKDF).build());
+    }
+
+    @Test
+    void nonceSource_null_throws() {
+        assertThrows(NullPointerException.class, () -> AesServiceConfig.builder().nonceSource(null));
+    }
+
+    @Test
+    void streamSegmentBytes_outOfRange_throws() {
+        assertThrows(IllegalArgumentException.class, () -> AesServiceConfig.builder().streamSegmentBytes(512));
+        assertThrows(IllegalArgumentException.class, () ->
+                AesServiceConfig.builder().streamSegmentBytes(64 * 1024 * 1024));
+    }
+
+    @Test
+    void keyRing_invalidIds_throw() {
+        assertThrows(IllegalArgumentException.class, () -> AesServiceConfig.builder().keyId(256));
+        assertThrows(IllegalArgumentException.class, () -> AesServiceConfig.builder()
+                .retiredPassphrase(2, "a".toCharArray())
+                .retiredSecretKey(2, new SecretKeySpec(new byte[16], "AES")));
+        assertThrows(IllegalStateException.class, () -> AesServiceConfig.builder()
+                .passphrase("p".toCharArray())
+                .keyId(3)
+                .retiredPassphrase(3, "old".toCharArray())
+                .build());
+    }
 }
@@ -4,9 +4,11 @@ import ludo.mentis.aciem.ecm.exception.CryptoException;
 import ludo.mentis.aciem.ecm.model.CipherEnvelope;
 import ludo.mentis.aciem.ecm.model.Kdf;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,6 +77,54 @@ class AesServiceTest {
         svc.close();
     }
 
+    @Test
+    void rawKey_withCounterIvs_roundTrips_and_neverRepeatsIv(@TempDir Path dir) {
+        SecretKey sk = new SecretKeySpec(new byte[32], "AES");
+        AesService svc = new AesService(AesServiceConfig.builder()
+                .secretKey(sk)
+                .nonceSource(NonceSource.counterIv(1, dir.resolve("iv.counter")))
+                .build());
+
+        CipherEnvelope e1 = svc.encrypt("A".getBytes(), null);
+        CipherEnvelope e2 = svc.encrypt("B".getBytes(), null);
+
+        assertFalse(java.util.Arrays.equals(e1.getIv(), e2.getIv()));
+        assertArrayEquals("A".getBytes(), svc.decrypt(e1, null));
+        assertArrayEquals("B".getBytes(), svc.decrypt(e2, null));
+        svc.close();
+    }
+
+    @Test
+    void encryptAll_decryptAll_keepOrder_and_reportFailuresPerItem() {
+        AesService svc = new AesService(AesServiceConfig.builder()
+                .secretKey(new SecretKeySpec(new byte[32], "AES"))
+                .batchParallelism(4)
+                .build());
+        byte[] aad = "aad".getBytes();
+        java.util.List<byte[]> plain = new java.util.ArrayList<>();
+        for (int i = 0; i < 100; i++) plain.add(("item-" + i).getBytes());
+
+        var encrypted = svc.encryptAll(plain, aad);
+        assertEquals(100, encrypted.size());
+
+        java.util.List<CipherEnvelope> envelopes = new java.util.ArrayList<>();
+        for (var r : encrypted) envelopes.add(r.getOrThrow());
+        envelopes.set(42, null);
+        envelopes.set(7, CipherEnvelope.builder().kdf(Kdf.RAW).iv(new byte[12]).ciphertext(new byte[20]).build());
+
+        var decrypted = svc.decryptAll(envelopes, aad);
+
+        assertEquals(100, decrypted.size());
+        assertFalse(decrypted.get(7).isSuccess());
+        assertInstanceOf(CryptoException.class, decrypted.get(7).error());
+        assertFalse(decrypted.get(42).isSuccess());
+        for (int i = 0; i < 100; i++) {
+            if (i == 7 || i == 42) continue;
+            assertArrayEquals(("item-" + i).getBytes(), decrypted.get(i).getOrThrow());
+        }
+        svc.close();
+    }
+
     @Test
     void decrypt_with_service_in_wrong_mode_throws() {
         // Encrypt with passphrase service
@@ -139,4 +189,226 @@ class AesServiceTest {
         for (byte b : data) assertEquals(0, b);
         svc.close();
     }
+
+    @Test
+    void decrypt_reusesDerivedKey_fromCache() {
+        AesServiceConfig cfg = AesServiceConfig.builder()
+                .passphrase("cache-me".toCharArray())
+                .build();
+        AesService svc = new AesService(cfg);
+
+        CipherEnvelope env = svc.encryptString("cached");
+        assertEquals("cached", svc.decryptToString(env));
+        assertEquals("cached", svc.decryptToString(env));
+
+        AesService.KeyCacheStats stats = svc.keyCacheStats();
+        assertEquals(1, stats.misses(), "only the encrypt should run PBKDF2");
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.size());
+        svc.close();
+        assertEquals(0, svc.keyCacheStats().size());
+    }
+
+    @Test
+    void keyCache_canBeDisabled() {
+        AesServiceConfig cfg = AesServiceConfig.builder()
+                .passphrase("no-cache".toCharArray())
+                .keyCacheMaxEntries(0)
+                .build();
+        AesService svc = new AesService(cfg);
+
+        CipherEnvelope env = svc.encryptString("plain");
+        assertEquals("plain", svc.decryptToString(env));
+        assertEquals(new AesService.KeyCacheStats(0, 0, 0, 0, 0), svc.keyCacheStats());
+        svc.close();
+    }
+
+    @Test
+    void encryptDecrypt_roundTrip_hkdf() {
+        AesServiceConfig cfg = AesServiceConfig.builder()
+                .passphrase("master-pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .build();
+        AesService svc = new AesService(cfg);
+        byte[] aad = "ctx".getBytes();
+
+        CipherEnvelope env = svc.encryptString("hkdf secret", aad);
+
+        assertEquals(Kdf.HKDF, env.getKdf());
+        assertEquals(210_000, (int) env.getIterations());
+        assertEquals(16, env.getSalt().length);
+        assertEquals("hkdf secret", svc.decryptToString(env, aad));
+        assertThrows(CryptoException.class, () -> svc.decryptToString(env, "other".getBytes()));
+        assertEquals(0, svc.keyCacheStats().misses(), "HKDF records must not run PBKDF2 per record");
+        svc.close();
+    }
+
+    @Test
+    void hkdfService_stillReadsPbkdf2Envelopes_and_viceVersa() {
+        AesService pbkdf2 = new AesService(AesServiceConfig.builder()
+                .passphrase("shared-pass".toCharArray())
+                .build());
+        AesService hkdf = new AesService(AesServiceConfig.builder()
+                .passphrase("shared-pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .build());
+
+        CipherEnvelope legacy = pbkdf2.encryptString("legacy");
+        CipherEnvelope modern = hkdf.encryptString("modern");
+
+        assertEquals(Kdf.PBKDF2, legacy.getKdf());
+        assertEquals("legacy", hkdf.decryptToString(legacy));
+        assertEquals("modern", pbkdf2.decryptToString(modern));
+        pbkdf2.close();
+        hkdf.close();
+    }
+
+    @Test
+    void hkdfEnvelope_fromOtherIterationCount_isReadable() {
+        AesService older = new AesService(AesServiceConfig.builder()
+                .passphrase("pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .pbkdf2Iterations(100_000)
+                .build());
+        AesService current = new AesService(AesServiceConfig.builder()
+                .passphrase("pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .build());
+
+        CipherEnvelope env = older.encryptString("before the bump");
+
+        assertEquals(100_000, (int) env.getIterations());
+        assertEquals("before the bump", current.decryptToString(env));
+        older.close();
+        current.close();
+    }
+
+    @Test
+    void hkdfEnvelope_survivesStringForm() {
+        AesService svc = new AesService(AesServiceConfig.builder()
+                .passphrase("pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .build());
+        CipherEnvelope env = svc.encryptString("text");
+
+        String s = env.toString();
+        assertTrue(s.startsWith("v1:hkdf:210000:"));
+        CipherEnvelope parsed = CipherEnvelope.parse(s);
+
+        assertEquals(Kdf.HKDF, parsed.getKdf());
+        assertEquals("text", svc.decryptToString(parsed));
+        svc.close();
+    }
+
+    private static byte[] streamEncrypt(AesService svc, byte[] plain, byte[] aad) throws java.io.IOException {
+        var out = new java.io.ByteArrayOutputStream();
+        svc.encryptStream(new java.io.ByteArrayInputStream(plain), out, aad);
+        return out.toByteArray();
+    }
+
+    private static byte[] streamDecrypt(AesService svc, byte[] sealed, byte[] aad) throws java.io.IOException {
+        var out = new java.io.ByteArrayOutputStream();
+        svc.decryptStream(new java.io.ByteArrayInputStream(sealed), out, aad);
+        return out.toByteArray();
+    }
+
+    @Test
+    void stream_roundTrip_acrossSegmentBoundaries() throws Exception {
+        AesService raw = new AesService(AesServiceConfig.builder()
+                .secretKey(new SecretKeySpec(new byte[32], "AES"))
+                .streamSegmentBytes(1024)
+                .build());
+        AesService hkdf = new AesService(AesServiceConfig.builder()
+                .passphrase("stream-pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .streamSegmentBytes(1024)
+                .build());
+        byte[] aad = "aad".getBytes();
+
+        for (AesService svc : new AesService[]{raw, hkdf}) {
+            for (int len : new int[]{0, 1, 1023, 1024, 1025, 3 * 1024, 5000}) {
+                byte[] plain = new byte[len];
+                new java.util.Random(len).nextBytes(plain);
+                byte[] sealed = streamEncrypt(svc, plain, aad);
+                assertArrayEquals(plain, streamDecrypt(svc, sealed, aad), "length " + len);
+            }
+        }
+        raw.close();
+        hkdf.close();
+    }
+
+    @Test
+    void stream_tamperingTruncationAndWrongAad_areDetected() throws Exception {
+        AesService svc = new AesService(AesServiceConfig.builder()
+                .secretKey(new SecretKeySpec(new byte[32], "AES"))
+                .streamSegmentBytes(1024)
+                .build());
+        byte[] aad = "aad".getBytes();
+        byte[] sealed = streamEncrypt(svc, new byte[3 * 1024], aad);
+        int segment = 1024 + 16;
+        int header = sealed.length - 3 * segment;
+
+        byte[] flipped = sealed.clone();
+        flipped[header + segment + 5] ^= 1;
+        assertThrows(CryptoException.class, () -> streamDecrypt(svc, flipped, aad));
+
+        byte[] truncated = java.util.Arrays.copyOf(sealed, header + 2 * segment);
+        assertThrows(CryptoException.class, () -> streamDecrypt(svc, truncated, aad));
+
+        byte[] swapped = sealed.clone();
+        System.arraycopy(sealed, header, swapped, header + segment, segment);
+        System.arraycopy(sealed, header + segment, swapped, header, segment);
+        assertThrows(CryptoException.class, () -> streamDecrypt(svc, swapped, aad));
+
+        byte[] badHeader = sealed.clone();
+        badHeader[10] ^= 1; // inside the salt
+        assertThrows(CryptoException.class, () -> streamDecrypt(svc, badHeader, aad));
+
+        assertThrows(CryptoException.class, () -> streamDecrypt(svc, sealed, "other".getBytes()));
+        assertThrows(CryptoException.class, () -> streamDecrypt(svc, java.util.Arrays.copyOf(sealed, 5), aad));
+        svc.close();
+    }
+
+    @Test
+    void keyRotation_newWritesUsePrimary_and_retiredKeysStillDecrypt() throws Exception {
+        AesService before = new AesService(AesServiceConfig.builder()
+                .passphrase("old-pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .build());
+        CipherEnvelope old = before.encryptString("legacy", "aad".getBytes());
+        byte[] oldStream = streamEncrypt(before, "legacy-stream".getBytes(), null);
+        assertEquals(0, old.getKeyId());
+
+        AesService after = new AesService(AesServiceConfig.builder()
+                .passphrase("new-pass".toCharArray())
+                .kdf(Kdf.HKDF)
+                .keyId(1)
+                .retiredPassphrase(0, "old-pass".toCharArray())
+                .build());
+        CipherEnvelope fresh = after.encryptString("current", "aad".getBytes());
+
+        assertEquals(1, after.primaryKeyId());
+        assertEquals(1, fresh.getKeyId());
+        assertEquals("legacy", after.decryptToString(old, "aad".getBytes()));
+        assertEquals("current", after.decryptToString(fresh, "aad".getBytes()));
+        assertArrayEquals("legacy-stream".getBytes(), streamDecrypt(after, oldStream, null));
+        assertThrows(CryptoException.class, () -> before.decryptToString(fresh, "aad".getBytes()));
+        before.close();
+        after.close();
+    }
+
+    @Test
+    void keyId_survivesStringForm() {
+        AesService svc = new AesService(AesServiceConfig.builder()
+                .secretKey(new SecretKeySpec(new byte[32], "AES"))
+                .keyId(7)
+                .build());
+        CipherEnvelope env = svc.encryptString("x");
+
+        CipherEnvelope parsed = CipherEnvelope.parse(env.toString());
+
+        assertEquals(7, parsed.getKeyId());
+        assertEquals("x", svc.decryptToString(parsed));
+        svc.close();
+    }
 }
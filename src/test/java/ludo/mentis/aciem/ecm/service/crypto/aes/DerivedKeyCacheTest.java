@@ -0,0 +1,131 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DerivedKeyCacheTest {
+
+    private final AtomicInteger derivations = new AtomicInteger();
+    private final List<byte[]> derived = new ArrayList<>();
+
+    private byte[] derive(byte[] salt, int iterations) {
+        derivations.incrementAndGet();
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) key[i] = (byte) (salt[i % salt.length] + iterations + 1);
+        derived.add(key);
+        return key;
+    }
+
+    private static byte[] salt(int seed) {
+        byte[] s = new byte[16];
+        for (int i = 0; i < s.length; i++) s[i] = (byte) (seed + i);
+        return s;
+    }
+
+    @Test
+    void secondLookup_isHit_and_doesNotDeriveAgain() {
+        var cache = new DerivedKeyCache(8, Duration.ofMinutes(1));
+
+        SecretKey k1 = cache.get(salt(1), 1000, this::derive);
+        SecretKey k2 = cache.get(salt(1), 1000, this::derive);
+
+        assertEquals(1, derivations.get());
+        assertArrayEquals(k1.getEncoded(), k2.getEncoded());
+        assertEquals("AES", k2.getAlgorithm());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void iterations_arePartOfTheKey() {
+        var cache = new DerivedKeyCache(8, Duration.ofMinutes(1));
+
+        cache.get(salt(1), 1000, this::derive);
+        cache.get(salt(1), 2000, this::derive);
+
+        assertEquals(2, derivations.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void callerMutatingSaltAfterLookup_doesNotCorruptEntry() {
+        var cache = new DerivedKeyCache(8, Duration.ofMinutes(1));
+        byte[] s = salt(1);
+
+        cache.get(s, 1000, this::derive);
+        s[0] ^= 0x7f;
+
+        cache.get(salt(1), 1000, this::derive);
+        assertEquals(1, derivations.get());
+    }
+
+    @Test
+    void overCapacity_evictsLeastRecentlyUsed_and_zeroesIt() {
+        var cache = new DerivedKeyCache(2, Duration.ofMinutes(1));
+
+        cache.get(salt(1), 1000, this::derive);
+        cache.get(salt(2), 1000, this::derive);
+        cache.get(salt(1), 1000, this::derive); // touch 1 so 2 becomes eldest
+        cache.get(salt(3), 1000, this::derive);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        for (byte b : derived.get(1)) assertEquals(0, b, "evicted key material must be zeroed");
+
+        cache.get(salt(1), 1000, this::derive);
+        assertEquals(3, derivations.get(), "entry 1 should still be cached");
+    }
+
+    @Test
+    void expiredEntry_isRederived_and_zeroed() {
+        var now = new AtomicLong();
+        var cache = new DerivedKeyCache(8, Duration.ofSeconds(10), now::get);
+
+        cache.get(salt(1), 1000, this::derive);
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get(salt(1), 1000, this::derive);
+
+        assertEquals(2, derivations.get());
+        assertEquals(1, cache.evictions());
+        for (byte b : derived.get(0)) assertEquals(0, b);
+    }
+
+    @Test
+    void clear_zeroesAllEntries() {
+        var cache = new DerivedKeyCache(8, Duration.ofMinutes(1));
+        SecretKey handedOut = cache.get(salt(1), 1000, this::derive);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        for (byte b : derived.get(0)) assertEquals(0, b);
+        // keys already handed out are independent copies and remain usable
+        assertNotEquals(0, handedOut.getEncoded()[0]);
+    }
+
+    @Test
+    void oversizedSalt_isNotCached() {
+        var cache = new DerivedKeyCache(8, Duration.ofMinutes(1));
+        byte[] big = new byte[DerivedKeyCache.MAX_SALT_BYTES + 1];
+
+        cache.get(big, 1000, this::derive);
+        cache.get(big, 1000, this::derive);
+
+        assertEquals(2, derivations.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidSettings_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DerivedKeyCache(0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new DerivedKeyCache(1, Duration.ZERO));
+    }
+}
@@ -0,0 +1,61 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HkdfTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Test
+    void rfc5869_testCase1() {
+        byte[] ikm = HEX.parseHex("0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b");
+        byte[] salt = HEX.parseHex("000102030405060708090a0b0c");
+        byte[] info = HEX.parseHex("f0f1f2f3f4f5f6f7f8f9");
+
+        byte[] prk = Hkdf.extract(salt, ikm);
+        assertEquals("077709362c2e32df0ddc3f0dc47bba6390b6c73bb50f9c3122ec844ad7c2b3e5", HEX.formatHex(prk));
+
+        byte[] okm = Hkdf.expand(prk, info, 42);
+        assertEquals("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865",
+                HEX.formatHex(okm));
+    }
+
+    @Test
+    void rfc5869_testCase3_emptySaltAndInfo() {
+        byte[] ikm = HEX.parseHex("0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b");
+
+        byte[] okm = Hkdf.expand(Hkdf.extract(new byte[0], ikm), new byte[0], 42);
+
+        assertEquals("8da4e775a563c18f715f802a063c5a31b8a11f5c5ee1879ec3454e5f3c738d2d9d201395faa4b61a96c8",
+                HEX.formatHex(okm));
+    }
+
+    @Test
+    void deriveAesKey_isDeterministic_and_saltDependent() {
+        byte[] ikm = new byte[32];
+        byte[] salt1 = new byte[16];
+        byte[] salt2 = new byte[16];
+        salt2[0] = 1;
+
+        SecretKey a = Hkdf.deriveAesKey(ikm, salt1, null, 256);
+        SecretKey b = Hkdf.deriveAesKey(ikm, salt1, null, 256);
+        SecretKey c = Hkdf.deriveAesKey(ikm, salt2, null, 256);
+
+        assertEquals("AES", a.getAlgorithm());
+        assertEquals(32, a.getEncoded().length);
+        assertArrayEquals(a.getEncoded(), b.getEncoded());
+        assertFalse(java.util.Arrays.equals(a.getEncoded(), c.getEncoded()));
+    }
+
+    @Test
+    void expand_rejectsOutOfRangeLength() {
+        byte[] prk = new byte[32];
+        assertThrows(IllegalArgumentException.class, () -> Hkdf.expand(prk, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> Hkdf.expand(prk, null, 255 * 32 + 1));
+    }
+}
@@ -0,0 +1,59 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JceObjectsTest {
+
+    @Test
+    void sameThread_getsSameInstances() {
+        assertSame(JceObjects.aesGcm(), JceObjects.aesGcm());
+        assertSame(JceObjects.pbkdf2(), JceObjects.pbkdf2());
+        assertSame(JceObjects.hmacSha256(), JceObjects.hmacSha256());
+    }
+
+    @Test
+    void otherThread_getsOwnCipher() throws Exception {
+        var other = new AtomicReference<Cipher>();
+        var t = new Thread(() -> other.set(JceObjects.aesGcm()));
+        t.start();
+        t.join();
+
+        assertNotNull(other.get());
+        assertNotSame(JceObjects.aesGcm(), other.get());
+    }
+
+    @Test
+    void reusedCipher_roundTripsWithFreshIvs_evenAfterFailedDecrypt() throws Exception {
+        var kg = KeyGenerator.getInstance("AES");
+        kg.init(256);
+        SecretKey key = kg.generateKey();
+        var rng = new SecureRandom();
+        byte[] plain = "secret".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 3; i++) {
+            byte[] iv = new byte[12];
+            rng.nextBytes(iv);
+            Cipher cipher = JceObjects.aesGcm();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            byte[] ct = cipher.doFinal(plain);
+
+            byte[] tampered = ct.clone();
+            tampered[0] ^= 1;
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            assertThrows(javax.crypto.AEADBadTagException.class, () -> cipher.doFinal(tampered));
+
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            assertArrayEquals(plain, cipher.doFinal(ct));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ludo.mentis.aciem.ecm.service.crypto.aes;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonceSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void drbg_producesDistinctValues() {
+        var source = NonceSource.drbg();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            byte[] iv = new byte[12];
+            source.nextIv(iv);
+            assertTrue(seen.add(Arrays.toString(iv)));
+        }
+    }
+
+    @Test
+    void counterIv_usesConfiguredFixedField_and_incrementsCounter() {
+        var source = NonceSource.counterIv(0x0A0B0C0D, dir.resolve("iv.counter"));
+        byte[] first = new byte[12];
+        byte[] second = new byte[12];
+        source.nextIv(first);
+        source.nextIv(second);
+
+        assertArrayEquals(new byte[]{0x0A, 0x0B, 0x0C, 0x0D}, Arrays.copyOf(first, 4));
+        assertArrayEquals(Arrays.copyOf(first, 4), Arrays.copyOf(second, 4));
+        assertEquals(0, first[11]);
+        assertEquals(1, second[11]);
+    }
+
+    @Test
+    void counterIv_reservesBlockBeforeUse_and_continuesPastItAfterRestart() throws IOException {
+        var file = dir.resolve("iv.counter");
+        byte[] before = new byte[12];
+        NonceSource.counterIv(1, file).nextIv(before);
+        assertEquals(Long.toString(CounterIvNonceSource.BLOCK), Files.readString(file));
+
+        byte[] after = new byte[12];
+        NonceSource.counterIv(1, file).nextIv(after);
+
+        assertEquals(CounterIvNonceSource.BLOCK, ByteBuffer.wrap(after, 4, 8).getLong());
+        assertEquals(Long.toString(2 * CounterIvNonceSource.BLOCK), Files.readString(file));
+        assertFalse(Arrays.equals(before, after));
+    }
+
+    @Test
+    void counterIv_rejectsUnreadableCounterFile() throws IOException {
+        var file = Files.writeString(dir.resolve("iv.counter"), "garbage");
+
+        assertThrows(IllegalStateException.class, () -> NonceSource.counterIv(1, file));
+    }
+
+    @Test
+    void counterIv_rejectsOtherIvLengths() {
+        var source = NonceSource.counterIv(1, dir.resolve("iv.counter"));
+
+        assertThrows(IllegalArgumentException.class, () -> source.nextIv(new byte[16]));
+    }
+
+    @Test
+    void counterIv_saltsAreRandom() {
+        var source = NonceSource.counterIv(1, dir.resolve("iv.counter"));
+        byte[] s1 = new byte[16];
+        byte[] s2 = new byte[16];
+        source.nextBytes(s1);
+        source.nextBytes(s2);
+
+        assertFalse(Arrays.equals(s1, s2));
+    }
+}
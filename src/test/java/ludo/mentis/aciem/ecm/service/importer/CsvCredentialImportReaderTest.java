@@ -0,0 +1,93 @@
+package ludo.mentis.aciem.ecm.service.importer;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvCredentialImportReaderTest {
+
+    private static List<CredentialImportRow> readAll(String csv) throws IOException {
+        try (var reader = CredentialImportReader.open(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), CredentialImportFormat.CSV)) {
+            var rows = new ArrayList<CredentialImportRow>();
+            CredentialImportRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+
+    @Test
+    void readsRows_byHeaderName_inAnyOrder() throws IOException {
+        var rows = readAll("username,appCode,password,environment,credentialType,extra\n"
+                + "app_user,BILLING,s3cret,PROD,DATABASE,ignored\n");
+
+        assertThat(rows).containsExactly(
+                new CredentialImportRow(2, "BILLING", "PROD", "DATABASE", "app_user", "s3cret", null, null));
+    }
+
+    @Test
+    void handlesQuotes_embeddedNewlines_crlf_bom_and_blankLines() throws IOException {
+        var rows = readAll("\uFEFFappCode,environment,credentialType,username,password,url,notes\r\n"
+                + "A,DEV,LINUX,root,\"pa,ss\"\"word\",,\"line1\r\nline2\"\r\n"
+                + "\r\n"
+                + "B,QA,OTHER,svc,x,http://b,\r\n");
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).password()).isEqualTo("pa,ss\"word");
+        assertThat(rows.get(0).url()).isNull();
+        assertThat(rows.get(0).notes()).isEqualTo("line1\r\nline2");
+        assertThat(rows.get(0).rowNumber()).isEqualTo(2);
+        assertThat(rows.get(1).appCode()).isEqualTo("B");
+        assertThat(rows.get(1).url()).isEqualTo("http://b");
+        assertThat(rows.get(1).rowNumber()).isEqualTo(5);
+    }
+
+    @Test
+    void lastRow_withoutTrailingNewline_isRead() throws IOException {
+        var rows = readAll("appCode,environment,credentialType,username,password\nA,DEV,LINUX,root,pw");
+
+        assertThat(rows).extracting(CredentialImportRow::password).containsExactly("pw");
+    }
+
+    @Test
+    void missingRequiredColumn_isRejected() {
+        assertThatThrownBy(() -> readAll("appCode,environment,credentialType,username\nA,DEV,LINUX,root\n"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("`password`");
+    }
+
+    @Test
+    void emptyFile_isRejected() {
+        assertThatThrownBy(() -> readAll(""))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("header");
+    }
+
+    @Test
+    void unclosedQuote_reportsLine() {
+        assertThatThrownBy(() -> readAll("appCode,environment,credentialType,username,password\n"
+                + "A,DEV,LINUX,root,pw\n"
+                + "A,DEV,LINUX,\"root,pw\n"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Line 3: quoted field is never closed.");
+    }
+
+    @Test
+    void textAfterClosingQuote_isRejected() {
+        assertThatThrownBy(() -> readAll("appCode,environment,credentialType,username,password\n"
+                + "A,DEV,LINUX,\"root\"x,pw\n"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Line 2: unexpected character after a closing quote.");
+    }
+}
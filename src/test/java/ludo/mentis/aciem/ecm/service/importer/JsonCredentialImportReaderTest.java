@@ -0,0 +1,71 @@
+package ludo.mentis.aciem.ecm.service.importer;
+
+import ludo.mentis.aciem.ecm.model.CredentialImportFormat;
+import ludo.mentis.aciem.ecm.model.CredentialImportRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonCredentialImportReaderTest {
+
+    private static List<CredentialImportRow> readAll(String json) throws IOException {
+        try (var reader = CredentialImportReader.open(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), CredentialImportFormat.JSON)) {
+            var rows = new ArrayList<CredentialImportRow>();
+            CredentialImportRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+
+    @Test
+    void readsObjects_ignoringCase_andUnknownFields() throws IOException {
+        var rows = readAll("""
+                [
+                  {"appCode": "BILLING", "Environment": "PROD", "credentialType": "DATABASE",
+                   "username": "app_user", "password": "s3cret", "url": null, "tags": ["a", {"b": 1}]},
+                  {"appCode": "HR", "environment": "DEV", "credentialType": "API_KEY",
+                   "username": "svc", "password": 12345, "notes": "rotated"}
+                ]
+                """);
+
+        assertThat(rows).containsExactly(
+                new CredentialImportRow(1, "BILLING", "PROD", "DATABASE", "app_user", "s3cret", null, null),
+                new CredentialImportRow(2, "HR", "DEV", "API_KEY", "svc", "12345", null, "rotated"));
+    }
+
+    @Test
+    void emptyArray_hasNoRows() throws IOException {
+        assertThat(readAll("[]")).isEmpty();
+    }
+
+    @Test
+    void topLevelObject_isRejected() {
+        assertThatThrownBy(() -> readAll("{\"appCode\": \"A\"}"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Expected a JSON array of credentials.");
+    }
+
+    @Test
+    void nonObjectItem_reportsItem() {
+        assertThatThrownBy(() -> readAll("[{\"appCode\": \"A\"}, \"oops\"]"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Item 2: expected an object.");
+    }
+
+    @Test
+    void structuredValue_forKnownField_isRejected() {
+        assertThatThrownBy(() -> readAll("[{\"password\": {\"value\": \"x\"}}]"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Item 1: `password` must be a string.");
+    }
+}
@@ -0,0 +1,33 @@
+package ludo.mentis.aciem.ecm.validation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiKeyServerValidValidatorTest {
+
+    private final ApiKeyServerValid.ApiKeyServerValidValidator validator =
+            new ApiKeyServerValid.ApiKeyServerValidValidator();
+
+    @Test
+    void isValid_NullOrBlankValue_ReturnsTrue() {
+        assertTrue(validator.isValid(null, null));
+        assertTrue(validator.isValid(" ", null));
+    }
+
+    @Test
+    void isValid_AddressesRangesAndHostnames_ReturnsTrue() {
+        assertTrue(validator.isValid("192.0.2.10, 10.1.0.0/16, 2001:db8::/32, app.example.com", null));
+    }
+
+    @Test
+    void isValid_HostWithPort_ReturnsFalse() {
+        assertFalse(validator.isValid("app.example.com:8080", null));
+    }
+
+    @Test
+    void isValid_InvalidPrefix_ReturnsFalse() {
+        assertFalse(validator.isValid("10.1.0.0/40", null));
+    }
+}
@@ -1,13 +1,13 @@
 package ludo.mentis.aciem.ecm.validation;
 
 import jakarta.servlet.http.HttpServletRequest;
-import ludo.mentis.aciem.ecm.model.BusinessAppDTO;
-import ludo.mentis.aciem.ecm.service.BusinessAppService;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.servlet.HandlerMapping;
 
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -15,15 +15,15 @@ import static org.mockito.Mockito.*;
 
 class BusinessAppCodeUniqueValidatorTest {
 
-    private BusinessAppService businessAppService;
+    private BusinessAppRegistry businessAppRegistry;
     private HttpServletRequest request;
     private BusinessAppCodeUnique.BusinessAppCodeUniqueValidator validator;
 
     @BeforeEach
     void setUp() {
-        businessAppService = mock(BusinessAppService.class);
+        businessAppRegistry = mock(BusinessAppRegistry.class);
         request = mock(HttpServletRequest.class);
-        validator = new BusinessAppCodeUnique.BusinessAppCodeUniqueValidator(businessAppService, request);
+        validator = new BusinessAppCodeUnique.BusinessAppCodeUniqueValidator(businessAppRegistry, request);
     }
 
     @Test
@@ -35,19 +35,17 @@ class BusinessAppCodeUniqueValidatorTest {
     void isValid_EditingAndCodeUnchanged_ReturnsTrue() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE))
                 .thenReturn(Map.of("id", "5"));
-        BusinessAppDTO existing = new BusinessAppDTO();
-        existing.setId(5L);
-        existing.setCode("ECM-01");
-        when(businessAppService.get(5L)).thenReturn(existing);
+        when(businessAppRegistry.findById(5L))
+                .thenReturn(Optional.of(new BusinessAppRegistry.App(5L, "ECM-01", "My App")));
 
         assertTrue(validator.isValid("ecm-01", null), "Same code (case-insensitive) on edit should be valid");
-        verify(businessAppService, never()).codeExists(anyString());
+        verify(businessAppRegistry, never()).codeExists(anyString());
     }
 
     @Test
     void isValid_CodeAlreadyExists_ReturnsFalse() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(null);
-        when(businessAppService.codeExists("APP-X"))
+        when(businessAppRegistry.codeExists("APP-X"))
                 .thenReturn(true);
 
         assertFalse(validator.isValid("APP-X", null));
@@ -56,7 +54,7 @@ class BusinessAppCodeUniqueValidatorTest {
     @Test
     void isValid_CodeDoesNotExist_ReturnsTrue() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(null);
-        when(businessAppService.codeExists("UNIQ-42"))
+        when(businessAppRegistry.codeExists("UNIQ-42"))
                 .thenReturn(false);
 
         assertTrue(validator.isValid("UNIQ-42", null));
@@ -66,9 +64,9 @@ class BusinessAppCodeUniqueValidatorTest {
     void isValid_InvalidIdFallsBackToExists_ChecksExistence() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE))
                 .thenReturn(Map.of("id", "not-a-number"));
-        when(businessAppService.codeExists("DUP-1")).thenReturn(true);
+        when(businessAppRegistry.codeExists("DUP-1")).thenReturn(true);
 
         assertFalse(validator.isValid("DUP-1", null));
-        verify(businessAppService).codeExists("DUP-1");
+        verify(businessAppRegistry).codeExists("DUP-1");
     }
 }
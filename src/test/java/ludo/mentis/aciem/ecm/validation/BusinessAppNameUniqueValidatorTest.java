@@ -1,13 +1,13 @@
 package ludo.mentis.aciem.ecm.validation;
 
 import jakarta.servlet.http.HttpServletRequest;
-import ludo.mentis.aciem.ecm.model.BusinessAppDTO;
-import ludo.mentis.aciem.ecm.service.BusinessAppService;
+import ludo.mentis.aciem.ecm.service.BusinessAppRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.servlet.HandlerMapping;
 
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -15,15 +15,15 @@ import static org.mockito.Mockito.*;
 
 class BusinessAppNameUniqueValidatorTest {
 
-    private BusinessAppService businessAppService;
+    private BusinessAppRegistry businessAppRegistry;
     private HttpServletRequest request;
     private BusinessAppNameUnique.BusinessAppNameUniqueValidator validator;
 
     @BeforeEach
     void setUp() {
-        businessAppService = mock(BusinessAppService.class);
+        businessAppRegistry = mock(BusinessAppRegistry.class);
         request = mock(HttpServletRequest.class);
-        validator = new BusinessAppNameUnique.BusinessAppNameUniqueValidator(businessAppService, request);
+        validator = new BusinessAppNameUnique.BusinessAppNameUniqueValidator(businessAppRegistry, request);
     }
 
     @Test
@@ -35,19 +35,17 @@ class BusinessAppNameUniqueValidatorTest {
     void isValid_EditingAndNameUnchanged_ReturnsTrue() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE))
                 .thenReturn(Map.of("id", "5"));
-        BusinessAppDTO existing = new BusinessAppDTO();
-        existing.setId(5L);
-        existing.setName("MyApp");
-        when(businessAppService.get(5L)).thenReturn(existing);
+        when(businessAppRegistry.findById(5L))
+                .thenReturn(Optional.of(new BusinessAppRegistry.App(5L, "ECM-01", "MyApp")));
 
         assertTrue(validator.isValid("myapp", null), "Same name (case-insensitive) on edit should be valid");
-        verify(businessAppService, never()).nameExists(anyString());
+        verify(businessAppRegistry, never()).nameExists(anyString());
     }
 
     @Test
     void isValid_NameAlreadyExists_ReturnsFalse() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(null);
-        when(businessAppService.nameExists("AppX")).thenReturn(true);
+        when(businessAppRegistry.nameExists("AppX")).thenReturn(true);
 
         assertFalse(validator.isValid("AppX", null));
     }
@@ -55,7 +53,7 @@ class BusinessAppNameUniqueValidatorTest {
     @Test
     void isValid_NameDoesNotExist_ReturnsTrue() {
         when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(null);
-        when(businessAppService.nameExists("UniqueApp")).thenReturn(false);
+        when(businessAppRegistry.nameExists("UniqueApp")).thenReturn(false);
 
         assertTrue(validator.isValid("UniqueApp", null));
     }